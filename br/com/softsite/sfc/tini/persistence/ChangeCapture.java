@@ -0,0 +1,307 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Vector;
+
+/**
+* Captura as alterações feitas em uma tabela (change data capture) e as publica em lotes
+* para um ChangeSink.
+*
+* As alterações feitas pelo objeto Table (addRecord, setFieldXXX, deleteRecord) são recebidas
+* como TableListener. Nas alterações, o registro anterior é comparado com o novo coluna a coluna
+* e apenas as colunas alteradas fazem parte do evento. Registros adicionados por outros
+* processos (ex: aplicação Clipper) são obtidos por poll(), que compara a quantidade de
+* registros do cabeçalho com o último registro já publicado.
+*
+* Os eventos são acumulados e publicados quando o lote atinge o tamanho configurado, em
+* flush() e no fechamento da tabela. Se o ChangeSink falhar, o lote é mantido e enviado
+* novamente no próximo envio.
+*
+* <pre>
+*	ChangeCapture capture = new ChangeCapture( table, sink, 100 );
+*	...
+*	capture.poll();		// periodicamente, para as inclusões externas
+*	capture.flush();
+* </pre>
+*
+* @version 1.0
+*/
+public class ChangeCapture implements TableListener {
+
+	/** Tamanho padrão do lote */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/** Tabela monitorada */
+	private final Table table;
+
+	/** Destino dos eventos */
+	private final ChangeSink sink;
+
+	/** Quantidade de eventos por lote */
+	private final int batchSize;
+
+	/** Eventos ainda não publicados */
+	private Vector pending = new Vector();
+
+	/** Último registro adicionado já capturado */
+	private int lastRecord;
+
+	/** Handle próprio do arquivo, para o poll() (aberto no primeiro uso) */
+	private RandomAccessFile file;
+
+	/** Última falha na publicação feita por um evento da tabela */
+	private IOException lastError;
+
+	/**
+	 * Construtor. Os registros já existentes na tabela não geram eventos.
+	 * @param table		Tabela a ser monitorada
+	 * @param sink		Destino dos eventos
+	 */
+	public ChangeCapture( Table table, ChangeSink sink )
+	{
+		this( table, sink, DEFAULT_BATCH_SIZE );
+	}
+
+	/**
+	 * Construtor. Os registros já existentes na tabela não geram eventos.
+	 * @param table		Tabela a ser monitorada
+	 * @param sink		Destino dos eventos
+	 * @param batchSize	Quantidade de eventos por lote
+	 */
+	public ChangeCapture( Table table, ChangeSink sink, int batchSize )
+	{
+		super();
+		this.table 		= table;
+		this.sink 		= sink;
+		this.batchSize 	= Math.max( 1, batchSize );
+		this.lastRecord = table.getNumberOfRecords();
+
+		table.addTableListener( this );
+	}
+
+	/**
+	 * Captura os registros adicionados à tabela por outros processos, de acordo com a
+	 * quantidade de registros gravada no cabeçalho
+	 * @return Quantidade de registros capturados
+	 * @throws IOException
+	 */
+	public int poll() throws IOException
+	{
+		if ( file == null )
+		{
+			file = new RandomAccessFile( new File( table.tableName ), "r" );
+		}
+
+		byte[] count = new byte[4];
+		file.seek( Table.HEADER_NUMBER_OF_RECORDS );
+		file.readFully( count );
+
+		// Registros cujo conteúdo ainda não foi totalmente gravado ficam para o próximo poll()
+		int last = (int)Math.min( Math.min( Utils.readLittleEndianUnsignedInt( count, 0 ),
+										   ( file.length() - table.headerLength ) / table.recordLength ),
+								 Integer.MAX_VALUE );
+
+		int captured = 0;
+		for ( ; lastRecord < last; captured++ )
+		{
+			byte[] data = new byte[table.recordLength];
+			file.seek( table.recordPosition( lastRecord + 1 ) );
+			file.readFully( data );
+
+			lastRecord++;
+			add( newEvent( ChangeEvent.ADDED, lastRecord, null, data ) );
+		}
+
+		flush();
+		return captured;
+	}
+
+	/**
+	 * Publica os eventos pendentes
+	 * @throws IOException Falha no ChangeSink (os eventos continuam pendentes)
+	 */
+	public void flush() throws IOException
+	{
+		lastError = null;
+
+		if ( pending.size() > 0 )
+		{
+			ChangeEvent[] events = new ChangeEvent[pending.size()];
+			pending.copyInto( events );
+
+			sink.publish( events );
+			pending.removeAllElements();
+		}
+	}
+
+	/**
+	 * Deixa de monitorar a tabela. Os eventos pendentes são publicados.
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		table.removeTableListener( this );
+
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			if ( file != null )
+			{
+				file.close();
+				file = null;
+			}
+		}
+	}
+
+	/**
+	 * Quantidade de eventos ainda não publicados
+	 */
+	public int getPendingCount()
+	{
+		return pending.size();
+	}
+
+	/**
+	 * Falha ocorrida na publicação de um lote completado por uma alteração na tabela, que
+	 * não pode ser repassada a quem fez a alteração (null se não houve falha desde o último
+	 * flush())
+	 */
+	public IOException getLastError()
+	{
+		return lastError;
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		if ( record > lastRecord )
+		{
+			lastRecord = record;
+		}
+		add( newEvent( ChangeEvent.ADDED, record, null, data ) );
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		if ( newData[0] == Table.DELETED && oldData[0] != Table.DELETED )
+		{
+			recordDeleted( table, record );
+			return;
+		}
+		if ( newData[0] != Table.DELETED && oldData[0] == Table.DELETED )
+		{
+			recordRecalled( table, record, newData );
+		}
+
+		ChangeEvent event = newEvent( ChangeEvent.CHANGED, record, oldData, newData );
+		if ( event.getColumnCount() > 0 )
+		{
+			add( event );
+		}
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+		add( new ChangeEvent( ChangeEvent.DELETED, record, new String[0], new byte[0][] ) );
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+		add( new ChangeEvent( ChangeEvent.RECALLED, record, new String[0], new byte[0][] ) );
+	}
+
+	public void tableClosed( Table table )
+	{
+		try
+		{
+			close();
+		}
+		catch ( IOException e )
+		{
+			lastError = e;
+		}
+	}
+
+	/**
+	 * Monta um evento com as colunas do registro (todas, ou apenas as diferentes de oldData)
+	 */
+	private ChangeEvent newEvent( int type, int record, byte[] oldData, byte[] data )
+	{
+		Field[] fields = table.getFields();
+
+		String[] names 	 = new String[fields.length];
+		byte[][] values  = new byte[fields.length][];
+		int 	 columns = 0;
+
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			Field field = fields[i];
+
+			if ( oldData != null && equals( oldData, data, field.offset, field.fieldLength ) )
+			{
+				continue;
+			}
+
+			names[columns]  = field.fieldName;
+			values[columns] = new byte[field.fieldLength];
+			System.arraycopy( data, field.offset, values[columns], 0, field.fieldLength );
+			columns++;
+		}
+
+		if ( columns < fields.length )
+		{
+			String[] n = new String[columns];
+			byte[][] v = new byte[columns][];
+			System.arraycopy( names, 0, n, 0, columns );
+			System.arraycopy( values, 0, v, 0, columns );
+			names  = n;
+			values = v;
+		}
+
+		return new ChangeEvent( type, record, names, values );
+	}
+
+	/**
+	 * Acumula um evento, publicando o lote quando estiver completo
+	 */
+	private void add( ChangeEvent event )
+	{
+		pending.addElement( event );
+
+		if ( pending.size() >= batchSize )
+		{
+			try
+			{
+				flush();
+			}
+			catch ( IOException e )
+			{
+				// Os eventos continuam pendentes e serão enviados no próximo lote
+				lastError = e;
+			}
+		}
+	}
+
+	private static boolean equals( byte[] a, byte[] b, int pos, int len )
+	{
+		for ( int end = pos + len; pos < end; pos++ )
+		{
+			if ( a[pos] != b[pos] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
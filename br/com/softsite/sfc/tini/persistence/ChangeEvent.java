@@ -0,0 +1,126 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Alteração em um registro da tabela, gerada por ChangeCapture.
+*
+* Os valores são os bytes gravados no arquivo (na página de código da tabela, números
+* alinhados à direita, datas no formato AAAAMMDD, memos como número do bloco).
+*
+* @version 1.0
+*/
+public class ChangeEvent {
+
+	/** Registro adicionado: todas as colunas são informadas */
+	public static final int ADDED 	= 1;
+
+	/** Registro alterado: apenas as colunas alteradas são informadas */
+	public static final int CHANGED = 2;
+
+	/** Registro marcado como deletado: nenhuma coluna é informada */
+	public static final int DELETED = 3;
+
+	/** Registro deletado recuperado: nenhuma coluna é informada */
+	public static final int RECALLED = 4;
+
+	/** Tipo do evento */
+	private final int type;
+
+	/** Número do registro */
+	private final int recordNumber;
+
+	/** Colunas informadas */
+	private final String[] columnNames;
+
+	/** Conteúdo de cada coluna informada */
+	private final byte[][] columnData;
+
+	ChangeEvent( int type, int recordNumber, String[] columnNames, byte[][] columnData )
+	{
+		super();
+		this.type 		  = type;
+		this.recordNumber = recordNumber;
+		this.columnNames  = columnNames;
+		this.columnData   = columnData;
+	}
+
+	/**
+	 * Tipo do evento (ADDED, CHANGED, DELETED ou RECALLED)
+	 */
+	public int getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Número do registro
+	 */
+	public int getRecordNumber()
+	{
+		return recordNumber;
+	}
+
+	/**
+	 * Quantidade de colunas informadas
+	 */
+	public int getColumnCount()
+	{
+		return columnNames.length;
+	}
+
+	/**
+	 * Nome de uma coluna informada
+	 * @param index Posição, de 0 a getColumnCount() - 1
+	 */
+	public String getColumnName( int index )
+	{
+		return columnNames[index];
+	}
+
+	/**
+	 * Conteúdo de uma coluna informada
+	 * @param index Posição, de 0 a getColumnCount() - 1
+	 */
+	public byte[] getColumnData( int index )
+	{
+		return columnData[index];
+	}
+
+	/**
+	 * Conteúdo de uma coluna pelo nome
+	 * @param columnName Nome da coluna
+	 * @return O conteúdo, ou null se a coluna não faz parte do evento
+	 */
+	public byte[] getColumnData( String columnName )
+	{
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			if ( columnNames[i].equalsIgnoreCase( columnName ) )
+			{
+				return columnData[i];
+			}
+		}
+		return null;
+	}
+
+	public String toString()
+	{
+		StringBuffer sb = new StringBuffer();
+		sb.append( type == ADDED ? "ADDED" : type == CHANGED ? "CHANGED" : type == DELETED ? "DELETED" : "RECALLED" );
+		sb.append( " #" ).append( recordNumber );
+
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			sb.append( ' ' ).append( columnNames[i] ).append( '=' );
+			sb.append( new String( columnData[i], 0, columnData[i].length ) );
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,26 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+
+/**
+* Destino dos eventos gerados por ChangeCapture (arquivo, fila, socket, ...).
+*
+* @version 1.0
+*/
+public interface ChangeSink {
+
+	/**
+	 * Publica um lote de eventos, na ordem em que as alterações foram feitas.
+	 * Se for lançada uma exceção, o lote é mantido e publicado novamente no próximo envio.
+	 * @param events Eventos do lote
+	 * @throws IOException
+	 */
+	void publish( ChangeEvent[] events ) throws IOException;
+}
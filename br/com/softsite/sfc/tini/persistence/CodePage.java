@@ -0,0 +1,214 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Hashtable;
+
+/**
+* Página de código (code page) das colunas caracter de uma tabela.
+*
+* O byte 29 do cabeçalho do DBF (Language Driver ID) indica a página de código usada na
+* gravação dos dados. Como só são suportadas páginas de código de um byte por caracter, a
+* decodificação é feita por uma tabela de 256 posições montada uma única vez por página de
+* código, sem depender do encoding padrão da plataforma.
+*
+* @version 1.0
+*/
+public class CodePage {
+
+	/** Página de código não informada no cabeçalho */
+	public static final byte MARK_NONE 		= 0x00;
+
+	/** US MS-DOS */
+	public static final byte MARK_CP437 	= 0x01;
+
+	/** International MS-DOS (padrão do Clipper no Brasil) */
+	public static final byte MARK_CP850 	= 0x02;
+
+	/** Windows ANSI */
+	public static final byte MARK_CP1252 	= 0x03;
+
+	/** Encoding utilizado quando a página de código não é informada ou não é suportada */
+	public static final String DEFAULT_ENCODING = "ISO8859_1";
+
+	/** Language Driver ID -> encoding Java (apenas páginas de código de um byte) */
+	private static final Object[][] MARKS = {
+		{ new Byte( MARK_CP437 ), 	"Cp437" },
+		{ new Byte( MARK_CP850 ), 	"Cp850" },
+		{ new Byte( MARK_CP1252 ), 	"Cp1252" },
+		{ new Byte( (byte)0x04 ), 	"MacRoman" },
+		{ new Byte( (byte)0x57 ), 	"Cp1252" },
+		{ new Byte( (byte)0x58 ), 	"Cp1252" },
+		{ new Byte( (byte)0x59 ), 	"Cp1252" },
+		{ new Byte( (byte)0x64 ), 	"Cp852" },
+		{ new Byte( (byte)0x65 ), 	"Cp866" },
+		{ new Byte( (byte)0x66 ), 	"Cp865" },
+		{ new Byte( (byte)0x67 ), 	"Cp861" },
+		{ new Byte( (byte)0x6A ), 	"Cp737" },
+		{ new Byte( (byte)0x6B ), 	"Cp857" },
+		{ new Byte( (byte)0xC8 ), 	"Cp1250" },
+		{ new Byte( (byte)0xC9 ), 	"Cp1251" },
+		{ new Byte( (byte)0xCA ), 	"Cp1254" },
+		{ new Byte( (byte)0xCB ), 	"Cp1253" },
+	};
+
+	/** Páginas de código já montadas (encoding -> CodePage) */
+	private static Hashtable codePages = new Hashtable();
+
+	/** Encoding Java */
+	private final String encoding;
+
+	/** Tabela de decodificação: byte -> caracter */
+	private final char[] decodeTable = new char[256];
+
+	private CodePage( String encoding ) throws UnsupportedEncodingException
+	{
+		super();
+		this.encoding = encoding;
+
+		byte[] all = new byte[256];
+		for ( int i = 0; i < 256; i++ )
+		{
+			all[i] = (byte)i;
+		}
+
+		String chars = new String( all, encoding );
+		if ( chars.length() != 256 )
+		{
+			// Página de código de mais de um byte por caracter
+			throw new UnsupportedEncodingException( encoding );
+		}
+		chars.getChars( 0, 256, decodeTable, 0 );
+	}
+
+	/**
+	 * Obtém a página de código de um encoding Java
+	 * @param encoding Nome do encoding (ex: "Cp850")
+	 * @throws UnsupportedEncodingException O encoding não existe ou não é de um byte por caracter
+	 */
+	public static synchronized CodePage forEncoding( String encoding ) throws UnsupportedEncodingException
+	{
+		CodePage codePage = (CodePage)codePages.get( encoding );
+		if ( codePage == null )
+		{
+			codePage = new CodePage( encoding );
+			codePages.put( encoding, codePage );
+		}
+		return codePage;
+	}
+
+	/**
+	 * Obtém a página de código indicada no cabeçalho do DBF
+	 * @param mark Byte 29 do cabeçalho (Language Driver ID)
+	 * @return A página de código, ou a padrão (ISO8859_1) se o byte não for reconhecido
+	 */
+	public static CodePage forMark( byte mark )
+	{
+		for ( int i = 0; i < MARKS.length; i++ )
+		{
+			if ( ((Byte)MARKS[i][0]).byteValue() == mark )
+			{
+				try
+				{
+					return forEncoding( (String)MARKS[i][1] );
+				}
+				catch ( UnsupportedEncodingException e )
+				{
+					// A VM não suporta essa página de código - usar a padrão
+					break;
+				}
+			}
+		}
+
+		return getDefault();
+	}
+
+	/**
+	 * Página de código padrão (ISO8859_1, suportada por qualquer VM)
+	 */
+	public static CodePage getDefault()
+	{
+		try
+		{
+			return forEncoding( DEFAULT_ENCODING );
+		}
+		catch ( UnsupportedEncodingException e )
+		{
+			throw new InternalError( DEFAULT_ENCODING );
+		}
+	}
+
+	/**
+	 * Nome do encoding Java
+	 */
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+	/**
+	 * Caracter correspondente a um byte
+	 */
+	char toChar( byte b )
+	{
+		return decodeTable[b & 0xff];
+	}
+
+	/**
+	 * Decodifica um trecho do array sem remover espaços. São feitas duas alocações: o char[]
+	 * decodificado e a String, que copia o array.
+	 */
+	String decode( byte[] data, int pos, int len )
+	{
+		char[] chars = new char[len];
+		for ( int i = 0; i < len; i++ )
+		{
+			chars[i] = decodeTable[data[pos + i] & 0xff];
+		}
+		return new String( chars );
+	}
+
+	/**
+	 * Decodifica um trecho do array removendo os espaços (e caracteres de controle) das
+	 * extremidades - equivalente a new String(...).trim(), mas os limites são calculados
+	 * nos bytes: o char[] e a String são criados já com o tamanho final, sem a String
+	 * intermediária com os espaços.
+	 */
+	String decodeTrimmed( byte[] data, int pos, int len )
+	{
+		int end = pos + len;
+
+		while ( pos < end && ( data[pos] & 0xff ) <= ' ' )
+		{
+			pos++;
+		}
+		while ( end > pos && ( data[end - 1] & 0xff ) <= ' ' )
+		{
+			end--;
+		}
+
+		return ( pos == end ) ? "" : decode( data, pos, end - pos );
+	}
+
+	/**
+	 * Codifica um texto nessa página de código
+	 */
+	byte[] encode( String text )
+	{
+		try
+		{
+			return text.getBytes( encoding );
+		}
+		catch ( UnsupportedEncodingException e )
+		{
+			// Não acontece: o encoding foi validado na criação
+			throw new InternalError( encoding );
+		}
+	}
+}
@@ -0,0 +1,349 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+
+/**
+* Cache das colunas de poucos valores distintos de uma tabela (situação, flags, códigos de
+* cliente, ...), codificadas por dicionário (ver ColumnDictionary).
+*
+* Os dicionários são montados em uma única leitura sequencial da tabela, no primeiro acesso.
+* Depois disso, as inclusões e alterações feitas pela tabela (addRecord, setFieldXXX, ...) são
+* aplicadas diretamente aos códigos. Registros incluídos por outros processos (ver
+* Table.refresh) são codificados no próximo acesso. Quando não é possível manter os códigos
+* (ex: inclusão fora de ordem), o cache é invalidado e montado novamente no próximo acesso.
+*
+* <pre>
+*	ColumnCache cache = ColumnCache.open( table, new String[] { "ID_TRANSM", "CD_CLIENTE" } );
+*	ColumnDictionary transm = cache.getDictionary( "ID_TRANSM" );
+*	int[] counts = transm.countByCode();
+*	for ( int code = 0; code < transm.size(); code++ ) {
+*		System.out.println( transm.getValue( code ) + ": " + counts[code] );
+*	}
+* </pre>
+*
+* @version 1.0
+*/
+public class ColumnCache implements TableListener, WarmupTarget {
+
+	/** Tabela */
+	private final Table table;
+
+	/** Dicionário de cada coluna */
+	private final ColumnDictionary[] dictionaries;
+
+	/** Registros deletados (um bit por registro, a partir do registro 1 no bit 0) */
+	private int[] deleted;
+
+	/** Quantidade de registros codificados */
+	private int numberOfRecords;
+
+	/** Os dicionários estão montados? */
+	private boolean built;
+
+	private ColumnCache( Table table, String[] columns ) throws FieldNotFoundException, FieldTypeException
+	{
+		super();
+		this.table 		  = table;
+		this.dictionaries = new ColumnDictionary[columns.length];
+
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			Field field = table.findField( columns[i] );
+			if ( field.dataType == Field.TYPE_MEMO )
+			{
+				throw new FieldTypeException();
+			}
+			dictionaries[i] = new ColumnDictionary( this, field );
+		}
+	}
+
+	/**
+	 * Cria o cache sem registrá-lo na tabela (ver TableWarmup)
+	 */
+	static ColumnCache create( Table table, String[] columns ) throws FieldNotFoundException, FieldTypeException
+	{
+		return new ColumnCache( table, columns );
+	}
+
+	/**
+	 * Cria o cache das colunas. Os dicionários só são montados no primeiro acesso.
+	 * @param table		Tabela aberta
+	 * @param columns	Colunas codificadas
+	 * @return O cache, já registrado para acompanhar as alterações da tabela
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException Uma das colunas é memo
+	 */
+	public static ColumnCache open( Table table, String[] columns ) throws FieldNotFoundException, FieldTypeException
+	{
+		ColumnCache cache = new ColumnCache( table, columns );
+		table.addTableListener( cache );
+		return cache;
+	}
+
+	/**
+	 * Dicionário de uma coluna, montando o cache se necessário
+	 * @param column Coluna
+	 * @throws IOException
+	 * @throws FieldNotFoundException A coluna não faz parte do cache
+	 */
+	public ColumnDictionary getDictionary( String column ) throws IOException, FieldNotFoundException
+	{
+		Field field = table.findField( column );
+
+		for ( int i = 0; i < dictionaries.length; i++ )
+		{
+			if ( dictionaries[i].field == field )
+			{
+				update();
+				return dictionaries[i];
+			}
+		}
+		throw new FieldNotFoundException();
+	}
+
+	/**
+	 * Libera os códigos (montados novamente no próximo acesso)
+	 */
+	public synchronized void invalidate()
+	{
+		built 			= false;
+		deleted 		= null;
+		numberOfRecords = 0;
+
+		for ( int i = 0; i < dictionaries.length; i++ )
+		{
+			dictionaries[i].clear();
+		}
+	}
+
+	/**
+	 * Deixa de acompanhar as alterações da tabela e libera os códigos
+	 */
+	public void close()
+	{
+		table.removeTableListener( this );
+		invalidate();
+	}
+
+	public synchronized void recordAdded( Table table, int record, byte[] data )
+	{
+		if ( built && record == numberOfRecords + 1 )
+		{
+			encode( record, data, 0 );
+			numberOfRecords = record;
+		}
+		else if ( built && record <= numberOfRecords )
+		{
+			invalidate();
+		}
+	}
+
+	public synchronized void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		// Registros ainda não codificados serão lidos no próximo acesso
+		if ( built && record <= numberOfRecords )
+		{
+			encode( record, newData, 0 );
+		}
+	}
+
+	public synchronized void recordDeleted( Table table, int record )
+	{
+		if ( built && record <= numberOfRecords )
+		{
+			deleted[( record - 1 ) >> 5] |= 1 << ( ( record - 1 ) & 31 );
+		}
+	}
+
+	public synchronized void recordRecalled( Table table, int record, byte[] data )
+	{
+		if ( built && record <= numberOfRecords )
+		{
+			deleted[( record - 1 ) >> 5] &= ~( 1 << ( ( record - 1 ) & 31 ) );
+		}
+	}
+
+	public void tableClosed( Table table )
+	{
+		close();
+	}
+
+	public synchronized void prepare( int records )
+	{
+		invalidate();
+		deleted = new int[( records + 31 ) >> 5];
+		built 	= true;
+	}
+
+	public RecordVisitor newPart( int first, int last )
+	{
+		return new Part( first, last );
+	}
+
+	public synchronized void merge( RecordVisitor[] parts )
+	{
+		// As partes são juntadas na ordem dos registros, portanto os códigos ficam iguais aos
+		// de uma leitura única
+		for ( int p = 0; p < parts.length; p++ )
+		{
+			Part part = (Part)parts[p];
+
+			for ( int i = 0; i < dictionaries.length; i++ )
+			{
+				ColumnDictionary local = part.dictionaries[i];
+				int[] global = new int[local.localSize()];
+				for ( int code = 0; code < global.length; code++ )
+				{
+					global[code] = dictionaries[i].encode( local.valueBytes( code ), 0 );
+				}
+
+				int[] codes = part.codes[i];
+				for ( int r = 0; r < codes.length; r++ )
+				{
+					dictionaries[i].setCode( part.first + r, global[codes[r]] );
+				}
+			}
+
+			for ( int r = 0; r < part.deleted.length; r++ )
+			{
+				if ( part.deleted[r] )
+				{
+					int record = part.first + r;
+					deleted[( record - 1 ) >> 5] |= 1 << ( ( record - 1 ) & 31 );
+				}
+			}
+
+			numberOfRecords = Math.max( numberOfRecords, part.first + part.deleted.length - 1 );
+		}
+	}
+
+	/**
+	 * Códigos de um intervalo de registros, em dicionários próprios (ver TableWarmup)
+	 */
+	private class Part implements RecordVisitor
+	{
+		final int first;
+		final ColumnDictionary[] dictionaries;
+		final int[][] codes;
+		final boolean[] deleted;
+
+		Part( int first, int last )
+		{
+			this.first 		  = first;
+			this.dictionaries = new ColumnDictionary[ColumnCache.this.dictionaries.length];
+			this.codes 		  = new int[dictionaries.length][last - first + 1];
+			this.deleted 	  = new boolean[last - first + 1];
+
+			for ( int i = 0; i < dictionaries.length; i++ )
+			{
+				dictionaries[i] = new ColumnDictionary( ColumnCache.this, ColumnCache.this.dictionaries[i].field );
+			}
+		}
+
+		public boolean visit( int record, byte[] buffer, int base )
+		{
+			deleted[record - first] = buffer[base] == Table.DELETED;
+			for ( int i = 0; i < dictionaries.length; i++ )
+			{
+				codes[i][record - first] = dictionaries[i].encode( buffer, base + dictionaries[i].field.offset );
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Quantidade de registros codificados
+	 */
+	synchronized int getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+
+	/**
+	 * Indica se o registro estava deletado quando foi codificado
+	 */
+	synchronized boolean isDeleted( int record )
+	{
+		return ( deleted[( record - 1 ) >> 5] & ( 1 << ( ( record - 1 ) & 31 ) ) ) != 0;
+	}
+
+	/**
+	 * Monta os dicionários (primeiro acesso) ou codifica os registros incluídos por outros
+	 * processos
+	 */
+	synchronized void update() throws IOException
+	{
+		int first = built ? numberOfRecords + 1 : 1;
+		int last  = table.getNumberOfRecords();
+
+		if ( !built )
+		{
+			deleted = new int[( last + 31 ) >> 5];
+			built 	= true;
+		}
+
+		if ( first > last )
+		{
+			return;
+		}
+
+		TableScanner scanner = new TableScanner( table );
+		try
+		{
+			scanner.scan( first, last, new RecordVisitor() {
+				public boolean visit( int record, byte[] buffer, int base )
+				{
+					encode( record, buffer, base );
+					return true;
+				}
+			} );
+		}
+		catch ( IOException e )
+		{
+			invalidate();
+			throw e;
+		}
+		finally
+		{
+			scanner.close();
+		}
+
+		numberOfRecords = last;
+	}
+
+	/**
+	 * Codifica as colunas de um registro
+	 */
+	private void encode( int record, byte[] data, int base )
+	{
+		int word = ( record - 1 ) >> 5;
+		if ( word >= deleted.length )
+		{
+			int[] newDeleted = new int[Math.max( word + 1, deleted.length * 2 )];
+			System.arraycopy( deleted, 0, newDeleted, 0, deleted.length );
+			deleted = newDeleted;
+		}
+
+		int bit = 1 << ( ( record - 1 ) & 31 );
+		if ( data[base] == Table.DELETED )
+		{
+			deleted[word] |= bit;
+		}
+		else
+		{
+			deleted[word] &= ~bit;
+		}
+
+		for ( int i = 0; i < dictionaries.length; i++ )
+		{
+			dictionaries[i].setCode( record, dictionaries[i].encode( data, base + dictionaries[i].field.offset ) );
+		}
+	}
+}
@@ -0,0 +1,365 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+
+/**
+* Coluna codificada por dicionário (ver ColumnCache).
+*
+* Cada valor distinto da coluna recebe um código (0, 1, 2, ... na ordem em que aparece) e cada
+* registro guarda apenas o código do seu valor, em um array de char (16 bits) enquanto houver
+* até 65536 valores distintos, ou de int a partir daí. Contagens por valor (GROUP BY) e
+* filtros por igualdade são feitos sobre os códigos, sem ler a tabela nem decodificar os
+* valores; a decodificação acontece uma única vez por valor distinto (getValue).
+*
+* Os valores são comparados pelos bytes gravados: valores numéricos iguais gravados com
+* formatação diferente recebem códigos diferentes.
+*
+* @version 1.0
+*/
+public class ColumnDictionary {
+
+	/** Cache ao qual a coluna pertence */
+	private final ColumnCache cache;
+
+	/** Coluna */
+	final Field field;
+
+	/** Bytes gravados de cada valor, pelo código */
+	private byte[][] values;
+
+	/** Quantidade de valores distintos */
+	private int size;
+
+	/** Tabela hash dos valores (código + 1; 0 = posição livre) */
+	private int[] slots;
+
+	/** Código de cada registro (a partir do registro 1 na posição 0) */
+	private char[] codes;
+
+	/** Códigos de cada registro, quando há mais de 65536 valores distintos */
+	private int[] wideCodes;
+
+	ColumnDictionary( ColumnCache cache, Field field )
+	{
+		super();
+		this.cache = cache;
+		this.field = field;
+		clear();
+	}
+
+	public String getColumnName()
+	{
+		return field.fieldName;
+	}
+
+	/**
+	 * Quantidade de valores distintos
+	 * @throws IOException
+	 */
+	public int size() throws IOException
+	{
+		cache.update();
+		synchronized ( cache )
+		{
+			return size;
+		}
+	}
+
+	/**
+	 * Quantidade de registros codificados
+	 * @throws IOException
+	 */
+	public int getNumberOfRecords() throws IOException
+	{
+		cache.update();
+		return cache.getNumberOfRecords();
+	}
+
+	/**
+	 * Valor de um código: String, Integer ou Double, Date, Boolean ou null (coluna em branco)
+	 * @param code Código (de 0 até size() - 1)
+	 */
+	public Object getValue( int code )
+	{
+		byte[] value;
+		synchronized ( cache )
+		{
+			value = values[code];
+		}
+
+		// O array contém apenas a coluna: a base é deslocada para que base + offset = 0
+		return Query.value( field, value, -field.offset );
+	}
+
+	/**
+	 * Código de um valor
+	 * @param value Valor, no tipo da coluna (null = em branco)
+	 * @return O código, ou -1 se nenhum registro possui o valor
+	 * @throws IOException
+	 */
+	public int codeOf( Object value ) throws IOException
+	{
+		byte[] data = field.formatData( value );
+
+		cache.update();
+		synchronized ( cache )
+		{
+			return find( data, 0 );
+		}
+	}
+
+	/**
+	 * Código do valor da coluna em um registro
+	 * @param record Número do registro
+	 * @throws IOException
+	 */
+	public int getCode( int record ) throws IOException
+	{
+		cache.update();
+		synchronized ( cache )
+		{
+			return ( wideCodes != null ) ? wideCodes[record - 1] : codes[record - 1];
+		}
+	}
+
+	/**
+	 * Quantidade de registros (não deletados) de cada valor
+	 * @return Array indexado pelo código
+	 * @throws IOException
+	 */
+	public int[] countByCode() throws IOException
+	{
+		cache.update();
+		synchronized ( cache )
+		{
+			int[] counts = new int[size];
+			int records = cache.getNumberOfRecords();
+
+			for ( int record = 1; record <= records; record++ )
+			{
+				if ( !cache.isDeleted( record ) )
+				{
+					counts[( wideCodes != null ) ? wideCodes[record - 1] : codes[record - 1]]++;
+				}
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * Registros (não deletados) que possuem um valor
+	 * @param value Valor, no tipo da coluna (null = em branco)
+	 * @return Números dos registros, em ordem crescente
+	 * @throws IOException
+	 */
+	public int[] findAll( Object value ) throws IOException
+	{
+		int code = codeOf( value );
+		return ( code < 0 ) ? new int[0] : findAll( code );
+	}
+
+	/**
+	 * Registros (não deletados) que possuem um código
+	 * @param code Código
+	 * @return Números dos registros, em ordem crescente
+	 * @throws IOException
+	 */
+	public int[] findAll( int code ) throws IOException
+	{
+		cache.update();
+		synchronized ( cache )
+		{
+			int records = cache.getNumberOfRecords();
+			int[] result = new int[16];
+			int count = 0;
+
+			for ( int record = 1; record <= records; record++ )
+			{
+				int c = ( wideCodes != null ) ? wideCodes[record - 1] : codes[record - 1];
+				if ( c == code && !cache.isDeleted( record ) )
+				{
+					if ( count == result.length )
+					{
+						int[] newResult = new int[count * 2];
+						System.arraycopy( result, 0, newResult, 0, count );
+						result = newResult;
+					}
+					result[count++] = record;
+				}
+			}
+
+			int[] found = new int[count];
+			System.arraycopy( result, 0, found, 0, count );
+			return found;
+		}
+	}
+
+	/**
+	 * Descarta os valores e os códigos
+	 */
+	void clear()
+	{
+		values 	  = new byte[16][];
+		size 	  = 0;
+		slots 	  = new int[32];
+		codes 	  = new char[0];
+		wideCodes = null;
+	}
+
+	/**
+	 * Código do valor da coluna, incluindo o valor no dicionário se for novo
+	 * @param data	Array que contém a coluna
+	 * @param pos	Posição da coluna no array
+	 */
+	int encode( byte[] data, int pos )
+	{
+		int code = find( data, pos );
+		if ( code >= 0 )
+		{
+			return code;
+		}
+
+		if ( size == values.length )
+		{
+			byte[][] newValues = new byte[size * 2][];
+			System.arraycopy( values, 0, newValues, 0, size );
+			values = newValues;
+		}
+
+		byte[] value = new byte[field.fieldLength];
+		System.arraycopy( data, pos, value, 0, value.length );
+		values[size] = value;
+		code = size++;
+
+		if ( size * 2 > slots.length )
+		{
+			rehash( slots.length * 2 );
+		}
+		else
+		{
+			insert( code );
+		}
+
+		if ( size > 65536 && wideCodes == null )
+		{
+			wideCodes = new int[codes.length];
+			for ( int i = 0; i < codes.length; i++ )
+			{
+				wideCodes[i] = codes[i];
+			}
+			codes = null;
+		}
+		return code;
+	}
+
+	/**
+	 * Quantidade de valores distintos, sem atualizar o cache
+	 */
+	int localSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Bytes gravados de um valor
+	 */
+	byte[] valueBytes( int code )
+	{
+		return values[code];
+	}
+
+	/**
+	 * Grava o código de um registro
+	 */
+	void setCode( int record, int code )
+	{
+		int length = ( wideCodes != null ) ? wideCodes.length : codes.length;
+
+		if ( record > length )
+		{
+			int newLength = Math.max( record, Math.max( 1024, length * 2 ) );
+			if ( wideCodes != null )
+			{
+				int[] newCodes = new int[newLength];
+				System.arraycopy( wideCodes, 0, newCodes, 0, wideCodes.length );
+				wideCodes = newCodes;
+			}
+			else
+			{
+				char[] newCodes = new char[newLength];
+				System.arraycopy( codes, 0, newCodes, 0, codes.length );
+				codes = newCodes;
+			}
+		}
+
+		if ( wideCodes != null )
+		{
+			wideCodes[record - 1] = code;
+		}
+		else
+		{
+			codes[record - 1] = (char)code;
+		}
+	}
+
+	/**
+	 * Procura o valor no dicionário
+	 * @return O código, ou -1 se o valor não existe
+	 */
+	private int find( byte[] data, int pos )
+	{
+		int mask = slots.length - 1;
+		int slot = HashIndex.hash( data, pos, field.fieldLength ) & mask;
+
+		while ( slots[slot] != 0 )
+		{
+			byte[] value = values[slots[slot] - 1];
+			if ( matches( value, data, pos ) )
+			{
+				return slots[slot] - 1;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+		return -1;
+	}
+
+	private void insert( int code )
+	{
+		int mask = slots.length - 1;
+		int slot = HashIndex.hash( values[code], 0, field.fieldLength ) & mask;
+
+		while ( slots[slot] != 0 )
+		{
+			slot = ( slot + 1 ) & mask;
+		}
+		slots[slot] = code + 1;
+	}
+
+	private void rehash( int capacity )
+	{
+		slots = new int[capacity];
+		for ( int code = 0; code < size; code++ )
+		{
+			insert( code );
+		}
+	}
+
+	private static boolean matches( byte[] value, byte[] data, int pos )
+	{
+		for ( int i = 0; i < value.length; i++ )
+		{
+			if ( value[i] != data[pos + i] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,236 +1,390 @@
-/*
-* Project: DBFProject
-* Date   : Mar 28, 2004
-*
-* Copyright (c) 2004 SoftSite Tecnologia
-* Todos os direitos reservados
-*/
-package br.com.softsite.sfc.tini.persistence;
-
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Calendar;
-import java.util.Date;
-
-/**
-* Encapsula os dados relativos a um campo
-*
-* @author  regismelo
-* @version 1.0
-*/
-public class Field {
-
-	String fieldName; 					/* 0-10*/
-	char   dataType;					/* 11 */
-	int	   fieldLength;					/* 16 */
-	byte   decimalCount;                /* 17 */
-
-	// Tipos das colunas
-	public static final char TYPE_CHARACTER 	= 'C';
-	public static final char TYPE_DATE 			= 'D';
-	public static final char TYPE_FLOAT			= 'F';
-	public static final char TYPE_NUMERIC		= 'N';
-	public static final char TYPE_LOGICAL		= 'L';
-	public static final char TYPE_MEMO			= 'M';
-
-	/**
-	 * Cria um novo field baseado em um stream j aberto.
-	 *
-	 * Importante --> Considera-se que a stream est posicionada corretamente. Esse mtodo  tipicamente
-	 * 				  chamado pela classe Table
-	 *
-	 * @param dataInputStream
-	 * @return Field 					Uma nova instncia de Field devidamente populada
-	 * @throws IOException				Algum erro de IO aconteceu
-	 * @throws TableCorruptException	O stream no obedece o formato esperado
-	 */
-	static Field createField(RandomAccessFile dataInputStream ) throws IOException, TableCorruptException
-	{
-		Field field = new Field();
-
-		//	Estrutura dos campos da tabela
-		//
-		//
-		// Byte Offset			Description
-		// --------------------------------------------------------------------------------------------------
-		// 010  				Field name with a maximum of 10 characters.
-		//						If less than 10, it is padded with null characters (0x00).
-		//
-		// 11 					Field type:
-		//							C      Character
-		//							Y      Currency
-		//							N      Numeric
-		//							F      Float
-		//							D      Date
-		//							T      DateTime
-		//							B      Double
-		//							I      Integer
-		//							L      Logical
-		//							M    Memo
-		//							G    General
-		//							C      Character (binary)
-		//							M      Memo (binary)
-		//							P      Picture
-		// 12  15 				Displacement of field in record
-		// 16 					Length of field (in bytes)
-		// 17 					Number of decimal places
-		// 18 					Field flags:
-		//							0x01   System Column (not visible to user)
-		//							0x02   Column can store null values
-		//							0x04   Binary column (for CHAR and MEMO only)
-		//							0x06   (0x02+0x04) When a field is NULL and binary (Integer, Currency, and Character/Memo fields)
-		//							0x0C   Column is autoincrementing
-		// 19 - 22 				Value of autoincrement Next value
-		// 23 					Value of autoincrement Step value
-		// 24  31 Reserved
-
-		byte[] fieldNameTemp = new byte[11];
-		fieldNameTemp[0] = dataInputStream.readByte();
-
-
-		// Verificar
-		if ( fieldNameTemp[0] == Table.HEADER_RECORD_TERMINATOR )
-		{
-			// Oops. O final do record foi encontrado nesse momento!
-			return null;
-		}
-
-		// Ler o nome do campo  0 - 10 (o byte 1 j foi lido anteriormente)
-		dataInputStream.read( fieldNameTemp, 1, 10);	/* 1-10 */
-
-		// Independente do tamanho do campo, a estrutura do DBF sempre guarda 11 posies.
-		// Lao para identificar o tamanho real do campo
-		for( int i=0; i<fieldNameTemp.length; i++) {
-
-			if( fieldNameTemp[i] == (byte)0)
-			{
-				field.fieldName = new String( fieldNameTemp ).substring(0,i);
-				break;
-			}
-		}
-
-
-
-		// Tipo do dado
-		field.dataType = (char)dataInputStream.readByte(); 		/* 11 */
-
-		// Reservado
-		Utils.readLittleEndianInt(dataInputStream);				/* 12-15 */
-
-		// Tamanho do campo
-		field.fieldLength = dataInputStream.readUnsignedByte();  /* 16 */
-
-		// Qtde de decimais
-		field.decimalCount = dataInputStream.readByte();		 /* 17 */
-
-		// Os demais bytes no so lidos por essa classe...
-		dataInputStream.skipBytes( 14 );
-
-
-		//--- Cdigo original da JavaDBF
-//		field.dataType = in.readByte(); /* 11 */
-//		field.reserv1 = Utils.readLittleEndianInt( in); /* 12-15 */
-//		field.fieldLength = in.readUnsignedByte();  /* 16 */
-//		field.decimalCount = in.readByte(); /* 17 */
-//		field.reserv2 = Utils.readLittleEndianShort( in); /* 18-19 */
-//		field.workAreaId = in.readByte(); /* 20 */
-//		field.reserv2 = Utils.readLittleEndianShort( in); /* 21-22 */
-//		field.setFieldsFlag = in.readByte(); /* 23 */
-//		in.read( field.reserv4); /* 24-30 */
-//		field.indexFieldFlag = in.readByte(); /* 31 */
-
-
-		return field;
-	}
-	
-	/**
-	 * Formatar a coluna de acordo com o tipo
-	 * @param o Objeto com o tip do dado 
-	 * @return array de caracteres com o dado formatado
-	 */
-	public byte[] formatData( Object o )
-	{
-		byte c[] = new byte[this.fieldLength];
-		
-		if ( o == null )
-		{
-			return arrayCopy( null, c, dataType );
-		}
-		
-		switch ( this.dataType )
-		{
-			case Field.TYPE_CHARACTER  :
-			{
-				return arrayCopy( ((String)o).getBytes(), c, dataType );
-			}		
-			case Field.TYPE_FLOAT : 
-			case Field.TYPE_NUMERIC :
-			{
-				return arrayCopy( o.toString().getBytes(), c, dataType );
-			}			
-			case Field.TYPE_DATE : 
-			{
-				Calendar calendar = Calendar.getInstance();
-				calendar.setTime((Date)o);
-				byte[] dc;
-
-				int year  = calendar.get( Calendar.YEAR );
-				int month = calendar.get( Calendar.MONTH )+1;
-				int day	  = calendar.get( Calendar.DAY_OF_MONTH );
-				
-				dc = ( "" + 
-					   year + 
-					   ( month < 10 ? "0" + month : "" + month ) +					   
-					   ( day < 10 ? "0" + day : "" + day )
-					 ).getBytes();
-					 
-				return dc;				
-			}
-		}
-
-		return null;
-		
-	}
-	
-	private byte[] arrayCopy( byte[] source, byte[] dest, char type)
-	{
-		int sourceLen = 0;
-		if ( source != null )
-		{
-			sourceLen = source.length;
-		}
-		
-		int dif     = dest.length - sourceLen;
-		
-		if ( dif < 0 )
-			dif = 0;
-			
-		int iniCopy = 0;
-		
-		if ( type == Field.TYPE_CHARACTER )
-		{
-			// Preencher de espaos a direita
-			iniCopy = 0;
-		}
-		else
-		{
-			iniCopy = dif;
-		}
-		
-		// Preencher com espaos...
-		for ( int i = 0; i < dest.length; i++ )
-		{
-			dest[i] = ' ';
-		}
-		
-		// Copiar os dados...
-		for ( int i = iniCopy, k = 0; ( i < dest.length && k < sourceLen ); i++, k++ )
-		{
-			dest[i] = source[k];
-			
-		}
-		
-		return dest;
-	}
-
-}
+/*
+* Project: DBFProject
+* Date   : Mar 28, 2004
+*
+* Copyright (c) 2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+* Encapsula os dados relativos a um campo
+*
+* @author  regismelo
+* @version 1.0
+*/
+public class Field {
+
+	String fieldName; 					/* 0-10*/
+	char   dataType;					/* 11 */
+	int	   fieldLength;					/* 16 */
+	byte   decimalCount;                /* 17 */
+
+	/** Deslocamento do campo dentro do registro (o byte 0 é o indicador de deletado) */
+	int    offset;
+
+	/** Página de código da tabela, usada nas colunas caracter */
+	CodePage codePage = CodePage.getDefault();
+
+	/** Cache de valores (apenas colunas caracter com poucos valores distintos) */
+	StringCache internCache;
+
+	// Tipos das colunas
+	public static final char TYPE_CHARACTER 	= 'C';
+	public static final char TYPE_DATE 			= 'D';
+	public static final char TYPE_FLOAT			= 'F';
+	public static final char TYPE_NUMERIC		= 'N';
+	public static final char TYPE_LOGICAL		= 'L';
+	public static final char TYPE_MEMO			= 'M';
+
+	/**
+	 * Cria um novo field a partir do descritor (32 bytes) contido no cabeçalho já lido.
+	 * Esse método é tipicamente chamado pela classe Table
+	 *
+	 * @param header					Array com o cabeçalho da tabela
+	 * @param pos						Posição do descritor dentro do array
+	 * @param codePage					Página de código da tabela (nome da coluna)
+	 * @return Field 					Uma nova instância de Field devidamente populada
+	 * @throws TableCorruptException	O descritor não obedece o formato esperado
+	 */
+	static Field createField( byte[] header, int pos, CodePage codePage ) throws TableCorruptException
+	{
+		Field field = new Field();
+
+		//	Estrutura dos campos da tabela
+		//
+		//
+		// Byte Offset			Description
+		// --------------------------------------------------------------------------------------------------
+		// 010  				Field name with a maximum of 10 characters.
+		//						If less than 10, it is padded with null characters (0x00).
+		//
+		// 11 					Field type:
+		//							C      Character
+		//							Y      Currency
+		//							N      Numeric
+		//							F      Float
+		//							D      Date
+		//							T      DateTime
+		//							B      Double
+		//							I      Integer
+		//							L      Logical
+		//							M    Memo
+		//							G    General
+		//							C      Character (binary)
+		//							M      Memo (binary)
+		//							P      Picture
+		// 12  15 				Displacement of field in record
+		// 16 					Length of field (in bytes)
+		// 17 					Number of decimal places
+		// 18 					Field flags:
+		//							0x01   System Column (not visible to user)
+		//							0x02   Column can store null values
+		//							0x04   Binary column (for CHAR and MEMO only)
+		//							0x06   (0x02+0x04) When a field is NULL and binary (Integer, Currency, and Character/Memo fields)
+		//							0x0C   Column is autoincrementing
+		// 19 - 22 				Value of autoincrement Next value
+		// 23 					Value of autoincrement Step value
+		// 24  31 Reserved
+
+		// Nome do campo  0 - 10. Independente do tamanho do campo, a estrutura do DBF sempre
+		// guarda 11 posições, completadas com nulos
+		int nameLength = 0;
+		while ( nameLength < 11 && header[pos + nameLength] != (byte)0 )
+		{
+			nameLength++;
+		}
+		field.fieldName = codePage.decode( header, pos, nameLength );
+
+		// Tipo do dado
+		field.dataType = (char)header[pos + 11]; 			/* 11 */
+
+		// Bytes 12-15 (deslocamento) não são confiáveis: o deslocamento é calculado pela Table
+
+		// Tamanho do campo
+		field.fieldLength = header[pos + 16] & 0xff;  		/* 16 */
+
+		// Qtde de decimais
+		field.decimalCount = header[pos + 17];		 		/* 17 */
+
+		// Os demais bytes não são lidos por essa classe...
+
+		if ( field.fieldLength == 0 || nameLength == 0 )
+		{
+			throw new TableCorruptException( "Descritor de coluna inválido na posição " + pos + " do cabeçalho" );
+		}
+
+
+		//--- Código original da JavaDBF
+//		field.dataType = in.readByte(); /* 11 */
+//		field.reserv1 = Utils.readLittleEndianInt( in); /* 12-15 */
+//		field.fieldLength = in.readUnsignedByte();  /* 16 */
+//		field.decimalCount = in.readByte(); /* 17 */
+//		field.reserv2 = Utils.readLittleEndianShort( in); /* 18-19 */
+//		field.workAreaId = in.readByte(); /* 20 */
+//		field.reserv2 = Utils.readLittleEndianShort( in); /* 21-22 */
+//		field.setFieldsFlag = in.readByte(); /* 23 */
+//		in.read( field.reserv4); /* 24-30 */
+//		field.indexFieldFlag = in.readByte(); /* 31 */
+
+
+		return field;
+	}
+
+	/**
+	 * Grava o descritor do campo (32 bytes) no array do cabeçalho, no formato DBase III.
+	 *
+	 * @param header	Array com o cabeçalho da tabela
+	 * @param pos		Posição do descritor dentro do array
+	 */
+	void writeField( byte[] header, int pos )
+	{
+		byte[] name = codePage.encode( fieldName );
+
+		// Nome do campo, completado com nulos					/* 0-10 */
+		for ( int i = 0; i < 11; i++ )
+		{
+			header[pos + i] = ( i < name.length && i < 10 ) ? name[i] : 0;
+		}
+
+		header[pos + 11] = (byte)dataType;						/* 11 */
+		Utils.writeLittleEndianInt( header, pos + 12, offset );	/* 12-15 */
+		header[pos + 16] = (byte)fieldLength;					/* 16 */
+		header[pos + 17] = decimalCount;						/* 17 */
+
+		// Os demais bytes (18-31) ficam zerados
+		for ( int i = 18; i < 32; i++ )
+		{
+			header[pos + i] = 0;
+		}
+	}
+	
+	/**
+	 * Obtém o conteúdo da coluna como String (sem os espaços da direita e da esquerda)
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return Valor da coluna
+	 */
+	String parseString( byte[] record, int base )
+	{
+		if ( internCache != null )
+		{
+			return internCache.get( record, base + offset, fieldLength, codePage );
+		}
+		return codePage.decodeTrimmed( record, base + offset, fieldLength );
+	}
+
+	/**
+	 * Aponta a visão para o conteúdo da coluna, sem copiar os dados
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @param view		Visão a ser preenchida
+	 */
+	void parseText( byte[] record, int base, TextView view )
+	{
+		view.set( record, base + offset, fieldLength, codePage );
+	}
+
+	/**
+	 * Obtém o conteúdo da coluna como inteiro, sem criar Strings intermediárias
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return Valor da coluna
+	 * @throws NumberFormatException A coluna não contém um número inteiro
+	 */
+	int parseInteger( byte[] record, int base )
+	{
+		return Utils.parseInt( record, base + offset, fieldLength );
+	}
+
+	/**
+	 * Obtém o conteúdo da coluna como double
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return Valor da coluna (0 se a coluna estiver em branco)
+	 */
+	double parseDouble( byte[] record, int base )
+	{
+		String s = new String( record, base + offset, fieldLength ).trim();
+		
+		// Testar o caso em que o campo não está preenchido - uma espécie de NULL do DBF
+		if ( s.length() == 0 )
+		{
+			return 0;
+		}
+		return Double.valueOf( s ).doubleValue();
+	}
+
+	/**
+	 * Obtém o conteúdo da coluna como data (formato YYYYMMDD)
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return Valor da coluna
+	 */
+	Date parseDate( byte[] record, int base )
+	{
+		int pos = base + offset;
+
+		// Os dígitos são convertidos diretamente do array, sem criar Strings para ano, mês e dia.
+		GregorianCalendar calendar = new GregorianCalendar(
+										Utils.parseInt( record, pos, 4 ),
+										Utils.parseInt( record, pos + 4, 2 ) - 1,
+										Utils.parseInt( record, pos + 6, 2 )
+									);
+
+		return calendar.getTime();
+	}
+
+	/**
+	 * Obtém o conteúdo de uma coluna lógica
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return TRUE para T/t/Y/y. Qualquer outro valor (inclusive '?' - não inicializado) é FALSE
+	 */
+	boolean parseBoolean( byte[] record, int base )
+	{
+		byte b = record[base + offset];
+		return b == 'T' || b == 't' || b == 'Y' || b == 'y';
+	}
+
+	/**
+	 * Obtém o número do primeiro bloco de uma coluna memo
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return Número do bloco (0 se o memo não estiver preenchido)
+	 */
+	int parseMemoBlock( byte[] record, int base )
+	{
+		int pos = base + offset;
+		int end = pos + fieldLength;
+		int block = 0;
+
+		for ( ; pos < end; pos++ )
+		{
+			if ( record[pos] >= '0' && record[pos] <= '9' )
+			{
+				block = block * 10 + ( record[pos] - '0' );
+			}
+		}
+
+		return block;
+	}
+
+	/**
+	 * Formata o valor e o copia para a posição da coluna dentro do registro
+	 * @param o			Valor da coluna
+	 * @param record	Array que contém o registro
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 */
+	void formatData( Object o, byte[] record, int base )
+	{
+		byte[] data = formatData( o );
+		System.arraycopy( data, 0, record, base + offset, fieldLength );
+	}
+
+	/**
+	 * Formatar a coluna de acordo com o tipo
+	 * @param o Objeto com o tip do dado 
+	 * @return array de caracteres com o dado formatado
+	 */
+	public byte[] formatData( Object o )
+	{
+		byte c[] = new byte[this.fieldLength];
+		
+		if ( o == null )
+		{
+			return arrayCopy( null, c, dataType );
+		}
+		
+		switch ( this.dataType )
+		{
+			case Field.TYPE_CHARACTER  :
+			{
+				return arrayCopy( codePage.encode( (String)o ), c, dataType );
+			}		
+			case Field.TYPE_FLOAT : 
+			case Field.TYPE_NUMERIC :
+			{
+				return arrayCopy( o.toString().getBytes(), c, dataType );
+			}			
+			case Field.TYPE_LOGICAL :
+			{
+				c[0] = ((Boolean)o).booleanValue() ? (byte)'T' : (byte)'F';
+				return c;
+			}
+			case Field.TYPE_MEMO :
+			{
+				// O conteúdo da coluna é o número do primeiro bloco do memo no arquivo .DBT
+				int block = ((Number)o).intValue();
+				return arrayCopy( block > 0 ? String.valueOf( block ).getBytes() : null, c, dataType );
+			}
+			case Field.TYPE_DATE : 
+			{
+				Calendar calendar = Calendar.getInstance();
+				calendar.setTime((Date)o);
+				byte[] dc;
+
+				int year  = calendar.get( Calendar.YEAR );
+				int month = calendar.get( Calendar.MONTH )+1;
+				int day	  = calendar.get( Calendar.DAY_OF_MONTH );
+				
+				dc = ( "" + 
+					   year + 
+					   ( month < 10 ? "0" + month : "" + month ) +					   
+					   ( day < 10 ? "0" + day : "" + day )
+					 ).getBytes();
+					 
+				return dc;				
+			}
+		}
+
+		return null;
+		
+	}
+	
+	private byte[] arrayCopy( byte[] source, byte[] dest, char type)
+	{
+		int sourceLen = 0;
+		if ( source != null )
+		{
+			sourceLen = source.length;
+		}
+		
+		int dif     = dest.length - sourceLen;
+		
+		if ( dif < 0 )
+			dif = 0;
+			
+		int iniCopy = 0;
+		
+		if ( type == Field.TYPE_CHARACTER )
+		{
+			// Preencher de espaços a direita
+			iniCopy = 0;
+		}
+		else
+		{
+			iniCopy = dif;
+		}
+		
+		// Preencher com espaços...
+		for ( int i = 0; i < dest.length; i++ )
+		{
+			dest[i] = ' ';
+		}
+		
+		// Copiar os dados...
+		for ( int i = iniCopy, k = 0; ( i < dest.length && k < sourceLen ); i++, k++ )
+		{
+			dest[i] = source[k];
+			
+		}
+		
+		return dest;
+	}
+
+}
@@ -1,19 +1,19 @@
-/*
-* Project: DBFProject
-* Date   : Mar 28, 2004
-*
-* Copyright (c) 2004 SoftSite Tecnologia
-* Todos os direitos reservados
-*/
-package br.com.softsite.sfc.tini.persistence;
-
-/**
-* Exceo disparada quando se tenta ler um determinado
-* campo que no existe na estrutura da tabela
-*
-* @author  regismelo
-* @version 1.0
-*/
-public class FieldNotFoundException extends Exception {
-
-}
+/*
+* Project: DBFProject
+* Date   : Mar 28, 2004
+*
+* Copyright (c) 2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Exceção disparada quando se tenta ler um determinado
+* campo que não existe na estrutura da tabela
+*
+* @author  regismelo
+* @version 1.0
+*/
+public class FieldNotFoundException extends Exception {
+
+}
@@ -1,20 +1,20 @@
-/*
-* Project: DBFProject
-* Date   : Mar 28, 2004
-*
-* Copyright (c) 2004 SoftSite Tecnologia
-* Todos os direitos reservados
-*/
-package br.com.softsite.sfc.tini.persistence;
-
-/**
-* Exceo disparada quando se tenta ler um
-* determinado tipo de campo utilizando um mtodo getXXX
-* com outro tipo
-*
-* @author  regismelo
-* @version 1.0
-*/
-public class FieldTypeException extends Exception {
-
-}
+/*
+* Project: DBFProject
+* Date   : Mar 28, 2004
+*
+* Copyright (c) 2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Exceção disparada quando se tenta ler um
+* determinado tipo de campo utilizando um método getXXX
+* com outro tipo
+*
+* @author  regismelo
+* @version 1.0
+*/
+public class FieldTypeException extends Exception {
+
+}
@@ -0,0 +1,821 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+* Índice hash para pesquisas exatas em uma coluna (ex: NR_CPF, DS_CMC7).
+*
+* O índice relaciona o hash dos bytes gravados na coluna aos números dos registros. Todas as
+* estruturas são arrays de tipos primitivos: a tabela de buckets guarda o primeiro registro de
+* cada lista e os arrays indexados pelo número do registro guardam o hash e o próximo registro
+* da lista. Uma pesquisa custa o cálculo do hash mais a confirmação dos bytes da coluna, feita
+* por uma leitura posicional no arquivo - ou na memória, se o índice for criado com as chaves
+* (keepKeys).
+*
+* O índice é construído em uma única leitura sequencial da tabela e é mantido atualizado por
+* addRecord, deleteRecord e setFieldXXX. Registros deletados não fazem parte do índice.
+* Se for informado um arquivo, o índice é carregado dele na abertura (quando ainda
+* corresponde à tabela) e gravado quando a tabela é fechada. Na primeira alteração após a
+* abertura (ou após save), o arquivo é marcado como desatualizado; se o processo terminar sem
+* fechar a tabela, o índice é reconstruído na próxima abertura.
+*
+* <pre>
+*	HashIndex cpf = HashIndex.build( table, "NR_CPF" );
+*	if ( cpf.seek( "54214459334" ) ) {
+*		double valor = table.getFieldDouble( "VR_RECEB" );
+*	}
+* </pre>
+*
+* @version 1.0
+*/
+public class HashIndex implements TableListener, WarmupTarget {
+
+	/** Identificação do arquivo do índice */
+	private static final int MAGIC = 0x48495831; // HIX1
+
+	/** Indica, no array next, que o registro não está no índice */
+	private static final int ABSENT = -1;
+
+	/** Tabela indexada */
+	private final Table table;
+
+	/** Coluna indexada */
+	private final Field field;
+
+	/** Arquivo do índice (null = somente em memória) */
+	private final String indexFileName;
+
+	/** Mantém os bytes das chaves em memória (dispensa a leitura na confirmação) */
+	private final boolean keepKeys;
+
+	/** Primeiro registro de cada bucket (0 = vazio) */
+	private int[] buckets;
+
+	/** Próximo registro da lista, por número de registro (ABSENT = fora do índice) */
+	private int[] next;
+
+	/** Hash da chave, por número de registro */
+	private int[] hashes;
+
+	/** Bytes das chaves, por número de registro (apenas keepKeys) */
+	private byte[] keys;
+
+	/** Quantidade de registros no índice */
+	private int size;
+
+	/** Maior número de registro conhecido */
+	private int maxRecord;
+
+	/** Leitura posicional para confirmar as chaves */
+	private TableScanner reader;
+
+	/** Buffer para a chave lida do arquivo */
+	private byte[] keyBuffer;
+
+	/** O arquivo do índice já foi marcado como desatualizado */
+	private boolean dirty;
+
+	/** As listas dos buckets estão inconsistentes: o índice é reconstruído na próxima pesquisa */
+	private boolean corrupt;
+
+	private HashIndex( Table table, String columnName, String indexFileName, boolean keepKeys ) throws FieldNotFoundException
+	{
+		super();
+		this.table 		   = table;
+		this.field 		   = table.findField( columnName );
+		this.indexFileName = indexFileName;
+		this.keepKeys 	   = keepKeys;
+		this.keyBuffer 	   = new byte[field.fieldLength];
+	}
+
+	/**
+	 * Constrói um índice somente em memória
+	 * @param table			Tabela aberta
+	 * @param columnName	Coluna a ser indexada
+	 * @return O índice, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 */
+	public static HashIndex build( Table table, String columnName ) throws IOException, FieldNotFoundException
+	{
+		return build( table, columnName, false );
+	}
+
+	/**
+	 * Constrói um índice somente em memória
+	 * @param table			Tabela aberta
+	 * @param columnName	Coluna a ser indexada
+	 * @param keepKeys		Manter também os bytes das chaves em memória: as pesquisas não
+	 * 						acessam o arquivo, ao custo de (tamanho da coluna) bytes por registro
+	 * @return O índice, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 */
+	public static HashIndex build( Table table, String columnName, boolean keepKeys ) throws IOException, FieldNotFoundException
+	{
+		HashIndex index = new HashIndex( table, columnName, null, keepKeys );
+		index.rebuild();
+		table.addTableListener( index );
+		return index;
+	}
+
+	/**
+	 * Abre um índice persistido em arquivo. Se o arquivo não existir ou não corresponder ao
+	 * estado atual da tabela, o índice é reconstruído. O arquivo é gravado quando a tabela é fechada.
+	 * @param table			Tabela aberta
+	 * @param columnName	Coluna a ser indexada
+	 * @param indexFileName	Arquivo do índice
+	 * @param keepKeys		Manter também os bytes das chaves em memória
+	 * @return O índice, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 */
+	public static HashIndex open( Table table, String columnName, String indexFileName, boolean keepKeys ) throws IOException, FieldNotFoundException
+	{
+		HashIndex index = new HashIndex( table, columnName, indexFileName, keepKeys );
+		if ( !index.load() )
+		{
+			index.rebuild();
+		}
+		table.addTableListener( index );
+		return index;
+	}
+
+	/**
+	 * Cria um índice vazio, para ser carregado do arquivo (load) ou montado pelo aquecimento
+	 * da tabela (ver TableWarmup)
+	 * @return O índice (não registrado na tabela)
+	 */
+	static HashIndex create( Table table, String columnName, String indexFileName, boolean keepKeys ) throws FieldNotFoundException
+	{
+		return new HashIndex( table, columnName, indexFileName, keepKeys );
+	}
+
+	/**
+	 * Pesquisa um valor
+	 * @param value Valor da coluna (mesmos tipos aceitos por addRecord)
+	 * @return Número do primeiro registro com o valor, ou 0 se não encontrado
+	 * @throws IOException
+	 */
+	public int find( Object value ) throws IOException
+	{
+		return find( field.formatData( value ) );
+	}
+
+	/**
+	 * Pesquisa um valor já formatado
+	 * @param key Bytes da coluna, exatamente como gravados no arquivo
+	 * @return Número do primeiro registro com o valor, ou 0 se não encontrado
+	 * @throws IOException
+	 */
+	public int find( byte[] key ) throws IOException
+	{
+		checkConsistency();
+
+		int hash  = hash( key, 0, key.length );
+		int found = 0;
+
+		for ( int record = buckets[slot( hash, buckets.length )]; record != 0; record = next[record] )
+		{
+			if ( hashes[record] == hash && ( found == 0 || record < found ) && matches( record, key ) )
+			{
+				found = record;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Pesquisa todos os registros com um valor
+	 * @param value Valor da coluna
+	 * @return Números dos registros, em ordem crescente
+	 * @throws IOException
+	 */
+	public int[] findAll( Object value ) throws IOException
+	{
+		return findAll( field.formatData( value ) );
+	}
+
+	/**
+	 * Pesquisa todos os registros com o conteúdo exato da coluna
+	 * @param key Bytes da coluna, já formatados (tamanho da coluna)
+	 * @return Números dos registros, em ordem crescente
+	 * @throws IOException
+	 */
+	public int[] findAll( byte[] key ) throws IOException
+	{
+		checkConsistency();
+
+		int hash   = hash( key, 0, key.length );
+
+		int[] found = new int[4];
+		int count 	= 0;
+
+		for ( int record = buckets[slot( hash, buckets.length )]; record != 0; record = next[record] )
+		{
+			if ( hashes[record] == hash && matches( record, key ) )
+			{
+				if ( count == found.length )
+				{
+					found = grow( found, count * 2 );
+				}
+				found[count++] = record;
+			}
+		}
+
+		int[] result = new int[count];
+		System.arraycopy( found, 0, result, 0, count );
+		Utils.sort( result );
+
+		return result;
+	}
+
+	/**
+	 * Posiciona a tabela no primeiro registro com o valor
+	 * @param value Valor da coluna
+	 * @return TRUE se o valor foi encontrado
+	 * @throws IOException
+	 */
+	public boolean seek( Object value ) throws IOException
+	{
+		int record = find( value );
+		if ( record == 0 )
+		{
+			return false;
+		}
+
+		table.goTo( record );
+		return true;
+	}
+
+	/**
+	 * Quantidade de registros no índice
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Nome da coluna indexada
+	 */
+	public String getColumnName()
+	{
+		return field.fieldName;
+	}
+
+	Table getTable()
+	{
+		return table;
+	}
+
+	Field getField()
+	{
+		return field;
+	}
+
+	/**
+	 * Grava o índice no arquivo informado em open()
+	 * @throws IOException
+	 */
+	public void save() throws IOException
+	{
+		if ( indexFileName == null )
+		{
+			return;
+		}
+
+		File dbf = new File( table.tableName );
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( indexFileName ), 64 * 1024 ) );
+		try
+		{
+			out.writeInt( MAGIC );
+			out.writeLong( dbf.length() );
+			out.writeLong( dbf.lastModified() );
+			out.writeInt( table.getNumberOfRecords() );
+			out.writeInt( field.offset );
+			out.writeInt( field.fieldLength );
+			out.writeInt( maxRecord );
+
+			for ( int record = 1; record <= maxRecord; record++ )
+			{
+				out.writeBoolean( next[record] != ABSENT );
+				out.writeInt( hashes[record] );
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+		dirty = false;
+	}
+
+	/**
+	 * Deixa de acompanhar as alterações da tabela e libera os recursos
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		table.removeTableListener( this );
+		if ( reader != null )
+		{
+			reader.close();
+			reader = null;
+		}
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		markDirty();
+		if ( data[0] != Table.DELETED )
+		{
+			insert( record, data, 0 );
+		}
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		boolean present = record <= maxRecord && next[record] != ABSENT;
+		boolean live 	= newData[0] != Table.DELETED;
+
+		if ( present && live && sameKey( oldData, newData ) )
+		{
+			return;
+		}
+
+		markDirty();
+		try
+		{
+			if ( present )
+			{
+				remove( record );
+			}
+			if ( live )
+			{
+				insert( record, newData, 0 );
+			}
+		}
+		catch ( TableCorruptException e )
+		{
+			corrupt = true;
+		}
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+		if ( record <= maxRecord && next[record] != ABSENT )
+		{
+			markDirty();
+			try
+			{
+				remove( record );
+			}
+			catch ( TableCorruptException e )
+			{
+				corrupt = true;
+			}
+		}
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+		if ( record > maxRecord || next[record] == ABSENT )
+		{
+			markDirty();
+			insert( record, data, 0 );
+		}
+	}
+
+	public void tableClosed( Table table )
+	{
+		try
+		{
+			if ( !corrupt )
+			{
+				save();
+			}
+			close();
+		}
+		catch ( IOException e )
+		{
+			// O índice será reconstruído na próxima abertura
+			if ( indexFileName != null )
+			{
+				new File( indexFileName ).delete();
+			}
+		}
+	}
+
+	/**
+	 * Marca o arquivo do índice como desatualizado (zera a identificação, que load confere),
+	 * uma única vez até o próximo save
+	 */
+	private void markDirty()
+	{
+		if ( dirty || indexFileName == null )
+		{
+			return;
+		}
+		dirty = true;
+
+		File file = new File( indexFileName );
+		if ( !file.exists() )
+		{
+			return;
+		}
+		try
+		{
+			RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+			try
+			{
+				raf.writeInt( 0 );
+			}
+			finally
+			{
+				raf.close();
+			}
+		}
+		catch ( IOException e )
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Reconstrói o índice se uma alteração encontrou as listas inconsistentes
+	 */
+	private void checkConsistency() throws IOException
+	{
+		if ( corrupt )
+		{
+			rebuild();
+			corrupt = false;
+		}
+	}
+
+	/**
+	 * Calcula o hash de um trecho de array
+	 */
+	static int hash( byte[] data, int pos, int len )
+	{
+		int hash = 0;
+		for ( int i = pos, end = pos + len; i < end; i++ )
+		{
+			hash = 31 * hash + data[i];
+		}
+		return hash;
+	}
+
+	public void prepare( int records )
+	{
+		allocate( records );
+	}
+
+	public RecordVisitor newPart( int first, int last )
+	{
+		// Cada parte grava apenas as posições dos seus registros; o encadeamento dos buckets
+		// fica para a junção
+		return new RecordVisitor() {
+			public boolean visit( int record, byte[] buffer, int base )
+			{
+				if ( buffer[base] != Table.DELETED )
+				{
+					int pos = base + field.offset;
+					hashes[record] = hash( buffer, pos, field.fieldLength );
+					if ( keepKeys )
+					{
+						System.arraycopy( buffer, pos, keys, record * field.fieldLength, field.fieldLength );
+					}
+					next[record] = 0;
+				}
+				return true;
+			}
+		};
+	}
+
+	public void merge( RecordVisitor[] parts )
+	{
+		maxRecord = next.length - 1;
+
+		// Registros em ordem crescente, como em rebuild()
+		for ( int record = 1; record <= maxRecord; record++ )
+		{
+			if ( next[record] != ABSENT )
+			{
+				link( record );
+			}
+		}
+	}
+
+	/**
+	 * Constrói o índice em uma leitura sequencial da tabela
+	 */
+	private void rebuild() throws IOException
+	{
+		int records = table.getNumberOfRecords();
+
+		allocate( records );
+
+		if ( records == 0 )
+		{
+			return;
+		}
+
+		TableScanner scanner = new TableScanner( table );
+		try
+		{
+			scanner.scan( 1, records, new RecordVisitor() {
+				public boolean visit( int record, byte[] buffer, int base )
+				{
+					if ( buffer[base] != Table.DELETED )
+					{
+						insert( record, buffer, base );
+					}
+					return true;
+				}
+			} );
+		}
+		finally
+		{
+			scanner.close();
+		}
+	}
+
+	/**
+	 * Carrega o índice do arquivo
+	 * @return FALSE se o arquivo não existe ou não corresponde à tabela
+	 */
+	boolean load() throws IOException
+	{
+		File file = new File( indexFileName );
+		if ( !file.exists() )
+		{
+			return false;
+		}
+
+		File dbf = new File( table.tableName );
+		DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ), 64 * 1024 ) );
+		try
+		{
+			if ( in.readInt() != MAGIC ||
+				 in.readLong() != dbf.length() ||
+				 in.readLong() != dbf.lastModified() ||
+				 in.readInt() != table.getNumberOfRecords() ||
+				 in.readInt() != field.offset ||
+				 in.readInt() != field.fieldLength )
+			{
+				return false;
+			}
+
+			int records = in.readInt();
+			allocate( records );
+
+			boolean[] present = new boolean[records + 1];
+			for ( int record = 1; record <= records; record++ )
+			{
+				present[record] = in.readBoolean();
+				hashes[record]  = in.readInt();
+			}
+			maxRecord = records;
+
+			for ( int record = 1; record <= records; record++ )
+			{
+				if ( present[record] )
+				{
+					link( record );
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		dirty = false;
+
+		// As chaves não são gravadas no arquivo: carregá-las da tabela
+		if ( keepKeys && size > 0 )
+		{
+			TableScanner scanner = new TableScanner( table );
+			try
+			{
+				scanner.scan( 1, maxRecord, new RecordVisitor() {
+					public boolean visit( int record, byte[] buffer, int base )
+					{
+						System.arraycopy( buffer, base + field.offset, keys, record * field.fieldLength, field.fieldLength );
+						return true;
+					}
+				} );
+			}
+			finally
+			{
+				scanner.close();
+			}
+		}
+
+		return true;
+	}
+
+	private void allocate( int records )
+	{
+		int capacity = 16;
+		while ( capacity < records * 2 )
+		{
+			capacity <<= 1;
+		}
+
+		buckets   = new int[capacity];
+		next 	  = new int[records + 1];
+		hashes 	  = new int[records + 1];
+		keys 	  = keepKeys ? new byte[( records + 1 ) * field.fieldLength] : null;
+		size 	  = 0;
+		maxRecord = 0;
+
+		for ( int i = 0; i < next.length; i++ )
+		{
+			next[i] = ABSENT;
+		}
+	}
+
+	/**
+	 * Inclui um registro no índice
+	 */
+	private void insert( int record, byte[] data, int base )
+	{
+		ensureRecord( record );
+
+		int pos = base + field.offset;
+		hashes[record] = hash( data, pos, field.fieldLength );
+
+		if ( keepKeys )
+		{
+			System.arraycopy( data, pos, keys, record * field.fieldLength, field.fieldLength );
+		}
+
+		link( record );
+
+		if ( size > buckets.length * 3 / 4 )
+		{
+			rehash( buckets.length * 2 );
+		}
+	}
+
+	private void link( int record )
+	{
+		int slot = slot( hashes[record], buckets.length );
+		next[record]  = buckets[slot];
+		buckets[slot] = record;
+		size++;
+	}
+
+	/**
+	 * Retira um registro do índice
+	 * @throws TableCorruptException O registro não está na lista do seu bucket, ou a lista
+	 * 								 não termina (o percurso é limitado ao tamanho do índice)
+	 */
+	private void remove( int record ) throws TableCorruptException
+	{
+		int slot = slot( hashes[record], buckets.length );
+
+		if ( buckets[slot] == record )
+		{
+			buckets[slot] = next[record];
+		}
+		else
+		{
+			int previous = buckets[slot];
+			for ( int steps = 0; previous > 0 && previous <= maxRecord && next[previous] != record; steps++ )
+			{
+				if ( steps > size )
+				{
+					previous = 0;
+					break;
+				}
+				previous = next[previous];
+			}
+			if ( previous <= 0 || previous > maxRecord )
+			{
+				throw new TableCorruptException( "Índice " + field.fieldName + ": registro " + record + " fora da lista do bucket" );
+			}
+			next[previous] = next[record];
+		}
+
+		next[record] = ABSENT;
+		size--;
+	}
+
+	private void rehash( int capacity )
+	{
+		buckets = new int[capacity];
+		size 	= 0;
+
+		for ( int record = 1; record <= maxRecord; record++ )
+		{
+			if ( next[record] != ABSENT )
+			{
+				link( record );
+			}
+		}
+	}
+
+	private void ensureRecord( int record )
+	{
+		if ( record >= next.length )
+		{
+			int length = Math.max( record + 1, next.length * 3 / 2 );
+			int oldLength = next.length;
+
+			next   = grow( next, length );
+			hashes = grow( hashes, length );
+			for ( int i = oldLength; i < length; i++ )
+			{
+				next[i] = ABSENT;
+			}
+
+			if ( keepKeys )
+			{
+				byte[] newKeys = new byte[length * field.fieldLength];
+				System.arraycopy( keys, 0, newKeys, 0, keys.length );
+				keys = newKeys;
+			}
+		}
+
+		if ( record > maxRecord )
+		{
+			maxRecord = record;
+		}
+	}
+
+	/**
+	 * Confirma se o registro contém a chave
+	 */
+	private boolean matches( int record, byte[] key ) throws IOException
+	{
+		if ( key.length != field.fieldLength )
+		{
+			return false;
+		}
+
+		byte[] data = keys;
+		int pos 	= record * field.fieldLength;
+
+		if ( !keepKeys )
+		{
+			if ( reader == null )
+			{
+				reader = new TableScanner( table, 0 );
+			}
+			reader.read( record, field.offset, keyBuffer );
+			data = keyBuffer;
+			pos  = 0;
+		}
+
+		for ( int i = 0; i < key.length; i++ )
+		{
+			if ( data[pos + i] != key[i] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean sameKey( byte[] oldData, byte[] newData )
+	{
+		for ( int i = field.offset, end = field.offset + field.fieldLength; i < end; i++ )
+		{
+			if ( oldData[i] != newData[i] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int slot( int hash, int capacity )
+	{
+		return ( hash ^ ( hash >>> 16 ) ) & ( capacity - 1 );
+	}
+
+	private static int[] grow( int[] array, int length )
+	{
+		int[] newArray = new int[length];
+		System.arraycopy( array, 0, newArray, 0, Math.min( array.length, length ) );
+		return newArray;
+	}
+}
@@ -0,0 +1,27 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+
+/**
+* Recebe os pares de registros produzidos por um TableJoin
+*
+* @version 1.0
+*/
+public interface JoinVisitor {
+
+	/**
+	 * Processa um par de registros com a mesma chave. As duas tabelas estão posicionadas nos
+	 * registros do par (getFieldXXX pode ser usado normalmente).
+	 * @param left	Tabela da esquerda
+	 * @param right	Tabela da direita
+	 * @return FALSE para interromper a junção
+	 */
+	boolean visit( Table left, Table right ) throws IOException, FieldNotFoundException, FieldTypeException;
+}
@@ -0,0 +1,463 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Hashtable;
+
+/**
+* Arquivo de memos (.DBT) no formato DBase III.
+*
+* O arquivo é dividido em blocos de 512 bytes. O bloco 0 é o cabeçalho, cujos bytes 0-3
+* guardam o próximo bloco livre. Cada memo ocupa um ou mais blocos consecutivos e termina
+* com dois bytes 0x1A.
+*
+* Os blocos lidos ficam num cache LRU de tamanho limitado. As gravações são sempre feitas
+* no final do arquivo (como no DBase III, um memo alterado é regravado em novos blocos) e
+* acumuladas em memória até que o lote atinja o tamanho configurado, ou até que a tabela
+* grave um registro (ver Table.beforeWrite). O arquivo é aberto somente para leitura (e não é
+* criado, se não existir) até a primeira gravação.
+*
+* @version 1.0
+*/
+class MemoFile {
+
+	/** Tamanho do bloco */
+	static final int BLOCK_SIZE = 512;
+
+	/** Indica o fim do texto do memo */
+	static final byte END_OF_MEMO = 0x1A;
+
+	/** Versão gravada no cabeçalho (byte 16) */
+	private static final byte VERSION_DBASE_III = 0x03;
+
+	/** Quantidade padrão de blocos mantidos no cache */
+	static final int DEFAULT_CACHE_BLOCKS = 16;
+
+	/** Quantidade padrão de blocos acumulados antes de gravar */
+	static final int DEFAULT_BATCH_BLOCKS = 8;
+
+	/** Nome do arquivo de memos */
+	private final String fileName;
+
+	/** Arquivo de memos (null = ainda não existe) */
+	private RandomAccessFile fileStream;
+
+	/** O arquivo está aberto para gravação */
+	private boolean writable;
+
+	/** Página de código do texto */
+	private CodePage codePage;
+
+	/** Próximo bloco livre (já considerando os blocos pendentes) */
+	private int nextBlock;
+
+	/** Primeiro bloco pendente de gravação */
+	private int pendingBlock;
+
+	/** Blocos pendentes de gravação */
+	private byte[] pending = new byte[0];
+
+	/** Bytes utilizados em pending */
+	private int pendingLength;
+
+	/** Quantidade de blocos acumulados antes de gravar */
+	private int batchBlocks = DEFAULT_BATCH_BLOCKS;
+
+	/** Cache de blocos: número do bloco -> entrada da lista LRU */
+	private Hashtable cache = new Hashtable();
+
+	/** Quantidade máxima de blocos no cache */
+	private int cacheBlocks = DEFAULT_CACHE_BLOCKS;
+
+	/** Lista LRU (head = mais recente, tail = candidato a sair do cache) */
+	private CacheEntry head;
+	private CacheEntry tail;
+
+	/**
+	 * Abre o arquivo de memos somente para leitura. Se não existir, ele é criado na primeira
+	 * gravação.
+	 * @param fileName Nome do arquivo .DBT
+	 * @param codePage Página de código do texto (a mesma da tabela)
+	 * @throws IOException
+	 */
+	MemoFile( String fileName, CodePage codePage ) throws IOException
+	{
+		this.fileName = fileName;
+		this.codePage = codePage;
+
+		File file = new File( fileName );
+		if ( file.exists() && file.length() >= BLOCK_SIZE )
+		{
+			fileStream = new RandomAccessFile( file, "r" );
+
+			byte[] header = new byte[4];
+			fileStream.readFully( header );
+			nextBlock = Utils.readLittleEndianInt( header, 0 );
+		}
+		else
+		{
+			// Arquivo novo: o primeiro bloco livre é o 1
+			nextBlock = 1;
+		}
+
+		pendingBlock = nextBlock;
+	}
+
+	/**
+	 * Nome do arquivo de memos associado a uma tabela (extensão .DBT no lugar de .DBF)
+	 */
+	static String getMemoFileName( String tableName )
+	{
+		int dot = tableName.lastIndexOf( '.' );
+		if ( dot > tableName.lastIndexOf( File.separatorChar ) && dot > tableName.lastIndexOf( '/' ) )
+		{
+			String ext = tableName.substring( dot + 1 );
+			return tableName.substring( 0, dot + 1 ) + ( ext.equals( ext.toLowerCase() ) ? "dbt" : "DBT" );
+		}
+		return tableName + ".DBT";
+	}
+
+	/**
+	 * Cria um arquivo de memos vazio
+	 */
+	static void create( String fileName ) throws IOException
+	{
+		MemoFile memo = new MemoFile( fileName, CodePage.getDefault() );
+		memo.openForWrite();
+		memo.close();
+	}
+
+	/**
+	 * Lê o texto de um memo
+	 * @param block Primeiro bloco do memo
+	 * @return Texto do memo ("" se o bloco for 0 - memo não preenchido)
+	 * @throws IOException
+	 */
+	String read( int block ) throws IOException
+	{
+		if ( block <= 0 )
+		{
+			return "";
+		}
+
+		if ( block >= nextBlock )
+		{
+			// Memo gravado por outro processo depois da abertura do arquivo
+			refresh();
+		}
+
+		StringBuffer text = new StringBuffer();
+
+		for ( ; block < nextBlock; block++ )
+		{
+			byte[] data = getBlock( block );
+
+			for ( int i = 0; i < BLOCK_SIZE; i++ )
+			{
+				if ( data[i] == END_OF_MEMO )
+				{
+					text.append( codePage.decode( data, 0, i ) );
+					return text.toString();
+				}
+			}
+
+			text.append( codePage.decode( data, 0, BLOCK_SIZE ) );
+		}
+
+		// Chegou no final do arquivo sem encontrar o terminador
+		return text.toString();
+	}
+
+	/**
+	 * Adiciona um memo no final do arquivo. A gravação efetiva só acontece quando o lote
+	 * atinge o tamanho configurado ou em flush().
+	 * @param text Texto do memo
+	 * @return Número do primeiro bloco do memo (a ser gravado na coluna da tabela)
+	 * @throws IOException
+	 */
+	int append( String text ) throws IOException
+	{
+		byte[] data   = codePage.encode( text );
+		int    blocks = ( data.length + 2 + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
+		int    block  = nextBlock;
+
+		ensurePending( pendingLength + blocks * BLOCK_SIZE );
+
+		System.arraycopy( data, 0, pending, pendingLength, data.length );
+		int pos = pendingLength + data.length;
+		pending[pos++] = END_OF_MEMO;
+		pending[pos++] = END_OF_MEMO;
+
+		// Completar o último bloco com zeros
+		int end = pendingLength + blocks * BLOCK_SIZE;
+		for ( ; pos < end; pos++ )
+		{
+			pending[pos] = 0;
+		}
+
+		pendingLength = end;
+		nextBlock    += blocks;
+
+		if ( nextBlock - pendingBlock >= batchBlocks )
+		{
+			flush();
+		}
+
+		return block;
+	}
+
+	/**
+	 * Grava os memos pendentes e atualiza o cabeçalho
+	 * @throws IOException
+	 */
+	void flush() throws IOException
+	{
+		if ( pendingLength == 0 )
+		{
+			return;
+		}
+
+		openForWrite();
+		fileStream.seek( (long)pendingBlock * BLOCK_SIZE );
+		fileStream.write( pending, 0, pendingLength );
+		writeHeader();
+
+		pendingBlock  = nextBlock;
+		pendingLength = 0;
+	}
+
+	/**
+	 * Grava os memos pendentes e fecha o arquivo
+	 * @throws IOException
+	 */
+	void close() throws IOException
+	{
+		flush();
+		if ( fileStream != null )
+		{
+			fileStream.close();
+			fileStream = null;
+		}
+		cache.clear();
+		head = tail = null;
+	}
+
+	/**
+	 * Altera a página de código do texto
+	 */
+	void setCodePage( CodePage codePage )
+	{
+		this.codePage = codePage;
+	}
+
+	/**
+	 * Quantidade máxima de blocos mantidos no cache
+	 */
+	void setCacheBlocks( int cacheBlocks )
+	{
+		this.cacheBlocks = Math.max( 1, cacheBlocks );
+		while ( cache.size() > this.cacheBlocks )
+		{
+			evict();
+		}
+	}
+
+	/**
+	 * Quantidade de blocos acumulados antes de gravar
+	 */
+	void setBatchBlocks( int batchBlocks )
+	{
+		this.batchBlocks = Math.max( 1, batchBlocks );
+	}
+
+	/**
+	 * Obtém um bloco, do lote pendente, do cache ou do disco
+	 */
+	private byte[] getBlock( int block ) throws IOException
+	{
+		if ( block >= pendingBlock )
+		{
+			byte[] data = new byte[BLOCK_SIZE];
+			System.arraycopy( pending, ( block - pendingBlock ) * BLOCK_SIZE, data, 0, BLOCK_SIZE );
+			return data;
+		}
+
+		Integer key = new Integer( block );
+		CacheEntry entry = (CacheEntry)cache.get( key );
+
+		if ( entry != null )
+		{
+			unlink( entry );
+			linkFirst( entry );
+			return entry.data;
+		}
+
+		entry = new CacheEntry();
+		entry.block = key;
+		entry.data  = new byte[BLOCK_SIZE];
+
+		int read = -1;
+		if ( fileStream != null )
+		{
+			fileStream.seek( (long)block * BLOCK_SIZE );
+			read = fileStream.read( entry.data );
+		}
+		if ( read < BLOCK_SIZE )
+		{
+			// Bloco incompleto no final do arquivo: tratar o restante como fim do memo
+			for ( int i = Math.max( read, 0 ); i < BLOCK_SIZE; i++ )
+			{
+				entry.data[i] = END_OF_MEMO;
+			}
+		}
+
+		if ( cache.size() >= cacheBlocks )
+		{
+			evict();
+		}
+		cache.put( key, entry );
+		linkFirst( entry );
+
+		return entry.data;
+	}
+
+	/**
+	 * Relê o próximo bloco livre do cabeçalho, abrindo o arquivo se ele foi criado depois.
+	 * Não faz nada enquanto houver blocos pendentes, que já ocupam a numeração desta instância.
+	 */
+	private void refresh() throws IOException
+	{
+		if ( pendingLength > 0 )
+		{
+			return;
+		}
+
+		if ( fileStream == null )
+		{
+			File file = new File( fileName );
+			if ( !file.exists() || file.length() < BLOCK_SIZE )
+			{
+				return;
+			}
+			fileStream = new RandomAccessFile( file, "r" );
+		}
+
+		byte[] header = new byte[4];
+		fileStream.seek( 0 );
+		fileStream.readFully( header );
+
+		int block = Utils.readLittleEndianInt( header, 0 );
+		if ( block > nextBlock )
+		{
+			nextBlock 	 = block;
+			pendingBlock = block;
+		}
+	}
+
+	/**
+	 * Reabre o arquivo para gravação (criando-o, se não existir)
+	 */
+	private void openForWrite() throws IOException
+	{
+		if ( writable )
+		{
+			return;
+		}
+
+		if ( fileStream != null )
+		{
+			fileStream.close();
+		}
+		fileStream = new RandomAccessFile( new File( fileName ), "rw" );
+		writable = true;
+
+		if ( fileStream.length() < BLOCK_SIZE )
+		{
+			writeHeader();
+		}
+	}
+
+	private void writeHeader() throws IOException
+	{
+		byte[] header = new byte[BLOCK_SIZE];
+		Utils.writeLittleEndianInt( header, 0, nextBlock );
+		header[16] = VERSION_DBASE_III;
+
+		fileStream.seek( 0 );
+		fileStream.write( header );
+	}
+
+	private void ensurePending( int size )
+	{
+		if ( size > pending.length )
+		{
+			byte[] newPending = new byte[Math.max( size, pending.length * 2 )];
+			System.arraycopy( pending, 0, newPending, 0, pendingLength );
+			pending = newPending;
+		}
+	}
+
+	private void evict()
+	{
+		CacheEntry entry = tail;
+		unlink( entry );
+		cache.remove( entry.block );
+	}
+
+	private void linkFirst( CacheEntry entry )
+	{
+		entry.previous = null;
+		entry.next     = head;
+		if ( head != null )
+		{
+			head.previous = entry;
+		}
+		head = entry;
+		if ( tail == null )
+		{
+			tail = entry;
+		}
+	}
+
+	private void unlink( CacheEntry entry )
+	{
+		if ( entry.previous != null )
+		{
+			entry.previous.next = entry.next;
+		}
+		else
+		{
+			head = entry.next;
+		}
+
+		if ( entry.next != null )
+		{
+			entry.next.previous = entry.previous;
+		}
+		else
+		{
+			tail = entry.previous;
+		}
+
+		entry.previous = entry.next = null;
+	}
+
+	/**
+	 * Entrada da lista LRU
+	 */
+	private static class CacheEntry
+	{
+		Integer 	block;
+		byte[]		data;
+		CacheEntry	previous;
+		CacheEntry	next;
+	}
+}
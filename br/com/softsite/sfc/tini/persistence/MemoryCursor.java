@@ -0,0 +1,239 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+* Cursor sobre a cópia em memória de uma tabela (ver MemoryTable.openCursor).
+*
+* As colunas são lidas diretamente do bloco da imagem, na posição do registro, sem cópia.
+* A imagem é escolhida ao posicionar o cursor (goTop e goTo) e mantida até o próximo
+* posicionamento, portanto uma varredura com nextRecord enxerga a tabela como ela estava no
+* início, mesmo que outra thread a altere nesse meio tempo.
+*
+* Cada cursor deve ser usado por uma única thread; vários cursores podem ler a mesma
+* MemoryTable ao mesmo tempo sem bloqueios.
+*
+* @version 1.0
+*/
+public class MemoryCursor {
+
+	/** Cópia em memória da tabela */
+	private final MemoryTable memory;
+
+	/** Tabela de origem */
+	private final Table table;
+
+	/** Imagem usada pelo cursor */
+	private MemoryTable.Image image;
+
+	/** Registro atual */
+	private int recordNumber;
+
+	/** Bloco da imagem que contém o registro atual */
+	private byte[] data;
+
+	/** Posição do registro atual no bloco */
+	private int base;
+
+	/** Ler dados marcados como deletados? */
+	private boolean readDeletedData = false;
+
+	/**
+	 * Construtor - usar MemoryTable.openCursor()
+	 */
+	MemoryCursor( MemoryTable memory )
+	{
+		super();
+		this.memory = memory;
+		this.table 	= memory.getTable();
+	}
+
+	/**
+	 * Posiciona o cursor no primeiro registro
+	 * @return FALSE se a tabela não possui registros
+	 * @throws IOException Erro na releitura da tabela alterada por outro processo
+	 */
+	public boolean goTop() throws IOException
+	{
+		image 		 = memory.current();
+		recordNumber = 0;
+		return nextRecord();
+	}
+
+	/**
+	 * Avança o cursor para o próximo registro (não deletado)
+	 * @return FALSE se não há mais registros
+	 */
+	public boolean nextRecord()
+	{
+		if ( image == null )
+		{
+			return false;
+		}
+
+		int perBlock = image.recordsPerBlock;
+		while ( recordNumber < image.numberOfRecords )
+		{
+			byte[] block = image.blocks[recordNumber / perBlock];
+			int pos 	 = ( recordNumber % perBlock ) * table.recordLength;
+			recordNumber++;
+
+			if ( readDeletedData || block[pos] != Table.DELETED )
+			{
+				data = block;
+				base = pos;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Posiciona o cursor em um registro (mesmo que esteja deletado)
+	 * @param record Número do registro
+	 * @return FALSE se o registro não existe
+	 * @throws IOException Erro na releitura da tabela alterada por outro processo
+	 */
+	public boolean goTo( int record ) throws IOException
+	{
+		image = memory.current();
+
+		if ( record < 1 || record > image.numberOfRecords )
+		{
+			return false;
+		}
+
+		recordNumber = record;
+		data 		 = image.block( record );
+		base 		 = image.offset( record );
+		return true;
+	}
+
+	/**
+	 * Indica se o registro atual está marcado como deletado
+	 */
+	public boolean isDeleted()
+	{
+		return data[base] == Table.DELETED;
+	}
+
+	public String getFieldString( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_CHARACTER ).parseString( data, base );
+	}
+
+	public TextView getFieldText( String columnName, TextView view ) throws FieldNotFoundException, FieldTypeException
+	{
+		checkType( columnName, Field.TYPE_CHARACTER ).parseText( data, base, view );
+		return view;
+	}
+
+	public int getFieldInteger( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_NUMERIC ).parseInteger( data, base );
+	}
+
+	public double getFieldDouble( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_FLOAT ).parseDouble( data, base );
+	}
+
+	public Date getFieldDate( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_DATE ).parseDate( data, base );
+	}
+
+	public boolean getFieldBoolean( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_LOGICAL ).parseBoolean( data, base );
+	}
+
+	public void setFieldString( String columnName, String valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		setField( checkType( columnName, Field.TYPE_CHARACTER ), valor );
+	}
+
+	public void setFieldInteger( String columnName, int valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		setField( checkType( columnName, Field.TYPE_NUMERIC ), new Integer( valor ) );
+	}
+
+	public void setFieldDouble( String columnName, double valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		setField( checkType( columnName, Field.TYPE_FLOAT ), new Double( valor ) );
+	}
+
+	public void setFieldDate( String columnName, Date valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		setField( checkType( columnName, Field.TYPE_DATE ), valor );
+	}
+
+	public void setFieldBoolean( String columnName, boolean valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		setField( checkType( columnName, Field.TYPE_LOGICAL ), new Boolean( valor ) );
+	}
+
+	/**
+	 * Quantidade de registros da imagem usada pelo cursor
+	 */
+	public int getNumberOfRecords()
+	{
+		return ( image != null ) ? image.numberOfRecords : memory.getNumberOfRecords();
+	}
+
+	/**
+	 * Número do registro atual
+	 */
+	public int getRecordNumber()
+	{
+		return recordNumber;
+	}
+
+	public boolean isReadDeletedData()
+	{
+		return readDeletedData;
+	}
+
+	public void setReadDeletedData( boolean b )
+	{
+		readDeletedData = b;
+	}
+
+	/**
+	 * Altera a coluna do registro atual. O cursor passa a usar a imagem que contém a alteração.
+	 */
+	private void setField( Field field, Object value ) throws IOException
+	{
+		if ( image == null || recordNumber < 1 )
+		{
+			throw new IOException( "Cursor não posicionado" );
+		}
+		image = memory.update( recordNumber, field, field.formatData( value ) );
+		data  = image.block( recordNumber );
+		base  = image.offset( recordNumber );
+	}
+
+	private Field checkType( String columnName, char dataType ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = table.findField( columnName );
+
+		if ( field.dataType != dataType )
+		{
+			if ( ! ( field.dataType == Field.TYPE_NUMERIC && dataType == Field.TYPE_FLOAT ) )
+			{
+				throw new FieldTypeException();
+			}
+		}
+
+		return field;
+	}
+}
@@ -0,0 +1,412 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+* Cópia em memória dos registros de uma tabela, para tabelas de referência pequenas e muito
+* lidas (ex: tabela de clientes, de bancos, de feriados).
+*
+* Os registros ficam em blocos de BLOCK_SIZE bytes (imagem) e são lidos por cursores
+* (MemoryCursor) sem acesso ao arquivo, sem alocação por registro e sem bloqueios: cada cursor
+* usa a imagem vigente no momento do posicionamento e a imagem nunca é alterada depois de
+* publicada. Uma alteração gera uma nova imagem, que substitui a anterior de uma só vez e
+* compartilha com ela todos os blocos menos o alterado, que é copiado (registros incluídos
+* aproveitam a área livre do último bloco, que as imagens anteriores não enxergam).
+*
+* As alterações feitas pela Table de origem são refletidas automaticamente (TableListener).
+* Alterações feitas por outros processos são detectadas pelo tamanho e pela data do arquivo,
+* verificados no máximo uma vez a cada getCheckInterval() milissegundos: a tabela é relida
+* inteira e a nova imagem é publicada ao final. As gravações da própria Table só atualizam o
+* tamanho e a data da imagem se o arquivo estava igual ao da imagem antes da gravação.
+*
+* Os cursores também podem alterar registros. Com setWriteThrough( true ) a alteração é gravada
+* na Table de origem (que não deve estar sendo usada por outra thread nesse momento); caso
+* contrário fica apenas em memória e é descartada na próxima releitura do arquivo.
+*
+* <pre>
+*	MemoryTable bancos = MemoryTable.load( new Table( "BANCOS.DBF" ) );
+*	MemoryCursor cursor = bancos.openCursor();
+*	if ( cursor.goTo( 15 ) ) {
+*		String nome = cursor.getFieldString( "NM_BANCO" );
+*	}
+* </pre>
+*
+* @version 1.0
+*/
+public class MemoryTable implements TableListener {
+
+	/** Intervalo padrão entre as verificações do arquivo (ms) */
+	public static final long DEFAULT_CHECK_INTERVAL = 1000;
+
+	/** Tamanho aproximado dos blocos da imagem (um bloco tem pelo menos um registro) */
+	public static final int BLOCK_SIZE = 16384;
+
+	/** Tabela de origem */
+	private final Table table;
+
+	/** Imagem vigente */
+	private volatile Image image;
+
+	/** Gravar as alterações dos cursores na tabela? */
+	private boolean writeThrough;
+
+	/** Intervalo entre as verificações do arquivo (0 = não verificar) */
+	private long checkInterval = DEFAULT_CHECK_INTERVAL;
+
+	/** Momento da última verificação do arquivo */
+	private volatile long lastCheck;
+
+	private boolean isOpen;
+
+	/** Tamanho e data do arquivo antes da última gravação própria incorporada à imagem */
+	private long syncedLength = -1;
+	private long syncedModified = -1;
+
+	/**
+	 * Registros da tabela em um momento. Depois de publicada, a imagem não é mais alterada.
+	 */
+	static class Image
+	{
+		/** Blocos de registros: o registro n fica no bloco ( n - 1 ) / recordsPerBlock */
+		final byte[][] blocks;
+
+		final int recordsPerBlock;
+		final int recordLength;
+
+		final int numberOfRecords;
+
+		/** Tamanho e data do arquivo quando a imagem foi montada */
+		final long length;
+		final long lastModified;
+
+		Image( byte[][] blocks, int recordsPerBlock, int recordLength, int numberOfRecords, long length, long lastModified )
+		{
+			this.blocks 		 = blocks;
+			this.recordsPerBlock = recordsPerBlock;
+			this.recordLength 	 = recordLength;
+			this.numberOfRecords = numberOfRecords;
+			this.length 		 = length;
+			this.lastModified 	 = lastModified;
+		}
+
+		/**
+		 * Bloco que contém o registro
+		 */
+		byte[] block( int record )
+		{
+			return blocks[( record - 1 ) / recordsPerBlock];
+		}
+
+		/**
+		 * Posição do registro dentro do seu bloco
+		 */
+		int offset( int record )
+		{
+			return ( ( record - 1 ) % recordsPerBlock ) * recordLength;
+		}
+	}
+
+	private MemoryTable( Table table )
+	{
+		super();
+		this.table = table;
+	}
+
+	/**
+	 * Carrega a tabela em memória
+	 * @param table Tabela aberta
+	 * @return A cópia em memória, já registrada para acompanhar as alterações da tabela
+	 * @throws IOException
+	 */
+	public static MemoryTable load( Table table ) throws IOException
+	{
+		MemoryTable memory = new MemoryTable( table );
+		memory.reload();
+		memory.isOpen = true;
+		table.trackFileState( true );
+		table.addTableListener( memory );
+		return memory;
+	}
+
+	/**
+	 * Cria um cursor para leitura (cada thread deve usar o seu)
+	 */
+	public MemoryCursor openCursor()
+	{
+		return new MemoryCursor( this );
+	}
+
+	/**
+	 * Quantidade de registros da imagem vigente
+	 */
+	public int getNumberOfRecords()
+	{
+		return image.numberOfRecords;
+	}
+
+	/**
+	 * Tabela de origem
+	 */
+	public Table getTable()
+	{
+		return table;
+	}
+
+	public boolean isWriteThrough()
+	{
+		return writeThrough;
+	}
+
+	/**
+	 * Define se as alterações feitas pelos cursores são gravadas na tabela
+	 */
+	public void setWriteThrough( boolean writeThrough )
+	{
+		this.writeThrough = writeThrough;
+	}
+
+	public long getCheckInterval()
+	{
+		return checkInterval;
+	}
+
+	/**
+	 * Intervalo mínimo entre as verificações de alteração do arquivo por outros processos
+	 * @param checkInterval Intervalo em milissegundos (0 = não verificar)
+	 */
+	public void setCheckInterval( long checkInterval )
+	{
+		this.checkInterval = Math.max( 0, checkInterval );
+	}
+
+	/**
+	 * Relê a tabela se o arquivo foi alterado desde a montagem da imagem vigente
+	 * @return TRUE se a tabela foi relida
+	 * @throws IOException
+	 */
+	public boolean refresh() throws IOException
+	{
+		File file = new File( table.tableName );
+		Image current = image;
+
+		if ( file.length() == current.length && file.lastModified() == current.lastModified )
+		{
+			return false;
+		}
+
+		synchronized ( this )
+		{
+			// Outra thread pode ter relido a tabela enquanto essa aguardava o lock
+			if ( image != current )
+			{
+				return false;
+			}
+			reload();
+		}
+		return true;
+	}
+
+	/**
+	 * Deixa de acompanhar as alterações da tabela. Os cursores abertos continuam válidos.
+	 */
+	public void close()
+	{
+		if ( isOpen )
+		{
+			isOpen = false;
+			table.removeTableListener( this );
+			table.trackFileState( false );
+		}
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		apply( record, data, true );
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		apply( record, newData, true );
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+		Image current = image;
+		if ( record <= current.numberOfRecords )
+		{
+			byte[] data = new byte[table.recordLength];
+			System.arraycopy( current.block( record ), current.offset( record ), data, 0, data.length );
+			data[0] = Table.DELETED;
+			apply( record, data, true );
+		}
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+		if ( record <= image.numberOfRecords )
+		{
+			apply( record, data, true );
+		}
+	}
+
+	public void tableClosed( Table table )
+	{
+		close();
+	}
+
+	/**
+	 * Imagem que deve ser usada por um cursor ao se posicionar. O arquivo é verificado no
+	 * máximo uma vez a cada checkInterval.
+	 */
+	Image current() throws IOException
+	{
+		if ( checkInterval > 0 && isOpen )
+		{
+			long now = System.currentTimeMillis();
+			if ( now - lastCheck >= checkInterval )
+			{
+				lastCheck = now;
+				refresh();
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Altera um registro a partir de um cursor
+	 * @param record	Número do registro
+	 * @param field		Coluna alterada
+	 * @param value		Valor já formatado
+	 * @return A imagem que contém a alteração
+	 */
+	synchronized Image update( int record, Field field, byte[] value ) throws IOException
+	{
+		Image current = image;
+
+		byte[] data = new byte[table.recordLength];
+		System.arraycopy( current.block( record ), current.offset( record ), data, 0, data.length );
+		System.arraycopy( value, 0, data, field.offset, field.fieldLength );
+
+		if ( writeThrough && isOpen )
+		{
+			// A tabela notifica a alteração (recordChanged), que é aplicada à imagem
+			table.writeRecordData( record, data );
+		}
+		else
+		{
+			apply( record, data, false );
+		}
+		return image;
+	}
+
+	/**
+	 * Publica uma nova imagem com o registro alterado ou incluído
+	 * @param written TRUE se o registro foi gravado no arquivo pela Table de origem
+	 */
+	private synchronized void apply( int record, byte[] data, boolean written )
+	{
+		Image current = image;
+		int perBlock = current.recordsPerBlock;
+		int index = ( record - 1 ) / perBlock;
+		byte[][] blocks = current.blocks;
+		int records = current.numberOfRecords;
+
+		if ( record <= records )
+		{
+			// As imagens anteriores podem estar em uso: só o bloco alterado é copiado
+			blocks = (byte[][])blocks.clone();
+			blocks[index] = (byte[])blocks[index].clone();
+		}
+		else
+		{
+			// Registros incluídos ficam além do fim das imagens anteriores, que não os enxergam
+			records = record;
+			if ( index >= blocks.length )
+			{
+				byte[][] grown = new byte[Math.max( index + 1, blocks.length * 2 )][];
+				System.arraycopy( blocks, 0, grown, 0, blocks.length );
+				blocks = grown;
+			}
+			for ( int i = index; i >= 0 && blocks[i] == null; i-- )
+			{
+				blocks[i] = new byte[perBlock * current.recordLength];
+			}
+		}
+		System.arraycopy( data, 0, blocks[index], current.offset( record ), current.recordLength );
+
+		long length 	  = current.length;
+		long lastModified = current.lastModified;
+		if ( written )
+		{
+			// A gravação da própria tabela não deve provocar a releitura do arquivo, mas só é
+			// incorporada se antes dela o arquivo estava igual ao da imagem (ou ao da gravação
+			// anterior já incorporada, nas gravações em lote): senão uma alteração de outro
+			// processo ficaria escondida
+			long lengthBefore 	= table.getLengthBeforeWrite();
+			long modifiedBefore = table.getModifiedBeforeWrite();
+			if ( ( lengthBefore == length && modifiedBefore == lastModified )
+				 || ( lengthBefore == syncedLength && modifiedBefore == syncedModified ) )
+			{
+				File file = new File( table.tableName );
+				length 		   = file.length();
+				lastModified   = file.lastModified();
+				syncedLength   = lengthBefore;
+				syncedModified = modifiedBefore;
+			}
+		}
+		image = new Image( blocks, perBlock, current.recordLength, records, length, lastModified );
+	}
+
+	/**
+	 * Lê a tabela inteira e publica a nova imagem
+	 */
+	private synchronized void reload() throws IOException
+	{
+		File file = new File( table.tableName );
+		RandomAccessFile in = new RandomAccessFile( file, "r" );
+		try
+		{
+			// Tamanho e data antes da leitura: uma gravação durante a leitura provoca nova releitura
+			long length 	  = file.length();
+			long lastModified = file.lastModified();
+
+			byte[] count = new byte[4];
+			in.seek( Table.HEADER_NUMBER_OF_RECORDS );
+			in.readFully( count );
+
+			// Registros cujo conteúdo ainda não foi totalmente gravado não são considerados
+			long records = Math.min( Utils.readLittleEndianUnsignedInt( count, 0 ),
+									 ( in.length() - table.headerLength ) / table.recordLength );
+			if ( records > Integer.MAX_VALUE )
+			{
+				throw new IOException( table.tableName + ": tabela grande demais para ser mantida em memória" );
+			}
+
+			int recordLength = table.recordLength;
+			int perBlock 	 = Math.max( 1, BLOCK_SIZE / recordLength );
+			byte[][] blocks  = new byte[(int)( ( records + perBlock - 1 ) / perBlock )][];
+
+			in.seek( table.headerLength );
+			for ( int i = 0; i < blocks.length; i++ )
+			{
+				blocks[i] = new byte[perBlock * recordLength];
+				in.readFully( blocks[i], 0, (int)Math.min( perBlock, records - (long)i * perBlock ) * recordLength );
+			}
+
+			image = new Image( blocks, perBlock, recordLength, (int)records, length, lastModified );
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
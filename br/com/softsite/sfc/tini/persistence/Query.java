@@ -0,0 +1,1194 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+* Consulta no estilo SQL sobre uma tabela (ver a sintaxe em QueryParser).
+*
+* <pre>
+*	Query query = Query.parse( "SELECT CD_CLIENTE, SUM(VR_RECEB) AS TOTAL FROM RECEB " +
+*							   "WHERE DT_VENC BETWEEN '2004-01-01' AND '2004-01-31' " +
+*							   "GROUP BY CD_CLIENTE ORDER BY TOTAL DESC LIMIT 10" );
+*	System.out.println( query.explain( table ) );
+*	QueryResult result = query.execute( table );
+* </pre>
+*
+* Na execução, o planejador estima o custo de cada forma de leitura e escolhe a mais barata:
+* <ul>
+* <li>leitura sequencial de toda a tabela (FULL SCAN);</li>
+* <li>leitura sequencial dividida em intervalos lidos em paralelo por várias threads, se
+*     setParallelism for maior que 1 (PARALLEL SCAN);</li>
+* <li>pesquisa em um HashIndex registrado na tabela, quando a condição contém uma igualdade
+*     (AND) na coluna indexada (INDEX SEEK).</li>
+* </ul>
+* Em todos os casos a condição do WHERE é avaliada sobre os bytes do registro durante a
+* leitura (pushdown), e apenas as colunas do resultado dos registros aceitos são
+* decodificadas. Sem ORDER BY e sem agregação, a leitura é interrompida quando o LIMIT é
+* atingido. O nome da tabela no FROM é apenas informativo.
+*
+* @version 1.0
+*/
+public class Query {
+
+	/** Funções de agregação */
+	static final int AGG_NONE 	= 0;
+	static final int AGG_COUNT 	= 1;
+	static final int AGG_SUM 	= 2;
+	static final int AGG_MIN 	= 3;
+	static final int AGG_MAX 	= 4;
+	static final int AGG_AVG 	= 5;
+
+	/** Planos de execução */
+	public static final int PLAN_FULL_SCAN 		= 1;
+	public static final int PLAN_PARALLEL_SCAN 	= 2;
+	public static final int PLAN_INDEX_SEEK 	= 3;
+
+	private static final String[] PLAN_NAMES = { "", "FULL SCAN", "PARALLEL SCAN", "INDEX SEEK" };
+
+	/** Custo da leitura sequencial de 64 KB */
+	private static final double COST_PAGE 		 = 1.0;
+
+	/** Custo de uma leitura aleatória (um registro) */
+	private static final double COST_RANDOM_READ = 1.0;
+
+	/** Custo de avaliar um registro */
+	private static final double COST_RECORD 	 = 0.002;
+
+	/** Custo de criar e sincronizar uma thread */
+	private static final double COST_THREAD 	 = 2.0;
+
+	private static final int PAGE_SIZE = 64 * 1024;
+
+	// --- Consulta analisada (preenchida por QueryParser) ---
+
+	String 			text;
+	boolean 		selectAll;
+	String[] 		columns;
+	String[] 		names;
+	int[] 			aggregates;
+	String 			tableName;
+	QueryPredicate 	where;
+	String[] 		groupBy 	= new String[0];
+	String[] 		orderBy 	= new String[0];
+	boolean[] 		descending 	= new boolean[0];
+	int 			limit 		= -1;
+
+	/** Quantidade máxima de threads na leitura paralela */
+	private int parallelism = 1;
+
+	private Query( String text )
+	{
+		super();
+		this.text = text;
+	}
+
+	/**
+	 * Analisa o texto de uma consulta
+	 * @param text Texto da consulta
+	 * @return A consulta, que pode ser executada várias vezes
+	 * @throws QuerySyntaxException
+	 */
+	public static Query parse( String text ) throws QuerySyntaxException
+	{
+		Query query = new Query( text );
+		new QueryParser( text ).parse( query );
+		query.validate();
+		return query;
+	}
+
+	/**
+	 * Quantidade máxima de threads usadas na leitura paralela (1 = não usar leitura paralela)
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = Math.max( 1, parallelism );
+	}
+
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Descreve o plano escolhido para a tabela, com os custos estimados das alternativas
+	 * @param table Tabela
+	 * @return Descrição do plano (várias linhas)
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public String explain( Table table ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		return plan( table ).describe();
+	}
+
+	/**
+	 * Executa a consulta
+	 * @param table Tabela
+	 * @return O resultado
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public QueryResult execute( Table table ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		Plan plan = plan( table );
+
+		ScanTask[] tasks;
+
+		switch ( plan.strategy )
+		{
+			case PLAN_INDEX_SEEK :
+			{
+				tasks = new ScanTask[] { new ScanTask( plan, new int[0] ) };
+				tasks[0].seek();
+				break;
+			}
+			case PLAN_PARALLEL_SCAN :
+			{
+				int[][] parts = split( plan.ranges, plan.threads );
+
+				tasks = new ScanTask[parts.length];
+				Thread[] threads = new Thread[parts.length];
+
+				for ( int i = 0; i < tasks.length; i++ )
+				{
+					tasks[i]   = new ScanTask( plan, parts[i] );
+					threads[i] = new Thread( tasks[i], "Query " + ( i + 1 ) );
+					threads[i].start();
+				}
+
+				for ( int i = 0; i < threads.length; i++ )
+				{
+					try
+					{
+						threads[i].join();
+					}
+					catch ( InterruptedException e )
+					{
+						throw new java.io.InterruptedIOException();
+					}
+				}
+				break;
+			}
+			default :
+			{
+				tasks = new ScanTask[] { new ScanTask( plan, plan.ranges ) };
+				tasks[0].run();
+			}
+		}
+
+		for ( int i = 0; i < tasks.length; i++ )
+		{
+			if ( tasks[i].error != null )
+			{
+				throw tasks[i].error;
+			}
+			if ( tasks[i].failure != null )
+			{
+				throw tasks[i].failure;
+			}
+			if ( tasks[i].fatal != null )
+			{
+				throw tasks[i].fatal;
+			}
+		}
+
+		// Junta os resultados parciais, na ordem dos intervalos
+		Vector rows = new Vector();
+		if ( plan.aggregate )
+		{
+			Hashtable groups = new Hashtable();
+			Vector 	  order  = new Vector();
+
+			for ( int t = 0; t < tasks.length; t++ )
+			{
+				for ( int i = 0; i < tasks[t].groupOrder.size(); i++ )
+				{
+					Group group = (Group)tasks[t].groupOrder.elementAt(i);
+					Group found = (Group)groups.get( group.key );
+					if ( found == null )
+					{
+						groups.put( group.key, group );
+						order.addElement( group );
+					}
+					else
+					{
+						found.merge( group );
+					}
+				}
+			}
+
+			// Agregação sem GROUP BY sempre produz uma linha
+			if ( order.size() == 0 && plan.groupFields.length == 0 )
+			{
+				order.addElement( new Group( plan, "" ) );
+			}
+
+			for ( int i = 0; i < order.size(); i++ )
+			{
+				rows.addElement( ((Group)order.elementAt(i)).finish() );
+			}
+		}
+		else
+		{
+			for ( int t = 0; t < tasks.length; t++ )
+			{
+				for ( int i = 0; i < tasks[t].rows.size(); i++ )
+				{
+					rows.addElement( tasks[t].rows.elementAt(i) );
+				}
+			}
+		}
+
+		if ( plan.orderColumns.length > 0 )
+		{
+			Object[] sorted = new Object[rows.size()];
+			rows.copyInto( sorted );
+			sortRows( sorted, new Object[sorted.length], 0, sorted.length, plan );
+
+			rows = new Vector( sorted.length );
+			for ( int i = 0; i < sorted.length; i++ )
+			{
+				rows.addElement( sorted[i] );
+			}
+		}
+
+		if ( limit >= 0 && rows.size() > limit )
+		{
+			rows.setSize( limit );
+		}
+
+		return new QueryResult( plan.outNames, rows, plan.describe() );
+	}
+
+	public String toString()
+	{
+		return text;
+	}
+
+	/**
+	 * Verificações que não dependem da tabela
+	 */
+	private void validate() throws QuerySyntaxException
+	{
+		boolean aggregate = groupBy.length > 0;
+		for ( int i = 0; i < aggregates.length; i++ )
+		{
+			aggregate |= ( aggregates[i] != AGG_NONE );
+		}
+
+		if ( aggregate && selectAll )
+		{
+			throw new QuerySyntaxException( "SELECT * não pode ser usado com GROUP BY" );
+		}
+
+		for ( int i = 0; aggregate && i < columns.length; i++ )
+		{
+			if ( aggregates[i] == AGG_NONE && indexOf( groupBy, columns[i] ) < 0 )
+			{
+				throw new QuerySyntaxException( "A coluna " + columns[i] + " deve fazer parte do GROUP BY" );
+			}
+		}
+	}
+
+	/**
+	 * Associa a consulta à tabela e escolhe o plano de execução
+	 */
+	private Plan plan( Table table ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		Plan plan  = new Plan();
+		plan.table = table;
+
+		// Colunas do resultado
+		if ( selectAll )
+		{
+			Field[] fields = table.getFields();
+			Vector 	v 	   = new Vector();
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				if ( fields[i].dataType != Field.TYPE_MEMO )
+				{
+					v.addElement( fields[i] );
+				}
+			}
+
+			plan.outFields 	   = new Field[v.size()];
+			plan.outAggregates = new int[v.size()];
+			plan.outNames 	   = new String[v.size()];
+			v.copyInto( plan.outFields );
+			for ( int i = 0; i < plan.outFields.length; i++ )
+			{
+				plan.outNames[i] = plan.outFields[i].fieldName;
+			}
+		}
+		else
+		{
+			plan.outFields 	   = new Field[columns.length];
+			plan.outAggregates = aggregates;
+			plan.outNames 	   = names;
+
+			for ( int i = 0; i < columns.length; i++ )
+			{
+				if ( aggregates[i] == AGG_COUNT && columns[i].equals( "*" ) )
+				{
+					continue;
+				}
+
+				Field field = table.findField( columns[i] );
+				if ( field.dataType == Field.TYPE_MEMO )
+				{
+					throw new FieldTypeException();
+				}
+				if ( ( aggregates[i] == AGG_SUM || aggregates[i] == AGG_AVG )
+					 && field.dataType != Field.TYPE_NUMERIC && field.dataType != Field.TYPE_FLOAT )
+				{
+					throw new FieldTypeException();
+				}
+				plan.outFields[i] = field;
+			}
+		}
+
+		// Agrupamento
+		plan.groupFields = new Field[groupBy.length];
+		for ( int i = 0; i < groupBy.length; i++ )
+		{
+			plan.groupFields[i] = table.findField( groupBy[i] );
+			if ( plan.groupFields[i].dataType == Field.TYPE_MEMO )
+			{
+				throw new FieldTypeException();
+			}
+		}
+
+		plan.aggregate = groupBy.length > 0;
+		for ( int i = 0; i < plan.outAggregates.length; i++ )
+		{
+			plan.aggregate |= ( plan.outAggregates[i] != AGG_NONE );
+		}
+
+		// Ordenação: pelo nome (ou apelido) de uma coluna do resultado
+		plan.orderColumns = new int[orderBy.length];
+		for ( int i = 0; i < orderBy.length; i++ )
+		{
+			int column = indexOf( plan.outNames, orderBy[i] );
+			for ( int c = 0; column < 0 && c < plan.outFields.length; c++ )
+			{
+				if ( plan.outAggregates[c] == AGG_NONE && plan.outFields[c].fieldName.equalsIgnoreCase( orderBy[i] ) )
+				{
+					column = c;
+				}
+			}
+			if ( column < 0 )
+			{
+				throw new FieldNotFoundException();
+			}
+			plan.orderColumns[i] = column;
+		}
+
+		// A condição é associada à tabela em uma cópia: a consulta pode ser executada em
+		// várias tabelas (e threads) ao mesmo tempo
+		if ( where != null )
+		{
+			plan.where = where.bind( table );
+		}
+
+		// A leitura pode parar no LIMIT quando a ordem do resultado é a dos registros
+		plan.scanLimit = ( !plan.aggregate && orderBy.length == 0 ) ? limit : -1;
+
+		choose( plan );
+		return plan;
+	}
+
+	/**
+	 * Estima o custo de cada forma de leitura e escolhe a mais barata
+	 */
+	private void choose( Plan plan ) throws IOException
+	{
+		Table table = plan.table;
+		int records = table.getNumberOfRecords();
+
+		// Condições ligadas por AND: as faixas de valores delimitam os blocos lidos (zone map)
+		// e as igualdades permitem a pesquisa no índice
+		Vector comparisons = new Vector();
+		collectComparisons( plan.where, comparisons );
+
+		plan.ranges = new int[] { 1, records };
+		plan.scanned = records;
+		restrict( plan, comparisons );
+
+		plan.fullCost = ( (double)plan.scanned * table.recordLength / PAGE_SIZE ) * COST_PAGE + plan.scanned * COST_RECORD
+					  + ( plan.ranges.length / 2 - 1 ) * COST_RANDOM_READ;
+		plan.strategy = PLAN_FULL_SCAN;
+		double best   = plan.fullCost;
+
+		plan.threads = Math.min( parallelism, Math.max( 1, plan.scanned ) );
+		if ( plan.threads > 1 )
+		{
+			plan.parallelCost = plan.fullCost / plan.threads + plan.threads * COST_THREAD;
+			if ( plan.parallelCost < best )
+			{
+				best 		  = plan.parallelCost;
+				plan.strategy = PLAN_PARALLEL_SCAN;
+			}
+		}
+
+		// Igualdades em colunas indexadas: a quantidade de registros candidatos é obtida do
+		// próprio índice
+		TableListener[] listeners = table.getTableListeners();
+		for ( int e = 0; e < comparisons.size(); e++ )
+		{
+			QueryPredicate.Compare compare = (QueryPredicate.Compare)comparisons.elementAt(e);
+			byte[] key = ( compare.operator == QueryPredicate.EQ ) ? indexKey( compare ) : null;
+
+			for ( int l = 0; key != null && l < listeners.length; l++ )
+			{
+				if ( listeners[l] instanceof HashIndex && ((HashIndex)listeners[l]).getField() == compare.field )
+				{
+					HashIndex index = (HashIndex)listeners[l];
+					int[] candidates = index.findAll( key );
+					double cost = candidates.length * ( COST_RANDOM_READ + COST_RECORD ) + COST_RECORD;
+
+					if ( plan.index == null || cost < plan.indexCost )
+					{
+						plan.index 			= index;
+						plan.indexPredicate = compare;
+						plan.candidates 	= candidates;
+						plan.indexCost 		= cost;
+					}
+				}
+			}
+		}
+
+		if ( plan.index != null && plan.indexCost < best )
+		{
+			plan.strategy = PLAN_INDEX_SEEK;
+		}
+	}
+
+	/**
+	 * Comparações da condição que precisam ser verdadeiras (ligadas por AND), exceto diferenças
+	 */
+	private static void collectComparisons( QueryPredicate predicate, Vector comparisons )
+	{
+		if ( predicate instanceof QueryPredicate.And )
+		{
+			collectComparisons( ((QueryPredicate.And)predicate).left, comparisons );
+			collectComparisons( ((QueryPredicate.And)predicate).right, comparisons );
+		}
+		else if ( predicate instanceof QueryPredicate.Compare && ((QueryPredicate.Compare)predicate).operator != QueryPredicate.NE )
+		{
+			comparisons.addElement( predicate );
+		}
+	}
+
+	/**
+	 * Restringe a leitura aos blocos de registros que podem satisfazer as faixas de valores,
+	 * pelas estatísticas dos zone maps registrados na tabela. Quando há mais de um, é usado
+	 * o que descarta mais registros.
+	 */
+	private static void restrict( Plan plan, Vector comparisons ) throws IOException
+	{
+		Table table = plan.table;
+		int records = table.getNumberOfRecords();
+
+		TableListener[] listeners = table.getTableListeners();
+		for ( int l = 0; l < listeners.length; l++ )
+		{
+			if ( !( listeners[l] instanceof ZoneMap ) )
+			{
+				continue;
+			}
+			ZoneMap zones = (ZoneMap)listeners[l];
+			zones.update();
+
+			// Faixa [low, high] de cada coluna do zone map (> e < tratados como >= e <=)
+			int columns = 0;
+			double[] low  = new double[comparisons.size()];
+			double[] high = new double[comparisons.size()];
+			int[] 	 zone = new int[comparisons.size()];
+
+			for ( int c = 0; c < comparisons.size(); c++ )
+			{
+				QueryPredicate.Compare compare = (QueryPredicate.Compare)comparisons.elementAt(c);
+				int column = zones.indexOf( compare.field );
+				if ( column < 0 )
+				{
+					continue;
+				}
+
+				double v = ( compare.field.dataType == Field.TYPE_DATE ) ? Utils.parseInt( compare.bytes, 0, 8 ) : compare.number;
+				zone[columns] = column;
+				low[columns]  = ( compare.operator == QueryPredicate.LT || compare.operator == QueryPredicate.LE ) ? Double.NEGATIVE_INFINITY : v;
+				high[columns] = ( compare.operator == QueryPredicate.GT || compare.operator == QueryPredicate.GE ) ? Double.POSITIVE_INFINITY : v;
+				columns++;
+			}
+
+			if ( columns == 0 )
+			{
+				continue;
+			}
+
+			Vector ranges = new Vector();
+			int scanned = 0;
+			int blockSize = zones.getBlockSize();
+			int blocks = ( records + blockSize - 1 ) / blockSize;
+			int start = -1;
+
+			for ( int b = 0; b <= blocks; b++ )
+			{
+				boolean read = b < blocks;
+				for ( int c = 0; read && c < columns; c++ )
+				{
+					read = zones.mayContain( b, zone[c], low[c], high[c] );
+				}
+
+				if ( read && start < 0 )
+				{
+					start = b;
+				}
+				else if ( !read && start >= 0 )
+				{
+					int first = start * blockSize + 1;
+					int last  = Math.min( records, b * blockSize );
+					ranges.addElement( new int[] { first, last } );
+					scanned += last - first + 1;
+					start = -1;
+				}
+			}
+
+			if ( plan.zones == null || scanned < plan.scanned )
+			{
+				plan.zones 	 = zones;
+				plan.scanned = scanned;
+				plan.ranges  = new int[ranges.size() * 2];
+				for ( int i = 0; i < ranges.size(); i++ )
+				{
+					int[] range = (int[])ranges.elementAt(i);
+					plan.ranges[i * 2] 	   = range[0];
+					plan.ranges[i * 2 + 1] = range[1];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Divide os intervalos de registros em partes com aproximadamente a mesma quantidade de
+	 * registros, uma por thread
+	 * @param ranges	Intervalos (pares primeiro, último)
+	 * @param parts		Quantidade de partes
+	 * @return Os intervalos de cada parte
+	 */
+	private static int[][] split( int[] ranges, int parts )
+	{
+		int total = 0;
+		for ( int i = 0; i < ranges.length; i += 2 )
+		{
+			total += ranges[i + 1] - ranges[i] + 1;
+		}
+
+		int[][] result = new int[parts][];
+		int r = 0;
+		int next = ( ranges.length > 0 ) ? ranges[0] : 1;
+
+		for ( int p = 0; p < parts; p++ )
+		{
+			// A última parte fica com o restante
+			int count = ( p == parts - 1 ) ? Integer.MAX_VALUE : total / parts;
+			Vector part = new Vector();
+
+			while ( count > 0 && r < ranges.length )
+			{
+				int last = ( ranges[r + 1] - next + 1 <= count ) ? ranges[r + 1] : next + count - 1;
+				part.addElement( new int[] { next, last } );
+				count -= last - next + 1;
+
+				if ( last == ranges[r + 1] )
+				{
+					r += 2;
+					next = ( r < ranges.length ) ? ranges[r] : 0;
+				}
+				else
+				{
+					next = last + 1;
+				}
+			}
+
+			result[p] = new int[part.size() * 2];
+			for ( int i = 0; i < part.size(); i++ )
+			{
+				int[] range = (int[])part.elementAt(i);
+				result[p][i * 2] 	 = range[0];
+				result[p][i * 2 + 1] = range[1];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Valor de uma igualdade no formato gravado na coluna, para a pesquisa no índice
+	 * @return A chave, ou null se a coluna não pode ser pesquisada pelo valor exato
+	 */
+	private static byte[] indexKey( QueryPredicate.Compare compare )
+	{
+		Field field = compare.field;
+
+		switch ( field.dataType )
+		{
+			case Field.TYPE_CHARACTER :
+				return field.formatData( compare.value );
+
+			case Field.TYPE_DATE :
+				return compare.bytes;
+
+			case Field.TYPE_NUMERIC :
+			case Field.TYPE_FLOAT :
+			{
+				// Apenas inteiros: com decimais, o texto gravado pode ter outra formatação
+				double n = compare.number;
+				if ( field.decimalCount == 0 && n == Math.floor( n ) && Math.abs( n ) < Integer.MAX_VALUE )
+				{
+					return field.formatData( new Integer( (int)n ) );
+				}
+				return null;
+			}
+
+			default :
+				return null;
+		}
+	}
+
+	/**
+	 * Valor de uma coluna do registro (null se estiver em branco)
+	 */
+	static Object value( Field field, byte[] buffer, int base )
+	{
+		if ( QueryPredicate.isBlank( field, buffer, base ) )
+		{
+			return null;
+		}
+
+		switch ( field.dataType )
+		{
+			case Field.TYPE_CHARACTER :
+				return field.codePage.decodeTrimmed( buffer, base + field.offset, field.fieldLength );
+
+			case Field.TYPE_NUMERIC :
+			case Field.TYPE_FLOAT :
+			{
+				double n = QueryPredicate.number( field, buffer, base );
+				if ( n != n )
+				{
+					return null;
+				}
+				if ( field.decimalCount == 0 && field.fieldLength <= 9 )
+				{
+					return new Integer( (int)n );
+				}
+				return new Double( n );
+			}
+
+			case Field.TYPE_DATE :
+			{
+				try
+				{
+					return field.parseDate( buffer, base );
+				}
+				catch ( NumberFormatException e )
+				{
+					return null;
+				}
+			}
+
+			case Field.TYPE_LOGICAL :
+				return field.parseBoolean( buffer, base ) ? Boolean.TRUE : Boolean.FALSE;
+
+			default :
+				return null;
+		}
+	}
+
+	/**
+	 * Compara dois valores do resultado (null é menor que qualquer valor)
+	 */
+	static int compareValues( Object a, Object b )
+	{
+		if ( a == null || b == null )
+		{
+			return ( a == null ) ? ( ( b == null ) ? 0 : -1 ) : 1;
+		}
+
+		if ( a instanceof Number )
+		{
+			double x = ((Number)a).doubleValue();
+			double y = ((Number)b).doubleValue();
+			return ( x < y ) ? -1 : ( x > y ) ? 1 : 0;
+		}
+		if ( a instanceof Date )
+		{
+			long x = ((Date)a).getTime();
+			long y = ((Date)b).getTime();
+			return ( x < y ) ? -1 : ( x > y ) ? 1 : 0;
+		}
+		if ( a instanceof Boolean )
+		{
+			boolean x = ((Boolean)a).booleanValue();
+			boolean y = ((Boolean)b).booleanValue();
+			return ( x == y ) ? 0 : x ? 1 : -1;
+		}
+		return ((String)a).compareTo( (String)b );
+	}
+
+	/**
+	 * Ordena as linhas do resultado (merge sort, estável)
+	 */
+	private void sortRows( Object[] rows, Object[] temp, int from, int to, Plan plan )
+	{
+		if ( to - from < 2 )
+		{
+			return;
+		}
+
+		int middle = ( from + to ) >>> 1;
+		sortRows( rows, temp, from, middle, plan );
+		sortRows( rows, temp, middle, to, plan );
+
+		System.arraycopy( rows, from, temp, from, to - from );
+
+		int i = from;
+		int j = middle;
+		for ( int k = from; k < to; k++ )
+		{
+			if ( j >= to || ( i < middle && compareRows( (Object[])temp[i], (Object[])temp[j], plan ) <= 0 ) )
+			{
+				rows[k] = temp[i++];
+			}
+			else
+			{
+				rows[k] = temp[j++];
+			}
+		}
+	}
+
+	private int compareRows( Object[] a, Object[] b, Plan plan )
+	{
+		for ( int i = 0; i < plan.orderColumns.length; i++ )
+		{
+			int column = plan.orderColumns[i];
+			int result = compareValues( a[column], b[column] );
+			if ( result != 0 )
+			{
+				return descending[i] ? -result : result;
+			}
+		}
+		return 0;
+	}
+
+	private static int indexOf( String[] names, String name )
+	{
+		for ( int i = 0; i < names.length; i++ )
+		{
+			if ( names[i].equalsIgnoreCase( name ) )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Plano de execução da consulta para uma tabela
+	 */
+	private class Plan
+	{
+		Table 		table;
+
+		/** Colunas do resultado (null = COUNT(*)) */
+		Field[] 	outFields;
+		int[] 		outAggregates;
+		String[] 	outNames;
+
+		Field[] 	groupFields;
+		boolean 	aggregate;
+		int[] 		orderColumns;
+
+		/** Quantidade de linhas após a qual a leitura é interrompida (-1 = ler tudo) */
+		int 		scanLimit;
+
+		/** Condição associada às colunas da tabela (null = sem WHERE) */
+		QueryPredicate where;
+
+		int 		strategy;
+		int 		threads;
+		double 		fullCost;
+		double 		parallelCost;
+		double 		indexCost;
+
+		HashIndex 				index;
+		QueryPredicate.Compare 	indexPredicate;
+		int[] 					candidates;
+
+		/** Intervalos de registros lidos na leitura sequencial (pares primeiro, último) */
+		int[] 		ranges;
+		int 		scanned;
+
+		/** Zone map usado para descartar blocos (null = nenhum) */
+		ZoneMap 	zones;
+
+		String describe()
+		{
+			StringBuffer sb = new StringBuffer();
+
+			sb.append( "Consulta: " ).append( text ).append( '\n' );
+			sb.append( "Plano: " ).append( PLAN_NAMES[strategy] );
+
+			if ( strategy == PLAN_INDEX_SEEK )
+			{
+				sb.append( " (HashIndex " ).append( index.getColumnName() ).append( ", " )
+				  .append( indexPredicate ).append( ", " ).append( candidates.length ).append( " registros candidatos)" );
+			}
+			else if ( strategy == PLAN_PARALLEL_SCAN )
+			{
+				sb.append( " (" ).append( threads ).append( " threads)" );
+			}
+			sb.append( '\n' );
+
+			sb.append( "Custos estimados: FULL SCAN " ).append( format( fullCost ) );
+			if ( threads > 1 )
+			{
+				sb.append( "; PARALLEL SCAN (" ).append( threads ).append( " threads) " ).append( format( parallelCost ) );
+			}
+			if ( index != null )
+			{
+				sb.append( "; INDEX SEEK " ).append( format( indexCost ) );
+			}
+			else
+			{
+				sb.append( "; INDEX SEEK não disponível" );
+			}
+			sb.append( '\n' );
+
+			if ( zones != null && strategy != PLAN_INDEX_SEEK )
+			{
+				int records = table.getNumberOfRecords();
+				int blocks  = ( records + zones.getBlockSize() - 1 ) / zones.getBlockSize();
+				int read 	= 0;
+				for ( int i = 0; i < ranges.length; i += 2 )
+				{
+					read += ( ranges[i + 1] - 1 ) / zones.getBlockSize() - ( ranges[i] - 1 ) / zones.getBlockSize() + 1;
+				}
+				sb.append( "Zone map: " ).append( read ).append( " de " ).append( blocks ).append( " blocos lidos (" )
+				  .append( scanned ).append( " de " ).append( records ).append( " registros)\n" );
+			}
+			if ( where != null )
+			{
+				sb.append( "Filtro avaliado nos bytes do registro durante a leitura (pushdown): " ).append( where ).append( '\n' );
+			}
+			if ( groupFields.length > 0 || aggregate )
+			{
+				sb.append( "Agregação em memória" );
+				if ( groupFields.length > 0 )
+				{
+					sb.append( " por " );
+					for ( int i = 0; i < groupFields.length; i++ )
+					{
+						sb.append( i > 0 ? ", " : "" ).append( groupFields[i].fieldName );
+					}
+				}
+				sb.append( '\n' );
+			}
+			if ( orderColumns.length > 0 )
+			{
+				sb.append( "Ordenação do resultado em memória\n" );
+			}
+			if ( limit >= 0 )
+			{
+				sb.append( "Limite: " ).append( limit );
+				sb.append( scanLimit >= 0 ? " (leitura interrompida ao atingir o limite)\n" : " (aplicado após a ordenação/agregação)\n" );
+			}
+
+			return sb.toString();
+		}
+
+		private String format( double cost )
+		{
+			return String.valueOf( Math.round( cost * 100 ) / 100.0 );
+		}
+	}
+
+	/**
+	 * Linha agregada (um grupo do GROUP BY)
+	 */
+	private static class Group
+	{
+		final Plan 	 plan;
+		final String key;
+		final Object[] row;
+		final int[] 	counts;
+		final double[] 	sums;
+
+		Group( Plan plan, String key )
+		{
+			this.plan 	= plan;
+			this.key 	= key;
+			this.row 	= new Object[plan.outFields.length];
+			this.counts = new int[row.length];
+			this.sums 	= new double[row.length];
+		}
+
+		void add( byte[] buffer, int base )
+		{
+			for ( int i = 0; i < row.length; i++ )
+			{
+				Field field = plan.outFields[i];
+
+				switch ( plan.outAggregates[i] )
+				{
+					case AGG_COUNT :
+					{
+						if ( field == null || !QueryPredicate.isBlank( field, buffer, base ) )
+						{
+							counts[i]++;
+						}
+						break;
+					}
+					case AGG_SUM :
+					case AGG_AVG :
+					{
+						double n = QueryPredicate.number( field, buffer, base );
+						if ( n == n )
+						{
+							sums[i] += n;
+							counts[i]++;
+						}
+						break;
+					}
+					case AGG_MIN :
+					case AGG_MAX :
+					{
+						Object v = value( field, buffer, base );
+						if ( v != null )
+						{
+							extreme( i, v );
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Define as colunas do GROUP BY, a partir do primeiro registro do grupo
+		 */
+		void setKeyValues( byte[] buffer, int base )
+		{
+			for ( int i = 0; i < row.length; i++ )
+			{
+				if ( plan.outAggregates[i] == AGG_NONE )
+				{
+					row[i] = value( plan.outFields[i], buffer, base );
+				}
+			}
+		}
+
+		void merge( Group other )
+		{
+			for ( int i = 0; i < row.length; i++ )
+			{
+				counts[i] += other.counts[i];
+				sums[i]   += other.sums[i];
+
+				if ( ( plan.outAggregates[i] == AGG_MIN || plan.outAggregates[i] == AGG_MAX ) && other.row[i] != null )
+				{
+					extreme( i, other.row[i] );
+				}
+			}
+		}
+
+		Object[] finish()
+		{
+			for ( int i = 0; i < row.length; i++ )
+			{
+				switch ( plan.outAggregates[i] )
+				{
+					case AGG_COUNT :
+						row[i] = new Integer( counts[i] );
+						break;
+
+					case AGG_SUM :
+						row[i] = ( counts[i] > 0 ) ? new Double( sums[i] ) : null;
+						break;
+
+					case AGG_AVG :
+						row[i] = ( counts[i] > 0 ) ? new Double( sums[i] / counts[i] ) : null;
+						break;
+				}
+			}
+			return row;
+		}
+
+		private void extreme( int i, Object v )
+		{
+			int result = compareValues( v, row[i] );
+			if ( row[i] == null || ( plan.outAggregates[i] == AGG_MIN ? result < 0 : result > 0 ) )
+			{
+				row[i] = v;
+			}
+		}
+	}
+
+	/**
+	 * Leitura de intervalos de registros (ou dos candidatos do índice), com a avaliação da
+	 * condição e a montagem das linhas ou grupos
+	 */
+	private class ScanTask implements Runnable, RecordVisitor
+	{
+		final Plan 	plan;
+
+		/** Intervalos de registros lidos (pares primeiro, último) */
+		final int[] ranges;
+
+		final Vector 	rows 		= new Vector();
+		final Hashtable groups 		= new Hashtable();
+		final Vector 	groupOrder 	= new Vector();
+
+		IOException error;
+		RuntimeException failure;
+		Error fatal;
+
+		ScanTask( Plan plan, int[] ranges )
+		{
+			this.plan 	= plan;
+			this.ranges = ranges;
+		}
+
+		public void run()
+		{
+			try
+			{
+				TableScanner scanner = new TableScanner( plan.table );
+				try
+				{
+					for ( int i = 0; i < ranges.length; i += 2 )
+					{
+						if ( !scanner.scan( ranges[i], ranges[i + 1], this ) )
+						{
+							break;
+						}
+					}
+				}
+				finally
+				{
+					scanner.close();
+				}
+			}
+			catch ( IOException e )
+			{
+				error = e;
+			}
+			catch ( RuntimeException e )
+			{
+				failure = e;
+			}
+			catch ( Error e )
+			{
+				fatal = e;
+			}
+		}
+
+		/**
+		 * Lê apenas os registros candidatos do índice
+		 */
+		void seek() throws IOException
+		{
+			TableScanner reader = new TableScanner( plan.table, 0 );
+			try
+			{
+				byte[] buffer = new byte[plan.table.recordLength];
+				for ( int i = 0; i < plan.candidates.length; i++ )
+				{
+					reader.read( plan.candidates[i], 0, buffer );
+					if ( !visit( plan.candidates[i], buffer, 0 ) )
+					{
+						break;
+					}
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+
+		public boolean visit( int record, byte[] buffer, int base )
+		{
+			if ( buffer[base] == Table.DELETED )
+			{
+				return true;
+			}
+
+			if ( plan.where != null && !plan.where.test( buffer, base ) )
+			{
+				return true;
+			}
+
+			if ( plan.aggregate )
+			{
+				String key = groupKey( buffer, base );
+				Group group = (Group)groups.get( key );
+				if ( group == null )
+				{
+					group = new Group( plan, key );
+					group.setKeyValues( buffer, base );
+					groups.put( key, group );
+					groupOrder.addElement( group );
+				}
+				group.add( buffer, base );
+				return true;
+			}
+
+			Object[] row = new Object[plan.outFields.length];
+			for ( int i = 0; i < row.length; i++ )
+			{
+				row[i] = value( plan.outFields[i], buffer, base );
+			}
+			rows.addElement( row );
+
+			return plan.scanLimit < 0 || rows.size() < plan.scanLimit;
+		}
+
+		/**
+		 * Chave do grupo: os bytes das colunas do GROUP BY
+		 */
+		private String groupKey( byte[] buffer, int base )
+		{
+			Field[] fields = plan.groupFields;
+
+			int length = 0;
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				length += fields[i].fieldLength;
+			}
+
+			char[] key = new char[length];
+			int pos = 0;
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				for ( int b = base + fields[i].offset, end = b + fields[i].fieldLength; b < end; b++ )
+				{
+					key[pos++] = (char)( buffer[b] & 0xff );
+				}
+			}
+			return new String( key );
+		}
+	}
+}
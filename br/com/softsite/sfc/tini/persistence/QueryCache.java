@@ -0,0 +1,284 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+* Cache dos resultados das consultas (Query) de uma tabela, pelo texto da consulta.
+*
+* Contagens e totais pedidos repetidamente sobre uma tabela que não mudou são respondidos sem
+* ler a tabela. Todos os resultados são descartados:
+* <ul>
+* <li>a cada alteração feita pela tabela (addRecord, setFieldXXX, deleteRecord, ...);</li>
+* <li>quando a quantidade de registros do cabeçalho ou a data de modificação do arquivo
+*     mudam (alterações feitas por outros processos), verificadas a cada consulta. Nesse caso
+*     a tabela também é atualizada (Table.refresh).</li>
+* </ul>
+* Alterações de outros processos que não mudam a quantidade de registros e são feitas dentro
+* da resolução da data de modificação do sistema de arquivos podem não ser percebidas.
+*
+* Os resultados são compartilhados entre as chamadas e não devem ser alterados. Assim como a
+* tabela, o cache deve ser usado por uma única thread.
+*
+* <pre>
+*	QueryCache cache = table.getQueryCache();
+*	QueryResult total = cache.execute( "SELECT COUNT(*), SUM(VR_RECEB) FROM RECEB WHERE ID_SITUACAO = 'P'" );
+* </pre>
+*
+* @version 1.0
+*/
+public class QueryCache implements TableListener {
+
+	/** Quantidade padrão de resultados guardados */
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+
+	/** Tabela */
+	private final Table table;
+
+	/** Handle somente leitura do arquivo, para verificar o cabeçalho */
+	private final RandomAccessFile file;
+
+	/** Resultados pelo texto da consulta */
+	private final Hashtable results = new Hashtable();
+
+	/** Textos das consultas, na ordem em que foram guardadas */
+	private final Vector order = new Vector();
+
+	/** Quantidade máxima de resultados guardados */
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	/** Quantidade de registros do cabeçalho e data de modificação quando os resultados foram guardados */
+	private long headerRecords = -1;
+	private long lastModified;
+
+	/** Consultas respondidas pelo cache e executadas */
+	private int hits;
+	private int misses;
+
+	private boolean isOpen;
+
+	private QueryCache( Table table ) throws IOException
+	{
+		super();
+		this.table 	= table;
+		this.file 	= new RandomAccessFile( new File( table.tableName ), "r" );
+		this.isOpen = true;
+	}
+
+	/**
+	 * Cria o cache de uma tabela (ver também Table.getQueryCache)
+	 * @param table Tabela aberta
+	 * @return O cache, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 */
+	public static QueryCache open( Table table ) throws IOException
+	{
+		QueryCache cache = new QueryCache( table );
+		table.addTableListener( cache );
+		return cache;
+	}
+
+	/**
+	 * Executa uma consulta, ou retorna o resultado guardado se a tabela não mudou
+	 * @param text Texto da consulta (ver a sintaxe em QueryParser)
+	 * @return O resultado (não deve ser alterado)
+	 * @throws IOException
+	 * @throws QuerySyntaxException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public QueryResult execute( String text ) throws IOException, QuerySyntaxException, FieldNotFoundException, FieldTypeException
+	{
+		QueryResult result = lookup( text );
+		if ( result == null )
+		{
+			result = store( text, Query.parse( text ).execute( table ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Executa uma consulta já analisada, ou retorna o resultado guardado se a tabela não mudou
+	 * @param query Consulta
+	 * @return O resultado (não deve ser alterado)
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public QueryResult execute( Query query ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		QueryResult result = lookup( query.toString() );
+		if ( result == null )
+		{
+			result = store( query.toString(), query.execute( table ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Descarta todos os resultados
+	 */
+	public synchronized void invalidate()
+	{
+		results.clear();
+		order.removeAllElements();
+	}
+
+	/**
+	 * Quantidade máxima de resultados guardados. Ao atingir o limite, o resultado mais antigo
+	 * é descartado.
+	 */
+	public synchronized void setMaxEntries( int maxEntries )
+	{
+		this.maxEntries = Math.max( 1, maxEntries );
+		while ( order.size() > this.maxEntries )
+		{
+			results.remove( order.elementAt(0) );
+			order.removeElementAt(0);
+		}
+	}
+
+	public int getMaxEntries()
+	{
+		return maxEntries;
+	}
+
+	/**
+	 * Quantidade de resultados guardados
+	 */
+	public synchronized int size()
+	{
+		return results.size();
+	}
+
+	/**
+	 * Quantidade de consultas respondidas pelo cache
+	 */
+	public int getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Quantidade de consultas executadas na tabela
+	 */
+	public int getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Deixa de acompanhar as alterações da tabela e descarta os resultados
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		if ( isOpen )
+		{
+			isOpen = false;
+			table.removeTableListener( this );
+			invalidate();
+			file.close();
+		}
+	}
+
+	/**
+	 * Indica se o cache ainda acompanha a tabela
+	 */
+	boolean isOpen()
+	{
+		return isOpen;
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		invalidate();
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		invalidate();
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+		invalidate();
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+		invalidate();
+	}
+
+	public void tableClosed( Table table )
+	{
+		try
+		{
+			close();
+		}
+		catch ( IOException e )
+		{
+			// O cache deixa de ser usado
+		}
+	}
+
+	/**
+	 * Resultado guardado de uma consulta, se o arquivo não foi alterado por outro processo
+	 * @return O resultado, ou null se a consulta deve ser executada
+	 */
+	private synchronized QueryResult lookup( String text ) throws IOException
+	{
+		if ( !isOpen )
+		{
+			throw new IOException( "Cache fechado" );
+		}
+
+		byte[] count = new byte[4];
+		file.seek( Table.HEADER_NUMBER_OF_RECORDS );
+		file.readFully( count );
+		long records  = Utils.readLittleEndianUnsignedInt( count, 0 );
+		long modified = new File( table.tableName ).lastModified();
+
+		if ( records != headerRecords || modified != lastModified )
+		{
+			invalidate();
+			table.refresh();
+			headerRecords = records;
+			lastModified  = modified;
+		}
+
+		QueryResult result = (QueryResult)results.get( text );
+		if ( result != null )
+		{
+			hits++;
+		}
+		return result;
+	}
+
+	private synchronized QueryResult store( String text, QueryResult result )
+	{
+		misses++;
+
+		if ( !results.containsKey( text ) )
+		{
+			if ( order.size() >= maxEntries )
+			{
+				results.remove( order.elementAt(0) );
+				order.removeElementAt(0);
+			}
+			order.addElement( text );
+		}
+		results.put( text, result );
+		return result;
+	}
+}
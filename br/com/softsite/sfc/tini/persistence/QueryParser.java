@@ -0,0 +1,540 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.util.Vector;
+
+/**
+* Análise do texto de uma consulta (ver Query).
+*
+* <pre>
+*	SELECT ( * | item { , item } ) FROM tabela
+*		[ WHERE condição ]
+*		[ GROUP BY coluna { , coluna } ]
+*		[ ORDER BY coluna [ ASC | DESC ] { , ... } ]
+*		[ LIMIT n ]
+*
+*	item     := ( coluna | COUNT(*) | COUNT(coluna) | SUM(coluna) | MIN(coluna) | MAX(coluna) | AVG(coluna) ) [ AS nome ]
+*	condição := termo { OR termo }
+*	termo    := fator { AND fator }
+*	fator    := NOT fator | ( condição ) | coluna op valor | coluna [NOT] BETWEEN valor AND valor
+*	          | coluna [NOT] IN ( valor { , valor } ) | coluna [NOT] LIKE 'padrão' | coluna IS [NOT] NULL
+*	op       := = | <> | != | < | <= | > | >=
+*	valor    := 'texto' | número | TRUE | FALSE
+* </pre>
+*
+* @version 1.0
+*/
+class QueryParser {
+
+	/** Tipos de token */
+	private static final int END 		= 0;
+	private static final int IDENTIFIER = 1;
+	private static final int NUMBER 	= 2;
+	private static final int STRING 	= 3;
+	private static final int SYMBOL 	= 4;
+
+	private static final String[] AGGREGATES = { null, "COUNT", "SUM", "MIN", "MAX", "AVG" };
+
+	private final String text;
+	private int pos;
+
+	/** Token corrente */
+	private int 	type;
+	private String 	token;
+	private int 	tokenStart;
+
+	QueryParser( String text )
+	{
+		super();
+		this.text = text;
+	}
+
+	/**
+	 * Analisa o texto e preenche a consulta
+	 */
+	void parse( Query query ) throws QuerySyntaxException
+	{
+		next();
+		expectKeyword( "SELECT" );
+
+		Vector columns 	  = new Vector();
+		Vector aggregates = new Vector();
+		Vector names 	  = new Vector();
+
+		if ( isSymbol( "*" ) )
+		{
+			next();
+			query.selectAll = true;
+		}
+		else
+		{
+			do
+			{
+				parseItem( columns, aggregates, names );
+			} while ( acceptSymbol( "," ) );
+		}
+
+		query.columns 	 = toStrings( columns );
+		query.names 	 = toStrings( names );
+		query.aggregates = new int[aggregates.size()];
+		for ( int i = 0; i < query.aggregates.length; i++ )
+		{
+			query.aggregates[i] = ((Integer)aggregates.elementAt(i)).intValue();
+		}
+
+		expectKeyword( "FROM" );
+		if ( type != IDENTIFIER && type != STRING )
+		{
+			throw error( "nome da tabela esperado" );
+		}
+		query.tableName = token;
+		next();
+
+		if ( acceptKeyword( "WHERE" ) )
+		{
+			query.where = parseOr();
+		}
+
+		if ( acceptKeyword( "GROUP" ) )
+		{
+			expectKeyword( "BY" );
+			Vector group = new Vector();
+			do
+			{
+				group.addElement( identifier() );
+			} while ( acceptSymbol( "," ) );
+			query.groupBy = toStrings( group );
+		}
+
+		if ( acceptKeyword( "ORDER" ) )
+		{
+			expectKeyword( "BY" );
+			Vector order 	  = new Vector();
+			Vector descending = new Vector();
+			do
+			{
+				String name = identifier();
+
+				// Permite ORDER BY SUM(VALOR)
+				if ( acceptSymbol( "(" ) )
+				{
+					String argument = acceptSymbol( "*" ) ? "*" : identifier().toUpperCase();
+					expectSymbol( ")" );
+					name = name.toUpperCase() + "(" + argument + ")";
+				}
+				order.addElement( name );
+
+				boolean desc = false;
+				if ( acceptKeyword( "DESC" ) )
+				{
+					desc = true;
+				}
+				else
+				{
+					acceptKeyword( "ASC" );
+				}
+				descending.addElement( desc ? Boolean.TRUE : Boolean.FALSE );
+			} while ( acceptSymbol( "," ) );
+
+			query.orderBy 	 = toStrings( order );
+			query.descending = new boolean[descending.size()];
+			for ( int i = 0; i < query.descending.length; i++ )
+			{
+				query.descending[i] = ((Boolean)descending.elementAt(i)).booleanValue();
+			}
+		}
+
+		if ( acceptKeyword( "LIMIT" ) )
+		{
+			if ( type != NUMBER || token.indexOf( '.' ) >= 0 || token.startsWith( "-" ) )
+			{
+				throw error( "número inteiro esperado" );
+			}
+			try
+			{
+				query.limit = Integer.parseInt( token );
+			}
+			catch ( NumberFormatException e )
+			{
+				throw error( "número inteiro inválido: " + token );
+			}
+			next();
+		}
+
+		if ( type != END )
+		{
+			throw error( "fim da consulta esperado" );
+		}
+	}
+
+	/**
+	 * Analisa um texto que contém apenas uma condição (a cláusula WHERE, sem a palavra WHERE)
+	 * @return A condição
+	 */
+	QueryPredicate parseCondition() throws QuerySyntaxException
+	{
+		next();
+		QueryPredicate condition = parseOr();
+
+		if ( type != END )
+		{
+			throw error( "fim da condição esperado" );
+		}
+		return condition;
+	}
+
+	/**
+	 * Item do SELECT
+	 */
+	private void parseItem( Vector columns, Vector aggregates, Vector names ) throws QuerySyntaxException
+	{
+		String column = identifier();
+		int aggregate = Query.AGG_NONE;
+		String name   = column.toUpperCase();
+
+		if ( isSymbol( "(" ) )
+		{
+			for ( int i = 1; i < AGGREGATES.length; i++ )
+			{
+				if ( AGGREGATES[i].equalsIgnoreCase( column ) )
+				{
+					aggregate = i;
+				}
+			}
+			if ( aggregate == Query.AGG_NONE )
+			{
+				throw error( "função desconhecida: " + column );
+			}
+			next();
+
+			if ( aggregate == Query.AGG_COUNT && acceptSymbol( "*" ) )
+			{
+				column = null;
+			}
+			else
+			{
+				column = identifier();
+			}
+			expectSymbol( ")" );
+
+			name = AGGREGATES[aggregate] + "(" + ( column == null ? "*" : column.toUpperCase() ) + ")";
+		}
+
+		if ( acceptKeyword( "AS" ) )
+		{
+			name = identifier();
+		}
+
+		columns.addElement( column == null ? "*" : column );
+		aggregates.addElement( new Integer( aggregate ) );
+		names.addElement( name );
+	}
+
+	private QueryPredicate parseOr() throws QuerySyntaxException
+	{
+		QueryPredicate left = parseAnd();
+		while ( acceptKeyword( "OR" ) )
+		{
+			left = new QueryPredicate.Or( left, parseAnd() );
+		}
+		return left;
+	}
+
+	private QueryPredicate parseAnd() throws QuerySyntaxException
+	{
+		QueryPredicate left = parseFactor();
+		while ( acceptKeyword( "AND" ) )
+		{
+			left = new QueryPredicate.And( left, parseFactor() );
+		}
+		return left;
+	}
+
+	private QueryPredicate parseFactor() throws QuerySyntaxException
+	{
+		if ( acceptKeyword( "NOT" ) )
+		{
+			return new QueryPredicate.Not( parseFactor() );
+		}
+
+		if ( acceptSymbol( "(" ) )
+		{
+			QueryPredicate predicate = parseOr();
+			expectSymbol( ")" );
+			return predicate;
+		}
+
+		String column = identifier();
+
+		if ( acceptKeyword( "IS" ) )
+		{
+			boolean negated = acceptKeyword( "NOT" );
+			expectKeyword( "NULL" );
+			return new QueryPredicate.IsNull( column, negated );
+		}
+
+		boolean negated = acceptKeyword( "NOT" );
+		QueryPredicate predicate;
+
+		if ( acceptKeyword( "BETWEEN" ) )
+		{
+			Object low = value();
+			expectKeyword( "AND" );
+			Object high = value();
+			predicate = new QueryPredicate.And( new QueryPredicate.Compare( column, QueryPredicate.GE, low ),
+												new QueryPredicate.Compare( column, QueryPredicate.LE, high ) );
+		}
+		else if ( acceptKeyword( "IN" ) )
+		{
+			expectSymbol( "(" );
+			predicate = new QueryPredicate.Compare( column, QueryPredicate.EQ, value() );
+			while ( acceptSymbol( "," ) )
+			{
+				predicate = new QueryPredicate.Or( predicate, new QueryPredicate.Compare( column, QueryPredicate.EQ, value() ) );
+			}
+			expectSymbol( ")" );
+		}
+		else if ( acceptKeyword( "LIKE" ) )
+		{
+			if ( type != STRING )
+			{
+				throw error( "padrão esperado" );
+			}
+			predicate = new QueryPredicate.Like( column, token );
+			next();
+		}
+		else if ( !negated )
+		{
+			int operator = operator();
+			return new QueryPredicate.Compare( column, operator, value() );
+		}
+		else
+		{
+			throw error( "BETWEEN, IN ou LIKE esperado" );
+		}
+
+		return negated ? new QueryPredicate.Not( predicate ) : predicate;
+	}
+
+	private int operator() throws QuerySyntaxException
+	{
+		if ( type == SYMBOL )
+		{
+			String op = token;
+			int operator = 0;
+
+			if ( op.equals( "=" ) ) 						operator = QueryPredicate.EQ;
+			else if ( op.equals( "<>" ) || op.equals( "!=" ) ) operator = QueryPredicate.NE;
+			else if ( op.equals( "<" ) ) 					operator = QueryPredicate.LT;
+			else if ( op.equals( "<=" ) ) 					operator = QueryPredicate.LE;
+			else if ( op.equals( ">" ) ) 					operator = QueryPredicate.GT;
+			else if ( op.equals( ">=" ) ) 					operator = QueryPredicate.GE;
+
+			if ( operator != 0 )
+			{
+				next();
+				return operator;
+			}
+		}
+		throw error( "operador de comparação esperado" );
+	}
+
+	private Object value() throws QuerySyntaxException
+	{
+		Object value;
+
+		if ( type == STRING )
+		{
+			value = token;
+		}
+		else if ( type == NUMBER )
+		{
+			try
+			{
+				value = Double.valueOf( token );
+			}
+			catch ( NumberFormatException e )
+			{
+				throw error( "número inválido: " + token );
+			}
+		}
+		else if ( isKeyword( "TRUE" ) )
+		{
+			value = Boolean.TRUE;
+		}
+		else if ( isKeyword( "FALSE" ) )
+		{
+			value = Boolean.FALSE;
+		}
+		else
+		{
+			throw error( "valor esperado" );
+		}
+
+		next();
+		return value;
+	}
+
+	private String identifier() throws QuerySyntaxException
+	{
+		if ( type != IDENTIFIER )
+		{
+			throw error( "nome de coluna esperado" );
+		}
+		String name = token;
+		next();
+		return name;
+	}
+
+	private boolean isKeyword( String keyword )
+	{
+		return type == IDENTIFIER && token.equalsIgnoreCase( keyword );
+	}
+
+	private boolean acceptKeyword( String keyword ) throws QuerySyntaxException
+	{
+		if ( isKeyword( keyword ) )
+		{
+			next();
+			return true;
+		}
+		return false;
+	}
+
+	private void expectKeyword( String keyword ) throws QuerySyntaxException
+	{
+		if ( !acceptKeyword( keyword ) )
+		{
+			throw error( keyword + " esperado" );
+		}
+	}
+
+	private boolean isSymbol( String symbol )
+	{
+		return type == SYMBOL && token.equals( symbol );
+	}
+
+	private boolean acceptSymbol( String symbol ) throws QuerySyntaxException
+	{
+		if ( isSymbol( symbol ) )
+		{
+			next();
+			return true;
+		}
+		return false;
+	}
+
+	private void expectSymbol( String symbol ) throws QuerySyntaxException
+	{
+		if ( !acceptSymbol( symbol ) )
+		{
+			throw error( "'" + symbol + "' esperado" );
+		}
+	}
+
+	/**
+	 * Lê o próximo token
+	 */
+	private void next() throws QuerySyntaxException
+	{
+		while ( pos < text.length() && Character.isWhitespace( text.charAt( pos ) ) )
+		{
+			pos++;
+		}
+
+		tokenStart = pos;
+
+		if ( pos >= text.length() )
+		{
+			type  = END;
+			token = "";
+			return;
+		}
+
+		char c = text.charAt( pos );
+
+		if ( Character.isLetter( c ) || c == '_' )
+		{
+			while ( pos < text.length() && ( Character.isLetterOrDigit( text.charAt( pos ) ) || text.charAt( pos ) == '_' ) )
+			{
+				pos++;
+			}
+			type  = IDENTIFIER;
+			token = text.substring( tokenStart, pos );
+		}
+		else if ( Character.isDigit( c ) || ( ( c == '-' || c == '.' ) && pos + 1 < text.length() && Character.isDigit( text.charAt( pos + 1 ) ) ) )
+		{
+			pos++;
+			while ( pos < text.length() && ( Character.isDigit( text.charAt( pos ) ) || text.charAt( pos ) == '.' ) )
+			{
+				pos++;
+			}
+			type  = NUMBER;
+			token = text.substring( tokenStart, pos );
+		}
+		else if ( c == '\'' )
+		{
+			StringBuffer sb = new StringBuffer();
+			pos++;
+			while ( true )
+			{
+				if ( pos >= text.length() )
+				{
+					throw error( "texto não terminado" );
+				}
+				char ch = text.charAt( pos++ );
+				if ( ch == '\'' )
+				{
+					// '' representa um apóstrofo
+					if ( pos < text.length() && text.charAt( pos ) == '\'' )
+					{
+						sb.append( '\'' );
+						pos++;
+						continue;
+					}
+					break;
+				}
+				sb.append( ch );
+			}
+			type  = STRING;
+			token = sb.toString();
+		}
+		else
+		{
+			String two = ( pos + 1 < text.length() ) ? text.substring( pos, pos + 2 ) : "";
+			if ( two.equals( "<>" ) || two.equals( "<=" ) || two.equals( ">=" ) || two.equals( "!=" ) )
+			{
+				pos += 2;
+				token = two;
+			}
+			else if ( "=<>(),*".indexOf( c ) >= 0 )
+			{
+				pos++;
+				token = String.valueOf( c );
+			}
+			else
+			{
+				throw error( "caracter inválido: " + c );
+			}
+			type = SYMBOL;
+		}
+	}
+
+	private QuerySyntaxException error( String message )
+	{
+		return new QuerySyntaxException( message + " (posição " + ( tokenStart + 1 ) + ")" );
+	}
+
+	private static String[] toStrings( Vector v )
+	{
+		String[] s = new String[v.size()];
+		v.copyInto( s );
+		return s;
+	}
+}
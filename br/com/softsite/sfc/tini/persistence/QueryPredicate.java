@@ -0,0 +1,490 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Condição da cláusula WHERE de uma Query.
+*
+* As condições são avaliadas diretamente sobre os bytes do registro, durante a leitura da
+* tabela, sem decodificar as colunas que não fazem parte da condição. Colunas em branco são
+* tratadas como nulas: qualquer comparação com elas é falsa (usar IS NULL).
+*
+* @version 1.0
+*/
+abstract class QueryPredicate {
+
+	/** Operadores de comparação */
+	static final int EQ = 1;
+	static final int NE = 2;
+	static final int LT = 3;
+	static final int LE = 4;
+	static final int GT = 5;
+	static final int GE = 6;
+
+	private static final String[] OPERATORS = { "", "=", "<>", "<", "<=", ">", ">=" };
+
+	/**
+	 * Associa as colunas da condição às colunas da tabela. A condição analisada não é alterada:
+	 * é devolvida uma cópia associada, de forma que a mesma consulta possa ser executada em
+	 * várias tabelas e threads ao mesmo tempo.
+	 * @return A cópia associada à tabela
+	 */
+	abstract QueryPredicate bind( Table table ) throws FieldNotFoundException, FieldTypeException;
+
+	/**
+	 * Avalia a condição sobre um registro
+	 * @param buffer	Array que contém o registro
+	 * @param base		Posição do byte de deletado do registro
+	 */
+	abstract boolean test( byte[] buffer, int base );
+
+	/**
+	 * Indica se a coluna está em branco
+	 */
+	static boolean isBlank( Field field, byte[] buffer, int base )
+	{
+		for ( int i = base + field.offset, end = i + field.fieldLength; i < end; i++ )
+		{
+			if ( ( buffer[i] & 0xff ) > ' ' )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Valor de uma coluna numérica (NaN se estiver em branco ou inválida)
+	 */
+	static double number( Field field, byte[] buffer, int base )
+	{
+		if ( isBlank( field, buffer, base ) )
+		{
+			return Double.NaN;
+		}
+
+		try
+		{
+			if ( field.decimalCount == 0 && field.fieldLength <= 9 )
+			{
+				return field.parseInteger( buffer, base );
+			}
+			return field.parseDouble( buffer, base );
+		}
+		catch ( NumberFormatException e )
+		{
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Conjunção (AND)
+	 */
+	static class And extends QueryPredicate
+	{
+		final QueryPredicate left;
+		final QueryPredicate right;
+
+		And( QueryPredicate left, QueryPredicate right )
+		{
+			this.left  = left;
+			this.right = right;
+		}
+
+		QueryPredicate bind( Table table ) throws FieldNotFoundException, FieldTypeException
+		{
+			return new And( left.bind( table ), right.bind( table ) );
+		}
+
+		boolean test( byte[] buffer, int base )
+		{
+			return left.test( buffer, base ) && right.test( buffer, base );
+		}
+
+		public String toString()
+		{
+			return "(" + left + " AND " + right + ")";
+		}
+	}
+
+	/**
+	 * Disjunção (OR)
+	 */
+	static class Or extends QueryPredicate
+	{
+		final QueryPredicate left;
+		final QueryPredicate right;
+
+		Or( QueryPredicate left, QueryPredicate right )
+		{
+			this.left  = left;
+			this.right = right;
+		}
+
+		QueryPredicate bind( Table table ) throws FieldNotFoundException, FieldTypeException
+		{
+			return new Or( left.bind( table ), right.bind( table ) );
+		}
+
+		boolean test( byte[] buffer, int base )
+		{
+			return left.test( buffer, base ) || right.test( buffer, base );
+		}
+
+		public String toString()
+		{
+			return "(" + left + " OR " + right + ")";
+		}
+	}
+
+	/**
+	 * Negação (NOT)
+	 */
+	static class Not extends QueryPredicate
+	{
+		final QueryPredicate predicate;
+
+		Not( QueryPredicate predicate )
+		{
+			this.predicate = predicate;
+		}
+
+		QueryPredicate bind( Table table ) throws FieldNotFoundException, FieldTypeException
+		{
+			return new Not( predicate.bind( table ) );
+		}
+
+		boolean test( byte[] buffer, int base )
+		{
+			return !predicate.test( buffer, base );
+		}
+
+		public String toString()
+		{
+			return "NOT " + predicate;
+		}
+	}
+
+	/**
+	 * Coluna em branco (IS NULL / IS NOT NULL)
+	 */
+	static class IsNull extends QueryPredicate
+	{
+		final String  column;
+		final boolean negated;
+		Field field;
+
+		IsNull( String column, boolean negated )
+		{
+			this.column  = column;
+			this.negated = negated;
+		}
+
+		QueryPredicate bind( Table table ) throws FieldNotFoundException
+		{
+			IsNull bound = new IsNull( column, negated );
+			bound.field = table.findField( column );
+			return bound;
+		}
+
+		boolean test( byte[] buffer, int base )
+		{
+			return isBlank( field, buffer, base ) != negated;
+		}
+
+		public String toString()
+		{
+			return column + ( negated ? " IS NOT NULL" : " IS NULL" );
+		}
+	}
+
+	/**
+	 * Comparação de uma coluna com um valor (String, Double ou Boolean)
+	 */
+	static class Compare extends QueryPredicate
+	{
+		final String column;
+		final int 	 operator;
+		final Object value;
+
+		Field 	field;
+
+		/** Valor no formato gravado (colunas caracter, data e lógicas) */
+		byte[] 	bytes;
+
+		/** Valor das colunas numéricas */
+		double 	number;
+
+		Compare( String column, int operator, Object value )
+		{
+			this.column   = column;
+			this.operator = operator;
+			this.value 	  = value;
+		}
+
+		QueryPredicate bind( Table table ) throws FieldNotFoundException, FieldTypeException
+		{
+			Compare bound = new Compare( column, operator, value );
+			bound.bind( table.findField( column ) );
+			return bound;
+		}
+
+		private void bind( Field field ) throws FieldTypeException
+		{
+			this.field = field;
+
+			switch ( field.dataType )
+			{
+				case Field.TYPE_CHARACTER :
+				{
+					if ( !( value instanceof String ) )
+					{
+						throw new FieldTypeException();
+					}
+					bytes = field.codePage.encode( (String)value );
+					break;
+				}
+				case Field.TYPE_NUMERIC :
+				case Field.TYPE_FLOAT :
+				{
+					if ( !( value instanceof Double ) )
+					{
+						throw new FieldTypeException();
+					}
+					number = ((Double)value).doubleValue();
+					break;
+				}
+				case Field.TYPE_DATE :
+				{
+					bytes = dateBytes( value );
+					break;
+				}
+				case Field.TYPE_LOGICAL :
+				{
+					boolean b;
+					if ( value instanceof Boolean )
+					{
+						b = ((Boolean)value).booleanValue();
+					}
+					else if ( value instanceof String && ((String)value).length() == 1 )
+					{
+						b = "TtYy".indexOf( ((String)value).charAt( 0 ) ) >= 0;
+					}
+					else
+					{
+						throw new FieldTypeException();
+					}
+					bytes = new byte[] { (byte)( b ? 'T' : 'F' ) };
+
+					if ( operator != EQ && operator != NE )
+					{
+						throw new FieldTypeException();
+					}
+					break;
+				}
+				default :
+					throw new FieldTypeException();
+			}
+		}
+
+		boolean test( byte[] buffer, int base )
+		{
+			int result;
+
+			switch ( field.dataType )
+			{
+				case Field.TYPE_NUMERIC :
+				case Field.TYPE_FLOAT :
+				{
+					double n = number( field, buffer, base );
+					if ( n != n ) // NaN
+					{
+						return false;
+					}
+					result = ( n < number ) ? -1 : ( n > number ) ? 1 : 0;
+					break;
+				}
+				case Field.TYPE_LOGICAL :
+				{
+					boolean b = field.parseBoolean( buffer, base );
+					result = ( b == ( bytes[0] == 'T' ) ) ? 0 : 1;
+					break;
+				}
+				default :
+				{
+					if ( isBlank( field, buffer, base ) )
+					{
+						return false;
+					}
+					result = compareBytes( buffer, base + field.offset, field.fieldLength, bytes );
+				}
+			}
+
+			switch ( operator )
+			{
+				case EQ : return result == 0;
+				case NE : return result != 0;
+				case LT : return result < 0;
+				case LE : return result <= 0;
+				case GT : return result > 0;
+				default : return result >= 0;
+			}
+		}
+
+		public String toString()
+		{
+			return column + " " + OPERATORS[operator] + " " + literal( value );
+		}
+	}
+
+	/**
+	 * Comparação de texto com padrão (LIKE), com os curingas % e _
+	 */
+	static class Like extends QueryPredicate
+	{
+		final String column;
+		final String pattern;
+		Field field;
+
+		Like( String column, String pattern )
+		{
+			this.column  = column;
+			this.pattern = pattern;
+		}
+
+		QueryPredicate bind( Table table ) throws FieldNotFoundException, FieldTypeException
+		{
+			Like bound = new Like( column, pattern );
+			bound.field = table.findField( column );
+			if ( bound.field.dataType != Field.TYPE_CHARACTER )
+			{
+				throw new FieldTypeException();
+			}
+			return bound;
+		}
+
+		boolean test( byte[] buffer, int base )
+		{
+			if ( isBlank( field, buffer, base ) )
+			{
+				return false;
+			}
+			String text = field.codePage.decodeTrimmed( buffer, base + field.offset, field.fieldLength );
+			return matches( text, 0, 0 );
+		}
+
+		private boolean matches( String text, int t, int p )
+		{
+			while ( p < pattern.length() )
+			{
+				char c = pattern.charAt( p );
+
+				if ( c == '%' )
+				{
+					for ( int i = t; i <= text.length(); i++ )
+					{
+						if ( matches( text, i, p + 1 ) )
+						{
+							return true;
+						}
+					}
+					return false;
+				}
+
+				if ( t >= text.length() || ( c != '_' && c != text.charAt( t ) ) )
+				{
+					return false;
+				}
+				t++;
+				p++;
+			}
+			return t == text.length();
+		}
+
+		public String toString()
+		{
+			return column + " LIKE " + literal( pattern );
+		}
+	}
+
+	/**
+	 * Compara o conteúdo de uma coluna (completado com espaços) com um valor
+	 */
+	static int compareBytes( byte[] buffer, int pos, int len, byte[] value )
+	{
+		int max = Math.max( len, value.length );
+		for ( int i = 0; i < max; i++ )
+		{
+			int a = ( i < len ) ? buffer[pos + i] & 0xff : ' ';
+			int b = ( i < value.length ) ? value[i] & 0xff : ' ';
+			if ( a != b )
+			{
+				return a - b;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Converte um valor para o formato de data gravado (AAAAMMDD). São aceitos os formatos
+	 * AAAAMMDD, AAAA-MM-DD e DD/MM/AAAA.
+	 */
+	static byte[] dateBytes( Object value ) throws FieldTypeException
+	{
+		if ( !( value instanceof String ) )
+		{
+			throw new FieldTypeException();
+		}
+
+		String s = (String)value;
+		String digits;
+
+		if ( s.length() == 10 && s.charAt( 2 ) == '/' && s.charAt( 5 ) == '/' )
+		{
+			digits = s.substring( 6 ) + s.substring( 3, 5 ) + s.substring( 0, 2 );
+		}
+		else if ( s.length() == 10 && s.charAt( 4 ) == '-' && s.charAt( 7 ) == '-' )
+		{
+			digits = s.substring( 0, 4 ) + s.substring( 5, 7 ) + s.substring( 8 );
+		}
+		else
+		{
+			digits = s;
+		}
+
+		if ( digits.length() != 8 )
+		{
+			throw new FieldTypeException();
+		}
+
+		byte[] bytes = new byte[8];
+		for ( int i = 0; i < 8; i++ )
+		{
+			char c = digits.charAt( i );
+			if ( c < '0' || c > '9' )
+			{
+				throw new FieldTypeException();
+			}
+			bytes[i] = (byte)c;
+		}
+		return bytes;
+	}
+
+	static String literal( Object value )
+	{
+		if ( value instanceof String )
+		{
+			return "'" + value + "'";
+		}
+		if ( value instanceof Double && ((Double)value).doubleValue() == Math.floor( ((Double)value).doubleValue() ) )
+		{
+			return String.valueOf( (long)((Double)value).doubleValue() );
+		}
+		return String.valueOf( value );
+	}
+}
@@ -0,0 +1,116 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.util.Vector;
+
+/**
+* Resultado da execução de uma Query.
+*
+* Os valores são String (colunas caracter), Integer ou Double (numéricas), Date, Boolean ou
+* null (coluna em branco). COUNT retorna Integer; SUM e AVG retornam Double.
+*
+* @version 1.0
+*/
+public class QueryResult {
+
+	/** Nomes das colunas */
+	private final String[] columnNames;
+
+	/** Linhas (Object[]) */
+	private final Vector rows;
+
+	/** Plano de execução utilizado */
+	private final String plan;
+
+	QueryResult( String[] columnNames, Vector rows, String plan )
+	{
+		super();
+		this.columnNames = columnNames;
+		this.rows 		 = rows;
+		this.plan 		 = plan;
+	}
+
+	public int getColumnCount()
+	{
+		return columnNames.length;
+	}
+
+	public String getColumnName( int column )
+	{
+		return columnNames[column];
+	}
+
+	public int getRowCount()
+	{
+		return rows.size();
+	}
+
+	/**
+	 * Valores de uma linha, na ordem das colunas
+	 */
+	public Object[] getRow( int row )
+	{
+		return (Object[])rows.elementAt( row );
+	}
+
+	public Object getValue( int row, int column )
+	{
+		return getRow( row )[column];
+	}
+
+	/**
+	 * Valor de uma coluna pelo nome (ou apelido dado com AS)
+	 * @throws FieldNotFoundException A coluna não faz parte do resultado
+	 */
+	public Object getValue( int row, String columnName ) throws FieldNotFoundException
+	{
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			if ( columnNames[i].equalsIgnoreCase( columnName ) )
+			{
+				return getRow( row )[i];
+			}
+		}
+		throw new FieldNotFoundException();
+	}
+
+	/**
+	 * Plano de execução utilizado (ver Query.explain)
+	 */
+	public String getPlan()
+	{
+		return plan;
+	}
+
+	/**
+	 * Resultado em formato texto, uma linha por registro e colunas separadas por tabulação
+	 */
+	public String toString()
+	{
+		StringBuffer sb = new StringBuffer();
+
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			sb.append( i > 0 ? "\t" : "" ).append( columnNames[i] );
+		}
+		sb.append( '\n' );
+
+		for ( int r = 0; r < rows.size(); r++ )
+		{
+			Object[] row = getRow( r );
+			for ( int i = 0; i < row.length; i++ )
+			{
+				sb.append( i > 0 ? "\t" : "" ).append( row[i] == null ? "" : row[i].toString() );
+			}
+			sb.append( '\n' );
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,26 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Exceção disparada quando o texto de uma consulta (Query) não é válido
+*
+* @version 1.0
+*/
+public class QuerySyntaxException extends Exception
+{
+
+	public QuerySyntaxException() {
+		super();
+	}
+
+	public QuerySyntaxException(String arg0) {
+		super(arg0);
+	}
+
+}
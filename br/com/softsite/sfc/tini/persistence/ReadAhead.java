@@ -0,0 +1,352 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+
+/**
+* Leitura antecipada (read-ahead) para varreduras sequenciais da tabela.
+*
+* Enquanto as leituras forem sequenciais (cada uma começando onde a anterior terminou), os
+* dados são lidos em blocos grandes e servidos da memória. São mantidos dois buffers: o
+* bloco corrente e o próximo. Opcionalmente uma thread lê o próximo bloco em segundo plano
+* enquanto o corrente é consumido. Quando o acesso passa a ser aleatório, cada leitura volta
+* a ser feita diretamente no arquivo, sem ler blocos inteiros.
+*
+* Os blocos são lidos por handles próprios (somente leitura), de modo que a posição do
+* arquivo usado pela Table não é alterada. Qualquer gravação feita pela Table deve chamar
+* invalidate().
+*
+* @version 1.0
+*/
+class ReadAhead implements Runnable {
+
+	/** Tamanho padrão do bloco lido antecipadamente (1 MB) */
+	static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	/** Quantidade de leituras sequenciais seguidas para ativar a leitura em blocos */
+	static final int SEQUENTIAL_THRESHOLD = 2;
+
+	/** Arquivo usado nas leituras feitas pela thread do cursor */
+	private RandomAccessFile file;
+
+	/** Arquivo usado pela thread de leitura em segundo plano (null se não houver) */
+	private RandomAccessFile prefetchFile;
+
+	/** Thread de leitura em segundo plano */
+	private Thread prefetcher;
+
+	/** Bloco corrente */
+	private byte[] current;
+	private long   currentStart;
+	private int    currentLength;
+
+	/** Próximo bloco */
+	private byte[]  next;
+	private long    nextStart = -1;
+	private int     nextLength;
+	private boolean nextReady;
+	private boolean nextRequested;
+	private boolean reading;
+
+	/** Incrementado a cada invalidate(), descarta leituras em andamento */
+	private int generation;
+
+	/** Fim da última leitura, para detectar o padrão sequencial */
+	private long lastEnd = -1;
+
+	/** Quantidade de leituras sequenciais seguidas */
+	private int sequentialReads;
+
+	private boolean closed;
+
+	/**
+	 * Construtor
+	 *
+	 * @param fileName		Arquivo da tabela
+	 * @param blockSize		Tamanho de cada bloco lido antecipadamente
+	 * @param background	Ler o próximo bloco em uma thread separada
+	 * @throws IOException
+	 */
+	ReadAhead( String fileName, int blockSize, boolean background ) throws IOException
+	{
+		super();
+
+		file    = new RandomAccessFile( new File( fileName ), "r" );
+		current = new byte[blockSize];
+
+		if ( background )
+		{
+			next		 = new byte[blockSize];
+			prefetchFile = new RandomAccessFile( new File( fileName ), "r" );
+			prefetcher   = new Thread( this, "ReadAhead " + fileName );
+			prefetcher.setDaemon( true );
+			prefetcher.start();
+		}
+	}
+
+	/**
+	 * Lê um trecho do arquivo
+	 *
+	 * @param pos	Posição no arquivo
+	 * @param buf	Array de destino
+	 * @param off	Posição no array de destino
+	 * @param len	Quantidade de bytes
+	 * @return Quantidade de bytes lidos, ou -1 se a posição estiver no final do arquivo
+	 * @throws IOException
+	 */
+	int read( long pos, byte[] buf, int off, int len ) throws IOException
+	{
+		boolean sequential = ( pos == lastEnd );
+		lastEnd = pos + len;
+
+		if ( sequential )
+		{
+			sequentialReads++;
+		}
+		else
+		{
+			sequentialReads = 0;
+		}
+
+		// Acesso aleatório fora do bloco corrente: leitura simples
+		if ( sequentialReads < SEQUENTIAL_THRESHOLD && !inCurrent( pos ) )
+		{
+			file.seek( pos );
+			return file.read( buf, off, len );
+		}
+
+		int total = 0;
+		while ( len > 0 )
+		{
+			if ( !inCurrent( pos ) && !takeNext( pos ) )
+			{
+				loadCurrent( pos );
+				if ( currentLength <= 0 )
+				{
+					break;
+				}
+			}
+
+			int start = (int)( pos - currentStart );
+			int count = Math.min( len, currentLength - start );
+
+			System.arraycopy( current, start, buf, off, count );
+			pos   += count;
+			off   += count;
+			len   -= count;
+			total += count;
+
+			// Fim do arquivo dentro do bloco corrente
+			if ( currentLength < current.length && pos >= currentStart + currentLength )
+			{
+				break;
+			}
+		}
+
+		return ( total == 0 ) ? -1 : total;
+	}
+
+	/**
+	 * Descarta os dados lidos antecipadamente (o arquivo foi alterado)
+	 */
+	synchronized void invalidate()
+	{
+		generation++;
+		currentLength = 0;
+		nextReady     = false;
+		nextRequested = false;
+	}
+
+	/**
+	 * Encerra a thread de leitura e fecha os arquivos
+	 */
+	void close() throws IOException
+	{
+		synchronized ( this )
+		{
+			closed = true;
+			notifyAll();
+
+			while ( reading )
+			{
+				try
+				{
+					wait();
+				}
+				catch ( InterruptedException e )
+				{
+					break;
+				}
+			}
+		}
+
+		file.close();
+		if ( prefetchFile != null )
+		{
+			prefetchFile.close();
+		}
+	}
+
+	/**
+	 * Laço da thread de leitura em segundo plano
+	 */
+	public void run()
+	{
+		while ( true )
+		{
+			long pos;
+			int  requestGeneration;
+
+			synchronized ( this )
+			{
+				while ( !nextRequested && !closed )
+				{
+					try
+					{
+						wait();
+					}
+					catch ( InterruptedException e )
+					{
+						return;
+					}
+				}
+
+				if ( closed )
+				{
+					return;
+				}
+
+				pos 			  = nextStart;
+				requestGeneration = generation;
+				nextRequested 	  = false;
+				reading 		  = true;
+			}
+
+			int length;
+			try
+			{
+				length = readBlock( prefetchFile, pos, next );
+			}
+			catch ( IOException e )
+			{
+				// O bloco será lido novamente, de forma síncrona, quando for necessário
+				length = -1;
+			}
+
+			synchronized ( this )
+			{
+				reading = false;
+				if ( length > 0 && requestGeneration == generation && !nextRequested && nextStart == pos )
+				{
+					nextLength = length;
+					nextReady  = true;
+				}
+				notifyAll();
+			}
+		}
+	}
+
+	private boolean inCurrent( long pos )
+	{
+		return pos >= currentStart && pos < currentStart + currentLength;
+	}
+
+	/**
+	 * Lê o bloco corrente de forma síncrona e solicita o próximo
+	 */
+	private void loadCurrent( long pos ) throws IOException
+	{
+		waitPrefetch();
+
+		currentStart  = pos;
+		currentLength = readBlock( file, pos, current );
+
+		requestNext( pos + current.length );
+	}
+
+	/**
+	 * Usa o próximo bloco como corrente, se ele já foi lido e começa na posição desejada
+	 */
+	private synchronized boolean takeNext( long pos ) throws IOException
+	{
+		if ( prefetcher == null )
+		{
+			return false;
+		}
+
+		waitPrefetch();
+
+		if ( !nextReady || nextStart != pos )
+		{
+			return false;
+		}
+
+		byte[] swap   = current;
+		current 	  = next;
+		next 		  = swap;
+		currentStart  = nextStart;
+		currentLength = nextLength;
+		nextReady 	  = false;
+
+		requestNext( currentStart + current.length );
+		return true;
+	}
+
+	/**
+	 * Solicita a leitura do próximo bloco em segundo plano
+	 */
+	private synchronized void requestNext( long pos )
+	{
+		if ( prefetcher != null && currentLength == current.length )
+		{
+			nextStart 	  = pos;
+			nextReady 	  = false;
+			nextRequested = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Aguarda o término da leitura em segundo plano em andamento
+	 */
+	private synchronized void waitPrefetch() throws IOException
+	{
+		while ( reading || nextRequested )
+		{
+			try
+			{
+				wait();
+			}
+			catch ( InterruptedException e )
+			{
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	private static int readBlock( RandomAccessFile in, long pos, byte[] block ) throws IOException
+	{
+		in.seek( pos );
+
+		int total = 0;
+		while ( total < block.length )
+		{
+			int n = in.read( block, total, block.length - total );
+			if ( n <= 0 )
+			{
+				break;
+			}
+			total += n;
+		}
+		return total;
+	}
+}
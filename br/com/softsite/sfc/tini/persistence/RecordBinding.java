@@ -0,0 +1,273 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+* Liga um RecordMapper à estrutura de uma tabela.
+*
+* As colunas do mapeamento são localizadas uma única vez, na criação do binding. A partir
+* daí a leitura e a gravação de um objeto acessam o registro diretamente pelo deslocamento
+* de cada coluna, sem pesquisa por nome e sem conversões intermediárias para objetos.
+* Uma gravação regrava o registro inteiro com um único write.
+*
+* <pre>
+*	RecordBinding binding = new RecordBinding( table, new RecebimentoMapper() );
+*	table.goTop();
+*	do {
+*		Recebimento r = (Recebimento)binding.read();
+*	} while ( table.nextRecord() );
+* </pre>
+*
+* @version 1.0
+*/
+public class RecordBinding {
+
+	/** Tabela associada */
+	private final Table table;
+
+	/** Mapeamento da classe da aplicação */
+	private final RecordMapper mapper;
+
+	/** Colunas do mapeamento, na ordem de RecordMapper.getColumnNames() */
+	private final Field[] fields;
+
+	/** Registro sendo lido ou gravado no momento */
+	private byte[] record;
+
+	/**
+	 * Construtor
+	 *
+	 * @param table		Tabela aberta
+	 * @param mapper	Mapeamento da classe da aplicação
+	 * @throws FieldNotFoundException Alguma coluna do mapeamento não existe na tabela
+	 */
+	public RecordBinding( Table table, RecordMapper mapper ) throws FieldNotFoundException
+	{
+		super();
+		this.table  = table;
+		this.mapper = mapper;
+
+		String[] columnNames = mapper.getColumnNames();
+		this.fields = new Field[columnNames.length];
+
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			this.fields[i] = table.findField( columnNames[i] );
+		}
+	}
+
+	/**
+	 * Cria um novo objeto com o conteúdo do registro corrente da tabela
+	 * @return Objeto criado por RecordMapper.newRecord()
+	 * @throws IOException
+	 * @throws FieldTypeException
+	 */
+	public Object read() throws IOException, FieldTypeException
+	{
+		Object o = mapper.newRecord();
+		read( o );
+		return o;
+	}
+
+	/**
+	 * Copia o conteúdo do registro corrente da tabela para um objeto já existente
+	 * @param o Objeto a ser preenchido
+	 * @throws IOException
+	 * @throws FieldTypeException
+	 */
+	public void read( Object o ) throws IOException, FieldTypeException
+	{
+		record = table.getRecordData();
+		try
+		{
+			mapper.read( o, this );
+		}
+		finally
+		{
+			record = null;
+		}
+	}
+
+	/**
+	 * Regrava o registro corrente da tabela com os dados do objeto. Colunas que não fazem
+	 * parte do mapeamento mantêm o conteúdo atual.
+	 * @param o Objeto com os dados
+	 * @throws IOException
+	 * @throws FieldTypeException
+	 */
+	public void update( Object o ) throws IOException, FieldTypeException
+	{
+		byte[] current = table.getRecordData();
+
+		record = new byte[current.length];
+		System.arraycopy( current, 0, record, 0, current.length );
+		try
+		{
+			mapper.write( o, this );
+			table.writeRecordData( record );
+		}
+		finally
+		{
+			record = null;
+		}
+	}
+
+	/**
+	 * Adiciona um novo registro à tabela com os dados do objeto. Colunas que não fazem
+	 * parte do mapeamento ficam em branco.
+	 * @param o Objeto com os dados
+	 * @throws IOException
+	 * @throws FieldTypeException
+	 */
+	public void append( Object o ) throws IOException, FieldTypeException
+	{
+		record = table.newRecordData();
+		try
+		{
+			mapper.write( o, this );
+			table.appendRecordData( record );
+		}
+		finally
+		{
+			record = null;
+		}
+	}
+
+	/**
+	 * Retorna o valor de uma coluna do tipo caracter
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public String getString( int column ) throws FieldTypeException
+	{
+		return checkType( column, Field.TYPE_CHARACTER ).parseString( record, 0 );
+	}
+
+	/**
+	 * Retorna o valor de uma coluna numérica como inteiro
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public int getInteger( int column ) throws FieldTypeException
+	{
+		return checkType( column, Field.TYPE_NUMERIC ).parseInteger( record, 0 );
+	}
+
+	/**
+	 * Retorna o valor de uma coluna numérica ou float como double
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public double getDouble( int column ) throws FieldTypeException
+	{
+		return checkType( column, Field.TYPE_FLOAT ).parseDouble( record, 0 );
+	}
+
+	/**
+	 * Retorna o valor de uma coluna do tipo data
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public Date getDate( int column ) throws FieldTypeException
+	{
+		return checkType( column, Field.TYPE_DATE ).parseDate( record, 0 );
+	}
+
+	/**
+	 * Retorna o valor de uma coluna lógica
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public boolean getBoolean( int column ) throws FieldTypeException
+	{
+		return checkType( column, Field.TYPE_LOGICAL ).parseBoolean( record, 0 );
+	}
+
+	/**
+	 * Retorna o texto de uma coluna memo. O arquivo .DBT só é lido nesse momento.
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public String getMemo( int column ) throws FieldTypeException, IOException
+	{
+		int block = checkType( column, Field.TYPE_MEMO ).parseMemoBlock( record, 0 );
+		return ( block == 0 ) ? "" : table.getMemoFile().read( block );
+	}
+
+	/**
+	 * Atribui o valor de uma coluna do tipo caracter
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public void setString( int column, String value ) throws FieldTypeException
+	{
+		checkType( column, Field.TYPE_CHARACTER ).formatData( value, record, 0 );
+	}
+
+	/**
+	 * Atribui o valor de uma coluna numérica
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public void setInteger( int column, int value ) throws FieldTypeException
+	{
+		checkType( column, Field.TYPE_NUMERIC ).formatData( String.valueOf( value ), record, 0 );
+	}
+
+	/**
+	 * Atribui o valor de uma coluna numérica ou float
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public void setDouble( int column, double value ) throws FieldTypeException
+	{
+		checkType( column, Field.TYPE_FLOAT ).formatData( String.valueOf( value ), record, 0 );
+	}
+
+	/**
+	 * Atribui o valor de uma coluna do tipo data
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public void setDate( int column, Date value ) throws FieldTypeException
+	{
+		checkType( column, Field.TYPE_DATE ).formatData( value, record, 0 );
+	}
+
+	/**
+	 * Atribui o valor de uma coluna lógica
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public void setBoolean( int column, boolean value ) throws FieldTypeException
+	{
+		checkType( column, Field.TYPE_LOGICAL ).formatData( value ? Boolean.TRUE : Boolean.FALSE, record, 0 );
+	}
+
+	/**
+	 * Atribui o texto de uma coluna memo. O texto é adicionado ao lote de gravação do .DBT.
+	 * @param column Índice da coluna no mapeamento
+	 */
+	public void setMemo( int column, String value ) throws FieldTypeException, IOException
+	{
+		Field field = checkType( column, Field.TYPE_MEMO );
+		int block = ( value == null ) ? 0 : table.getMemoFile().append( value );
+		field.formatData( new Integer( block ), record, 0 );
+	}
+
+	/**
+	 * Verifica o tipo da coluna. Assim como em Table, colunas numéricas podem ser
+	 * tratadas como float.
+	 */
+	private Field checkType( int column, char dataType ) throws FieldTypeException
+	{
+		Field field = fields[column];
+
+		if ( field.dataType != dataType )
+		{
+			if ( ! ( field.dataType == Field.TYPE_NUMERIC && dataType == Field.TYPE_FLOAT ) )
+			{
+				throw new FieldTypeException();
+			}
+		}
+
+		return field;
+	}
+}
@@ -0,0 +1,459 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+/**
+* Verificação de integridade dos registros de uma tabela: o CRC32 de cada registro é guardado
+* em um arquivo separado e atualizado a cada gravação feita pela tabela (addRecord,
+* setFieldXXX, ...).
+*
+* O CRC é gravado logo depois do registro. Se a gravação do registro for interrompida no meio
+* (queda de energia, processo finalizado), o registro e o seu CRC deixam de corresponder e
+* verify() aponta o registro, sem decodificar nenhuma coluna. O indicador de deletado não faz
+* parte do CRC, portanto deleteRecord e recallRecords não precisam atualizá-lo.
+*
+* verify() lê a tabela em intervalos de registros, em paralelo (setParallelism). Registros
+* incluídos por outros processos são calculados na abertura; registros alterados por outros
+* processos que não usam o arquivo de CRCs são apontados por verify() como corrompidos.
+*
+* <pre>
+*	RecordChecksums crc = RecordChecksums.open( table, "RECEB.CRC" );
+*	...
+*	crc.setParallelism( 4 );
+*	RecordSet corrompidos = crc.verify();
+* </pre>
+*
+* Um registro alterado pela tabela durante a verificação pode ser apontado; nesse caso ele pode
+* ser conferido novamente com check().
+*
+* Formato do arquivo: identificação, tamanho do registro e o CRC de cada registro, todos int
+* (little-endian, como no cabeçalho da tabela).
+*
+* @version 1.0
+*/
+public class RecordChecksums implements TableListener {
+
+	/** Identificação do arquivo */
+	private static final int MAGIC = 0x52434B31; // RCK1
+
+	/** Tamanho do cabeçalho do arquivo */
+	private static final int HEADER_LENGTH = 8;
+
+	/** Quantidade de CRCs lidos ou gravados de uma vez */
+	private static final int CHUNK = 4096;
+
+	/** Quantidade mínima de registros por thread */
+	private static final int MIN_RECORDS_PER_THREAD = 4096;
+
+	/** Tabela */
+	private final Table table;
+
+	/** Arquivo dos CRCs */
+	private final File file;
+
+	/** Handle do arquivo, usado nas atualizações */
+	private final RandomAccessFile sums;
+
+	/** Cálculo dos CRCs das atualizações */
+	private final CRC32 crc = new CRC32();
+
+	/** Buffer de um CRC */
+	private final byte[] value = new byte[4];
+
+	/** Quantidade máxima de threads na verificação */
+	private int parallelism = 1;
+
+	private boolean isOpen;
+
+	private RecordChecksums( Table table, String fileName ) throws IOException
+	{
+		super();
+		this.table 	= table;
+		this.file 	= new File( fileName );
+		this.sums 	= new RandomAccessFile( file, "rw" );
+		this.isOpen = true;
+	}
+
+	/**
+	 * Abre (ou cria) o arquivo de CRCs de uma tabela. Os CRCs que faltam (arquivo novo, com
+	 * outro tamanho de registro ou registros incluídos por outros processos) são calculados.
+	 * @param table		Tabela aberta
+	 * @param fileName	Arquivo dos CRCs
+	 * @return O objeto, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 */
+	public static RecordChecksums open( Table table, String fileName ) throws IOException
+	{
+		RecordChecksums checksums = new RecordChecksums( table, fileName );
+		try
+		{
+			checksums.load();
+		}
+		catch ( IOException e )
+		{
+			checksums.sums.close();
+			throw e;
+		}
+		table.addTableListener( checksums );
+		return checksums;
+	}
+
+	/**
+	 * Quantidade máxima de threads no cálculo e na verificação
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = Math.max( 1, parallelism );
+	}
+
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Verifica todos os registros
+	 * @return Os registros cujo conteúdo não corresponde ao CRC
+	 * @throws IOException
+	 */
+	public RecordSet verify() throws IOException
+	{
+		return verify( 1, Math.min( table.getNumberOfRecords(), getNumberOfRecords() ) );
+	}
+
+	/**
+	 * Verifica um intervalo de registros
+	 * @param first	Primeiro registro
+	 * @param last	Último registro (inclusive)
+	 * @return Os registros cujo conteúdo não corresponde ao CRC
+	 * @throws IOException
+	 */
+	public RecordSet verify( int first, int last ) throws IOException
+	{
+		Task[] tasks = run( Math.max( first, 1 ), Math.min( last, getNumberOfRecords() ), false );
+
+		RecordSet corrupted = new RecordSet();
+		for ( int i = 0; i < tasks.length; i++ )
+		{
+			for ( int record = tasks[i].corrupted.nextRecord( 1 ); record != 0; record = tasks[i].corrupted.nextRecord( record + 1 ) )
+			{
+				corrupted.add( record );
+			}
+		}
+		return corrupted;
+	}
+
+	/**
+	 * Verifica um registro
+	 * @param record Número do registro
+	 * @return FALSE se o conteúdo não corresponde ao CRC
+	 * @throws IOException
+	 */
+	public boolean check( int record ) throws IOException
+	{
+		return verify( record, record ).isEmpty();
+	}
+
+	/**
+	 * Recalcula todos os CRCs a partir do conteúdo atual da tabela (ex: depois de aceitar as
+	 * alterações feitas por outros processos)
+	 * @throws IOException
+	 */
+	public synchronized void rebuild() throws IOException
+	{
+		int records = table.getNumberOfRecords();
+		sums.setLength( HEADER_LENGTH + (long)records * 4 );
+		run( 1, records, true );
+	}
+
+	/**
+	 * Quantidade de registros com CRC
+	 * @throws IOException
+	 */
+	public synchronized int getNumberOfRecords() throws IOException
+	{
+		return (int)Math.min( ( sums.length() - HEADER_LENGTH ) / 4, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Deixa de acompanhar as alterações da tabela e fecha o arquivo
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException
+	{
+		if ( isOpen )
+		{
+			isOpen = false;
+			table.removeTableListener( this );
+			sums.close();
+		}
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		update( record, data );
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		update( record, newData );
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+		// O indicador de deletado não faz parte do CRC
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+		// O indicador de deletado não faz parte do CRC
+	}
+
+	public void tableClosed( Table table )
+	{
+		try
+		{
+			close();
+		}
+		catch ( IOException e )
+		{
+			// Os CRCs já foram gravados a cada alteração
+		}
+	}
+
+	/**
+	 * Valida o arquivo e calcula os CRCs que faltam
+	 */
+	private synchronized void load() throws IOException
+	{
+		int records = table.getNumberOfRecords();
+		boolean valid = false;
+
+		byte[] header = new byte[HEADER_LENGTH];
+		if ( sums.length() >= HEADER_LENGTH )
+		{
+			sums.seek( 0 );
+			sums.readFully( header );
+			valid = Utils.readLittleEndianInt( header, 0 ) == MAGIC && Utils.readLittleEndianInt( header, 4 ) == table.recordLength;
+		}
+
+		int first = 1;
+		if ( valid )
+		{
+			// Registros incluídos por outros processos (ou, se o arquivo é maior, descartados)
+			first = Math.min( getNumberOfRecords(), records ) + 1;
+		}
+		else
+		{
+			Utils.writeLittleEndianInt( header, 0, MAGIC );
+			Utils.writeLittleEndianInt( header, 4, table.recordLength );
+			sums.setLength( 0 );
+			sums.seek( 0 );
+			sums.write( header );
+		}
+
+		sums.setLength( HEADER_LENGTH + (long)records * 4 );
+		if ( first <= records )
+		{
+			run( first, records, true );
+		}
+	}
+
+	/**
+	 * Grava o CRC de um registro alterado pela tabela
+	 */
+	private synchronized void update( int record, byte[] data )
+	{
+		if ( !isOpen )
+		{
+			return;
+		}
+
+		try
+		{
+			Utils.writeLittleEndianInt( value, 0, checksum( crc, data, 0, table.recordLength ) );
+			sums.seek( HEADER_LENGTH + (long)( record - 1 ) * 4 );
+			sums.write( value );
+		}
+		catch ( IOException e )
+		{
+			// O registro será apontado por verify() e o CRC pode ser refeito por rebuild()
+		}
+	}
+
+	/**
+	 * CRC de um registro, sem o indicador de deletado
+	 */
+	static int checksum( CRC32 crc, byte[] buffer, int base, int recordLength )
+	{
+		crc.reset();
+		crc.update( buffer, base + 1, recordLength - 1 );
+		return (int)crc.getValue();
+	}
+
+	/**
+	 * Calcula ou verifica um intervalo de registros, dividido entre as threads
+	 * @param build TRUE para gravar os CRCs, FALSE para compará-los
+	 */
+	private Task[] run( int first, int last, boolean build ) throws IOException
+	{
+		int records = last - first + 1;
+		if ( records <= 0 )
+		{
+			return new Task[0];
+		}
+
+		int threads = Math.max( 1, Math.min( parallelism, records / MIN_RECORDS_PER_THREAD ) );
+		Task[] tasks = new Task[threads];
+		Thread[] workers = new Thread[threads];
+
+		int start = first;
+		for ( int i = 0; i < threads; i++ )
+		{
+			int end = ( i == threads - 1 ) ? last : start + records / threads - 1;
+			tasks[i] = new Task( start, end, build );
+			start = end + 1;
+		}
+
+		// A primeira parte é lida pela própria thread
+		for ( int i = 1; i < threads; i++ )
+		{
+			workers[i] = new Thread( tasks[i], "Checksum " + ( i + 1 ) );
+			workers[i].start();
+		}
+		tasks[0].run();
+		for ( int i = 1; i < threads; i++ )
+		{
+			try
+			{
+				workers[i].join();
+			}
+			catch ( InterruptedException e )
+			{
+				throw new InterruptedIOException();
+			}
+		}
+
+		for ( int i = 0; i < threads; i++ )
+		{
+			if ( tasks[i].error != null )
+			{
+				throw tasks[i].error;
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Leitura de um intervalo de registros, com o seu próprio handle da tabela e do arquivo de
+	 * CRCs
+	 */
+	private class Task implements Runnable, RecordVisitor
+	{
+		final int first;
+		final int last;
+		final boolean build;
+		final CRC32 crc = new CRC32();
+		final RecordSet corrupted = new RecordSet();
+		final int recordLength = table.recordLength;
+
+		/** CRCs do trecho corrente (CHUNK registros a partir de chunkFirst) */
+		final byte[] chunk = new byte[CHUNK * 4];
+		int chunkFirst;
+		int chunkCount;
+
+		RandomAccessFile file;
+		IOException error;
+
+		Task( int first, int last, boolean build )
+		{
+			this.first = first;
+			this.last  = last;
+			this.build = build;
+		}
+
+		public void run()
+		{
+			try
+			{
+				file = new RandomAccessFile( RecordChecksums.this.file, build ? "rw" : "r" );
+				try
+				{
+					TableScanner scanner = new TableScanner( table );
+					try
+					{
+						scanner.scan( first, last, this );
+					}
+					finally
+					{
+						scanner.close();
+					}
+					if ( build )
+					{
+						flush();
+					}
+				}
+				finally
+				{
+					file.close();
+				}
+			}
+			catch ( IOException e )
+			{
+				error = e;
+			}
+		}
+
+		public boolean visit( int record, byte[] buffer, int base ) throws IOException
+		{
+			if ( chunkCount == 0 || record >= chunkFirst + CHUNK )
+			{
+				if ( build )
+				{
+					flush();
+					chunkCount = Math.min( CHUNK, last - record + 1 );
+				}
+				else
+				{
+					chunkCount = Math.min( CHUNK, last - record + 1 );
+					file.seek( HEADER_LENGTH + (long)( record - 1 ) * 4 );
+					file.readFully( chunk, 0, chunkCount * 4 );
+				}
+				chunkFirst = record;
+			}
+
+			int pos = ( record - chunkFirst ) * 4;
+			int sum = checksum( crc, buffer, base, recordLength );
+
+			if ( build )
+			{
+				Utils.writeLittleEndianInt( chunk, pos, sum );
+			}
+			else if ( sum != Utils.readLittleEndianInt( chunk, pos ) )
+			{
+				corrupted.add( record );
+			}
+			return true;
+		}
+
+		private void flush() throws IOException
+		{
+			if ( chunkCount > 0 )
+			{
+				file.seek( HEADER_LENGTH + (long)( chunkFirst - 1 ) * 4 );
+				file.write( chunk, 0, chunkCount * 4 );
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+
+/**
+* Mapeamento entre uma classe da aplicação e os registros de uma tabela.
+*
+* A implementação faz o papel de um acessor gerado: copia os atributos do objeto de/para
+* as colunas usando apenas o índice da coluna (posição em getColumnNames()), sem reflexão
+* e sem pesquisa de colunas pelo nome. Ver RecordBinding.
+*
+* <pre>
+*	public class RecebimentoMapper implements RecordMapper {
+*		public String[] getColumnNames() { return new String[] { "NR_CPF", "CD_CLIENTE" }; }
+*		public Object newRecord() { return new Recebimento(); }
+*		public void read( Object o, RecordBinding row ) throws FieldTypeException {
+*			Recebimento r = (Recebimento)o;
+*			r.cpf     = row.getString( 0 );
+*			r.cliente = row.getInteger( 1 );
+*		}
+*		public void write( Object o, RecordBinding row ) throws FieldTypeException {
+*			Recebimento r = (Recebimento)o;
+*			row.setString( 0, r.cpf );
+*			row.setInteger( 1, r.cliente );
+*		}
+*	}
+* </pre>
+*
+* @version 1.0
+*/
+public interface RecordMapper {
+
+	/**
+	 * Colunas mapeadas. O índice de cada coluna nesse array é o utilizado nos métodos
+	 * getXXX/setXXX de RecordBinding.
+	 */
+	String[] getColumnNames();
+
+	/**
+	 * Cria uma nova instância da classe mapeada
+	 */
+	Object newRecord();
+
+	/**
+	 * Copia as colunas do registro corrente para o objeto
+	 * @param record	Objeto a ser preenchido
+	 * @param row		Registro corrente
+	 */
+	void read( Object record, RecordBinding row ) throws FieldTypeException, IOException;
+
+	/**
+	 * Copia os atributos do objeto para as colunas do registro
+	 * @param record	Objeto com os dados
+	 * @param row		Registro a ser preenchido
+	 */
+	void write( Object record, RecordBinding row ) throws FieldTypeException, IOException;
+}
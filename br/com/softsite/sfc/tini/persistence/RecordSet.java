@@ -0,0 +1,200 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Conjunto de números de registro, guardado como um mapa de bits (um bit por registro).
+*
+* Usado nas operações em lote da tabela (Table.deleteRecords, Table.recallRecords): os
+* registros são percorridos sempre em ordem crescente, portanto na ordem do arquivo.
+*
+* <pre>
+*	RecordSet set = new RecordSet( dictionary.findAll( "C" ) );
+*	set.add( 1000, 1999 );
+*	table.deleteRecords( set );
+* </pre>
+*
+* @version 1.0
+*/
+public class RecordSet {
+
+	/** Bits dos registros (registro 1 no bit 0 da posição 0) */
+	private int[] words;
+
+	/** Quantidade de registros no conjunto */
+	private int size;
+
+	/**
+	 * Cria um conjunto vazio
+	 */
+	public RecordSet()
+	{
+		super();
+		this.words = new int[32];
+	}
+
+	/**
+	 * Cria um conjunto com os registros informados
+	 * @param records Números dos registros (em qualquer ordem)
+	 */
+	public RecordSet( int[] records )
+	{
+		this();
+		for ( int i = 0; i < records.length; i++ )
+		{
+			add( records[i] );
+		}
+	}
+
+	/**
+	 * Inclui um registro
+	 * @param record Número do registro (a partir de 1)
+	 */
+	public void add( int record )
+	{
+		int word = word( record );
+		ensureCapacity( word + 1 );
+
+		int bit = 1 << ( ( record - 1 ) & 31 );
+		if ( ( words[word] & bit ) == 0 )
+		{
+			words[word] |= bit;
+			size++;
+		}
+	}
+
+	/**
+	 * Inclui um intervalo de registros
+	 * @param first	Primeiro registro
+	 * @param last	Último registro (inclusive)
+	 */
+	public void add( int first, int last )
+	{
+		if ( first <= last )
+		{
+			ensureCapacity( word( last ) + 1 );
+		}
+		for ( int record = first; record <= last; record++ )
+		{
+			add( record );
+		}
+	}
+
+	/**
+	 * Retira um registro
+	 * @param record Número do registro
+	 */
+	public void remove( int record )
+	{
+		int word = word( record );
+		int bit  = 1 << ( ( record - 1 ) & 31 );
+
+		if ( word < words.length && ( words[word] & bit ) != 0 )
+		{
+			words[word] &= ~bit;
+			size--;
+		}
+	}
+
+	/**
+	 * Indica se o registro faz parte do conjunto
+	 */
+	public boolean contains( int record )
+	{
+		if ( record < 1 )
+		{
+			return false;
+		}
+		int word = ( record - 1 ) >> 5;
+		return word < words.length && ( words[word] & ( 1 << ( ( record - 1 ) & 31 ) ) ) != 0;
+	}
+
+	/**
+	 * Quantidade de registros no conjunto
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Próximo registro do conjunto
+	 * @param record Número do registro a partir do qual procurar (inclusive)
+	 * @return O menor registro do conjunto maior ou igual a record, ou 0 se não há
+	 */
+	public int nextRecord( int record )
+	{
+		if ( record < 1 )
+		{
+			record = 1;
+		}
+
+		int word = ( record - 1 ) >> 5;
+		if ( word >= words.length )
+		{
+			return 0;
+		}
+
+		// Descarta os bits anteriores ao registro na primeira palavra
+		int bits = words[word] & ( -1 << ( ( record - 1 ) & 31 ) );
+		while ( bits == 0 )
+		{
+			if ( ++word == words.length )
+			{
+				return 0;
+			}
+			bits = words[word];
+		}
+
+		int bit = 0;
+		while ( ( bits & ( 1 << bit ) ) == 0 )
+		{
+			bit++;
+		}
+		return ( word << 5 ) + bit + 1;
+	}
+
+	/**
+	 * Números dos registros do conjunto, em ordem crescente
+	 */
+	public int[] toArray()
+	{
+		int[] records = new int[size];
+		int count = 0;
+
+		for ( int record = nextRecord( 1 ); record != 0; record = nextRecord( record + 1 ) )
+		{
+			records[count++] = record;
+		}
+		return records;
+	}
+
+	private static int word( int record )
+	{
+		if ( record < 1 )
+		{
+			throw new IllegalArgumentException( "Registro inválido: " + record );
+		}
+		return ( record - 1 ) >> 5;
+	}
+
+	private void ensureCapacity( int length )
+	{
+		if ( length > words.length )
+		{
+			int[] newWords = new int[Math.max( length, words.length * 2 )];
+			System.arraycopy( words, 0, newWords, 0, words.length );
+			words = newWords;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+
+/**
+* Recebe os registros lidos por um TableScanner
+*
+* @version 1.0
+*/
+interface RecordVisitor {
+
+	/**
+	 * Processa um registro (inclusive os deletados - verificar buffer[base] == Table.DELETED)
+	 * @param record	Número do registro
+	 * @param buffer	Array que contém o registro. Só é válido durante a chamada.
+	 * @param base		Posição do início do registro (byte de deletado) dentro do array
+	 * @return FALSE para interromper a leitura
+	 */
+	boolean visit( int record, byte[] buffer, int base ) throws IOException;
+}
@@ -0,0 +1,125 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Cache de tamanho fixo de Strings decodificadas, para colunas com poucos valores distintos
+* (códigos de situação, flags, ...). Valores repetidos passam a compartilhar a mesma String
+* e a decodificação só acontece na primeira ocorrência.
+*
+* O cache é de mapeamento direto: cada valor tem uma única posição possível (definida pelo
+* hash dos bytes), e um novo valor simplesmente substitui o anterior naquela posição.
+* Bytes e String de uma posição são trocados juntos (um único objeto), portanto o cache pode
+* ser usado por várias threads sem bloqueios (ver MemoryCursor).
+*
+* @version 1.0
+*/
+class StringCache {
+
+	/** Valor de cada posição */
+	private final Entry[] entries;
+
+	/** Máscara para o cálculo da posição (tamanho - 1) */
+	private final int mask;
+
+	/**
+	 * Construtor
+	 * @param size Quantidade de posições (arredondada para a próxima potência de 2)
+	 */
+	StringCache( int size )
+	{
+		int capacity = 1;
+		while ( capacity < size )
+		{
+			capacity <<= 1;
+		}
+
+		entries = new Entry[capacity];
+		mask 	= capacity - 1;
+	}
+
+	/**
+	 * Quantidade de posições do cache
+	 */
+	int size()
+	{
+		return entries.length;
+	}
+
+	/**
+	 * Obtém a String de um trecho do registro (sem os espaços das extremidades)
+	 */
+	String get( byte[] data, int pos, int len, CodePage codePage )
+	{
+		int end = pos + len;
+
+		while ( pos < end && ( data[pos] & 0xff ) <= ' ' )
+		{
+			pos++;
+		}
+		while ( end > pos && ( data[end - 1] & 0xff ) <= ' ' )
+		{
+			end--;
+		}
+
+		len = end - pos;
+		if ( len == 0 )
+		{
+			return "";
+		}
+
+		int hash = 0;
+		for ( int i = pos; i < end; i++ )
+		{
+			hash = 31 * hash + data[i];
+		}
+
+		int slot = ( hash ^ ( hash >>> 16 ) ) & mask;
+		Entry entry = entries[slot];
+
+		if ( entry != null && entry.key.length == len && matches( entry.key, data, pos ) )
+		{
+			return entry.value;
+		}
+
+		byte[] key = new byte[len];
+		System.arraycopy( data, pos, key, 0, len );
+
+		entry = new Entry( key, codePage.decode( data, pos, len ) );
+		entries[slot] = entry;
+
+		return entry.value;
+	}
+
+	/**
+	 * Bytes (já sem espaços) e String de uma posição
+	 */
+	private static class Entry
+	{
+		final byte[] key;
+		final String value;
+
+		Entry( byte[] key, String value )
+		{
+			this.key   = key;
+			this.value = value;
+		}
+	}
+
+	private static boolean matches( byte[] key, byte[] data, int pos )
+	{
+		for ( int i = 0; i < key.length; i++ )
+		{
+			if ( key[i] != data[pos + i] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
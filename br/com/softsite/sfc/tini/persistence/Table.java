@@ -1,840 +1,1791 @@
-/*
-* Project: SoftSite Foundation Classes (SFC) - SFC Tini
-* Date   : 23/03/2004
-*
-* Copyright (c) 1996-2004 SoftSite Tecnologia
-* Todos os direitos reservados
-*/
-package br.com.softsite.sfc.tini.persistence;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.Hashtable;
-import java.util.Vector;
-
-
-
-/**
-* Table  a classe que gerencia persistncia obedecendo as limitaes do TINI
-*
-* Essa classe foi baseada na biblioteca pblica javadbf de autoria de anil@linuxense,
-* baseada na licena LGPL (http://www.gnu.org/copyleft/lesser.html)
-*
-* @author  regismelo@softsite.com.br
-* @version 1.0
-*/
-public class Table {
-
-	/** Nome da tabela referenciada */
-	public final String tableName;
-
-	/** Assinatura da tabela - verso a qual ela pertence (DBase III Plus, FoxBase, ...) */
-	private byte signature;
-
-	/** Asssinatura de uma tabela do DBase III Plus sem campos memo */
-	public static final byte SIGNATURE_DBASE_III_PLUS_NO_MEMO 			= 0x03;
-
-	/** Indica o fim do cabealho do DBF */
-	static final byte HEADER_RECORD_TERMINATOR 							= 0x0D;	 
-	
-	/** Indica o final do arquivo */
-	static final byte EOF												= 0x1D;  // 29
-	
-	/** Indica que o registro est deletado */
-	static final byte DELETED										    = '*';
-	
-	/** Posicao do cabecalho que contm a qtde de registros da tabela */
-	static final byte HEADER_NUMBER_OF_RECORDS						 	= 4;
-	
-	/** Indica que esse DBF no est associado a um database */
-	static final byte HEADER_NOT_ASSOCIATED_DATABASE					= 0x00; 
-
-	/** Ano da ltima modificao da tabela */
-	private byte year;
-
-	/** Ms da ltima modificao da tabela */
-	private byte month;
-
-	/** Dia da ltima modificao da tabela */
-	private byte day;
-
-	/** Nmero de registros na tabela */
-	private int numberOfRecords;
-
-	/** Registro atual */
-	private int recordNumber;
-
-	/** Tamanho do header */
-	public short headerLength;
-
-	/** Tamanho do registro */
-	public short recordLength;
-
-	/** Arquivo aberto? */
-	private boolean isOpen;
-
-	/** Stream que representa a tabela */
-	private RandomAccessFile fileStream;
-
-	/** Colunas */
-	private Field[] fields;
-
-	/** Guarda o contedo do registro atual */
-	private byte recordData[];
-	
-	/** Ler dados marcados como deletados? */
-	private boolean readDeletedData = false;
-
-
-	/**
-	 * Construtor
-	 *
-	 * @param tableName Nome da tabela a ser aberta
-	 * @throws TableNotFoundException Indica que a tabela no foi encontrada.
-	 */
-	public Table( String tableName ) throws FileNotFoundException, IOException, TableCorruptException
-	{
-		super();
-		this.tableName = tableName;
-
-		openTable();
-	}
-
-
-
-	/**
-	 * Abrir uma tabela e popular os dados relacionados ao cabealho
-	 */
-	private void openTable() throws FileNotFoundException, IOException, TableCorruptException
-	{
-		// Estrutura do cabealho da tabela
-		//
-		//
-		// Byte Offset			Description
-		// --------------------------------------------------------------------------------------------------
-		// 00 					Tipo do arquivo a ser aberto
-		//							0x02   FoxBASE
-		//							0x03   FoxBASE+/Dbase III plus, no memo
-		//							0x30   Visual FoxPro
-		//							0x31   Visual FoxPro, autoincrement enabled
-		//							0x43   dBASE IV SQL table files, no memo
-		//							0x63   dBASE IV SQL system files, no memo
-		//							0x83   FoxBASE+/dBASE III PLUS, with memo
-		//							0x8B   dBASE IV with memo
-		//							0xCB   dBASE IV SQL table files, with memo
-		//							0xF5   FoxPro 2.x (or earlier) with memo
-		//							0xFB   FoxBASE
-		//
-		//						Iremos utirlizar sempre 0x03 que  o formato mais limitado (DBase III plus)
-		//
-		// 1 - 3				ltimo atualizao do arquivo no formato YYMMDD
-		// 4 - 7 				Nmero de registros no arquivo
-		// 8 - 9				Tamanho do cabealho
-		// 10 - 11				Tamanho de um registro, incluindo o byte de deletado
-		// 12 - 27				Reservado
-		// 28					Table flags:
-		//							0x01   file has a structural .cdx
-		//							0x02   file has a Memo field
-		//							0x04   file is a database (.dbc)
-		//							This byte can contain the sum of any of the above values.
-		//							For example, the value 0x03 indicates the table has a structural .cdx
-		//							and a Memo field.
-		// 29					Code page mark
-		// 30-31				Reservado
-		// 32-n					Informaes dos registros
-		// n+1 					Header record terminator (0x0D)
-		// n+2 to n+264			A 263-byte range that contains the backlink, which is the relative path of an
-		//						associated database (.dbc) file, information. If the first byte is 0x00, the file
-		//						is not associated with a database. Therefore, database files always contain 0x00.
-		//						--> Esse dado  ignorado por essa classe.
-
-		fileStream	    		= new RandomAccessFile(new File(tableName), "rw");
-
-		signature 				= fileStream.readByte(); 					/* 0 */
-		year 					= fileStream.readByte();      				/* 1 */
-		month 					= fileStream.readByte();     				/* 2 */
-		day 					= fileStream.readByte();       				/* 3 */
-		numberOfRecords 		= Utils.readLittleEndianInt(fileStream);   	/* 4-7 */
-		headerLength 			= Utils.readLittleEndianShort(fileStream); 	/* 8-9 */
-		recordLength 			= Utils.readLittleEndianShort(fileStream); 	/* 10-11 */
-
-		//--- Desprezar dados no utilizados por essa classe ---
-
-		// Reservado 1
-		Utils.readLittleEndianShort(fileStream);      		/* 12-13 */
-
-		// Transao incompleta
-		fileStream.readByte();           					/* 14 */
-
-		// Dados encriptados
-		fileStream.readByte();                  			/* 15 */
-
-		// freeRecordThread???
-		Utils.readLittleEndianInt(fileStream); 				/* 16-19 */
-
-		// Reservado
-		fileStream.readInt();                          		/* 20-23 */
-
-		// Reservado
-		fileStream.readInt();                         		/* 24-27 */
-
-		// MDX, CDX Flag
-		fileStream.readByte();                         		/* 28 */
-
-		// Code Page
-		fileStream.readByte();                    			/* 29 */
-
-		// Reservado
-		Utils.readLittleEndianShort(fileStream);       		/* 30-31 */
-
-		// Ler dados da estrutura das colunas...
-		readRecordStructure();
-
-
-		isOpen 		 = true;
-		recordNumber = 0;
-
-	}
-
-	/**
-	 * Ler a estrutura das colunas
-	 */
-	private void readRecordStructure() throws IOException, TableCorruptException
-	{
-		Vector fieldsVector = new Vector();
-		Field field = Field.createField(fileStream);
-
-		while( field != null)
-		{
-			fieldsVector.addElement(field);
-			field = Field.createField(fileStream);
-		}
-
-		// Esse lao move os dados do vector para um array. Isso  feito pois operaes com o
-		// vector so mais lentas que operao com o array. (Considerao vlida pois o TINI possui
-		// limitaes de processamento)
-		fields = new Field[fieldsVector.size()];
-
-		for( int i = 0; i < fields.length; i++ )
-		{
-			fields[i] = (Field)fieldsVector.elementAt(i);
-		}
-
-		fieldsVector = null;
-
-		// Rotina para pular o resto do cabealho (n+2 to n+264)
-		int dataStartIndex = this.headerLength - ( 32 + (32* fields.length )) - 1;
-		if( dataStartIndex > 0) {
-
-			fileStream.skipBytes( dataStartIndex);
-		}
-	}
-
-
-	/**
-	 * Exibir dados do objeto como uma String
-	 */
-	public String toString()
-	{
-
-		StringBuffer sb = new StringBuffer(  year + "/" + month + "/" + day + "\n"
-		+ "Total records: " + numberOfRecords +
-		"\nHeader length: " + headerLength +
-		"\n");
-
-		for( int i=0; i<fields.length; i++) {
-			sb.append( fields[i].fieldName );
-			sb.append( "\n");
-		}
-
-		return sb.toString();
-	}
-
-	/**
-	 * Fechar a tabela
-	 * @throws IOException
-	 */
-	public void close() throws IOException
-	{
-		if ( isOpen  )
-		{
-			fileStream.close();
-			this.isOpen = false;
-		}
-	}
-
-	/**
-	 * Avana o ponteiro para o prximo registro
-	 * @return O nmero do prximo registro
-	 * @throws IOException
-	 */
-	public boolean nextRecord() throws IOException 
-	{
-		if ( this.recordNumber == this.numberOfRecords )
-		{
-			return false;
-		}
-		
-		recordNumber++;
-		this.readRecordData();
-
-		return true;
-		
-	}
-	
-	/**
-	 * Retrocede o ponteiro para o prximo registro
-	 * @return O nmero do prximo registro
-	 * @throws IOException
-	 */
-	public boolean priorRecord() throws IOException
-	{
-		if ( this.recordNumber == 1 )
-		{
-			return false;
-		}
-		
-		this.skip(-1);
-
-		return true;
-
-	}
-	
-	/**
-	 * Atribui o valor da coluna String passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public void setFieldString( String columnName, String valor ) throws FieldNotFoundException, FieldTypeException, IOException
-	{
-		int i = locatePointer( columnName, Field.TYPE_CHARACTER );
-		fileStream.write(this.fields[i].formatData(valor));
-		
-		// Reposicionar ponteiro...
-		goTo(recordNumber);
-			
-		return;
-	}
-
-	/**
-	 * Atribui o valor da coluna int passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public void setFieldInteger( String columnName, int valor ) throws FieldNotFoundException, FieldTypeException, IOException
-	{
-		int i = locatePointer( columnName, Field.TYPE_NUMERIC );
-		fileStream.write(this.fields[i].formatData(new Integer(valor)));
-		
-		// Reposicionar ponteiro...
-		goTo(recordNumber);
-			
-		return;
-	}
-
-	/**
-	 * Atribui o valor da coluna double passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public void setFieldDouble( String columnName, double valor ) throws FieldNotFoundException, FieldTypeException, IOException
-	{
-		int i = locatePointer( columnName, Field.TYPE_FLOAT );
-		fileStream.write(this.fields[i].formatData(new Double(valor)));
-		
-		// Reposicionar ponteiro...
-		goTo(recordNumber);
-			
-		return;
-	}
-
-	/**
-	 * Atribui o valor da coluna Date passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public void setFieldDate( String columnName, Date valor ) throws FieldNotFoundException, FieldTypeException, IOException
-	{
-		int i = locatePointer( columnName, Field.TYPE_DATE );
-		fileStream.write(this.fields[i].formatData(valor));
-		
-		// Reposicionar ponteiro...
-		goTo(recordNumber);
-			
-		return;
-	}
-
-	/**
-	 * Retorna o valor da coluna String passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public int getFieldInteger( String columnName ) throws FieldNotFoundException, FieldTypeException
-	{
-		int skipBytes = 0;
-		int i;
-		for ( i = 0; ( i < this.fields.length ) && ( ! ( this.fields[i].fieldName.equalsIgnoreCase(columnName) ) ); i++ )
-		{
-			skipBytes += this.fields[i].fieldLength;
-		}
-
-		// Se o dado no foi encontrado...
-		if ( i == this.fields.length )
-		{
-			throw new FieldNotFoundException();
-		}
-
-		// Se o dado no  do mesmo tipo...
-		if ( this.fields[i].dataType != Field.TYPE_NUMERIC )
-		{
-			throw new FieldTypeException();
-		}
-
-		String number = new String(recordData, skipBytes, this.fields[i].fieldLength).trim();
-		return Integer.parseInt( number );
-	}
-	
-	/**
-	 * Retorna o valor da coluna String passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public String getFieldString( String columnName ) throws FieldNotFoundException, FieldTypeException
-	{
-		int skipBytes = 0;
-		int i;
-		for ( i = 0; ( i < this.fields.length ) && ( ! ( this.fields[i].fieldName.equalsIgnoreCase(columnName) ) ); i++ )
-		{
-			skipBytes += this.fields[i].fieldLength;
-		}
-
-		// Se o dado no foi encontrado...
-		if ( i == this.fields.length )
-		{
-			throw new FieldNotFoundException();
-		}
-
-		// Se o dado no  do mesmo tipo...
-		if ( this.fields[i].dataType != Field.TYPE_CHARACTER )
-		{
-			throw new FieldTypeException();
-		}
-
-		String retorno = new String(recordData, skipBytes, this.fields[i].fieldLength).trim();
-		return retorno;
-	}	
-
-	/**
-	 * Retorna o valor da coluna Double passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public double getFieldDouble( String columnName ) throws FieldNotFoundException, FieldTypeException
-	{
-		int skipBytes = 0;
-		int i;
-		for ( i = 0; ( i < this.fields.length ) && ( ! ( this.fields[i].fieldName.equalsIgnoreCase(columnName) ) ); i++ )
-		{
-			skipBytes += this.fields[i].fieldLength;
-		}
-
-		// Se o dado no foi encontrado...
-		if ( i == this.fields.length )
-		{
-			throw new FieldNotFoundException();
-		}
-
-		// Se o dado no  do mesmo tipo...
-		if ( this.fields[i].dataType != Field.TYPE_NUMERIC )
-		{
-			throw new FieldTypeException();
-		}
-
-		String s = new String(recordData, skipBytes, this.fields[i].fieldLength).trim();
-		
-		// Testar o caso em que o campo no est preenchido - uma espcie de NULL do DBF
-		if ( s.length() == 0 )
-		{
-			return 0;
-		}
-		return Double.valueOf( s  ).doubleValue();
-	}
-
-	/**
-	 * Retorna o valor da coluna Date passada como parmetro do registro corrente.
-	 * @param columnName Nome da coluna que se quer obter o contedo
-	 * @return Valor da coluna
-	 * @throws FieldNotFoundException
-	 */
-	public Date getFieldDate( String columnName ) throws FieldNotFoundException, FieldTypeException
-	{
-		int skipBytes = 0;
-		int i;
-		for ( i = 0; ( i < this.fields.length ) && ( ! ( this.fields[i].fieldName.equalsIgnoreCase(columnName) ) ); i++ )
-		{
-			skipBytes += this.fields[i].fieldLength;
-		}
-
-		// Se o dado no foi encontrado...
-		if ( i == this.fields.length )
-		{
-			throw new FieldNotFoundException();
-		}
-
-		// Se o dado no  do mesmo tipo...
-		if ( this.fields[i].dataType != Field.TYPE_DATE )
-		{
-			throw new FieldTypeException();
-		}
-
-		byte year[]  = new byte[4];
-		byte month[] = new byte[2];
-		byte day[]	 = new byte[2];
-
-		// Mover dados para as variveis year, month e day.
-		// Poderamos usar os mtodos da biblioteca com.dalsemi.system.ArrayUtils,
-		// mas tornaramos o cdigo dependente do TINI (no seria possvei testar no desktop)
-		// TODO: Se esse ponto for um gargalo, ele poder ser otimizado utilizano os mtodos nativos dessa biblioteca
-		year[0]  = recordData[skipBytes + 0 ];
-		year[1]  = recordData[skipBytes + 1 ];
-		year[2]  = recordData[skipBytes + 2 ];
-		year[3]  = recordData[skipBytes + 3 ];
-
-		month[0] = recordData[skipBytes + 4 ];
-		month[1] = recordData[skipBytes + 5 ];
-
-		day[0]   = recordData[skipBytes + 6 ];
-		day[1]   = recordData[skipBytes + 7 ];
-
-		GregorianCalendar calendar = new GregorianCalendar(
-										Integer.parseInt( new String( year)),
-										Integer.parseInt( new String( month)) - 1,
-										Integer.parseInt( new String( day))
-									);
-
-		return calendar.getTime();
-	}
-	
-
-	/**
-	 * Posiciona o ponteiro no primeiro registro
-	 * @throws IOException 
-	 */
-	public void goTop() throws IOException
-	{
-		if ( isOpen )
-		{
-			fileStream.seek(headerLength);
-			this.recordNumber = 1;
-			this.readRecordData();			
-		}
-						
-	}
-	
-	/**
-	 * Posiciona no ltimo registro
-	 * @throws IOException
-	 */
-	public void goBottom() throws IOException
-	{		
-		skip( this.numberOfRecords - this.recordNumber );		
-	}
-
-	
-	/**
-	 * Pula <n> registros. O valor de skip pode ser negativo.
-	 * @param records
-	 * @throws IOException
-	 */
-	public void skip( int records ) throws IOException
-	{
-		int newRecordPos = recordNumber + records;
-		
-		if ( newRecordPos < 0 )
-		{
-			newRecordPos = 0;
-		}
-		else if ( newRecordPos > numberOfRecords )
-		{
-			newRecordPos = numberOfRecords - 1;
-		}
-		
-		fileStream.seek( headerLength + ( (newRecordPos-1) * recordLength));
-		this.recordNumber = newRecordPos;
-		this.readRecordData();		
-	}
-	
-	/**
-	 * Posiciona em um determinado registro
-	 * @param record Nmero do registro a posicionar. 
-	 * 				 Se for maior que a qtde de registros do arquivo, ponteiro  posicionado no ltimo registro.
-	 * 				 Se for menor, ponteiro  posicionado no primeiro registro. 
-	 * @throws IOException
-	 */
-	public void goTo( int record ) throws IOException
-	{
-		if ( record > numberOfRecords )
-		{ 
-			record = recordNumber;
-		}
-		else if ( record < 0 )
-		{
-			record = 1;
-		}
-		
-		fileStream.seek( headerLength + ( (record-1) * recordLength));
-		this.recordNumber = record;
-		this.readRecordData();		
-	}
-
-	/**
-	 * Ler o registro
-	 * @throws IOException
-	 */
-	private void readRecordData() throws IOException
-	{
-		
-		// Pular os registros deletados...
-		int deleted;
-
-		// Loop para posicionar no primeiro registro no deletado...
-		boolean isDeleted = false;
-		do
-		{
-			if(isDeleted)
-			{
-				fileStream.skipBytes( this.recordLength-1);
-				recordNumber++;
-			}
-
-			deleted = fileStream.readByte();
-			
-			// Chegou no final do arquivo?
-			if( deleted == EOF )
-			{
-				return;
-			}
-			
-			if ( readDeletedData )
-			{
-				break;
-			}
-
-			isDeleted = (  deleted == '*' );
-		} while( isDeleted);
-		
-		// Ler array do tamanho do registro...
-		this.recordData = new byte[this.recordLength-1];
-		fileStream.read( this.recordData );		
-	}	
-	
-	/**
-	 * Obtm o nmero de registros dessa tabela
-	 * @return Nmero de registros dessa tabela
-	 */
-	public int getNumberOfRecords() {
-		return numberOfRecords;
-	}
-
-	/**
-	 * Obtm o nmero do registro atual 
-	 * @return Nmero do registro atual
-	 */
-	public int getRecordNumber() {
-		return recordNumber;
-	}
-
-	/**
-	 * Indica se a classe ir ler dados marcados como deletados
-	 * @return
-	 */
-	public boolean isReadDeletedData() {
-		return readDeletedData;
-	}
-
-	/**
-	 * Indica se a classe ir ler dados marcados como deletados
-	 * @param b TRUE indica que a classe ir considerar registros deletados
-	 */
-	public void setReadDeletedData(boolean b) {
-		readDeletedData = b;
-	}
-
-	/**
-	 * Adicionar um registro a tabela
-	 * TODO: Refatorar para usar fileStream
-	 * @param data Hashtable contendo o para <nome da coluna> / <valor>. Nome das colunas  sensitive case!
-	 * @throws IOException
-	 */
-	public void addRecord( Hashtable data ) throws IOException
-	{		
-		Field field; 
-		byte dataRecord[] = new byte[this.recordLength];
-		byte dataColumn[];
-		int  pos = 1; 
-		
-		dataRecord[0] = 32; // Indicar que o registro no est deletado...
-				
-		// Loop nos fields...
-		for( int i = 0, len = fields.length; i < len; i++)
-		{
-			field = fields[i];
-			
-			dataColumn = field.formatData(data.get(field.fieldName));
-			
-			for ( int j = 0; j < dataColumn.length; j++ )
-			{
-				dataRecord[pos++] = (byte)dataColumn[j];
-			}			
-			
-			//System.out.println( field.fieldName + " ==> [" + dataColumn.length + "]" + new String(dataColumn) );
-		}
-		
-		
-		if ( numberOfRecords == 0 )
-		{
-			fileStream.seek((int)fileStream.length()-2);
-			fileStream.write(HEADER_NOT_ASSOCIATED_DATABASE);			
-		}
-		else
-		{
-			fileStream.seek((int)fileStream.length()-1);
-		}
-		
-		fileStream.write(dataRecord);
-		fileStream.write( EOF );
-						
-		numberOfRecords++;
-		
-		this.changeHeaderNumberOfRecords();
-		this.goBottom();
-			
-	}
-	
-	/**
-	 * Marcar um registro como deletado
-	 * @param record Nmero do registro a deletar
-	 * @throws IOException
-	 */
-	public void deleteRecord(int record) throws IOException
-	{
-		// Posicionar o ponteiro do arquivo na posio correta...
-		// Cabecalho + ( posicao do registro anterior * tamanho do registro )
-		long pos = headerLength + ( ( record - 1 ) * recordLength );
-		fileStream.seek(pos);
-		recordNumber = record;	
-		fileStream.write( Table.DELETED );		
-	}
-
-	
-	private int locatePointer(String columnName,  char dataType ) throws FieldNotFoundException, FieldTypeException, IOException
-	{
-		int skipBytes = 0;
-		int i;
-		for ( i = 0; ( i < this.fields.length ) && ( ! ( this.fields[i].fieldName.equalsIgnoreCase(columnName) ) ); i++ )
-		{
-			skipBytes += this.fields[i].fieldLength;
-		}
-
-		// Se o dado no foi encontrado...
-		if ( i == this.fields.length )
-		{
-			throw new FieldNotFoundException();
-		}
-
-		// Se o dado no  do mesmo tipo...
-		if ( this.fields[i].dataType != dataType )
-		{
-			// Cuidado! Verificar o caso do tipo Float/Numrico - No DBF para Dbase III no existe
-			// um campo do Tipo Double - Campos de valores so sempre retornados como numeric
-			if ( ! ( this.fields[i].dataType == Field.TYPE_NUMERIC && dataType == Field.TYPE_FLOAT ) )
-			{
-				throw new FieldTypeException();
-			}
-		}
-		
-		// Posicionar o ponteiro do arquivo na posio correta...
-		// Cabecalho + ( posicao do registro anterior * tamanho do registro ) + bytes a pular da coluna + byte deletado
-		long pos = headerLength + ( ( recordNumber - 1 ) * recordLength ) + skipBytes + 1;
-		fileStream.seek(pos);
-		
-		return i;
-	}
-	
-	/**
-	 * Atualiza a informao no cabealho do nmero de registros contido na tabela
-	 * 
-	 * @throws IOException
-	 */
-	private void changeHeaderNumberOfRecords() throws IOException
-	{
-		// Posiciona na entrada do cabealho que contm o nmero de registros...
-		this.fileStream.seek( HEADER_NUMBER_OF_RECORDS );
-		
-		// Transforma o nmero de registros em um little endian...
-		//int i = Utils.littleEndian( numberOfRecords );
-		//fileStream.write(i);
-		
-		byte b = (byte)( numberOfRecords & 0xFF );
-		fileStream.write(b);
-		
-		b = (byte)( numberOfRecords & 0xFF00 );
-		fileStream.write(b);
-		
-		b = (byte)( numberOfRecords & 0xFF0000 );
-		fileStream.write(b);
-		
-		b = (byte)( numberOfRecords & 0xFF000000 );
-		fileStream.write(b);
-	}
-
-/*	public static void main(String[] args) throws FileNotFoundException, IOException, TableCorruptException, FieldNotFoundException, FieldTypeException {
-		Hashtable recebimento = new Hashtable();
-		Table recebimentoTable;
-		recebimentoTable = new Table("C:/dCLIP41/RECEB2.DBF");
-		recebimento.put("DS_CMC7", "123456789123456789");
-		recebimento.put("NR_CPF", "54214459334");
-		recebimento.put("DT_VENC", new Date("2004/05/20"));
-
-		recebimento.put("CD_RECEB", "2");
-		recebimento.put("CD_CLIENTE", new Integer(15));
-		recebimento.put("VR_RECEB", "5000");
-		recebimento.put("ID_TRANSM", "0");
-		recebimentoTable.addRecord(recebimento);
-		recebimentoTable.close();		
-
-		recebimentoTable = new Table("C:/dCLIP41/RECEB2.DBF");
-		recebimentoTable.goTop();	
-		double valorDinheiro = 0, valorCheque = 0;
-		String cheques = "";
-		do {
-			if (recebimentoTable.getFieldInteger("CD_CLIENTE") == 1){
-				if (recebimentoTable.getFieldString("NR_CPF").equals("")){
-					valorDinheiro = valorDinheiro + recebimentoTable.getFieldDouble("VR_RECEB"); 
-				} else{
-					valorCheque = valorCheque + recebimentoTable.getFieldDouble("VR_RECEB");
-					cheques = cheques + recebimentoTable.getFieldString("NR_CPF") + '\t' +
-										recebimentoTable.getFieldDate("DT_VENC") + '\t' +
-										recebimentoTable.getFieldDouble("VR_RECEB") + '\t';  
-				}
-			}
-		} while (recebimentoTable.nextRecord());
-		recebimentoTable.close();
-		System.out.println("ValorDinheiro:" + valorDinheiro);
-		System.out.println("ValorCheque:" + valorCheque);
-		System.out.println("cheques:" + cheques);									
-		
-	}*/
-			
-}
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 23/03/2004
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Vector;
+
+
+
+/**
+* Table é a classe que gerencia persistência obedecendo as limitações do TINI
+*
+* Essa classe foi baseada na biblioteca pública javadbf de autoria de anil@linuxense,
+* baseada na licença LGPL (http://www.gnu.org/copyleft/lesser.html)
+*
+* @author  regismelo@softsite.com.br
+* @version 1.0
+*/
+public class Table {
+
+	/** Nome da tabela referenciada */
+	public final String tableName;
+
+	/** Assinatura da tabela - versão a qual ela pertence (DBase III Plus, FoxBase, ...) */
+	private byte signature;
+
+	/** Asssinatura de uma tabela do DBase III Plus sem campos memo */
+	public static final byte SIGNATURE_DBASE_III_PLUS_NO_MEMO 			= 0x03;
+
+	/** Asssinatura de uma tabela do DBase III Plus com campos memo */
+	public static final byte SIGNATURE_DBASE_III_PLUS_MEMO 				= (byte)0x83;
+
+	/** Indica o fim do cabeçalho do DBF */
+	static final byte HEADER_RECORD_TERMINATOR 							= 0x0D;	 
+	
+	/** Indica o final do arquivo */
+	static final byte EOF												= 0x1D;  // 29
+	
+	/** Indica que o registro está deletado */
+	static final byte DELETED										    = '*';
+
+	/** Indica que o registro não está deletado */
+	static final byte NOT_DELETED									    = ' ';
+	
+	/** Posicao do cabecalho que contém a qtde de registros da tabela */
+	static final byte HEADER_NUMBER_OF_RECORDS						 	= 4;
+	
+	/** Indica que esse DBF não está associado a um database */
+	static final byte HEADER_NOT_ASSOCIATED_DATABASE					= 0x00; 
+
+	/** Quantidade de bytes lidos na abertura, suficiente para o cabeçalho da maioria das tabelas */
+	private static final int HEADER_READ_SIZE							= 4096;
+
+	/** Tamanho máximo do trecho lido e regravado de uma vez nas operações em lote */
+	private static final int BULK_BLOCK_SIZE							= 64 * 1024;
+
+	/** Arquivos abertos nessa VM por Table e TableHandle (caminho -> int[] { quantidade }) */
+	private static final Hashtable openFiles = new Hashtable();
+
+	/** Ano da última modificação da tabela */
+	private byte year;
+
+	/** Mês da última modificação da tabela */
+	private byte month;
+
+	/** Dia da última modificação da tabela */
+	private byte day;
+
+	/** Página de código dos dados (byte 29 do cabeçalho) */
+	private CodePage codePage;
+
+	/** Byte 29 do cabeçalho (Language Driver ID), como gravado no arquivo */
+	byte codePageMark;
+
+	/** Número de registros na tabela */
+	private int numberOfRecords;
+
+	/** Registro atual */
+	private int recordNumber;
+
+	/** Tamanho do header */
+	public short headerLength;
+
+	/** Tamanho do registro */
+	public short recordLength;
+
+	/** Arquivo aberto? */
+	private boolean isOpen;
+
+	/** Stream que representa a tabela */
+	private RandomAccessFile fileStream;
+
+	/** Colunas */
+	private Field[] fields;
+
+	/** Guarda o conteúdo do registro atual */
+	private byte recordData[];
+	
+	/** Ler dados marcados como deletados? */
+	private boolean readDeletedData = false;
+
+	/** Arquivo de memos (.DBT). Só é aberto no primeiro acesso a uma coluna memo */
+	private MemoFile memoFile;
+
+	/** Leitura antecipada para varreduras sequenciais (null = desativada) */
+	private ReadAhead readAhead;
+
+	/** Objetos notificados das alterações na tabela (TableListener) */
+	private Vector listeners = new Vector();
+
+	/** Snapshots abertos (TableSnapshot) */
+	private Vector snapshots = new Vector();
+
+	/** Cache dos resultados das consultas (criado no primeiro uso) */
+	private QueryCache queryCache;
+
+	/** Contador de alterações feitas por esse objeto */
+	private long version;
+
+	/** Cópias em memória que acompanham o tamanho e a data do arquivo (MemoryTable) */
+	private int fileStateUsers;
+
+	/** Tamanho e data do arquivo antes da última gravação (só com fileStateUsers > 0) */
+	private long lengthBeforeWrite;
+	private long modifiedBeforeWrite;
+
+	/** Arquivo pré-alocado por esse objeto (TableBuilder.setExpectedRecords), ver trimPreallocated */
+	boolean preallocated;
+
+
+	/**
+	 * Construtor
+	 *
+	 * @param tableName Nome da tabela a ser aberta
+	 * @throws TableNotFoundException Indica que a tabela não foi encontrada.
+	 */
+	public Table( String tableName ) throws FileNotFoundException, IOException, TableCorruptException
+	{
+		super();
+		this.tableName = tableName;
+
+		openTable();
+	}
+
+
+
+	/**
+	 * Abrir uma tabela e popular os dados relacionados ao cabeçalho
+	 */
+	private void openTable() throws FileNotFoundException, IOException, TableCorruptException
+	{
+		// Estrutura do cabeçalho da tabela
+		//
+		//
+		// Byte Offset			Description
+		// --------------------------------------------------------------------------------------------------
+		// 00 					Tipo do arquivo a ser aberto
+		//							0x02   FoxBASE
+		//							0x03   FoxBASE+/Dbase III plus, no memo
+		//							0x30   Visual FoxPro
+		//							0x31   Visual FoxPro, autoincrement enabled
+		//							0x43   dBASE IV SQL table files, no memo
+		//							0x63   dBASE IV SQL system files, no memo
+		//							0x83   FoxBASE+/dBASE III PLUS, with memo
+		//							0x8B   dBASE IV with memo
+		//							0xCB   dBASE IV SQL table files, with memo
+		//							0xF5   FoxPro 2.x (or earlier) with memo
+		//							0xFB   FoxBASE
+		//
+		//						Iremos utirlizar sempre 0x03 que é o formato mais limitado (DBase III plus)
+		//
+		// 1 - 3				Último atualização do arquivo no formato YYMMDD
+		// 4 - 7 				Número de registros no arquivo
+		// 8 - 9				Tamanho do cabeçalho
+		// 10 - 11				Tamanho de um registro, incluindo o byte de deletado
+		// 12 - 27				Reservado
+		// 28					Table flags:
+		//							0x01   file has a structural .cdx
+		//							0x02   file has a Memo field
+		//							0x04   file is a database (.dbc)
+		//							This byte can contain the sum of any of the above values.
+		//							For example, the value 0x03 indicates the table has a structural .cdx
+		//							and a Memo field.
+		// 29					Code page mark
+		// 30-31				Reservado
+		// 32-n					Informações dos registros
+		// n+1 					Header record terminator (0x0D)
+		// n+2 to n+264			A 263-byte range that contains the backlink, which is the relative path of an
+		//						associated database (.dbc) file, information. If the first byte is 0x00, the file
+		//						is not associated with a database. Therefore, database files always contain 0x00.
+		//						--> Esse dado é ignorado por essa classe.
+
+		fileStream	    		= new RandomAccessFile(new File(tableName), "rw");
+
+		try
+		{
+			readHeader();
+		}
+		catch ( IOException e )
+		{
+			fileStream.close();
+			throw e;
+		}
+		catch ( TableCorruptException e )
+		{
+			fileStream.close();
+			throw e;
+		}
+
+		isOpen 		 = true;
+		recordNumber = 0;
+		registerOpen( tableName, 1 );
+
+	}
+
+	/**
+	 * Lê o cabeçalho de uma só vez e confere a estrutura com o tamanho do arquivo
+	 */
+	private void readHeader() throws IOException, TableCorruptException
+	{
+		long length = fileStream.length();
+		if ( length < 32 )
+		{
+			throw new TableCorruptException( tableName + ": arquivo menor que o cabeçalho" );
+		}
+
+		// Normalmente o cabeçalho inteiro cabe na primeira leitura
+		byte[] header = new byte[(int)Math.min( length, HEADER_READ_SIZE )];
+		fileStream.readFully( header );
+
+		signature 				= header[0];										/* 0 */
+		year 					= header[1];      									/* 1 */
+		month 					= header[2];     									/* 2 */
+		day 					= header[3];       									/* 3 */
+		long records 			= Utils.readLittleEndianUnsignedInt( header, 4 );	/* 4-7 */
+		headerLength 			= Utils.readLittleEndianShort( header, 8 ); 		/* 8-9 */
+		recordLength 			= Utils.readLittleEndianShort( header, 10 ); 		/* 10-11 */
+
+		//--- Bytes 12-28 não são utilizados por essa classe ---
+
+		// Code Page
+		codePageMark = header[29];											/* 29 */
+		codePage 	 = CodePage.forMark( codePageMark );
+
+		if ( headerLength < 33 || headerLength > length )
+		{
+			throw new TableCorruptException( tableName + ": tamanho do cabeçalho inválido (" + headerLength + ")" );
+		}
+
+		if ( headerLength > header.length )
+		{
+			byte[] full = new byte[headerLength];
+			System.arraycopy( header, 0, full, 0, header.length );
+			fileStream.readFully( full, header.length, headerLength - header.length );
+			header = full;
+		}
+
+		// Ler dados da estrutura das colunas...
+		readRecordStructure( header );
+
+		// O tamanho do registro precisa corresponder às colunas e o arquivo precisa conter
+		// todos os registros informados no cabeçalho
+		int expected = 1;
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			expected += fields[i].fieldLength;
+		}
+		if ( recordLength != expected )
+		{
+			throw new TableCorruptException( tableName + ": tamanho do registro (" + recordLength +
+											 ") não corresponde às colunas (" + expected + ")" );
+		}
+
+		// A quantidade de registros é um inteiro de 32 bits sem sinal
+		if ( records > Integer.MAX_VALUE || headerLength + records * recordLength > length )
+		{
+			throw new TableCorruptException( tableName + ": o arquivo não contém os " + records +
+											 " registros informados no cabeçalho" );
+		}
+		numberOfRecords = (int)records;
+
+		fileStream.seek( headerLength );
+	}
+
+	/**
+	 * Ler a estrutura das colunas
+	 * @param header Cabeçalho da tabela
+	 */
+	private void readRecordStructure( byte[] header ) throws TableCorruptException
+	{
+		Vector fieldsVector = new Vector();
+
+		// Os descritores (32 bytes cada) vão até o terminador ou até o final do cabeçalho
+		for ( int pos = 32; pos < headerLength && header[pos] != HEADER_RECORD_TERMINATOR; pos += 32 )
+		{
+			if ( pos + 32 > headerLength )
+			{
+				throw new TableCorruptException( tableName + ": descritor de coluna incompleto" );
+			}
+			fieldsVector.addElement( Field.createField( header, pos, codePage ) );
+		}
+
+		if ( fieldsVector.size() == 0 )
+		{
+			throw new TableCorruptException( tableName + ": tabela sem colunas" );
+		}
+
+		// Esse laço move os dados do vector para um array. Isso é feito pois operações com o
+		// vector são mais lentas que operação com o array. (Consideração válida pois o TINI possui
+		// limitações de processamento)
+		fields = new Field[fieldsVector.size()];
+
+		for( int i = 0; i < fields.length; i++ )
+		{
+			fields[i] = (Field)fieldsVector.elementAt(i);
+		}
+
+		fieldsVector = null;
+
+		// Calcular o deslocamento de cada coluna no registro. Não confiamos no valor
+		// gravado no descritor (bytes 12-15), pois vários geradores de DBF o deixam zerado.
+		int offset = 1;
+		for( int i = 0; i < fields.length; i++ )
+		{
+			fields[i].offset = offset;
+			fields[i].codePage = codePage;
+			offset += fields[i].fieldLength;
+		}
+	}
+
+
+	/**
+	 * Exibir dados do objeto como uma String
+	 */
+	public String toString()
+	{
+
+		StringBuffer sb = new StringBuffer(  year + "/" + month + "/" + day + "\n"
+		+ "Total records: " + numberOfRecords +
+		"\nHeader length: " + headerLength +
+		"\n");
+
+		for( int i=0; i<fields.length; i++) {
+			sb.append( fields[i].fieldName );
+			sb.append( "\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Fechar a tabela
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		if ( isOpen  )
+		{
+			// Antes dos listeners: os arquivos gravados no fechamento (índices, zone maps)
+			// guardam o tamanho e a data do arquivo já sem o espaço pré-alocado
+			IOException trimError = null;
+			if ( preallocated )
+			{
+				try
+				{
+					trimPreallocated();
+				}
+				catch ( IOException e )
+				{
+					trimError = e;
+				}
+			}
+
+			for ( int i = listeners.size() - 1; i >= 0; i-- )
+			{
+				((TableListener)listeners.elementAt(i)).tableClosed( this );
+			}
+
+			while ( snapshots.size() > 0 )
+			{
+				((TableSnapshot)snapshots.lastElement()).close();
+			}
+
+			if ( memoFile != null )
+			{
+				memoFile.close();
+				memoFile = null;
+			}
+			if ( readAhead != null )
+			{
+				readAhead.close();
+				readAhead = null;
+			}
+			// O cache já foi fechado pelo tableClosed
+			queryCache = null;
+			fileStream.close();
+			this.isOpen = false;
+			registerOpen( tableName, -1 );
+
+			if ( trimError != null )
+			{
+				throw trimError;
+			}
+		}
+	}
+
+	/**
+	 * Conta a abertura (delta = 1) ou o fechamento (delta = -1) de um arquivo (ver isTableOpen)
+	 */
+	static void registerOpen( String tableName, int delta )
+	{
+		String path = openFilePath( tableName );
+		synchronized ( openFiles )
+		{
+			int[] count = (int[])openFiles.get( path );
+			if ( count == null )
+			{
+				count = new int[1];
+				openFiles.put( path, count );
+			}
+			count[0] += delta;
+			if ( count[0] <= 0 )
+			{
+				openFiles.remove( path );
+			}
+		}
+	}
+
+	/**
+	 * Indica se a tabela está aberta por uma Table ou um TableHandle dessa VM. Aberturas por
+	 * outros processos não são detectadas.
+	 * @param tableName Nome (caminho) da tabela
+	 */
+	public static boolean isTableOpen( String tableName )
+	{
+		return openFiles.containsKey( openFilePath( tableName ) );
+	}
+
+	/**
+	 * Caminho usado como chave de openFiles: o mesmo arquivo pode ser aberto por nomes diferentes
+	 */
+	private static String openFilePath( String tableName )
+	{
+		File file = new File( tableName );
+		try
+		{
+			return file.getCanonicalPath();
+		}
+		catch ( IOException e )
+		{
+			return file.getAbsolutePath();
+		}
+	}
+
+	/**
+	 * Retira do final do arquivo o espaço pré-alocado (TableBuilder.setExpectedRecords) que não
+	 * foi usado. Só é chamado pelo objeto que pré-alocou o arquivo: nas demais aberturas o
+	 * arquivo não é alterado no fechamento. A quantidade de registros é relida do cabeçalho,
+	 * pois outros processos podem ter incluído registros, e o arquivo só é cortado se o byte
+	 * seguinte à marca de fim de arquivo for zero (área nunca gravada: um registro incluído
+	 * depois da marca teria ali a sua primeira coluna).
+	 * @throws IOException
+	 */
+	private void trimPreallocated() throws IOException
+	{
+		byte[] count = new byte[4];
+		fileStream.seek( HEADER_NUMBER_OF_RECORDS );
+		fileStream.readFully( count );
+
+		long end = headerLength + Utils.readLittleEndianUnsignedInt( count, 0 ) * recordLength + 1;
+		if ( fileStream.length() > end )
+		{
+			fileStream.seek( end );
+			if ( fileStream.read() == 0 )
+			{
+				fileStream.setLength( end );
+			}
+		}
+	}
+
+	/**
+	 * Avança o ponteiro para o próximo registro
+	 * @return O número do próximo registro
+	 * @throws IOException
+	 */
+	public boolean nextRecord() throws IOException 
+	{
+		if ( this.recordNumber == this.numberOfRecords )
+		{
+			return false;
+		}
+		
+		recordNumber++;
+		this.readRecordData();
+
+		return true;
+		
+	}
+	
+	/**
+	 * Retrocede o ponteiro para o próximo registro
+	 * @return O número do próximo registro
+	 * @throws IOException
+	 */
+	public boolean priorRecord() throws IOException
+	{
+		if ( this.recordNumber == 1 )
+		{
+			return false;
+		}
+		
+		this.skip(-1);
+
+		return true;
+
+	}
+	
+	/**
+	 * Atribui o valor da coluna String passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public void setFieldString( String columnName, String valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = locatePointer( columnName, Field.TYPE_CHARACTER );
+		writeField(field, field.formatData(valor));
+			
+		return;
+	}
+
+	/**
+	 * Atribui o valor da coluna int passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public void setFieldInteger( String columnName, int valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = locatePointer( columnName, Field.TYPE_NUMERIC );
+		writeField(field, field.formatData(new Integer(valor)));
+			
+		return;
+	}
+
+	/**
+	 * Atribui o valor da coluna double passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public void setFieldDouble( String columnName, double valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = locatePointer( columnName, Field.TYPE_FLOAT );
+		writeField(field, field.formatData(new Double(valor)));
+			
+		return;
+	}
+
+	/**
+	 * Atribui o valor da coluna Date passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public void setFieldDate( String columnName, Date valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = locatePointer( columnName, Field.TYPE_DATE );
+		writeField(field, field.formatData(valor));
+			
+		return;
+	}
+
+	/**
+	 * Atribui o valor da coluna lógica passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public void setFieldBoolean( String columnName, boolean valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = locatePointer( columnName, Field.TYPE_LOGICAL );
+		writeField(field, field.formatData(valor ? Boolean.TRUE : Boolean.FALSE));
+			
+		return;
+	}
+
+	/**
+	 * Atribui o valor da coluna memo passada como parâmetro do registro corrente.
+	 * O texto é gravado em novos blocos no final do arquivo .DBT.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public void setFieldMemo( String columnName, String valor ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		// A coluna é validada antes de gravar o texto, para não deixar blocos órfãos no .DBT
+		Field field = locatePointer( columnName, Field.TYPE_MEMO );
+		int block = ( valor == null ) ? 0 : getMemoFile().append( valor );
+
+		writeField(field, field.formatData(new Integer(block)));
+			
+		return;
+	}
+
+	/**
+	 * Grava o valor já formatado de uma coluna do registro corrente. O ponteiro do arquivo
+	 * deve estar posicionado na coluna (ver locatePointer).
+	 * @param field Coluna
+	 * @param data	Valor formatado
+	 * @throws IOException
+	 */
+	private void writeField( Field field, byte[] data ) throws IOException
+	{
+		beforeWrite( recordNumber );
+		fileStream.write(data);
+		invalidateReadAhead();
+
+		if ( listeners.size() > 0 && recordData != null )
+		{
+			byte[] newData = new byte[recordLength];
+			System.arraycopy( recordData, 0, newData, 0, recordLength );
+			System.arraycopy( data, 0, newData, field.offset, field.fieldLength );
+
+			fireRecordChanged( recordNumber, recordData, newData );
+		}
+		
+		// Reposicionar ponteiro...
+		goTo(recordNumber);
+	}
+
+	/**
+	 * Retorna o valor da coluna String passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public int getFieldInteger( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_NUMERIC )
+		{
+			throw new FieldTypeException();
+		}
+
+		return field.parseInteger( recordData, 0 );
+	}
+	
+	/**
+	 * Retorna o valor da coluna String passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public String getFieldString( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_CHARACTER )
+		{
+			throw new FieldTypeException();
+		}
+
+		return field.parseString( recordData, 0 );
+	}	
+
+	/**
+	 * Retorna o valor da coluna Double passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public double getFieldDouble( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_NUMERIC )
+		{
+			throw new FieldTypeException();
+		}
+
+		return field.parseDouble( recordData, 0 );
+	}
+
+	/**
+	 * Retorna o valor da coluna Date passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public Date getFieldDate( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_DATE )
+		{
+			throw new FieldTypeException();
+		}
+
+		return field.parseDate( recordData, 0 );
+	}
+	
+
+	/**
+	 * Aponta a visão para o valor da coluna String passada como parâmetro do registro corrente,
+	 * sem copiar os dados. A visão só é válida até o próximo movimento do cursor.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @param view Visão a ser preenchida (pode ser reaproveitada a cada registro)
+	 * @return A própria visão
+	 * @throws FieldNotFoundException
+	 */
+	public TextView getFieldText( String columnName, TextView view ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_CHARACTER )
+		{
+			throw new FieldTypeException();
+		}
+
+		field.parseText( recordData, 0, view );
+		return view;
+	}
+
+	/**
+	 * Retorna o valor da coluna lógica passada como parâmetro do registro corrente.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna
+	 * @throws FieldNotFoundException
+	 */
+	public boolean getFieldBoolean( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_LOGICAL )
+		{
+			throw new FieldTypeException();
+		}
+
+		return field.parseBoolean( recordData, 0 );
+	}
+
+	/**
+	 * Retorna o valor da coluna memo passada como parâmetro do registro corrente.
+	 * O arquivo .DBT só é lido nesse momento.
+	 * @param columnName Nome da coluna que se quer obter o conteúdo
+	 * @return Valor da coluna ("" se o memo não estiver preenchido)
+	 * @throws FieldNotFoundException
+	 */
+	public String getFieldMemo( String columnName ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != Field.TYPE_MEMO )
+		{
+			throw new FieldTypeException();
+		}
+
+		int block = field.parseMemoBlock( recordData, 0 );
+		if ( block == 0 )
+		{
+			return "";
+		}
+
+		return getMemoFile().read( block );
+	}
+
+	/**
+	 * Grava os memos pendentes no arquivo .DBT
+	 * @throws IOException
+	 */
+	public void flushMemos() throws IOException
+	{
+		if ( memoFile != null )
+		{
+			memoFile.flush();
+		}
+	}
+
+	/**
+	 * Arquivo de memos da tabela, aberto no primeiro acesso
+	 */
+	MemoFile getMemoFile() throws IOException
+	{
+		if ( memoFile == null )
+		{
+			memoFile = new MemoFile( MemoFile.getMemoFileName( tableName ), codePage );
+		}
+		return memoFile;
+	}
+
+	/**
+	 * Posiciona o ponteiro no primeiro registro
+	 * @throws IOException 
+	 */
+	public void goTop() throws IOException
+	{
+		if ( isOpen )
+		{
+			this.recordNumber = 1;
+			this.readRecordData();			
+		}
+						
+	}
+	
+	/**
+	 * Posiciona no último registro
+	 * @throws IOException
+	 */
+	public void goBottom() throws IOException
+	{		
+		skip( this.numberOfRecords - this.recordNumber );		
+	}
+
+	
+	/**
+	 * Pula <n> registros. O valor de skip pode ser negativo.
+	 * @param records
+	 * @throws IOException
+	 */
+	public void skip( int records ) throws IOException
+	{
+		int newRecordPos = recordNumber + records;
+		
+		if ( newRecordPos < 0 )
+		{
+			newRecordPos = 0;
+		}
+		else if ( newRecordPos > numberOfRecords )
+		{
+			newRecordPos = numberOfRecords - 1;
+		}
+		
+		this.recordNumber = newRecordPos;
+		this.readRecordData();		
+	}
+	
+	/**
+	 * Posiciona em um determinado registro
+	 * @param record Número do registro a posicionar. 
+	 * 				 Se for maior que a qtde de registros do arquivo, ponteiro é posicionado no último registro.
+	 * 				 Se for menor, ponteiro é posicionado no primeiro registro. 
+	 * @throws IOException
+	 */
+	public void goTo( int record ) throws IOException
+	{
+		if ( record > numberOfRecords )
+		{ 
+			record = recordNumber;
+		}
+		else if ( record < 0 )
+		{
+			record = 1;
+		}
+		
+		this.recordNumber = record;
+		this.readRecordData();		
+	}
+
+	/**
+	 * Ler o registro
+	 * @throws IOException
+	 */
+	private void readRecordData() throws IOException
+	{
+		// Ler array do tamanho do registro (o byte 0 guarda o indicador de deletado)...
+		byte[] data = new byte[this.recordLength];
+
+		// Loop para posicionar no primeiro registro não deletado...
+		boolean isDeleted = false;
+		do
+		{
+			if(isDeleted)
+			{
+				recordNumber++;
+			}
+
+			readRecord( recordNumber, data );
+			
+			// Chegou no final do arquivo?
+			if( data[0] == EOF )
+			{
+				return;
+			}
+			
+			if ( readDeletedData )
+			{
+				break;
+			}
+
+			isDeleted = (  data[0] == DELETED );
+		} while( isDeleted);
+		
+		this.recordData = data;
+	}	
+
+	/**
+	 * Posiciona exatamente no registro, sem avançar sobre os deletados (ver TableTail)
+	 * @param record Número do registro
+	 * @return O indicador de deletado do registro, ou 0 se o registro ainda não foi gravado
+	 * 		   (nesse caso a posição atual não é alterada)
+	 * @throws IOException
+	 */
+	byte goToRecord( int record ) throws IOException
+	{
+		byte[] data = new byte[recordLength];
+		if ( !readWrittenRecord( record, data ) )
+		{
+			return 0;
+		}
+
+		recordNumber = record;
+		recordData 	 = data;
+		return data[0];
+	}
+
+	/**
+	 * Indica se o registro já foi gravado, sem alterar a posição atual (ver goToRecord)
+	 */
+	boolean isRecordWritten( int record ) throws IOException
+	{
+		return readWrittenRecord( record, new byte[recordLength] );
+	}
+
+	/**
+	 * Lê um registro diretamente do arquivo: a leitura antecipada pode guardar uma versão
+	 * anterior de um registro que outro processo está gravando.
+	 * @return FALSE se o registro ainda não foi gravado: fim do arquivo, registro incompleto,
+	 * 		   marca de fim de arquivo ou indicador de deletado zerado (área pré-alocada)
+	 */
+	private boolean readWrittenRecord( int record, byte[] data ) throws IOException
+	{
+		fileStream.seek( recordPosition( record ) );
+
+		int read = 0;
+		while ( read < recordLength )
+		{
+			int n = fileStream.read( data, read, recordLength - read );
+			if ( n <= 0 )
+			{
+				return false;
+			}
+			read += n;
+		}
+
+		return data[0] != 0 && data[0] != EOF;
+	}
+
+	/**
+	 * Posição de um registro no arquivo. O cálculo é feito em long: em tabelas maiores que
+	 * 2 GB, o produto ( registro - 1 ) * recordLength não cabe em um int.
+	 * @param record Número do registro
+	 */
+	long recordPosition( int record )
+	{
+		return headerLength + (long)( record - 1 ) * recordLength;
+	}
+
+	/**
+	 * Lê um registro do arquivo, diretamente ou pela leitura antecipada
+	 * @param record	Número do registro
+	 * @param data		Array do tamanho do registro
+	 * @throws IOException
+	 */
+	private void readRecord( int record, byte[] data ) throws IOException
+	{
+		long pos = recordPosition( record );
+		int read;
+
+		if ( readAhead != null )
+		{
+			read = readAhead.read( pos, data, 0, recordLength );
+		}
+		else
+		{
+			fileStream.seek( pos );
+			read = fileStream.read( data, 0, recordLength );
+		}
+
+		if ( read <= 0 )
+		{
+			throw new EOFException();
+		}
+	}
+
+	/**
+	 * Ativa a leitura antecipada para varreduras sequenciais (nextRecord). Enquanto o acesso
+	 * for sequencial, os registros são lidos em blocos do tamanho informado; quando o acesso
+	 * passa a ser aleatório, cada registro volta a ser lido individualmente.
+	 * @param blockSize		Tamanho do bloco lido antecipadamente (0 desativa a leitura antecipada)
+	 * @param background	Ler o próximo bloco em uma thread separada, enquanto o corrente é processado
+	 * @throws IOException
+	 */
+	public void setReadAhead( int blockSize, boolean background ) throws IOException
+	{
+		if ( readAhead != null )
+		{
+			readAhead.close();
+			readAhead = null;
+		}
+
+		if ( blockSize > 0 )
+		{
+			readAhead = new ReadAhead( tableName, Math.max( blockSize, recordLength ), background );
+		}
+	}
+
+	/**
+	 * Ativa a leitura antecipada com blocos de 1 MB, sem thread em segundo plano
+	 * @throws IOException
+	 */
+	public void setReadAhead() throws IOException
+	{
+		setReadAhead( ReadAhead.DEFAULT_BLOCK_SIZE, false );
+	}
+
+	/**
+	 * Descarta os dados lidos antecipadamente. Deve ser chamado após qualquer gravação.
+	 */
+	private void invalidateReadAhead()
+	{
+		if ( readAhead != null )
+		{
+			readAhead.invalidate();
+		}
+	}
+	
+	/**
+	 * Obtém o número de registros dessa tabela
+	 * @return Número de registros dessa tabela
+	 */
+	public int getNumberOfRecords() {
+		return numberOfRecords;
+	}
+
+	/**
+	 * Relê a quantidade de registros gravada no cabeçalho, para enxergar os registros
+	 * adicionados por outros processos desde a abertura da tabela. Registros cujo conteúdo
+	 * ainda não foi totalmente gravado no arquivo não são considerados.
+	 * @return TRUE se a quantidade de registros mudou
+	 * @throws IOException
+	 */
+	public boolean refresh() throws IOException
+	{
+		byte[] count = new byte[4];
+		fileStream.seek( HEADER_NUMBER_OF_RECORDS );
+		fileStream.readFully( count );
+		long records 	= Utils.readLittleEndianUnsignedInt( count, 0 );
+		long available 	= ( fileStream.length() - headerLength ) / recordLength;
+		if ( records > available )
+		{
+			records = available;
+		}
+		if ( records > Integer.MAX_VALUE )
+		{
+			records = Integer.MAX_VALUE;
+		}
+
+		if ( records == numberOfRecords )
+		{
+			return false;
+		}
+
+		numberOfRecords = (int)records;
+		invalidateReadAhead();
+		return true;
+	}
+
+	/**
+	 * Obtém o número do registro atual 
+	 * @return Número do registro atual
+	 */
+	public int getRecordNumber() {
+		return recordNumber;
+	}
+
+	/**
+	 * Obtém o encoding Java da página de código dos dados
+	 * @return Encoding indicado no cabeçalho, ou ISO8859_1 se o cabeçalho não informar
+	 */
+	public String getCodePage() {
+		return codePage.getEncoding();
+	}
+
+	/**
+	 * Altera a página de código usada nas colunas caracter e memo, ignorando a indicada
+	 * no cabeçalho (o arquivo não é alterado)
+	 * @param encoding Encoding Java de um byte por caracter (ex: "Cp850")
+	 * @throws UnsupportedEncodingException
+	 */
+	public void setCodePage( String encoding ) throws UnsupportedEncodingException {
+
+		codePage = CodePage.forEncoding( encoding );
+
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			fields[i].codePage = codePage;
+			if ( fields[i].internCache != null )
+			{
+				fields[i].internCache = new StringCache( fields[i].internCache.size() );
+			}
+		}
+
+		if ( memoFile != null )
+		{
+			memoFile.setCodePage( codePage );
+		}
+	}
+
+	/**
+	 * Ativa um cache de valores para uma coluna caracter com poucos valores distintos
+	 * (códigos de situação, flags, ...). Valores repetidos passam a ser a mesma instância de String.
+	 * @param columnName Nome da coluna
+	 * @param size Quantidade máxima de valores no cache (0 desativa o cache)
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException A coluna não é do tipo caracter
+	 */
+	public void setInternCache( String columnName, int size ) throws FieldNotFoundException, FieldTypeException {
+
+		Field field = findField( columnName );
+
+		if ( field.dataType != Field.TYPE_CHARACTER )
+		{
+			throw new FieldTypeException();
+		}
+
+		field.internCache = ( size > 0 ) ? new StringCache( size ) : null;
+	}
+
+	/**
+	 * Indica se a classe irá ler dados marcados como deletados
+	 * @return
+	 */
+	public boolean isReadDeletedData() {
+		return readDeletedData;
+	}
+
+	/**
+	 * Indica se a classe irá ler dados marcados como deletados
+	 * @param b TRUE indica que a classe irá considerar registros deletados
+	 */
+	public void setReadDeletedData(boolean b) {
+		readDeletedData = b;
+	}
+
+	/**
+	 * Adicionar um registro a tabela
+	 * TODO: Refatorar para usar fileStream
+	 * @param data Hashtable contendo o para <nome da coluna> / <valor>. Nome das colunas é sensitive case!
+	 * @throws IOException
+	 */
+	public void addRecord( Hashtable data ) throws IOException
+	{		
+		Field field; 
+		byte dataRecord[] = new byte[this.recordLength];
+		byte dataColumn[];
+		int  pos = 1; 
+		
+		dataRecord[0] = 32; // Indicar que o registro não está deletado...
+				
+		// Loop nos fields...
+		for( int i = 0, len = fields.length; i < len; i++)
+		{
+			field = fields[i];
+			
+			Object value = data.get(field.fieldName);
+
+			// O texto dos memos é gravado no .DBT - a coluna guarda apenas o número do bloco
+			if ( field.dataType == Field.TYPE_MEMO && value instanceof String )
+			{
+				value = new Integer( getMemoFile().append( (String)value ) );
+			}
+
+			dataColumn = field.formatData(value);
+			
+			for ( int j = 0; j < dataColumn.length; j++ )
+			{
+				dataRecord[pos++] = (byte)dataColumn[j];
+			}			
+			
+			//System.out.println( field.fieldName + " ==> [" + dataColumn.length + "]" + new String(dataColumn) );
+		}
+		
+		appendRecordData( dataRecord );
+	}
+
+	/**
+	 * Adiciona à tabela um registro já formatado
+	 * @param dataRecord Conteúdo do registro, incluindo o byte de deletado
+	 * @throws IOException
+	 */
+	void appendRecordData( byte[] dataRecord ) throws IOException
+	{
+		appendRecordData( dataRecord, 1 );
+	}
+
+	/**
+	 * Adiciona à tabela vários registros já formatados, com uma única gravação
+	 * @param records	Registros concatenados, cada um incluindo o byte de deletado
+	 * @param count		Quantidade de registros
+	 * @throws IOException
+	 */
+	void appendRecordData( byte[] records, int count ) throws IOException
+	{
+		// A posição do novo registro é calculada a partir do cabeçalho e não do tamanho do
+		// arquivo, que pode ter sido pré-alocado (ver TableBuilder.setExpectedRecords).
+		beforeWrite( numberOfRecords + 1 );
+		fileStream.seek( recordPosition( numberOfRecords + 1 ) );
+		
+		fileStream.write( records, 0, count * recordLength );
+		fileStream.write( EOF );
+		invalidateReadAhead();
+
+		int first 		 = numberOfRecords + 1;
+		numberOfRecords += count;
+		
+		this.changeHeaderNumberOfRecords();
+
+		for ( int record = 0; record < count && listeners.size() > 0; record++ )
+		{
+			byte[] dataRecord = records;
+			if ( count > 1 )
+			{
+				dataRecord = new byte[recordLength];
+				System.arraycopy( records, record * recordLength, dataRecord, 0, recordLength );
+			}
+
+			for ( int i = 0; i < listeners.size(); i++ )
+			{
+				((TableListener)listeners.elementAt(i)).recordAdded( this, first + record, dataRecord );
+			}
+		}
+
+		this.goBottom();
+			
+	}
+	
+	/**
+	 * Regrava o registro corrente com um único write
+	 * @param dataRecord Novo conteúdo do registro, incluindo o byte de deletado
+	 * @throws IOException
+	 */
+	void writeRecordData( byte[] dataRecord ) throws IOException
+	{
+		beforeWrite( recordNumber );
+		fileStream.seek( recordPosition( recordNumber ) );
+		fileStream.write( dataRecord, 0, recordLength );
+		invalidateReadAhead();
+
+		if ( recordData != null )
+		{
+			fireRecordChanged( recordNumber, recordData, dataRecord );
+		}
+
+		// Reposicionar ponteiro...
+		goTo(recordNumber);
+	}
+
+	/**
+	 * Regrava um registro com um único write, posicionando a tabela nele (mesmo que esteja
+	 * deletado)
+	 * @param record		Número do registro
+	 * @param dataRecord	Novo conteúdo do registro, incluindo o byte de deletado
+	 * @throws IOException
+	 */
+	void writeRecordData( int record, byte[] dataRecord ) throws IOException
+	{
+		boolean deleted = readDeletedData;
+		readDeletedData = true;
+		try
+		{
+			recordNumber = record;
+			readRecordData();
+			writeRecordData( dataRecord );
+		}
+		finally
+		{
+			readDeletedData = deleted;
+		}
+	}
+
+	/**
+	 * Cria um registro em branco (todas as colunas preenchidas com espaços)
+	 * @return Array do tamanho do registro
+	 */
+	byte[] newRecordData()
+	{
+		byte[] dataRecord = new byte[recordLength];
+
+		for ( int i = 0; i < dataRecord.length; i++ )
+		{
+			dataRecord[i] = ' ';
+		}
+
+		return dataRecord;
+	}
+
+	/**
+	 * Conteúdo do registro corrente, incluindo o byte de deletado na posição 0
+	 */
+	byte[] getRecordData()
+	{
+		return recordData;
+	}
+
+	/**
+	 * Cria o aquecimento da tabela: monta índices, zone maps e caches de colunas em uma única
+	 * leitura, dividida entre várias threads (ver TableWarmup)
+	 */
+	public TableWarmup createWarmup()
+	{
+		return new TableWarmup( this );
+	}
+
+	/**
+	 * Cache dos resultados das consultas sobre a tabela, descartados quando a tabela muda
+	 * (ver QueryCache). O cache é criado no primeiro uso, e de novo se tiver sido fechado.
+	 * @throws IOException
+	 */
+	public QueryCache getQueryCache() throws IOException
+	{
+		if ( queryCache == null || !queryCache.isOpen() )
+		{
+			queryCache = QueryCache.open( this );
+		}
+		return queryCache;
+	}
+
+	/**
+	 * Colunas da tabela
+	 */
+	Field[] getFields()
+	{
+		return fields;
+	}
+
+	/**
+	 * Localiza uma coluna pelo nome (sem diferenciar maiúsculas e minúsculas)
+	 * @param columnName Nome da coluna
+	 * @return A coluna
+	 * @throws FieldNotFoundException
+	 */
+	Field findField( String columnName ) throws FieldNotFoundException
+	{
+		for ( int i = 0; i < this.fields.length; i++ )
+		{
+			if ( this.fields[i].fieldName.equalsIgnoreCase(columnName) )
+			{
+				return this.fields[i];
+			}
+		}
+
+		throw new FieldNotFoundException();
+	}
+
+	/**
+	 * Marcar um registro como deletado
+	 * @param record Número do registro a deletar
+	 * @throws IOException
+	 */
+	public void deleteRecord(int record) throws IOException
+	{
+		// Posicionar o ponteiro do arquivo na posição correta...
+		// Cabecalho + ( posicao do registro anterior * tamanho do registro )
+		long pos = recordPosition( record );
+		beforeWrite( record );
+		fileStream.seek(pos);
+		fileStream.write( Table.DELETED );		
+		invalidateReadAhead();
+
+		// O registro deletado passa a ser o corrente: recordData deve ser o seu conteúdo, pois é
+		// a imagem anterior enviada aos listeners nas próximas gravações (recordChanged)
+		byte[] data = new byte[recordLength];
+		if ( record == recordNumber && recordData != null )
+		{
+			System.arraycopy( recordData, 0, data, 0, recordLength );
+			data[0] = DELETED;
+		}
+		else
+		{
+			readRecord( record, data );
+		}
+		recordNumber = record;
+		recordData 	 = data;
+
+		for ( int i = 0; i < listeners.size(); i++ )
+		{
+			((TableListener)listeners.elementAt(i)).recordDeleted( this, record );
+		}
+	}
+
+	/**
+	 * Marca vários registros como deletados. Os registros são processados em ordem, em trechos
+	 * de até 64 KB: cada trecho é lido de uma só vez, e cada sequência de registros consecutivos
+	 * alterados é gravada de uma vez, em vez de um seek e uma gravação por registro.
+	 * @param records Registros a deletar (os que não existem ou já estão deletados são ignorados)
+	 * @return Quantidade de registros marcados
+	 * @throws IOException
+	 */
+	public int deleteRecords( RecordSet records ) throws IOException
+	{
+		return markRecords( records, null, DELETED );
+	}
+
+	/**
+	 * Marca como deletados os registros que atendem a uma condição (ver a sintaxe do WHERE em
+	 * QueryParser), avaliada sobre os bytes de cada registro durante a leitura
+	 * @param condition Condição, ex: "DT_VENC < '2004-01-01' AND ID_SITUACAO = 'P'"
+	 * @return Quantidade de registros marcados
+	 * @throws IOException
+	 * @throws QuerySyntaxException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public int deleteRecords( String condition ) throws IOException, QuerySyntaxException, FieldNotFoundException, FieldTypeException
+	{
+		return markRecords( null, parseCondition( condition ), DELETED );
+	}
+
+	/**
+	 * Recupera (desmarca como deletados) vários registros, da mesma forma que deleteRecords
+	 * @param records Registros a recuperar (os que não existem ou não estão deletados são ignorados)
+	 * @return Quantidade de registros recuperados
+	 * @throws IOException
+	 */
+	public int recallRecords( RecordSet records ) throws IOException
+	{
+		return markRecords( records, null, NOT_DELETED );
+	}
+
+	/**
+	 * Recupera os registros deletados que atendem a uma condição
+	 * @param condition Condição (ver deleteRecords)
+	 * @return Quantidade de registros recuperados
+	 * @throws IOException
+	 * @throws QuerySyntaxException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public int recallRecords( String condition ) throws IOException, QuerySyntaxException, FieldNotFoundException, FieldTypeException
+	{
+		return markRecords( null, parseCondition( condition ), NOT_DELETED );
+	}
+
+	private QueryPredicate parseCondition( String condition ) throws QuerySyntaxException, FieldNotFoundException, FieldTypeException
+	{
+		return new QueryParser( condition ).parseCondition().bind( this );
+	}
+
+	/**
+	 * Grava o indicador de deletado de vários registros. Cada trecho vai do primeiro ao último
+	 * registro alvo que cabem em BULK_BLOCK_SIZE: o trecho é lido uma vez, e cada sequência de
+	 * registros consecutivos alterados é regravada com uma única gravação, do indicador do
+	 * primeiro ao indicador do último. Os registros não alterados do trecho não são regravados,
+	 * para não desfazer alterações feitas por outro processo depois da leitura.
+	 * @param records	Registros alvo (null = todos)
+	 * @param condition	Condição que os registros devem atender (null = nenhuma)
+	 * @param flag		DELETED ou NOT_DELETED
+	 * @return Quantidade de registros alterados
+	 */
+	private int markRecords( RecordSet records, QueryPredicate condition, byte flag ) throws IOException
+	{
+		int perBlock 	= Math.max( 1, BULK_BLOCK_SIZE / recordLength );
+		byte[] buffer 	= new byte[perBlock * recordLength];
+		int[] targets 	= new int[perBlock];
+		int[] marked 	= new int[perBlock];
+		byte[] data 	= new byte[recordLength];
+		boolean current = false;
+		int total 		= 0;
+
+		int first = ( records != null ) ? records.nextRecord( 1 ) : 1;
+		while ( first != 0 && first <= numberOfRecords )
+		{
+			int last  = Math.min( first + perBlock - 1, numberOfRecords );
+			int count = 0;
+			for ( int record = first; record != 0 && record <= last; record = ( records != null ) ? records.nextRecord( record + 1 ) : record + 1 )
+			{
+				targets[count++] = record;
+			}
+			last = targets[count - 1];
+
+			fileStream.seek( recordPosition( first ) );
+			fileStream.readFully( buffer, 0, ( last - first + 1 ) * recordLength );
+
+			int n = 0;
+			for ( int i = 0; i < count; i++ )
+			{
+				int base = ( targets[i] - first ) * recordLength;
+				if ( ( buffer[base] == DELETED ) != ( flag == DELETED )
+					 && ( condition == null || condition.test( buffer, base ) ) )
+				{
+					marked[n++] = targets[i];
+				}
+			}
+
+			if ( n > 0 )
+			{
+				// Os snapshots guardam as imagens antes da gravação
+				for ( int i = 0; i < n; i++ )
+				{
+					beforeWrite( marked[i] );
+					buffer[( marked[i] - first ) * recordLength] = flag;
+					current |= ( marked[i] == recordNumber );
+				}
+
+				for ( int i = 0; i < n; )
+				{
+					int j = i + 1;
+					while ( j < n && marked[j] == marked[j - 1] + 1 )
+					{
+						j++;
+					}
+
+					int from = ( marked[i] - first ) * recordLength;
+					int to 	 = ( marked[j - 1] - first ) * recordLength + 1;
+					fileStream.seek( recordPosition( marked[i] ) );
+					fileStream.write( buffer, from, to - from );
+					i = j;
+				}
+
+				for ( int i = 0; i < n; i++ )
+				{
+					for ( int l = 0; l < listeners.size(); l++ )
+					{
+						TableListener listener = (TableListener)listeners.elementAt(l);
+						if ( flag == DELETED )
+						{
+							listener.recordDeleted( this, marked[i] );
+						}
+						else
+						{
+							System.arraycopy( buffer, ( marked[i] - first ) * recordLength, data, 0, recordLength );
+							listener.recordRecalled( this, marked[i], data );
+						}
+					}
+				}
+				total += n;
+			}
+
+			first = ( records != null ) ? records.nextRecord( last + 1 ) : last + 1;
+		}
+
+		if ( total > 0 )
+		{
+			invalidateReadAhead();
+		}
+
+		// O registro corrente passa a refletir o novo indicador
+		if ( current && recordData != null )
+		{
+			byte[] newData = new byte[recordLength];
+			System.arraycopy( recordData, 0, newData, 0, recordLength );
+			newData[0] = flag;
+			recordData = newData;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Registra um objeto para ser notificado das alterações feitas na tabela
+	 * @param listener Objeto a ser notificado
+	 */
+	public void addTableListener( TableListener listener )
+	{
+		if ( !listeners.contains( listener ) )
+		{
+			listeners.addElement( listener );
+		}
+	}
+
+	/**
+	 * Remove um objeto da lista de notificação
+	 * @param listener Objeto registrado por addTableListener
+	 */
+	public void removeTableListener( TableListener listener )
+	{
+		listeners.removeElement( listener );
+	}
+
+	/**
+	 * Abre um cursor somente leitura que enxerga a tabela como ela está agora, mesmo que
+	 * ela seja alterada depois (ver TableSnapshot)
+	 * @return O snapshot, que deve ser fechado por close()
+	 * @throws IOException
+	 */
+	public TableSnapshot openSnapshot() throws IOException
+	{
+		TableSnapshot snapshot = new TableSnapshot( this, numberOfRecords, version );
+		snapshots.addElement( snapshot );
+		return snapshot;
+	}
+
+	void closeSnapshot( TableSnapshot snapshot )
+	{
+		snapshots.removeElement( snapshot );
+	}
+
+	/**
+	 * Contador de alterações feitas por esse objeto (incrementado a cada gravação)
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Passa a guardar (ou deixa de guardar) o tamanho e a data do arquivo antes de cada
+	 * gravação, para que uma MemoryTable distinga as próprias gravações das de outros processos
+	 */
+	synchronized void trackFileState( boolean track )
+	{
+		fileStateUsers += track ? 1 : -1;
+	}
+
+	/**
+	 * Tamanho do arquivo antes da última gravação (ver trackFileState)
+	 */
+	long getLengthBeforeWrite()
+	{
+		return lengthBeforeWrite;
+	}
+
+	/**
+	 * Data do arquivo antes da última gravação (ver trackFileState)
+	 */
+	long getModifiedBeforeWrite()
+	{
+		return modifiedBeforeWrite;
+	}
+
+	/**
+	 * Chamado antes de qualquer gravação em um registro: os snapshots abertos guardam a
+	 * imagem atual do registro antes que ela seja alterada.
+	 * @param record Número do registro que será gravado
+	 * @throws IOException
+	 */
+	private void beforeWrite( int record ) throws IOException
+	{
+		version++;
+
+		if ( fileStateUsers > 0 )
+		{
+			File file = new File( tableName );
+			lengthBeforeWrite 	= file.length();
+			modifiedBeforeWrite = file.lastModified();
+		}
+
+		// Os memos pendentes são gravados antes do registro que aponta para eles: uma queda
+		// não pode deixar na tabela o número de um bloco que ainda não existe no .DBT
+		if ( memoFile != null )
+		{
+			memoFile.flush();
+		}
+
+		if ( snapshots.size() > 0 )
+		{
+			Object[] open;
+			synchronized ( snapshots )
+			{
+				open = new Object[snapshots.size()];
+				snapshots.copyInto( open );
+			}
+
+			for ( int i = 0; i < open.length; i++ )
+			{
+				((TableSnapshot)open[i]).preserve( record );
+			}
+		}
+	}
+
+	/**
+	 * Objetos registrados por addTableListener
+	 */
+	TableListener[] getTableListeners()
+	{
+		synchronized ( listeners )
+		{
+			TableListener[] registered = new TableListener[listeners.size()];
+			listeners.copyInto( registered );
+			return registered;
+		}
+	}
+
+	private void fireRecordChanged( int record, byte[] oldData, byte[] newData )
+	{
+		for ( int i = 0; i < listeners.size(); i++ )
+		{
+			((TableListener)listeners.elementAt(i)).recordChanged( this, record, oldData, newData );
+		}
+	}
+
+	
+	private Field locatePointer(String columnName,  char dataType ) throws FieldNotFoundException, FieldTypeException, IOException
+	{
+		Field field = findField( columnName );
+
+		// Se o dado não é do mesmo tipo...
+		if ( field.dataType != dataType )
+		{
+			// Cuidado! Verificar o caso do tipo Float/Numérico - No DBF para Dbase III não existe
+			// um campo do Tipo Double - Campos de valores são sempre retornados como numeric
+			if ( ! ( field.dataType == Field.TYPE_NUMERIC && dataType == Field.TYPE_FLOAT ) )
+			{
+				throw new FieldTypeException();
+			}
+		}
+		
+		// Posicionar o ponteiro do arquivo na posição correta...
+		// Cabecalho + ( posicao do registro anterior * tamanho do registro ) + deslocamento da coluna
+		long pos = recordPosition( recordNumber ) + field.offset;
+		fileStream.seek(pos);
+		
+		return field;
+	}
+	
+	/**
+	 * Atualiza a informação no cabeçalho do número de registros contido na tabela
+	 * 
+	 * @throws IOException
+	 */
+	private void changeHeaderNumberOfRecords() throws IOException
+	{
+		// Posiciona na entrada do cabeçalho que contém o número de registros...
+		this.fileStream.seek( HEADER_NUMBER_OF_RECORDS );
+		
+		// Grava o número de registros em little endian, numa única escrita
+		byte[] count = new byte[4];
+		Utils.writeLittleEndianInt( count, 0, numberOfRecords );
+		fileStream.write( count );
+	}
+
+/*	public static void main(String[] args) throws FileNotFoundException, IOException, TableCorruptException, FieldNotFoundException, FieldTypeException {
+		Hashtable recebimento = new Hashtable();
+		Table recebimentoTable;
+		recebimentoTable = new Table("C:/dCLIP41/RECEB2.DBF");
+		recebimento.put("DS_CMC7", "123456789123456789");
+		recebimento.put("NR_CPF", "54214459334");
+		recebimento.put("DT_VENC", new Date("2004/05/20"));
+
+		recebimento.put("CD_RECEB", "2");
+		recebimento.put("CD_CLIENTE", new Integer(15));
+		recebimento.put("VR_RECEB", "5000");
+		recebimento.put("ID_TRANSM", "0");
+		recebimentoTable.addRecord(recebimento);
+		recebimentoTable.close();		
+
+		recebimentoTable = new Table("C:/dCLIP41/RECEB2.DBF");
+		recebimentoTable.goTop();	
+		double valorDinheiro = 0, valorCheque = 0;
+		String cheques = "";
+		do {
+			if (recebimentoTable.getFieldInteger("CD_CLIENTE") == 1){
+				if (recebimentoTable.getFieldString("NR_CPF").equals("")){
+					valorDinheiro = valorDinheiro + recebimentoTable.getFieldDouble("VR_RECEB"); 
+				} else{
+					valorCheque = valorCheque + recebimentoTable.getFieldDouble("VR_RECEB");
+					cheques = cheques + recebimentoTable.getFieldString("NR_CPF") + '\t' +
+										recebimentoTable.getFieldDate("DT_VENC") + '\t' +
+										recebimentoTable.getFieldDouble("VR_RECEB") + '\t';  
+				}
+			}
+		} while (recebimentoTable.nextRecord());
+		recebimentoTable.close();
+		System.out.println("ValorDinheiro:" + valorDinheiro);
+		System.out.println("ValorCheque:" + valorCheque);
+		System.out.println("cheques:" + cheques);									
+		
+	}*/
+			
+}
@@ -0,0 +1,632 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+* Cópia de segurança de uma tabela aberta, sem fechá-la e sem bloquear as gravações.
+*
+* start() congela apenas o cabeçalho e a quantidade de registros, abrindo um TableSnapshot: os
+* registros alterados depois disso são lidos das imagens guardadas pelo snapshot e os incluídos
+* depois disso não fazem parte da cópia. O arquivo de memos (.DBT) é copiado até o tamanho que
+* tinha em start(), suficiente para todos os memos referenciados pelos registros copiados.
+* Assim, writeTo() pode ser executado em outra thread enquanto a tabela continua sendo usada.
+*
+* O arquivo gerado é comprimido (Deflater) em blocos de até BLOCK_SIZE bytes, cada um com o seu
+* CRC32. verify() confere todos os blocos sem gravar nada; restore() confere cada bloco antes
+* de gravá-lo em arquivos temporários e só substitui a tabela depois que tudo foi conferido.
+*
+* <pre>
+*	TableBackup backup = TableBackup.start( table );	// na thread que usa a tabela
+*	try {
+*		backup.writeTo( "RECEB.BKP" );					// pode ser em outra thread
+*	}
+*	finally {
+*		backup.close();
+*	}
+*	...
+*	TableBackup.restore( "RECEB.BKP", "RECEB.DBF" );
+* </pre>
+*
+* @version 1.0
+*/
+public class TableBackup {
+
+	/** Identificação do arquivo ("TBK1") */
+	private static final int MAGIC = 0x54424B31;
+
+	/** Tamanho máximo (sem compressão) de cada bloco */
+	public static final int BLOCK_SIZE = 256 * 1024;
+
+	/** Tipos de conteúdo */
+	private static final byte ENTRY_TABLE = 'D';
+	private static final byte ENTRY_MEMO  = 'M';
+	private static final byte ENTRY_END   = 0;
+
+	/** Tabela */
+	private final Table table;
+
+	/** Snapshot que mantém a imagem dos registros copiados */
+	private final TableSnapshot snapshot;
+
+	/** Cabeçalho da tabela, com a quantidade de registros do snapshot */
+	private final byte[] header;
+
+	/** Arquivo de memos (null se não existe), cabeçalho e tamanho em start() */
+	private final File memo;
+	private final byte[] memoHeader;
+	private final long memoLength;
+
+	/** Nível de compressão */
+	private int level = Deflater.BEST_SPEED;
+
+	private TableBackup( Table table ) throws IOException
+	{
+		super();
+		this.table = table;
+
+		// Os memos ainda em memória são gravados antes de congelar o tamanho do .DBT
+		table.flushMemos();
+
+		File memoFile = new File( MemoFile.getMemoFileName( table.tableName ) );
+		if ( memoFile.exists() && memoFile.length() >= MemoFile.BLOCK_SIZE )
+		{
+			memo 		= memoFile;
+			memoLength 	= memoFile.length();
+			memoHeader 	= readFile( memoFile, 0, MemoFile.BLOCK_SIZE );
+
+			// O próximo bloco livre passa a ser o fim do arquivo copiado
+			Utils.writeLittleEndianInt( memoHeader, 0, (int)( ( memoLength + MemoFile.BLOCK_SIZE - 1 ) / MemoFile.BLOCK_SIZE ) );
+		}
+		else
+		{
+			memo 		= null;
+			memoLength 	= 0;
+			memoHeader 	= null;
+		}
+
+		snapshot = table.openSnapshot();
+		header 	 = readFile( new File( table.tableName ), 0, table.headerLength );
+		Utils.writeLittleEndianInt( header, Table.HEADER_NUMBER_OF_RECORDS, snapshot.getNumberOfRecords() );
+	}
+
+	/**
+	 * Congela a imagem da tabela para a cópia. Deve ser chamado pela thread que usa a tabela.
+	 * @param table Tabela aberta
+	 * @return A cópia, que deve ser fechada (close) depois de gravada
+	 * @throws IOException
+	 */
+	public static TableBackup start( Table table ) throws IOException
+	{
+		return new TableBackup( table );
+	}
+
+	/**
+	 * Copia uma tabela aberta para um arquivo (start, writeTo e close)
+	 * @param table			Tabela aberta
+	 * @param backupFile	Arquivo da cópia (sobrescrito)
+	 * @throws IOException
+	 */
+	public static void backup( Table table, String backupFile ) throws IOException
+	{
+		TableBackup backup = start( table );
+		try
+		{
+			backup.writeTo( backupFile );
+		}
+		finally
+		{
+			backup.close();
+		}
+	}
+
+	/**
+	 * Nível de compressão (Deflater.BEST_SPEED a Deflater.BEST_COMPRESSION)
+	 */
+	public void setLevel( int level )
+	{
+		this.level = level;
+	}
+
+	public int getLevel()
+	{
+		return level;
+	}
+
+	/**
+	 * Quantidade de registros copiados
+	 */
+	public int getNumberOfRecords()
+	{
+		return snapshot.getNumberOfRecords();
+	}
+
+	/**
+	 * Grava a cópia em um arquivo
+	 * @param backupFile Arquivo da cópia (sobrescrito)
+	 * @throws IOException
+	 */
+	public void writeTo( String backupFile ) throws IOException
+	{
+		OutputStream out = new FileOutputStream( backupFile );
+		try
+		{
+			writeTo( out );
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Grava a cópia em um stream (que não é fechado)
+	 * @param stream Destino
+	 * @throws IOException
+	 */
+	public void writeTo( OutputStream stream ) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream, BLOCK_SIZE / 4 ) );
+		Writer writer = new Writer( out, level );
+
+		try
+		{
+			out.writeInt( MAGIC );
+
+			// Tabela: cabeçalho, registros do snapshot e marca de fim de arquivo
+			int records 	 = snapshot.getNumberOfRecords();
+			int recordLength = table.recordLength;
+			int perBlock 	 = Math.max( 1, BLOCK_SIZE / recordLength );
+			byte[] buffer 	 = new byte[perBlock * recordLength];
+
+			writer.begin( ENTRY_TABLE, header.length + (long)records * recordLength + 1 );
+			writer.write( header, 0, header.length );
+			for ( int first = 1; first <= records; first += perBlock )
+			{
+				int count = Math.min( perBlock, records - first + 1 );
+				snapshot.readRecords( first, count, buffer );
+				writer.write( buffer, 0, count * recordLength );
+			}
+			writer.write( new byte[] { Table.EOF }, 0, 1 );
+			writer.end();
+
+			// Memos: cabeçalho congelado e blocos existentes em start()
+			if ( memo != null )
+			{
+				writer.begin( ENTRY_MEMO, memoLength );
+				writer.write( memoHeader, 0, memoHeader.length );
+
+				RandomAccessFile file = new RandomAccessFile( memo, "r" );
+				try
+				{
+					file.seek( MemoFile.BLOCK_SIZE );
+					long remaining = memoLength - MemoFile.BLOCK_SIZE;
+					while ( remaining > 0 )
+					{
+						int n = (int)Math.min( buffer.length, remaining );
+						file.readFully( buffer, 0, n );
+						writer.write( buffer, 0, n );
+						remaining -= n;
+					}
+				}
+				finally
+				{
+					file.close();
+				}
+				writer.end();
+			}
+
+			out.writeByte( ENTRY_END );
+			out.flush();
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Libera o snapshot (as imagens guardadas)
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		snapshot.close();
+	}
+
+	/**
+	 * Confere todos os blocos de uma cópia, sem gravar nada
+	 * @param backupFile Arquivo da cópia
+	 * @throws IOException
+	 * @throws TableCorruptException A cópia está corrompida ou incompleta
+	 */
+	public static void verify( String backupFile ) throws IOException, TableCorruptException
+	{
+		InputStream in = new FileInputStream( backupFile );
+		try
+		{
+			read( in, null, null );
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Confere se a tabela não está aberta nessa VM
+	 */
+	private static void checkClosed( String tableName ) throws IOException
+	{
+		if ( Table.isTableOpen( tableName ) )
+		{
+			throw new IOException( tableName + ": tabela aberta" );
+		}
+	}
+
+	/**
+	 * Restaura uma cópia. Os arquivos são gravados com a extensão ".RST" e só substituem a
+	 * tabela (e o .DBT) depois que todos os blocos foram conferidos e a tabela foi aberta com
+	 * sucesso; em caso de erro, a tabela existente não é alterada. Se a cópia não tem memos, o
+	 * .DBT existente é excluído. A tabela não pode estar aberta (Table.isTableOpen).
+	 * @param backupFile	Arquivo da cópia
+	 * @param tableName		Nome da tabela restaurada
+	 * @throws IOException A tabela está aberta nessa VM ou erro de leitura/gravação
+	 * @throws TableCorruptException A cópia está corrompida ou incompleta
+	 */
+	public static void restore( String backupFile, String tableName ) throws IOException, TableCorruptException
+	{
+		File tableFile 	= new File( tableName );
+		File memoFile 	= new File( MemoFile.getMemoFileName( tableName ) );
+		File tableTemp 	= new File( tableName + ".RST" );
+		File memoTemp 	= new File( memoFile.getPath() + ".RST" );
+		boolean[] found = new boolean[2];
+
+		checkClosed( tableName );
+		try
+		{
+			InputStream in = new FileInputStream( backupFile );
+			try
+			{
+				found = read( in, tableTemp, memoTemp );
+			}
+			finally
+			{
+				in.close();
+			}
+
+			// Valida o cabeçalho e as colunas antes de substituir a tabela
+			new Table( tableTemp.getPath() ).close();
+
+			// Uma Table aberta continuaria gravando no arquivo substituído
+			checkClosed( tableName );
+			replace( tableTemp, tableFile, found[1] ? memoTemp : null, memoFile );
+		}
+		finally
+		{
+			tableTemp.delete();
+			memoTemp.delete();
+		}
+	}
+
+	/**
+	 * Lê e confere uma cópia, gravando o conteúdo nos arquivos informados
+	 * @param in		Cópia
+	 * @param tableFile	Destino da tabela (null = somente conferir)
+	 * @param memoFile	Destino dos memos (null = somente conferir)
+	 * @return Quais conteúdos foram encontrados (tabela, memos)
+	 */
+	private static boolean[] read( InputStream stream, File tableFile, File memoFile ) throws IOException, TableCorruptException
+	{
+		DataInputStream in = new DataInputStream( new BufferedInputStream( stream, BLOCK_SIZE / 4 ) );
+		boolean[] found = new boolean[2];
+		Inflater inflater = new Inflater();
+		CRC32 crc = new CRC32();
+		byte[] compressed = new byte[0];
+		byte[] data = new byte[0];
+
+		try
+		{
+			if ( in.readInt() != MAGIC )
+			{
+				throw new TableCorruptException( "Arquivo não é uma cópia de tabela" );
+			}
+
+			for ( byte type = in.readByte(); type != ENTRY_END; type = in.readByte() )
+			{
+				int index = ( type == ENTRY_TABLE ) ? 0 : ( type == ENTRY_MEMO ) ? 1 : -1;
+				if ( index < 0 || found[index] )
+				{
+					throw new TableCorruptException( "Conteúdo inválido na cópia" );
+				}
+				found[index] = true;
+
+				File target = ( index == 0 ) ? tableFile : memoFile;
+				OutputStream out = ( target != null ) ? new BufferedOutputStream( new FileOutputStream( target ), BLOCK_SIZE / 4 ) : null;
+				try
+				{
+					long length = in.readLong();
+					long total 	= 0;
+
+					for ( int rawLength = in.readInt(); rawLength != 0; rawLength = in.readInt() )
+					{
+						int compressedLength = in.readInt();
+						int checksum 		 = in.readInt();
+						if ( rawLength < 0 || rawLength > BLOCK_SIZE || compressedLength < 0 || compressedLength > BLOCK_SIZE * 2 )
+						{
+							throw new TableCorruptException( "Bloco inválido na cópia" );
+						}
+
+						if ( compressed.length < compressedLength )
+						{
+							compressed = new byte[compressedLength];
+						}
+						if ( data.length < rawLength )
+						{
+							data = new byte[rawLength];
+						}
+						in.readFully( compressed, 0, compressedLength );
+
+						inflater.reset();
+						inflater.setInput( compressed, 0, compressedLength );
+						int n = 0;
+						try
+						{
+							n = inflater.inflate( data, 0, rawLength );
+						}
+						catch ( DataFormatException e )
+						{
+							n = -1;
+						}
+
+						crc.reset();
+						crc.update( data, 0, rawLength );
+						if ( n != rawLength || !inflater.finished() || (int)crc.getValue() != checksum )
+						{
+							throw new TableCorruptException( "Bloco corrompido na cópia (posição " + total + ")" );
+						}
+
+						if ( out != null )
+						{
+							out.write( data, 0, rawLength );
+						}
+						total += rawLength;
+					}
+
+					if ( total != length )
+					{
+						throw new TableCorruptException( "Cópia incompleta" );
+					}
+				}
+				finally
+				{
+					if ( out != null )
+					{
+						out.close();
+					}
+				}
+			}
+
+			if ( !found[0] )
+			{
+				throw new TableCorruptException( "Cópia sem a tabela" );
+			}
+		}
+		catch ( EOFException e )
+		{
+			throw new TableCorruptException( "Cópia incompleta" );
+		}
+		finally
+		{
+			inflater.end();
+		}
+
+		return found;
+	}
+
+	/**
+	 * Substitui a tabela e o .DBT pelos arquivos restaurados. Os arquivos atuais são renomeados
+	 * com ".OLD" e só são excluídos depois que os novos tomaram o seu lugar; se alguma troca
+	 * falhar, os novos arquivos são descartados e os atuais voltam aos seus nomes.
+	 * @param tableFrom	Tabela restaurada
+	 * @param tableTo	Tabela
+	 * @param memoFrom	Memos restaurados (null = a tabela fica sem .DBT)
+	 * @param memoTo	.DBT da tabela
+	 */
+	private static void replace( File tableFrom, File tableTo, File memoFrom, File memoTo ) throws IOException
+	{
+		File tableOld 	= new File( tableTo.getPath() + ".OLD" );
+		File memoOld 	= new File( memoTo.getPath() + ".OLD" );
+		boolean tableMoved = false, memoMoved = false, tableIn = false, memoIn = false;
+
+		tableOld.delete();
+		memoOld.delete();
+		try
+		{
+			tableMoved = moveAside( tableTo, tableOld );
+			memoMoved  = moveAside( memoTo, memoOld );
+
+			rename( tableFrom, tableTo );
+			tableIn = true;
+			if ( memoFrom != null )
+			{
+				rename( memoFrom, memoTo );
+				memoIn = true;
+			}
+		}
+		catch ( IOException e )
+		{
+			// Desfaz as trocas já feitas
+			if ( tableIn )
+			{
+				tableTo.renameTo( tableFrom );
+			}
+			if ( memoIn )
+			{
+				memoTo.renameTo( memoFrom );
+			}
+			if ( tableMoved )
+			{
+				tableOld.renameTo( tableTo );
+			}
+			if ( memoMoved )
+			{
+				memoOld.renameTo( memoTo );
+			}
+			throw e;
+		}
+
+		tableOld.delete();
+		memoOld.delete();
+	}
+
+	/**
+	 * Renomeia um arquivo existente para o nome temporário
+	 * @return TRUE se o arquivo existia e foi renomeado
+	 */
+	private static boolean moveAside( File file, File aside ) throws IOException
+	{
+		if ( !file.exists() )
+		{
+			return false;
+		}
+		rename( file, aside );
+		return true;
+	}
+
+	private static void rename( File from, File to ) throws IOException
+	{
+		if ( !from.renameTo( to ) )
+		{
+			throw new IOException( "Não foi possível renomear " + from.getPath() + " para " + to.getPath() );
+		}
+	}
+
+	/**
+	 * Lê um trecho de um arquivo
+	 */
+	private static byte[] readFile( File file, long pos, int length ) throws IOException
+	{
+		byte[] data = new byte[length];
+		RandomAccessFile in = new RandomAccessFile( file, "r" );
+		try
+		{
+			in.seek( pos );
+			in.readFully( data );
+		}
+		finally
+		{
+			in.close();
+		}
+		return data;
+	}
+
+	/**
+	 * Grava um conteúdo em blocos comprimidos com CRC32:
+	 * tipo, tamanho, [tamanho do bloco, tamanho comprimido, CRC32, dados]..., 0
+	 */
+	private static class Writer
+	{
+		final DataOutputStream out;
+		final Deflater deflater;
+		final CRC32 crc = new CRC32();
+		final byte[] block = new byte[BLOCK_SIZE];
+		byte[] compressed = new byte[BLOCK_SIZE + BLOCK_SIZE / 8 + 64];
+		int length;
+
+		Writer( DataOutputStream out, int level )
+		{
+			this.out 	  = out;
+			this.deflater = new Deflater( level );
+		}
+
+		void begin( byte type, long size ) throws IOException
+		{
+			out.writeByte( type );
+			out.writeLong( size );
+			length = 0;
+		}
+
+		void write( byte[] data, int off, int len ) throws IOException
+		{
+			while ( len > 0 )
+			{
+				int n = Math.min( len, block.length - length );
+				System.arraycopy( data, off, block, length, n );
+				length += n;
+				off 	+= n;
+				len 	-= n;
+
+				if ( length == block.length )
+				{
+					flush();
+				}
+			}
+		}
+
+		void end() throws IOException
+		{
+			flush();
+			out.writeInt( 0 );
+		}
+
+		void close()
+		{
+			deflater.end();
+		}
+
+		private void flush() throws IOException
+		{
+			if ( length == 0 )
+			{
+				return;
+			}
+
+			deflater.reset();
+			deflater.setInput( block, 0, length );
+			deflater.finish();
+
+			int compressedLength = 0;
+			while ( !deflater.finished() )
+			{
+				if ( compressedLength == compressed.length )
+				{
+					byte[] newCompressed = new byte[compressed.length * 2];
+					System.arraycopy( compressed, 0, newCompressed, 0, compressedLength );
+					compressed = newCompressed;
+				}
+				compressedLength += deflater.deflate( compressed, compressedLength, compressed.length - compressedLength );
+			}
+
+			crc.reset();
+			crc.update( block, 0, length );
+
+			out.writeInt( length );
+			out.writeInt( compressedLength );
+			out.writeInt( (int)crc.getValue() );
+			out.write( compressed, 0, compressedLength );
+			length = 0;
+		}
+	}
+}
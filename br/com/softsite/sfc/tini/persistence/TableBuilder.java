@@ -0,0 +1,363 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Calendar;
+import java.util.Vector;
+
+/**
+* Cria uma nova tabela DBF (formato DBase III Plus) a partir da definição das suas colunas.
+* Se houver colunas memo, o arquivo .DBT também é criado.
+*
+* Exemplo:
+* <pre>
+*	TableBuilder builder = new TableBuilder( "RECEB.DBF" );
+*	builder.addCharacterField( "NR_CPF", 11 );
+*	builder.addNumericField( "CD_CLIENTE", 5, 0 );
+*	builder.addDateField( "DT_VENC" );
+*	builder.setExpectedRecords( 100000 );
+*	Table table = builder.create();
+* </pre>
+*
+* @version 1.0
+*/
+public class TableBuilder {
+
+	/** Tamanho máximo do nome de uma coluna */
+	static final int MAX_FIELD_NAME_LENGTH = 10;
+
+	/** Tamanho do cabeçalho fixo e de cada descritor de coluna */
+	static final int HEADER_BLOCK_LENGTH = 32;
+
+	/** Nome da tabela a ser criada */
+	private final String tableName;
+
+	/** Colunas definidas até o momento */
+	private Vector fields = new Vector();
+
+	/** Quantidade de registros para a qual o arquivo será pré-alocado */
+	private int expectedRecords = 0;
+
+	/** Página de código gravada no cabeçalho (byte 29) */
+	private byte codePageMark = CodePage.MARK_NONE;
+
+	/**
+	 * Construtor
+	 *
+	 * @param tableName Nome (caminho) do arquivo DBF a ser criado
+	 */
+	public TableBuilder( String tableName )
+	{
+		super();
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Cria um builder com a mesma estrutura (colunas e página de código) de uma tabela existente
+	 *
+	 * @param table		Tabela de origem
+	 * @param tableName	Nome (caminho) do arquivo DBF a ser criado
+	 * @return O builder, que ainda pode receber novas colunas
+	 * @throws FieldTypeException A tabela de origem possui uma coluna de tipo não suportado
+	 */
+	public static TableBuilder from( Table table, String tableName ) throws FieldTypeException
+	{
+		TableBuilder builder = new TableBuilder( tableName );
+		Field[] fields = table.getFields();
+
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			builder.addField( fields[i].fieldName, fields[i].dataType, fields[i].fieldLength, fields[i].decimalCount );
+		}
+		builder.setCodePage( table.codePageMark );
+
+		return builder;
+	}
+
+	/**
+	 * Adiciona uma coluna à estrutura da tabela
+	 *
+	 * @param name			Nome da coluna (até 10 caracteres)
+	 * @param type			Tipo da coluna (Field.TYPE_XXX)
+	 * @param length		Tamanho da coluna em bytes
+	 * @param decimalCount	Quantidade de casas decimais (apenas numéricos)
+	 * @return O próprio builder
+	 * @throws FieldTypeException O tipo informado não é suportado
+	 */
+	public TableBuilder addField( String name, char type, int length, int decimalCount ) throws FieldTypeException
+	{
+		if ( name == null || name.length() == 0 || name.length() > MAX_FIELD_NAME_LENGTH )
+		{
+			throw new IllegalArgumentException( "Nome de coluna inválido: " + name );
+		}
+
+		for ( int i = 0; i < fields.size(); i++ )
+		{
+			if ( ((Field)fields.elementAt(i)).fieldName.equalsIgnoreCase( name ) )
+			{
+				throw new IllegalArgumentException( "Coluna duplicada: " + name );
+			}
+		}
+
+		switch ( type )
+		{
+			case Field.TYPE_CHARACTER :
+			{
+				checkLength( name, length, 254 );
+				decimalCount = 0;
+				break;
+			}
+			case Field.TYPE_NUMERIC :
+			case Field.TYPE_FLOAT :
+			{
+				checkLength( name, length, 20 );
+				if ( decimalCount < 0 || ( decimalCount > 0 && decimalCount > length - 2 ) )
+				{
+					throw new IllegalArgumentException( "Quantidade de decimais inválida: " + name );
+				}
+				break;
+			}
+			case Field.TYPE_DATE :
+			{
+				length = 8;
+				decimalCount = 0;
+				break;
+			}
+			case Field.TYPE_LOGICAL :
+			{
+				length = 1;
+				decimalCount = 0;
+				break;
+			}
+			case Field.TYPE_MEMO :
+			{
+				// A coluna guarda apenas o número do bloco no arquivo .DBT
+				length = 10;
+				decimalCount = 0;
+				break;
+			}
+			default :
+			{
+				throw new FieldTypeException();
+			}
+		}
+
+		Field field = new Field();
+		field.fieldName 	= name;
+		field.dataType		= type;
+		field.fieldLength	= length;
+		field.decimalCount	= (byte)decimalCount;
+
+		fields.addElement( field );
+
+		return this;
+	}
+
+	/**
+	 * Adiciona uma coluna do tipo caracter
+	 */
+	public TableBuilder addCharacterField( String name, int length ) throws FieldTypeException
+	{
+		return addField( name, Field.TYPE_CHARACTER, length, 0 );
+	}
+
+	/**
+	 * Adiciona uma coluna do tipo numérico
+	 */
+	public TableBuilder addNumericField( String name, int length, int decimalCount ) throws FieldTypeException
+	{
+		return addField( name, Field.TYPE_NUMERIC, length, decimalCount );
+	}
+
+	/**
+	 * Adiciona uma coluna do tipo float
+	 */
+	public TableBuilder addFloatField( String name, int length, int decimalCount ) throws FieldTypeException
+	{
+		return addField( name, Field.TYPE_FLOAT, length, decimalCount );
+	}
+
+	/**
+	 * Adiciona uma coluna do tipo data (sempre 8 bytes, formato YYYYMMDD)
+	 */
+	public TableBuilder addDateField( String name ) throws FieldTypeException
+	{
+		return addField( name, Field.TYPE_DATE, 8, 0 );
+	}
+
+	/**
+	 * Adiciona uma coluna do tipo lógico (sempre 1 byte)
+	 */
+	public TableBuilder addLogicalField( String name ) throws FieldTypeException
+	{
+		return addField( name, Field.TYPE_LOGICAL, 1, 0 );
+	}
+
+	/**
+	 * Adiciona uma coluna do tipo memo. O texto é guardado no arquivo .DBT, criado junto com a tabela.
+	 */
+	public TableBuilder addMemoField( String name ) throws FieldTypeException
+	{
+		return addField( name, Field.TYPE_MEMO, 10, 0 );
+	}
+
+	/**
+	 * Informa a quantidade de registros esperada para a tabela. O arquivo é criado com esse
+	 * tamanho, evitando que as cargas seguintes paguem pelo crescimento (e fragmentação) do arquivo.
+	 * Na maioria dos sistemas de arquivos o espaço é reservado como arquivo esparso. O espaço
+	 * que não foi usado (registros zerados após a marca de fim de arquivo) é retirado quando a
+	 * tabela devolvida por create() é fechada (Table.close); outras aberturas do arquivo não o
+	 * alteram.
+	 *
+	 * @param expectedRecords Quantidade de registros esperada (0 = não pré-alocar)
+	 */
+	public void setExpectedRecords( int expectedRecords )
+	{
+		if ( expectedRecords < 0 )
+		{
+			throw new IllegalArgumentException( "Quantidade de registros inválida: " + expectedRecords );
+		}
+		this.expectedRecords = expectedRecords;
+	}
+
+	/**
+	 * Informa a página de código dos dados, gravada no byte 29 do cabeçalho
+	 * @param codePageMark Language Driver ID (ex: CodePage.MARK_CP850)
+	 */
+	public void setCodePage( byte codePageMark )
+	{
+		this.codePageMark = codePageMark;
+	}
+
+	/**
+	 * Cria o arquivo da tabela e o devolve aberto.
+	 *
+	 * @return A tabela recém criada, aberta e sem registros
+	 * @throws IOException 				O arquivo já existe ou não pôde ser gravado
+	 * @throws TableCorruptException	Nunca deveria acontecer - o cabeçalho gravado é inválido
+	 */
+	public Table create() throws IOException, TableCorruptException
+	{
+		if ( fields.size() == 0 )
+		{
+			throw new IllegalStateException( "A tabela deve possuir ao menos uma coluna" );
+		}
+
+		File file = new File( tableName );
+		if ( file.exists() )
+		{
+			throw new IOException( "Tabela já existe: " + tableName );
+		}
+
+		byte[] header = buildHeader();
+
+		RandomAccessFile out = new RandomAccessFile( file, "rw" );
+		try
+		{
+			if ( expectedRecords > 0 )
+			{
+				int recordLength = Utils.readLittleEndianShort( header, 10 );
+				out.setLength( header.length + ( (long)expectedRecords * recordLength ) + 1 );
+			}
+
+			out.write( header );
+			out.write( Table.EOF );
+		}
+		finally
+		{
+			out.close();
+		}
+
+		if ( hasMemo() )
+		{
+			MemoFile.create( MemoFile.getMemoFileName( tableName ) );
+		}
+
+		Table table = new Table( tableName );
+		table.preallocated = ( expectedRecords > 0 );
+		return table;
+	}
+
+	/**
+	 * Monta o cabeçalho completo da tabela (cabeçalho fixo, descritores e terminador)
+	 */
+	private byte[] buildHeader()
+	{
+		int headerLength = HEADER_BLOCK_LENGTH + ( HEADER_BLOCK_LENGTH * fields.size() ) + 1;
+		int recordLength = 1;
+
+		for ( int i = 0; i < fields.size(); i++ )
+		{
+			Field field = (Field)fields.elementAt(i);
+			field.offset = recordLength;
+			recordLength += field.fieldLength;
+		}
+
+		// A Table lê os tamanhos do cabeçalho e do registro como short com sinal
+		if ( recordLength > Short.MAX_VALUE )
+		{
+			throw new IllegalStateException( "Tamanho do registro excede o limite do formato: " + recordLength );
+		}
+		if ( headerLength > Short.MAX_VALUE )
+		{
+			throw new IllegalStateException( "Quantidade de colunas excede o limite do formato: " + fields.size() );
+		}
+
+		byte[] header = new byte[headerLength];
+		Calendar today = Calendar.getInstance();
+
+		header[0] = hasMemo() ? Table.SIGNATURE_DBASE_III_PLUS_MEMO :
+								Table.SIGNATURE_DBASE_III_PLUS_NO_MEMO;				/* 0 */
+		header[1] = (byte)( today.get( Calendar.YEAR ) - 1900 );				/* 1 */
+		header[2] = (byte)( today.get( Calendar.MONTH ) + 1 );					/* 2 */
+		header[3] = (byte)today.get( Calendar.DAY_OF_MONTH );					/* 3 */
+		Utils.writeLittleEndianInt( header, Table.HEADER_NUMBER_OF_RECORDS, 0 );	/* 4-7 */
+		Utils.writeLittleEndianShort( header, 8, (short)headerLength );		/* 8-9 */
+		Utils.writeLittleEndianShort( header, 10, (short)recordLength );		/* 10-11 */
+		header[29] = codePageMark;												/* 29 */
+
+		// Descritores das colunas (os nomes são gravados na página de código da tabela)
+		CodePage codePage = CodePage.forMark( codePageMark );
+		for ( int i = 0; i < fields.size(); i++ )
+		{
+			Field field = (Field)fields.elementAt(i);
+			field.codePage = codePage;
+			field.writeField( header, HEADER_BLOCK_LENGTH * ( i + 1 ) );
+		}
+
+		header[headerLength - 1] = Table.HEADER_RECORD_TERMINATOR;
+
+		return header;
+	}
+
+	/**
+	 * Indica se alguma coluna é do tipo memo
+	 */
+	private boolean hasMemo()
+	{
+		for ( int i = 0; i < fields.size(); i++ )
+		{
+			if ( ((Field)fields.elementAt(i)).dataType == Field.TYPE_MEMO )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void checkLength( String name, int length, int max )
+	{
+		if ( length < 1 || length > max )
+		{
+			throw new IllegalArgumentException( "Tamanho inválido para a coluna " + name + ": " + length );
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+* Cursor somente leitura sobre um TableHandle (ver TableHandle.openCursor).
+*
+* O cursor guarda apenas a posição e um pequeno bloco de registros: na leitura sequencial
+* (nextRecord) os registros seguintes são lidos juntos, em uma única leitura do handle, e
+* portanto refletem a tabela no momento dessa leitura; goTop e goTo sempre relêem o arquivo. O
+* cursor é barato e deve ser criado por tarefa; cada cursor deve ser usado por uma única
+* thread.
+*
+* @version 1.0
+*/
+public class TableCursor {
+
+	/** Quantidade de registros lidos de uma vez na leitura sequencial */
+	public static final int DEFAULT_BLOCK_RECORDS = 16;
+
+	/** Handle da tabela */
+	private final TableHandle handle;
+
+	/** Registros lidos */
+	private byte[] block;
+
+	/** Número do primeiro registro do bloco e quantidade de registros lidos */
+	private int blockFirst;
+	private int blockCount;
+
+	/** Registro atual */
+	private int recordNumber;
+
+	/** Posição do registro atual no bloco */
+	private int base;
+
+	/** Ler dados marcados como deletados? */
+	private boolean readDeletedData = false;
+
+	/**
+	 * Construtor - usar TableHandle.openCursor()
+	 */
+	TableCursor( TableHandle handle )
+	{
+		super();
+		this.handle = handle;
+	}
+
+	/**
+	 * Posiciona o cursor no primeiro registro (não deletado)
+	 * @return FALSE se a tabela não possui registros
+	 * @throws IOException
+	 */
+	public boolean goTop() throws IOException
+	{
+		recordNumber = 0;
+		blockCount 	 = 0;
+		return nextRecord();
+	}
+
+	/**
+	 * Avança o cursor para o próximo registro (não deletado)
+	 * @return FALSE se não há mais registros
+	 * @throws IOException
+	 */
+	public boolean nextRecord() throws IOException
+	{
+		int records = handle.getNumberOfRecords();
+
+		while ( recordNumber < records )
+		{
+			recordNumber++;
+			load( recordNumber, DEFAULT_BLOCK_RECORDS );
+
+			if ( readDeletedData || block[base] != Table.DELETED )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Posiciona o cursor em um registro (mesmo que esteja deletado)
+	 * @param record Número do registro
+	 * @return FALSE se o registro não existe
+	 * @throws IOException
+	 */
+	public boolean goTo( int record ) throws IOException
+	{
+		if ( record < 1 || record > handle.getNumberOfRecords() )
+		{
+			return false;
+		}
+
+		// O registro é sempre relido: pode ter sido alterado depois da leitura do bloco
+		recordNumber = record;
+		blockCount 	 = 0;
+		load( record, 1 );
+		return true;
+	}
+
+	/**
+	 * Indica se o registro atual está marcado como deletado
+	 */
+	public boolean isDeleted()
+	{
+		return block[base] == Table.DELETED;
+	}
+
+	public String getFieldString( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_CHARACTER ).parseString( block, base );
+	}
+
+	public TextView getFieldText( String columnName, TextView view ) throws FieldNotFoundException, FieldTypeException
+	{
+		checkType( columnName, Field.TYPE_CHARACTER ).parseText( block, base, view );
+		return view;
+	}
+
+	public int getFieldInteger( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_NUMERIC ).parseInteger( block, base );
+	}
+
+	public double getFieldDouble( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_FLOAT ).parseDouble( block, base );
+	}
+
+	public Date getFieldDate( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_DATE ).parseDate( block, base );
+	}
+
+	public boolean getFieldBoolean( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_LOGICAL ).parseBoolean( block, base );
+	}
+
+	/**
+	 * Número de registros da tabela
+	 */
+	public int getNumberOfRecords()
+	{
+		return handle.getNumberOfRecords();
+	}
+
+	/**
+	 * Número do registro atual
+	 */
+	public int getRecordNumber()
+	{
+		return recordNumber;
+	}
+
+	public boolean isReadDeletedData()
+	{
+		return readDeletedData;
+	}
+
+	public void setReadDeletedData( boolean b )
+	{
+		readDeletedData = b;
+	}
+
+	/**
+	 * Garante que o registro esteja no bloco, lendo-o junto com os seguintes se necessário
+	 * @param record	Número do registro
+	 * @param count		Quantidade máxima de registros lidos
+	 */
+	private void load( int record, int count ) throws IOException
+	{
+		int recordLength = handle.recordLength;
+
+		if ( record < blockFirst || record >= blockFirst + blockCount )
+		{
+			count = Math.min( count, handle.getNumberOfRecords() - record + 1 );
+
+			if ( block == null || block.length < count * recordLength )
+			{
+				block = new byte[count * recordLength];
+			}
+			handle.read( handle.recordPosition( record ), block, 0, count * recordLength );
+
+			blockFirst = record;
+			blockCount = count;
+		}
+
+		base = ( record - blockFirst ) * recordLength;
+	}
+
+	private Field checkType( String columnName, char dataType ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = handle.findField( columnName );
+
+		if ( field.dataType != dataType )
+		{
+			if ( ! ( field.dataType == Field.TYPE_NUMERIC && dataType == Field.TYPE_FLOAT ) )
+			{
+				throw new FieldTypeException();
+			}
+		}
+
+		return field;
+	}
+}
@@ -1,22 +1,22 @@
-/*
-* Project: DBFProject
-* Date   : Mar 27, 2004
-*
-* Copyright (c) 2004 SoftSite Tecnologia
-* Todos os direitos reservados
-*/
-package br.com.softsite.sfc.tini.persistence;
-
-/**
-* Factory para a classe table
-*
-* @author  regismelo
-* @version 1.0
-*/
-public class TableFactory {
-
-	public static Table getInstance( String tableName )
-	{
-		return null;
-	}
-}
+/*
+* Project: DBFProject
+* Date   : Mar 27, 2004
+*
+* Copyright (c) 2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Factory para a classe table
+*
+* @author  regismelo
+* @version 1.0
+*/
+public class TableFactory {
+
+	public static Table getInstance( String tableName )
+	{
+		return null;
+	}
+}
@@ -0,0 +1,243 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+* Tabela aberta para leitura compartilhada por várias threads, com um único handle do arquivo.
+*
+* A Table guarda o registro atual e o seu próprio RandomAccessFile, portanto não pode ser usada
+* por várias threads e abrir uma Table por requisição esgota os descritores de arquivo. O
+* TableHandle guarda apenas o que não muda (nome, cabeçalho e colunas) e um handle somente
+* leitura; o estado de cada leitura fica em um TableCursor, criado por tarefa com openCursor().
+*
+* Os cursores nunca posicionam o arquivo por conta própria: cada leitura informa a posição
+* (read), e o posicionamento e a leitura são feitos juntos dentro do lock do handle.
+*
+* <pre>
+*	TableHandle receb = TableHandle.open( "RECEB.DBF" );	// uma vez
+*	...
+*	TableCursor cursor = receb.openCursor();				// por requisição
+*	for ( boolean ok = cursor.goTop(); ok; ok = cursor.nextRecord() ) { ... }
+* </pre>
+*
+* @version 1.0
+*/
+public class TableHandle implements TableListener {
+
+	/** Nome do arquivo */
+	final String tableName;
+
+	/** Tamanho do header */
+	final int headerLength;
+
+	/** Tamanho do registro */
+	final int recordLength;
+
+	/** Colunas */
+	private final Field[] fields;
+
+	/** Handle compartilhado do arquivo */
+	private final RandomAccessFile file;
+
+	/** Número de registros na tabela */
+	private volatile int numberOfRecords;
+
+	/** Tabela que notifica as inclusões (null se aberto pelo nome) */
+	private Table table;
+
+	private boolean closed;
+
+	private TableHandle( Table table ) throws IOException
+	{
+		super();
+		this.tableName 		 = table.tableName;
+		this.headerLength 	 = table.headerLength;
+		this.recordLength 	 = table.recordLength;
+		this.fields 		 = table.getFields();
+		this.numberOfRecords = table.getNumberOfRecords();
+		this.file 			 = new RandomAccessFile( new File( tableName ), "r" );
+		Table.registerOpen( tableName, 1 );
+	}
+
+	/**
+	 * Abre a tabela para leitura compartilhada
+	 * @param tableName Nome do arquivo
+	 * @return O handle
+	 * @throws IOException
+	 * @throws TableCorruptException
+	 */
+	public static TableHandle open( String tableName ) throws IOException, TableCorruptException
+	{
+		// A Table é usada apenas para ler e validar o cabeçalho
+		Table table = new Table( tableName );
+		try
+		{
+			return new TableHandle( table );
+		}
+		finally
+		{
+			table.close();
+		}
+	}
+
+	/**
+	 * Compartilha a leitura de uma tabela aberta. Os registros incluídos por ela passam a ser
+	 * vistos pelos cursores.
+	 * @param table Tabela aberta
+	 * @return O handle
+	 * @throws IOException
+	 */
+	public static TableHandle open( Table table ) throws IOException
+	{
+		TableHandle handle = new TableHandle( table );
+		handle.table = table;
+		table.addTableListener( handle );
+		return handle;
+	}
+
+	/**
+	 * Cria um cursor (cada tarefa deve usar o seu)
+	 */
+	public TableCursor openCursor()
+	{
+		return new TableCursor( this );
+	}
+
+	/**
+	 * Número de registros da tabela
+	 */
+	public int getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+
+	/**
+	 * Relê a quantidade de registros gravada no cabeçalho (registros incluídos por outros
+	 * processos)
+	 * @return TRUE se a quantidade de registros mudou
+	 * @throws IOException
+	 */
+	public boolean refresh() throws IOException
+	{
+		byte[] count = new byte[4];
+		long length;
+
+		synchronized ( this )
+		{
+			read( Table.HEADER_NUMBER_OF_RECORDS, count, 0, 4 );
+			length = file.length();
+		}
+
+		long records = Math.min( Math.min( Utils.readLittleEndianUnsignedInt( count, 0 ),
+										   ( length - headerLength ) / recordLength ),
+								 Integer.MAX_VALUE );
+		if ( records == numberOfRecords )
+		{
+			return false;
+		}
+		numberOfRecords = (int)records;
+		return true;
+	}
+
+	/**
+	 * Fecha o handle. Os cursores deixam de funcionar.
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException
+	{
+		if ( table != null )
+		{
+			table.removeTableListener( this );
+			table = null;
+		}
+		if ( !closed )
+		{
+			closed = true;
+			file.close();
+			Table.registerOpen( tableName, -1 );
+		}
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		if ( record > numberOfRecords )
+		{
+			numberOfRecords = record;
+		}
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+	}
+
+	public void tableClosed( Table table )
+	{
+		// O handle tem o seu próprio arquivo e continua válido
+		table.removeTableListener( this );
+		this.table = null;
+	}
+
+	/**
+	 * Posição de um registro no arquivo
+	 */
+	long recordPosition( int record )
+	{
+		return headerLength + (long)( record - 1 ) * recordLength;
+	}
+
+	/**
+	 * Lê um trecho do arquivo a partir de uma posição. O posicionamento e a leitura são feitos
+	 * dentro do lock, portanto as leituras de vários cursores não interferem entre si.
+	 * @param pos	Posição no arquivo
+	 * @param buf	Array de destino
+	 * @param off	Posição no array
+	 * @param len	Quantidade de bytes (lidos por inteiro)
+	 * @throws IOException
+	 */
+	synchronized void read( long pos, byte[] buf, int off, int len ) throws IOException
+	{
+		file.seek( pos );
+
+		int total = 0;
+		while ( total < len )
+		{
+			int n = file.read( buf, off + total, len - total );
+			if ( n <= 0 )
+			{
+				throw new EOFException( tableName );
+			}
+			total += n;
+		}
+	}
+
+	Field findField( String columnName ) throws FieldNotFoundException
+	{
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			if ( fields[i].fieldName.equalsIgnoreCase( columnName ) )
+			{
+				return fields[i];
+			}
+		}
+
+		throw new FieldNotFoundException();
+	}
+}
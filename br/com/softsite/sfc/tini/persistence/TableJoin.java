@@ -0,0 +1,736 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+* Junção (join) de duas tabelas pela igualdade de uma coluna de cada uma
+* (ex: recebimentos x clientes por CD_CLIENTE).
+*
+* As chaves são comparadas pelos bytes gravados, desprezando os espaços das extremidades -
+* portanto colunas de tamanhos diferentes podem ser relacionadas. Colunas numéricas devem ter
+* a mesma quantidade de decimais ("15" nunca seria igual a "15.00"). Chaves em branco não
+* participam da junção. Registros deletados são ignorados.
+*
+* A estratégia é escolhida em run():
+* <ul>
+* <li>Se foi informado um HashIndex da coluna de uma das tabelas (setIndex), a outra tabela é
+*     lida em sequência e cada chave é pesquisada no índice (index nested loop).</li>
+* <li>Senão, a menor tabela é carregada numa tabela hash em memória (arrays de tipos
+*     primitivos) e a maior é lida em sequência (hash join).</li>
+* <li>Se a tabela hash não couber no limite de memória (setMemoryBudget), as duas tabelas são
+*     antes divididas em partições gravadas em arquivos temporários, pelo hash da chave, e cada
+*     par de partições é processado separadamente (grace hash join).</li>
+* </ul>
+*
+* Os pares são entregues a um JoinVisitor, um de cada vez, com as duas tabelas posicionadas.
+*
+* <pre>
+*	TableJoin join = new TableJoin( recebimentos, "CD_CLIENTE", clientes, "CD_CLIENTE" );
+*	join.run( new JoinVisitor() {
+*		public boolean visit( Table rec, Table cli ) throws ... {
+*			System.out.println( cli.getFieldString( "NM_CLIENTE" ) + " " + rec.getFieldDouble( "VR_RECEB" ) );
+*			return true;
+*		}
+*	} );
+* </pre>
+*
+* @version 1.0
+*/
+public class TableJoin {
+
+	/** Limite padrão de memória da tabela hash (4 MB) */
+	public static final int DEFAULT_MEMORY_BUDGET = 4 * 1024 * 1024;
+
+	/** Estratégias de execução */
+	public static final int STRATEGY_INDEX 			= 1;
+	public static final int STRATEGY_HASH 			= 2;
+	public static final int STRATEGY_PARTITIONED 	= 3;
+
+	/** Memória ocupada por registro na tabela hash, além dos bytes da chave */
+	private static final int ENTRY_BYTES = 24;
+
+	/** Quantidade máxima de partições */
+	private static final int MAX_PARTITIONS = 256;
+
+	private final Table left;
+	private final Table right;
+	private final Field leftField;
+	private final Field rightField;
+
+	/** Índice da coluna de uma das tabelas (null = não usar) */
+	private HashIndex index;
+
+	/** Limite de memória da tabela hash */
+	private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	/** Diretório dos arquivos temporários (null = diretório padrão do sistema) */
+	private File tempDirectory;
+
+	/** Destino dos pares durante run() */
+	private JoinVisitor visitor;
+
+	/** Quantidade de pares entregues */
+	private int matches;
+
+	/** Exceção lançada pelo visitor dentro da leitura sequencial */
+	private Exception visitorError;
+
+	/**
+	 * Construtor
+	 * @param left			Tabela da esquerda
+	 * @param leftColumn	Coluna da tabela da esquerda
+	 * @param right			Tabela da direita
+	 * @param rightColumn	Coluna da tabela da direita
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException As colunas não são do mesmo tipo, ou são numéricas com
+	 * 							   quantidades de decimais diferentes
+	 */
+	public TableJoin( Table left, String leftColumn, Table right, String rightColumn ) throws FieldNotFoundException, FieldTypeException
+	{
+		super();
+		this.left 		= left;
+		this.right 		= right;
+		this.leftField 	= left.findField( leftColumn );
+		this.rightField = right.findField( rightColumn );
+
+		if ( leftField.dataType != rightField.dataType && !( isNumeric( leftField ) && isNumeric( rightField ) ) )
+		{
+			throw new FieldTypeException();
+		}
+
+		// As chaves são comparadas pelos bytes: o mesmo valor com decimais diferentes não seria encontrado
+		if ( isNumeric( leftField ) && leftField.decimalCount != rightField.decimalCount )
+		{
+			throw new FieldTypeException();
+		}
+	}
+
+	/**
+	 * Informa o índice da coluna de junção de uma das tabelas: a outra tabela será lida em
+	 * sequência e as chaves pesquisadas no índice
+	 * @param index Índice (null = não usar índice)
+	 * @throws IllegalArgumentException O índice não é de uma das colunas da junção
+	 */
+	public void setIndex( HashIndex index )
+	{
+		if ( index != null
+			 && !( index.getTable() == left && index.getField() == leftField )
+			 && !( index.getTable() == right && index.getField() == rightField ) )
+		{
+			throw new IllegalArgumentException( index.getColumnName() );
+		}
+		this.index = index;
+	}
+
+	/**
+	 * Limite de memória, em bytes, da tabela hash construída com a menor tabela
+	 */
+	public void setMemoryBudget( int memoryBudget )
+	{
+		this.memoryBudget = Math.max( 1, memoryBudget );
+	}
+
+	/**
+	 * Diretório dos arquivos temporários das partições
+	 */
+	public void setTempDirectory( File tempDirectory )
+	{
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * Estratégia que será usada por run() (STRATEGY_XXX)
+	 */
+	public int getStrategy()
+	{
+		if ( index != null )
+		{
+			return STRATEGY_INDEX;
+		}
+
+		return ( estimateMemory() <= memoryBudget ) ? STRATEGY_HASH : STRATEGY_PARTITIONED;
+	}
+
+	/**
+	 * Executa a junção
+	 * @param visitor Recebe os pares de registros
+	 * @return Quantidade de pares entregues
+	 * @throws IOException
+	 * @throws FieldNotFoundException	Lançada pelo visitor
+	 * @throws FieldTypeException		Lançada pelo visitor
+	 */
+	public int run( JoinVisitor visitor ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		this.visitor 	  = visitor;
+		this.matches 	  = 0;
+		this.visitorError = null;
+
+		try
+		{
+			switch ( getStrategy() )
+			{
+				case STRATEGY_INDEX:
+					indexJoin();
+					break;
+
+				case STRATEGY_HASH:
+					hashJoin();
+					break;
+
+				default:
+					partitionedJoin();
+			}
+		}
+		finally
+		{
+			this.visitor = null;
+		}
+
+		if ( visitorError instanceof FieldNotFoundException )
+		{
+			throw (FieldNotFoundException)visitorError;
+		}
+		if ( visitorError instanceof FieldTypeException )
+		{
+			throw (FieldTypeException)visitorError;
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Lê a tabela sem índice e pesquisa cada chave no índice da outra
+	 */
+	private void indexJoin() throws IOException
+	{
+		final boolean indexOnRight = ( index.getTable() == right );
+		final Table   probe 	   = indexOnRight ? left : right;
+		final Field   probeField   = indexOnRight ? leftField : rightField;
+		final Field   indexField   = index.getField();
+
+		TableScanner scanner = new TableScanner( probe );
+		try
+		{
+			scanner.scan( 1, probe.getNumberOfRecords(), new RecordVisitor() {
+				public boolean visit( int record, byte[] buffer, int base ) throws IOException
+				{
+					if ( buffer[base] == Table.DELETED )
+					{
+						return true;
+					}
+
+					byte[] key = fitKey( buffer, base + probeField.offset, probeField.fieldLength, indexField );
+					if ( key == null )
+					{
+						return true;
+					}
+
+					int[] found = index.findAll( key );
+					for ( int i = 0; i < found.length; i++ )
+					{
+						boolean more = indexOnRight ? emit( record, found[i] ) : emit( found[i], record );
+						if ( !more )
+						{
+							return false;
+						}
+					}
+					return true;
+				}
+			} );
+		}
+		finally
+		{
+			scanner.close();
+		}
+	}
+
+	/**
+	 * Carrega a menor tabela em memória e lê a maior em sequência
+	 */
+	private void hashJoin() throws IOException
+	{
+		final boolean buildLeft  = buildLeft();
+		final Table   probe 	 = buildLeft ? right : left;
+		final Field   probeField = buildLeft ? rightField : leftField;
+
+		final BuildTable build = load( buildLeft ? left : right, buildLeft ? leftField : rightField );
+
+		TableScanner scanner = new TableScanner( probe );
+		try
+		{
+			scanner.scan( 1, probe.getNumberOfRecords(), new RecordVisitor() {
+				public boolean visit( int record, byte[] buffer, int base ) throws IOException
+				{
+					if ( buffer[base] == Table.DELETED )
+					{
+						return true;
+					}
+					return probe( build, buildLeft, record, buffer, base + probeField.offset, probeField.fieldLength );
+				}
+			} );
+		}
+		finally
+		{
+			scanner.close();
+		}
+	}
+
+	/**
+	 * Divide as duas tabelas em partições e processa cada par de partições com um hash join
+	 */
+	private void partitionedJoin() throws IOException
+	{
+		int partitions = (int)Math.min( MAX_PARTITIONS, estimateMemory() / memoryBudget + 1 );
+
+		boolean buildLeft = buildLeft();
+		File[] 	buildFiles = new File[partitions];
+		File[] 	probeFiles = new File[partitions];
+
+		try
+		{
+			partition( buildLeft ? left : right, buildLeft ? leftField : rightField, buildFiles );
+			partition( buildLeft ? right : left, buildLeft ? rightField : leftField, probeFiles );
+
+			for ( int p = 0; p < partitions; p++ )
+			{
+				BuildTable build = new BuildTable( 16 );
+
+				DataInputStream in = open( buildFiles[p] );
+				try
+				{
+					byte[] key = new byte[Math.max( leftField.fieldLength, rightField.fieldLength )];
+					while ( true )
+					{
+						int record;
+						try
+						{
+							record = in.readInt();
+						}
+						catch ( EOFException e )
+						{
+							break;
+						}
+						int length = in.readUnsignedByte();
+						in.readFully( key, 0, length );
+						build.add( record, key, 0, length );
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+
+				in = open( probeFiles[p] );
+				try
+				{
+					byte[] key = new byte[Math.max( leftField.fieldLength, rightField.fieldLength )];
+					while ( true )
+					{
+						int record;
+						try
+						{
+							record = in.readInt();
+						}
+						catch ( EOFException e )
+						{
+							break;
+						}
+						int length = in.readUnsignedByte();
+						in.readFully( key, 0, length );
+
+						if ( !probe( build, buildLeft, record, key, 0, length ) )
+						{
+							return;
+						}
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		}
+		finally
+		{
+			for ( int p = 0; p < partitions; p++ )
+			{
+				if ( buildFiles[p] != null )
+				{
+					buildFiles[p].delete();
+				}
+				if ( probeFiles[p] != null )
+				{
+					probeFiles[p].delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pesquisa uma chave da tabela lida em sequência na tabela hash e entrega os pares
+	 * @return FALSE se o visitor interrompeu a junção
+	 */
+	private boolean probe( BuildTable build, boolean buildLeft, int record, byte[] data, int pos, int len ) throws IOException
+	{
+		int start = trimStart( data, pos, len );
+		int end   = trimEnd( data, start, pos + len );
+
+		if ( start == end )
+		{
+			return true;
+		}
+
+		int hash = HashIndex.hash( data, start, end - start );
+		for ( int entry = build.first( hash ); entry != 0; entry = build.next[entry] )
+		{
+			if ( build.matches( entry, hash, data, start, end - start ) )
+			{
+				int other = build.records[entry];
+				boolean more = buildLeft ? emit( other, record ) : emit( record, other );
+				if ( !more )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Posiciona as duas tabelas e entrega o par ao visitor
+	 */
+	private boolean emit( int leftRecord, int rightRecord ) throws IOException
+	{
+		left.goTo( leftRecord );
+		right.goTo( rightRecord );
+		matches++;
+
+		try
+		{
+			return visitor.visit( left, right );
+		}
+		catch ( FieldNotFoundException e )
+		{
+			visitorError = e;
+		}
+		catch ( FieldTypeException e )
+		{
+			visitorError = e;
+		}
+		return false;
+	}
+
+	/**
+	 * Carrega as chaves de uma tabela na tabela hash
+	 */
+	private BuildTable load( Table table, final Field field ) throws IOException
+	{
+		final BuildTable build = new BuildTable( table.getNumberOfRecords() );
+
+		TableScanner scanner = new TableScanner( table );
+		try
+		{
+			scanner.scan( 1, table.getNumberOfRecords(), new RecordVisitor() {
+				public boolean visit( int record, byte[] buffer, int base )
+				{
+					if ( buffer[base] != Table.DELETED )
+					{
+						int pos   = base + field.offset;
+						int start = trimStart( buffer, pos, field.fieldLength );
+						int end   = trimEnd( buffer, start, pos + field.fieldLength );
+
+						if ( start < end )
+						{
+							build.add( record, buffer, start, end - start );
+						}
+					}
+					return true;
+				}
+			} );
+		}
+		finally
+		{
+			scanner.close();
+		}
+
+		return build;
+	}
+
+	/**
+	 * Grava as chaves de uma tabela em arquivos temporários, um por partição
+	 */
+	private void partition( Table table, final Field field, File[] files ) throws IOException
+	{
+		final DataOutputStream[] out = new DataOutputStream[files.length];
+
+		try
+		{
+			for ( int p = 0; p < files.length; p++ )
+			{
+				files[p] = File.createTempFile( "join", ".tmp", tempDirectory );
+				out[p] 	 = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( files[p] ) ) );
+			}
+
+			TableScanner scanner = new TableScanner( table );
+			try
+			{
+				scanner.scan( 1, table.getNumberOfRecords(), new RecordVisitor() {
+					public boolean visit( int record, byte[] buffer, int base ) throws IOException
+					{
+						if ( buffer[base] != Table.DELETED )
+						{
+							int pos   = base + field.offset;
+							int start = trimStart( buffer, pos, field.fieldLength );
+							int end   = trimEnd( buffer, start, pos + field.fieldLength );
+
+							if ( start < end )
+							{
+								int hash = HashIndex.hash( buffer, start, end - start );
+								DataOutputStream o = out[partitionOf( hash, out.length )];
+								o.writeInt( record );
+								o.writeByte( end - start );
+								o.write( buffer, start, end - start );
+							}
+						}
+						return true;
+					}
+				} );
+			}
+			finally
+			{
+				scanner.close();
+			}
+		}
+		finally
+		{
+			for ( int p = 0; p < out.length; p++ )
+			{
+				if ( out[p] != null )
+				{
+					out[p].close();
+				}
+			}
+		}
+	}
+
+	private DataInputStream open( File file ) throws IOException
+	{
+		return new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+	}
+
+	/**
+	 * A tabela hash é construída com a tabela de menos registros
+	 */
+	private boolean buildLeft()
+	{
+		return left.getNumberOfRecords() <= right.getNumberOfRecords();
+	}
+
+	/**
+	 * Memória estimada da tabela hash
+	 */
+	private long estimateMemory()
+	{
+		Field field = buildLeft() ? leftField : rightField;
+		Table table = buildLeft() ? left : right;
+		return (long)table.getNumberOfRecords() * ( ENTRY_BYTES + field.fieldLength );
+	}
+
+	/**
+	 * Partição de uma chave (usa bits do hash diferentes dos usados pelos buckets)
+	 */
+	private static int partitionOf( int hash, int partitions )
+	{
+		return ( ( hash >>> 11 ) & 0x7FFFFFFF ) % partitions;
+	}
+
+	/**
+	 * Formata uma chave da outra tabela no formato da coluna indexada: colunas caracter e
+	 * lógicas alinhadas à esquerda, as demais à direita
+	 * @return A chave, ou null se estiver em branco ou não couber na coluna
+	 */
+	private static byte[] fitKey( byte[] data, int pos, int len, Field target )
+	{
+		int start = trimStart( data, pos, len );
+		int end   = trimEnd( data, start, pos + len );
+		int size  = end - start;
+
+		if ( size == 0 || size > target.fieldLength )
+		{
+			return null;
+		}
+
+		byte[] key = new byte[target.fieldLength];
+		for ( int i = 0; i < key.length; i++ )
+		{
+			key[i] = ' ';
+		}
+
+		boolean leftAligned = ( target.dataType == Field.TYPE_CHARACTER || target.dataType == Field.TYPE_LOGICAL );
+		System.arraycopy( data, start, key, leftAligned ? 0 : key.length - size, size );
+
+		return key;
+	}
+
+	private static int trimStart( byte[] data, int pos, int len )
+	{
+		int end = pos + len;
+		while ( pos < end && ( data[pos] & 0xff ) <= ' ' )
+		{
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int trimEnd( byte[] data, int start, int end )
+	{
+		while ( end > start && ( data[end - 1] & 0xff ) <= ' ' )
+		{
+			end--;
+		}
+		return end;
+	}
+
+	private static boolean isNumeric( Field field )
+	{
+		return field.dataType == Field.TYPE_NUMERIC || field.dataType == Field.TYPE_FLOAT;
+	}
+
+	/**
+	 * Tabela hash da junção. As entradas são numeradas a partir de 1 e guardadas em arrays
+	 * de tipos primitivos; as chaves ficam concatenadas em um único array de bytes.
+	 */
+	private static class BuildTable
+	{
+		int[] 	buckets;
+		int[] 	next;
+		int[] 	hashes;
+		int[] 	records;
+		int[] 	keyStart;
+		byte[] 	keyPool;
+		int 	keyPoolLength;
+		int 	size;
+
+		BuildTable( int expected )
+		{
+			int capacity = 16;
+			while ( capacity < expected * 2 )
+			{
+				capacity <<= 1;
+			}
+
+			buckets  = new int[capacity];
+			next 	 = new int[expected + 2];
+			hashes 	 = new int[expected + 2];
+			records  = new int[expected + 2];
+			keyStart = new int[expected + 2];
+			keyPool  = new byte[Math.max( 64, expected * 8 )];
+		}
+
+		void add( int record, byte[] data, int pos, int len )
+		{
+			int entry = ++size;
+
+			if ( entry + 1 >= next.length )
+			{
+				int length = next.length * 2;
+				next 	 = grow( next, length );
+				hashes 	 = grow( hashes, length );
+				records  = grow( records, length );
+				keyStart = grow( keyStart, length );
+			}
+
+			if ( keyPoolLength + len > keyPool.length )
+			{
+				byte[] pool = new byte[Math.max( keyPool.length * 2, keyPoolLength + len )];
+				System.arraycopy( keyPool, 0, pool, 0, keyPoolLength );
+				keyPool = pool;
+			}
+
+			int hash = HashIndex.hash( data, pos, len );
+
+			System.arraycopy( data, pos, keyPool, keyPoolLength, len );
+			keyStart[entry] 	= keyPoolLength;
+			keyStart[entry + 1] = keyPoolLength + len;
+			keyPoolLength 	   += len;
+
+			hashes[entry]  = hash;
+			records[entry] = record;
+
+			if ( size * 2 > buckets.length )
+			{
+				rehash();
+			}
+
+			int slot 	  = slot( hash, buckets.length );
+			next[entry]   = buckets[slot];
+			buckets[slot] = entry;
+		}
+
+		int first( int hash )
+		{
+			return buckets[slot( hash, buckets.length )];
+		}
+
+		boolean matches( int entry, int hash, byte[] data, int pos, int len )
+		{
+			if ( hashes[entry] != hash )
+			{
+				return false;
+			}
+
+			int start = keyStart[entry];
+			if ( keyStart[entry + 1] - start != len )
+			{
+				return false;
+			}
+
+			for ( int i = 0; i < len; i++ )
+			{
+				if ( keyPool[start + i] != data[pos + i] )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash()
+		{
+			buckets = new int[buckets.length * 2];
+			for ( int entry = 1; entry <= size - 1; entry++ )
+			{
+				int slot 	  = slot( hashes[entry], buckets.length );
+				next[entry]   = buckets[slot];
+				buckets[slot] = entry;
+			}
+		}
+
+		private static int slot( int hash, int capacity )
+		{
+			return ( hash ^ ( hash >>> 16 ) ) & ( capacity - 1 );
+		}
+
+		private static int[] grow( int[] array, int length )
+		{
+			int[] newArray = new int[length];
+			System.arraycopy( array, 0, newArray, 0, array.length );
+			return newArray;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Recebe as alterações feitas em uma tabela (ver Table.addTableListener).
+*
+* Os arrays recebidos contêm o registro completo (o byte 0 é o indicador de deletado) e não
+* devem ser alterados nem guardados - são os mesmos usados pela tabela.
+*
+* @version 1.0
+*/
+public interface TableListener {
+
+	/**
+	 * Um registro foi adicionado
+	 * @param table		Tabela alterada
+	 * @param record	Número do novo registro
+	 * @param data		Conteúdo do registro
+	 */
+	void recordAdded( Table table, int record, byte[] data );
+
+	/**
+	 * Um registro foi alterado (setFieldXXX ou regravação do registro)
+	 * @param table		Tabela alterada
+	 * @param record	Número do registro
+	 * @param oldData	Conteúdo anterior do registro
+	 * @param newData	Conteúdo atual do registro
+	 */
+	void recordChanged( Table table, int record, byte[] oldData, byte[] newData );
+
+	/**
+	 * Um registro foi marcado como deletado
+	 * @param table		Tabela alterada
+	 * @param record	Número do registro
+	 */
+	void recordDeleted( Table table, int record );
+
+	/**
+	 * Um registro deletado foi recuperado (ver Table.recallRecords)
+	 * @param table		Tabela alterada
+	 * @param record	Número do registro
+	 * @param data		Conteúdo atual do registro
+	 */
+	void recordRecalled( Table table, int record, byte[] data );
+
+	/**
+	 * A tabela está sendo fechada
+	 * @param table Tabela
+	 */
+	void tableClosed( Table table );
+}
@@ -0,0 +1,705 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+* Alteração da estrutura de uma tabela: inclusão, exclusão e alteração do tamanho de colunas.
+*
+* A tabela é regravada em um novo arquivo com a nova estrutura, lida em blocos grandes
+* (TableScanner). As colunas que não mudam são copiadas byte a byte, sem decodificação
+* (colunas vizinhas nas duas estruturas são copiadas juntas); apenas as colunas com novo
+* tamanho são convertidas. A leitura pode ser dividida em intervalos de registros executados
+* em paralelo (setParallelism), cada um gravando a sua parte do novo arquivo.
+*
+* No final, o novo arquivo é validado (aberto como Table) e substitui a tabela. Em caso de erro
+* (inclusive valores que não cabem no novo tamanho), a tabela não é alterada. Os registros,
+* inclusive os deletados, mantêm os seus números; o arquivo .DBT, se existir, é mantido, pois
+* os números dos blocos dos memos não mudam. A tabela não pode estar aberta durante a
+* alteração: run() falha se ela estiver aberta por uma Table ou TableHandle dessa VM
+* (Table.isTableOpen) e não substitui o arquivo se o tamanho ou a data dele mudarem durante a
+* regravação (gravação por outro processo). Índices, zone maps e arquivos de CRC da tabela
+* devem ser refeitos depois.
+*
+* <pre>
+*	TableMigration migration = new TableMigration( "RECEB.DBF" );
+*	migration.resizeField( "NR_CPF", 14, 0 );
+*	migration.dropField( "ID_TRANSM" );
+*	migration.addField( "DS_OBS", Field.TYPE_CHARACTER, 40, 0 );
+*	migration.setParallelism( 4 );
+*	migration.run();
+* </pre>
+*
+* @version 1.0
+*/
+public class TableMigration {
+
+	/** Quantidade mínima de registros por thread */
+	private static final int MIN_RECORDS_PER_THREAD = 4096;
+
+	/** Tamanho do bloco gravado de uma vez */
+	private static final int BLOCK_SIZE = 256 * 1024;
+
+	/** Tabela alterada */
+	private final String tableName;
+
+	/** Colunas excluídas (nomes em maiúsculas) */
+	private final Vector drops = new Vector();
+
+	/** Novos tamanhos (nome em maiúsculas -> int[] { tamanho, decimais }) */
+	private final Hashtable resizes = new Hashtable();
+
+	/** Colunas incluídas (Object[] { nome, tipo, tamanho, decimais, valor inicial }) */
+	private final Vector additions = new Vector();
+
+	/** Quantidade máxima de threads */
+	private int parallelism = 1;
+
+	/** Permitir que colunas caracter reduzidas percam o conteúdo que não cabe (não vale para numéricas) */
+	private boolean allowTruncation = false;
+
+	/** Manter a tabela original com a extensão .OLD.DBF */
+	private boolean keepBackup = false;
+
+	/**
+	 * Construtor
+	 * @param tableName Nome (caminho) da tabela, que não pode estar aberta durante run()
+	 */
+	public TableMigration( String tableName )
+	{
+		super();
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Inclui uma coluna em branco, no final do registro
+	 * @param name			Nome da coluna
+	 * @param type			Tipo (Field.TYPE_XXX)
+	 * @param length		Tamanho
+	 * @param decimalCount	Casas decimais (apenas numéricos)
+	 * @return A própria migração
+	 */
+	public TableMigration addField( String name, char type, int length, int decimalCount )
+	{
+		return addField( name, type, length, decimalCount, null );
+	}
+
+	/**
+	 * Inclui uma coluna, no final do registro, preenchida com um valor inicial
+	 * @param name			Nome da coluna
+	 * @param type			Tipo (Field.TYPE_XXX)
+	 * @param length		Tamanho
+	 * @param decimalCount	Casas decimais (apenas numéricos)
+	 * @param defaultValue	Valor de todos os registros, no tipo da coluna (null = em branco)
+	 * @return A própria migração
+	 */
+	public TableMigration addField( String name, char type, int length, int decimalCount, Object defaultValue )
+	{
+		additions.addElement( new Object[] { name, new Character( type ), new Integer( length ), new Integer( decimalCount ), defaultValue } );
+		return this;
+	}
+
+	/**
+	 * Exclui uma coluna
+	 * @param name Nome da coluna
+	 * @return A própria migração
+	 */
+	public TableMigration dropField( String name )
+	{
+		drops.addElement( name.toUpperCase() );
+		return this;
+	}
+
+	/**
+	 * Altera o tamanho de uma coluna caracter ou numérica. Os valores numéricos são
+	 * realinhados (e arredondados, se mudar a quantidade de decimais).
+	 * @param name			Nome da coluna
+	 * @param length		Novo tamanho
+	 * @param decimalCount	Nova quantidade de casas decimais (apenas numéricos)
+	 * @return A própria migração
+	 */
+	public TableMigration resizeField( String name, int length, int decimalCount )
+	{
+		resizes.put( name.toUpperCase(), new int[] { length, decimalCount } );
+		return this;
+	}
+
+	/**
+	 * Quantidade máxima de threads na regravação
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = Math.max( 1, parallelism );
+	}
+
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Permite reduzir colunas caracter que possuem conteúdo além do novo tamanho (o conteúdo é
+	 * cortado). Se FALSE (padrão), a alteração é interrompida.
+	 *
+	 * Vale apenas para colunas caracter: um valor numérico que não cabe no novo tamanho sempre
+	 * interrompe a alteração, pois cortar dígitos mudaria o valor. A redução de decimais
+	 * arredonda o valor e não depende dessa opção.
+	 */
+	public void setAllowTruncation( boolean allowTruncation )
+	{
+		this.allowTruncation = allowTruncation;
+	}
+
+	public boolean isAllowTruncation()
+	{
+		return allowTruncation;
+	}
+
+	/**
+	 * Mantém a tabela original, renomeada com .OLD antes da extensão (ex: RECEB.OLD.DBF)
+	 */
+	public void setKeepBackup( boolean keepBackup )
+	{
+		this.keepBackup = keepBackup;
+	}
+
+	public boolean isKeepBackup()
+	{
+		return keepBackup;
+	}
+
+	/**
+	 * Regrava a tabela com a nova estrutura e substitui o arquivo
+	 * @return Quantidade de registros regravados
+	 * @throws IOException
+	 * @throws TableCorruptException
+	 * @throws FieldNotFoundException Coluna excluída ou alterada não existe
+	 * @throws FieldTypeException Tipo de coluna inválido
+	 * @throws IllegalArgumentException Alteração inválida (ex: tamanho de coluna data)
+	 * @throws IllegalStateException Um valor não cabe no novo tamanho da coluna
+	 * @throws IOException A tabela está aberta nessa VM ou foi alterada durante a regravação
+	 */
+	public int run() throws IOException, TableCorruptException, FieldNotFoundException, FieldTypeException
+	{
+		String tempName = siblingName( tableName, "MIG" );
+		File temp 		= new File( tempName );
+		File tempMemo 	= new File( MemoFile.getMemoFileName( tempName ) );
+		File memo 		= new File( MemoFile.getMemoFileName( tableName ) );
+
+		File original 	= new File( tableName );
+
+		temp.delete();
+		tempMemo.delete();
+
+		checkClosed();
+
+		// Abrir e fechar retira o espaço pré-alocado: a partir daqui, qualquer mudança de tamanho
+		// ou data do arquivo é uma gravação de outro processo
+		new Table( tableName ).close();
+		long length   = original.length();
+		long modified = original.lastModified();
+
+		Table source = new Table( tableName );
+		boolean ok = false;
+		try
+		{
+			Plan plan = plan( source, tempName );
+
+			// Os memos continuam no .DBT original; o .DBT novo só é usado se a tabela não tinha memos
+			if ( memo.exists() )
+			{
+				tempMemo.delete();
+			}
+
+			int records = source.getNumberOfRecords();
+			RandomAccessFile out = new RandomAccessFile( temp, "rw" );
+			try
+			{
+				out.setLength( plan.headerLength + (long)records * plan.recordLength + 1 );
+
+				byte[] count = new byte[4];
+				Utils.writeLittleEndianInt( count, 0, records );
+				out.seek( Table.HEADER_NUMBER_OF_RECORDS );
+				out.write( count );
+
+				out.seek( plan.headerLength + (long)records * plan.recordLength );
+				out.write( Table.EOF );
+			}
+			finally
+			{
+				out.close();
+			}
+
+			copy( source, plan, records );
+
+			source.close();
+			source = null;
+
+			// Valida o cabeçalho e o tamanho do novo arquivo antes da troca
+			new Table( tempName ).close();
+
+			checkClosed();
+			if ( original.length() != length || original.lastModified() != modified )
+			{
+				throw new IOException( tableName + ": tabela alterada durante a regravação" );
+			}
+			swap( temp, original );
+			if ( tempMemo.exists() )
+			{
+				tempMemo.renameTo( memo );
+			}
+
+			ok = true;
+			return records;
+		}
+		finally
+		{
+			if ( source != null )
+			{
+				source.close();
+			}
+			if ( !ok )
+			{
+				temp.delete();
+				tempMemo.delete();
+			}
+		}
+	}
+
+	/**
+	 * Confere se a tabela não está aberta nessa VM
+	 */
+	private void checkClosed() throws IOException
+	{
+		if ( Table.isTableOpen( tableName ) )
+		{
+			throw new IOException( tableName + ": tabela aberta" );
+		}
+	}
+
+	/**
+	 * Cria o novo arquivo (vazio) e monta a conversão de cada registro
+	 */
+	private Plan plan( Table source, String tempName ) throws IOException, TableCorruptException, FieldNotFoundException, FieldTypeException
+	{
+		for ( int i = 0; i < drops.size(); i++ )
+		{
+			source.findField( (String)drops.elementAt(i) );
+		}
+		for ( java.util.Enumeration e = resizes.keys(); e.hasMoreElements(); )
+		{
+			Field field = source.findField( (String)e.nextElement() );
+			if ( field.dataType != Field.TYPE_CHARACTER && field.dataType != Field.TYPE_NUMERIC && field.dataType != Field.TYPE_FLOAT )
+			{
+				throw new IllegalArgumentException( "O tamanho da coluna não pode ser alterado: " + field.fieldName );
+			}
+		}
+
+		Field[] oldFields = source.getFields();
+		TableBuilder builder = new TableBuilder( tempName );
+		builder.setCodePage( source.codePageMark );
+
+		Vector kept = new Vector();
+		for ( int i = 0; i < oldFields.length; i++ )
+		{
+			Field field = oldFields[i];
+			if ( drops.contains( field.fieldName.toUpperCase() ) )
+			{
+				continue;
+			}
+
+			int[] size = (int[])resizes.get( field.fieldName.toUpperCase() );
+			builder.addField( field.fieldName, field.dataType, ( size != null ) ? size[0] : field.fieldLength,
+							  ( size != null ) ? size[1] : field.decimalCount );
+			kept.addElement( field );
+		}
+		for ( int i = 0; i < additions.size(); i++ )
+		{
+			Object[] addition = (Object[])additions.elementAt(i);
+			builder.addField( (String)addition[0], ((Character)addition[1]).charValue(),
+							  ((Integer)addition[2]).intValue(), ((Integer)addition[3]).intValue() );
+		}
+
+		Table target = builder.create();
+		Plan plan = new Plan();
+		try
+		{
+			Field[] newFields 	= target.getFields();
+			plan.headerLength 	= target.headerLength;
+			plan.recordLength 	= target.recordLength;
+			plan.template 		= target.newRecordData();
+
+			for ( int i = kept.size(); i < newFields.length; i++ )
+			{
+				Object value = ((Object[])additions.elementAt( i - kept.size() ))[4];
+				if ( value != null )
+				{
+					newFields[i].formatData( value, plan.template, 0 );
+				}
+			}
+
+			// Segmentos copiados byte a byte (o primeiro é o indicador de deletado)
+			Vector segments = new Vector();
+			Vector from 	= new Vector();
+			Vector to 		= new Vector();
+			int[] segment = { 0, 0, 1 };
+			segments.addElement( segment );
+
+			for ( int i = 0; i < kept.size(); i++ )
+			{
+				Field oldField = (Field)kept.elementAt(i);
+				Field newField = newFields[i];
+
+				if ( oldField.fieldLength == newField.fieldLength && oldField.decimalCount == newField.decimalCount )
+				{
+					if ( segment[0] + segment[2] == oldField.offset && segment[1] + segment[2] == newField.offset )
+					{
+						segment[2] += oldField.fieldLength;
+					}
+					else
+					{
+						segment = new int[] { oldField.offset, newField.offset, oldField.fieldLength };
+						segments.addElement( segment );
+					}
+				}
+				else
+				{
+					from.addElement( oldField );
+					to.addElement( newField );
+				}
+			}
+
+			plan.segments = new int[segments.size()][];
+			segments.copyInto( plan.segments );
+			plan.from = new Field[from.size()];
+			from.copyInto( plan.from );
+			plan.to = new Field[to.size()];
+			to.copyInto( plan.to );
+		}
+		finally
+		{
+			target.close();
+		}
+		return plan;
+	}
+
+	/**
+	 * Regrava os registros, em paralelo se for o caso
+	 */
+	private void copy( Table source, Plan plan, int records ) throws IOException
+	{
+		if ( records == 0 )
+		{
+			return;
+		}
+
+		int threads = Math.max( 1, Math.min( parallelism, records / MIN_RECORDS_PER_THREAD ) );
+		Task[] tasks = new Task[threads];
+		Thread[] workers = new Thread[threads];
+
+		int first = 1;
+		for ( int i = 0; i < threads; i++ )
+		{
+			int last = ( i == threads - 1 ) ? records : first + records / threads - 1;
+			tasks[i] = new Task( source, plan, first, last );
+			first = last + 1;
+		}
+
+		// A primeira parte é regravada pela própria thread
+		for ( int i = 1; i < threads; i++ )
+		{
+			workers[i] = new Thread( tasks[i], "Migration " + ( i + 1 ) );
+			workers[i].start();
+		}
+		tasks[0].run();
+		for ( int i = 1; i < threads; i++ )
+		{
+			try
+			{
+				workers[i].join();
+			}
+			catch ( InterruptedException e )
+			{
+				throw new InterruptedIOException();
+			}
+		}
+
+		for ( int i = 0; i < threads; i++ )
+		{
+			if ( tasks[i].error != null )
+			{
+				throw tasks[i].error;
+			}
+			if ( tasks[i].failure != null )
+			{
+				throw tasks[i].failure;
+			}
+		}
+	}
+
+	/**
+	 * Substitui a tabela pelo novo arquivo. Sem cópia da original, o rename substitui o arquivo
+	 * de uma só vez onde o sistema operacional permite; caso contrário (ou com setKeepBackup), a
+	 * original é renomeada antes e restaurada se o novo arquivo não puder tomar o seu lugar.
+	 */
+	private void swap( File temp, File original ) throws IOException
+	{
+		if ( !keepBackup && temp.renameTo( original ) )
+		{
+			return;
+		}
+
+		File backup = new File( siblingName( original.getPath(), "OLD" ) );
+		backup.delete();
+		if ( !original.renameTo( backup ) )
+		{
+			throw new IOException( "Não foi possível renomear " + original.getPath() );
+		}
+		if ( !temp.renameTo( original ) )
+		{
+			backup.renameTo( original );
+			throw new IOException( "Não foi possível substituir " + original.getPath() );
+		}
+		if ( !keepBackup )
+		{
+			backup.delete();
+		}
+	}
+
+	/**
+	 * Nome de um arquivo no mesmo diretório, com um sufixo antes da extensão
+	 * (RECEB.DBF -> RECEB.MIG.DBF)
+	 */
+	private static String siblingName( String fileName, String suffix )
+	{
+		int dot = fileName.lastIndexOf( '.' );
+		if ( dot > fileName.lastIndexOf( File.separatorChar ) && dot > fileName.lastIndexOf( '/' ) )
+		{
+			return fileName.substring( 0, dot + 1 ) + suffix + fileName.substring( dot );
+		}
+		return fileName + "." + suffix;
+	}
+
+	/**
+	 * Conversão de um registro para a nova estrutura
+	 */
+	private static class Plan
+	{
+		int headerLength;
+		int recordLength;
+
+		/** Registro novo em branco, com os valores iniciais das colunas incluídas */
+		byte[] template;
+
+		/** Trechos copiados: { posição antiga, posição nova, tamanho } */
+		int[][] segments;
+
+		/** Colunas convertidas (tamanho alterado) */
+		Field[] from;
+		Field[] to;
+	}
+
+	/**
+	 * Regravação de um intervalo de registros, com os seus próprios handles
+	 */
+	private class Task implements Runnable, RecordVisitor
+	{
+		final Table source;
+		final Plan plan;
+		final int first;
+		final int last;
+		final byte[] block;
+		final int perBlock;
+
+		RandomAccessFile out;
+		int blockFirst;
+		int count;
+
+		IOException error;
+		RuntimeException failure;
+
+		Task( Table source, Plan plan, int first, int last )
+		{
+			this.source 	= source;
+			this.plan 		= plan;
+			this.first 		= first;
+			this.last 		= last;
+			this.perBlock 	= Math.max( 1, BLOCK_SIZE / plan.recordLength );
+			this.block 		= new byte[perBlock * plan.recordLength];
+			this.blockFirst = first;
+		}
+
+		public void run()
+		{
+			try
+			{
+				out = new RandomAccessFile( siblingName( tableName, "MIG" ), "rw" );
+				try
+				{
+					TableScanner scanner = new TableScanner( source );
+					try
+					{
+						scanner.scan( first, last, this );
+					}
+					finally
+					{
+						scanner.close();
+					}
+					flush();
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+			catch ( IOException e )
+			{
+				error = e;
+			}
+			catch ( RuntimeException e )
+			{
+				failure = e;
+			}
+		}
+
+		public boolean visit( int record, byte[] buffer, int base ) throws IOException
+		{
+			int pos = count * plan.recordLength;
+			System.arraycopy( plan.template, 0, block, pos, plan.recordLength );
+
+			for ( int i = 0; i < plan.segments.length; i++ )
+			{
+				int[] segment = plan.segments[i];
+				System.arraycopy( buffer, base + segment[0], block, pos + segment[1], segment[2] );
+			}
+
+			for ( int i = 0; i < plan.from.length; i++ )
+			{
+				convert( plan.from[i], plan.to[i], buffer, base, block, pos, record );
+			}
+
+			if ( ++count == perBlock )
+			{
+				flush();
+			}
+			return true;
+		}
+
+		private void flush() throws IOException
+		{
+			if ( count > 0 )
+			{
+				out.seek( plan.headerLength + (long)( blockFirst - 1 ) * plan.recordLength );
+				out.write( block, 0, count * plan.recordLength );
+				blockFirst += count;
+				count = 0;
+			}
+		}
+	}
+
+	/**
+	 * Converte uma coluna com o tamanho alterado
+	 */
+	private void convert( Field from, Field to, byte[] buffer, int base, byte[] block, int pos, int record )
+	{
+		int source = base + from.offset;
+		int target = pos + to.offset;
+
+		if ( from.dataType == Field.TYPE_CHARACTER )
+		{
+			int length = Math.min( from.fieldLength, to.fieldLength );
+			System.arraycopy( buffer, source, block, target, length );
+
+			for ( int i = length; i < from.fieldLength && !allowTruncation; i++ )
+			{
+				if ( ( buffer[source + i] & 0xff ) > ' ' )
+				{
+					throw tooLarge( from, record );
+				}
+			}
+			return;
+		}
+
+		// Numérica: o texto é realinhado à direita; só é recalculado se mudam as decimais
+		int start = source, end = source + from.fieldLength;
+		while ( start < end && ( buffer[start] & 0xff ) <= ' ' )
+		{
+			start++;
+		}
+		while ( end > start && ( buffer[end - 1] & 0xff ) <= ' ' )
+		{
+			end--;
+		}
+		if ( start == end )
+		{
+			return;		// em branco
+		}
+
+		byte[] text;
+		if ( from.decimalCount == to.decimalCount )
+		{
+			text = new byte[end - start];
+			System.arraycopy( buffer, start, text, 0, text.length );
+		}
+		else
+		{
+			double value;
+			try
+			{
+				value = from.parseDouble( buffer, base );
+			}
+			catch ( NumberFormatException e )
+			{
+				throw new IllegalStateException( "Valor inválido na coluna " + from.fieldName + " (registro " + record + ")" );
+			}
+			text = format( value, to.decimalCount ).getBytes();
+		}
+
+		if ( text.length > to.fieldLength )
+		{
+			throw tooLarge( from, record );
+		}
+		System.arraycopy( text, 0, block, target + to.fieldLength - text.length, text.length );
+	}
+
+	private static IllegalStateException tooLarge( Field field, int record )
+	{
+		return new IllegalStateException( "Valor não cabe no novo tamanho da coluna " + field.fieldName + " (registro " + record + ")" );
+	}
+
+	/**
+	 * Formata um número com uma quantidade fixa de decimais
+	 */
+	private static String format( double value, int decimals )
+	{
+		long scale = 1;
+		for ( int i = 0; i < decimals; i++ )
+		{
+			scale *= 10;
+		}
+
+		long scaled = Math.round( Math.abs( value ) * scale );
+		StringBuffer sb = new StringBuffer();
+		if ( value < 0 && scaled != 0 )
+		{
+			sb.append( '-' );
+		}
+		sb.append( scaled / scale );
+		if ( decimals > 0 )
+		{
+			sb.append( '.' ).append( String.valueOf( scaled % scale + scale ).substring( 1 ) );
+		}
+		return sb.toString();
+	}
+}
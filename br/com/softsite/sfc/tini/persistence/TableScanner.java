@@ -0,0 +1,127 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+* Leitura sequencial de um intervalo de registros em blocos grandes, usada na construção de
+* índices e estatísticas. Usa um handle próprio (somente leitura), portanto não altera o
+* cursor da tabela e pode ser usada em paralelo por várias threads, cada uma com o seu scanner.
+*
+* @version 1.0
+*/
+class TableScanner {
+
+	/** Tamanho padrão do bloco de leitura */
+	static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	private final RandomAccessFile file;
+	private final int headerLength;
+	private final int recordLength;
+	private final byte[] block;
+
+	/**
+	 * Construtor
+	 * @param table Tabela a ser lida
+	 * @throws IOException
+	 */
+	TableScanner( Table table ) throws IOException
+	{
+		this( table, DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * Construtor
+	 * @param table		Tabela a ser lida
+	 * @param blockSize	Tamanho do bloco de leitura
+	 * @throws IOException
+	 */
+	TableScanner( Table table, int blockSize ) throws IOException
+	{
+		super();
+		this.file 		  = new RandomAccessFile( new File( table.tableName ), "r" );
+		this.headerLength = table.headerLength;
+		this.recordLength = table.recordLength;
+		this.block 		  = new byte[Math.max( blockSize / recordLength, 1 ) * recordLength];
+	}
+
+	/**
+	 * Lê os registros do intervalo, na ordem
+	 * @param first		Primeiro registro (a partir de 1)
+	 * @param last		Último registro (inclusive)
+	 * @param visitor	Recebe cada registro
+	 * @return FALSE se a leitura foi interrompida pelo visitor
+	 * @throws IOException
+	 */
+	boolean scan( int first, int last, RecordVisitor visitor ) throws IOException
+	{
+		int perBlock = block.length / recordLength;
+		int record 	 = first;
+
+		file.seek( headerLength + (long)( first - 1 ) * recordLength );
+
+		while ( record <= last )
+		{
+			int count = Math.min( perBlock, last - record + 1 );
+			int bytes = count * recordLength;
+			int total = 0;
+
+			while ( total < bytes )
+			{
+				int n = file.read( block, total, bytes - total );
+				if ( n <= 0 )
+				{
+					break;
+				}
+				total += n;
+			}
+
+			// Registros incompletos no final do arquivo são ignorados
+			count = total / recordLength;
+
+			for ( int i = 0; i < count; i++, record++ )
+			{
+				if ( !visitor.visit( record, block, i * recordLength ) )
+				{
+					return false;
+				}
+			}
+
+			if ( total < bytes )
+			{
+				break;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Lê um trecho de um registro
+	 * @param record	Número do registro
+	 * @param offset	Posição dentro do registro
+	 * @param buf		Array de destino (lido por inteiro)
+	 * @throws IOException
+	 */
+	void read( int record, int offset, byte[] buf ) throws IOException
+	{
+		file.seek( headerLength + (long)( record - 1 ) * recordLength + offset );
+		file.readFully( buf );
+	}
+
+	/**
+	 * Fecha o arquivo
+	 */
+	void close() throws IOException
+	{
+		file.close();
+	}
+}
@@ -0,0 +1,306 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+/**
+* Cursor somente leitura que enxerga a tabela como ela estava no momento da abertura
+* (ver Table.openSnapshot).
+*
+* A quantidade de registros e a versão da tabela são capturadas na abertura. Antes de alterar
+* um registro, a Table entrega a imagem anterior desse registro a cada snapshot aberto
+* (copy-on-write), que passa a usá-la no lugar do conteúdo do arquivo. Registros adicionados
+* depois da abertura não são vistos. Assim, relatórios longos podem ser executados em outra
+* thread enquanto a tabela é alterada, sem bloqueios e sem totais inconsistentes.
+*
+* Cada snapshot tem o seu próprio handle do arquivo e deve ser usado por uma única thread.
+* A memória usada é proporcional à quantidade de registros alterados enquanto ele está aberto,
+* portanto o snapshot deve ser fechado assim que não for mais necessário.
+*
+* @version 1.0
+*/
+public class TableSnapshot {
+
+	/** Tabela de origem */
+	private final Table table;
+
+	/** Handle próprio do arquivo */
+	private final RandomAccessFile file;
+
+	/** Quantidade de registros na abertura */
+	private final int numberOfRecords;
+
+	/** Versão da tabela na abertura */
+	private final long version;
+
+	/** Imagens anteriores dos registros alterados depois da abertura (Integer -> byte[]) */
+	private final Hashtable preserved = new Hashtable();
+
+	/** Registro atual */
+	private int recordNumber;
+
+	/** Conteúdo do registro atual */
+	private byte[] recordData;
+
+	/** Ler dados marcados como deletados? */
+	private boolean readDeletedData = false;
+
+	private boolean isOpen;
+
+	/**
+	 * Construtor - usar Table.openSnapshot()
+	 */
+	TableSnapshot( Table table, int numberOfRecords, long version ) throws IOException
+	{
+		super();
+		this.table 			 = table;
+		this.numberOfRecords = numberOfRecords;
+		this.version 		 = version;
+		this.file 			 = new RandomAccessFile( new File( table.tableName ), "r" );
+		this.isOpen 		 = true;
+	}
+
+	/**
+	 * Posiciona o cursor no primeiro registro
+	 * @return FALSE se a tabela não possuía registros na abertura do snapshot
+	 * @throws IOException
+	 */
+	public boolean goTop() throws IOException
+	{
+		recordNumber = 0;
+		return nextRecord();
+	}
+
+	/**
+	 * Avança o cursor para o próximo registro (não deletado)
+	 * @return FALSE se não há mais registros
+	 * @throws IOException
+	 */
+	public boolean nextRecord() throws IOException
+	{
+		while ( recordNumber < numberOfRecords )
+		{
+			recordNumber++;
+			byte[] data = readRecord( recordNumber );
+
+			if ( readDeletedData || data[0] != Table.DELETED )
+			{
+				recordData = data;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Posiciona o cursor em um registro (mesmo que esteja deletado)
+	 * @param record Número do registro
+	 * @return FALSE se o registro não existia na abertura do snapshot
+	 * @throws IOException
+	 */
+	public boolean goTo( int record ) throws IOException
+	{
+		if ( record < 1 || record > numberOfRecords )
+		{
+			return false;
+		}
+
+		recordNumber = record;
+		recordData 	 = readRecord( record );
+		return true;
+	}
+
+	/**
+	 * Indica se o registro atual está marcado como deletado
+	 */
+	public boolean isDeleted()
+	{
+		return recordData[0] == Table.DELETED;
+	}
+
+	public String getFieldString( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_CHARACTER ).parseString( recordData, 0 );
+	}
+
+	public TextView getFieldText( String columnName, TextView view ) throws FieldNotFoundException, FieldTypeException
+	{
+		checkType( columnName, Field.TYPE_CHARACTER ).parseText( recordData, 0, view );
+		return view;
+	}
+
+	public int getFieldInteger( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_NUMERIC ).parseInteger( recordData, 0 );
+	}
+
+	public double getFieldDouble( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_FLOAT ).parseDouble( recordData, 0 );
+	}
+
+	public Date getFieldDate( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_DATE ).parseDate( recordData, 0 );
+	}
+
+	public boolean getFieldBoolean( String columnName ) throws FieldNotFoundException, FieldTypeException
+	{
+		return checkType( columnName, Field.TYPE_LOGICAL ).parseBoolean( recordData, 0 );
+	}
+
+	/**
+	 * Quantidade de registros da tabela na abertura do snapshot
+	 */
+	public int getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+
+	/**
+	 * Número do registro atual
+	 */
+	public int getRecordNumber()
+	{
+		return recordNumber;
+	}
+
+	/**
+	 * Versão da tabela (Table.getVersion) na abertura do snapshot
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	public boolean isReadDeletedData()
+	{
+		return readDeletedData;
+	}
+
+	public void setReadDeletedData( boolean b )
+	{
+		readDeletedData = b;
+	}
+
+	/**
+	 * Fecha o snapshot, liberando as imagens guardadas
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		if ( isOpen )
+		{
+			table.closeSnapshot( this );
+
+			synchronized ( this )
+			{
+				isOpen = false;
+				preserved.clear();
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * Guarda a imagem atual de um registro, antes que a tabela o altere
+	 * @param record Número do registro que será alterado
+	 */
+	synchronized void preserve( int record ) throws IOException
+	{
+		if ( !isOpen || record > numberOfRecords )
+		{
+			return;
+		}
+
+		Integer key = new Integer( record );
+		if ( !preserved.containsKey( key ) )
+		{
+			preserved.put( key, readFile( record ) );
+		}
+	}
+
+	/**
+	 * Lê um registro: a imagem guardada, se o registro foi alterado, ou o conteúdo do arquivo.
+	 * O lock garante que a tabela não grave o registro entre a verificação e a leitura.
+	 */
+	private synchronized byte[] readRecord( int record ) throws IOException
+	{
+		byte[] data = (byte[])preserved.get( new Integer( record ) );
+		return ( data != null ) ? data : readFile( record );
+	}
+
+	/**
+	 * Lê vários registros seguidos de uma só vez, como estavam na abertura do snapshot
+	 * @param first		Primeiro registro
+	 * @param count		Quantidade de registros (todos existentes na abertura do snapshot)
+	 * @param buffer	Array de destino, com pelo menos count * recordLength bytes
+	 * @throws IOException
+	 */
+	synchronized void readRecords( int first, int count, byte[] buffer ) throws IOException
+	{
+		int recordLength = table.recordLength;
+
+		file.seek( table.recordPosition( first ) );
+		file.readFully( buffer, 0, count * recordLength );
+
+		// Os registros alterados depois da abertura são substituídos pelas imagens guardadas
+		if ( preserved.size() < count )
+		{
+			for ( Enumeration e = preserved.keys(); e.hasMoreElements(); )
+			{
+				int record = ((Integer)e.nextElement()).intValue();
+				if ( record >= first && record < first + count )
+				{
+					System.arraycopy( (byte[])preserved.get( new Integer( record ) ), 0, buffer, ( record - first ) * recordLength, recordLength );
+				}
+			}
+		}
+		else
+		{
+			for ( int record = first; record < first + count; record++ )
+			{
+				byte[] data = (byte[])preserved.get( new Integer( record ) );
+				if ( data != null )
+				{
+					System.arraycopy( data, 0, buffer, ( record - first ) * recordLength, recordLength );
+				}
+			}
+		}
+	}
+
+	private byte[] readFile( int record ) throws IOException
+	{
+		byte[] data = new byte[table.recordLength];
+		file.seek( table.recordPosition( record ) );
+		file.readFully( data );
+		return data;
+	}
+
+	private Field checkType( String columnName, char dataType ) throws FieldNotFoundException, FieldTypeException
+	{
+		Field field = table.findField( columnName );
+
+		if ( field.dataType != dataType )
+		{
+			if ( ! ( field.dataType == Field.TYPE_NUMERIC && dataType == Field.TYPE_FLOAT ) )
+			{
+				throw new FieldTypeException();
+			}
+		}
+
+		return field;
+	}
+}
@@ -0,0 +1,594 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+* Ordenação externa de uma tabela por uma ou mais colunas, com uso de memória limitado.
+*
+* Para cada registro é montada uma chave de tamanho fixo, comparada byte a byte: colunas
+* caracter, data e lógicas entram com os bytes gravados (a ordem é a da página de código);
+* colunas numéricas são convertidas para double e gravadas em 8 bytes que preservam a ordem
+* numérica. O número do registro fecha a chave, portanto registros com o mesmo valor mantêm
+* a ordem original.
+*
+* As chaves são lidas em sequência e ordenadas em memória em blocos (runs) do tamanho do
+* limite de memória. Se houver mais de um bloco, cada um é gravado em um arquivo temporário e
+* os blocos são intercalados (merge) de uma única vez. O resultado pode ser uma nova tabela
+* com os registros ordenados ou um arquivo com os números dos registros na ordem (inteiros de
+* 4 bytes, big endian). Registros deletados não fazem parte do resultado.
+*
+* <pre>
+*	TableSorter sorter = new TableSorter( table, new String[] { "CD_CLIENTE", "DT_VENC" } );
+*	Table sorted = sorter.sortToTable( "RECEB_ORD.DBF" );
+* </pre>
+*
+* @version 1.0
+*/
+public class TableSorter {
+
+	/** Limite padrão de memória para as chaves (4 MB) */
+	public static final int DEFAULT_MEMORY_BUDGET = 4 * 1024 * 1024;
+
+	/** Bytes da chave usados por uma coluna numérica */
+	private static final int NUMERIC_KEY_LENGTH = 8;
+
+	/** Tabela ordenada */
+	private final Table table;
+
+	/** Colunas da ordenação */
+	private final Field[] fields;
+
+	/** Tamanho da chave de cada registro (colunas + número do registro) */
+	private final int keyLength;
+
+	/** Limite de memória das chaves */
+	private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	/** Diretório dos arquivos temporários (null = diretório padrão do sistema) */
+	private File tempDirectory;
+
+	/**
+	 * Construtor
+	 * @param table		Tabela a ser ordenada
+	 * @param columns	Colunas da ordenação, da mais para a menos significativa
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException Colunas memo não podem ser usadas na ordenação
+	 */
+	public TableSorter( Table table, String[] columns ) throws FieldNotFoundException, FieldTypeException
+	{
+		super();
+		this.table  = table;
+		this.fields = new Field[columns.length];
+
+		int length = 4;
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			fields[i] = table.findField( columns[i] );
+
+			if ( fields[i].dataType == Field.TYPE_MEMO )
+			{
+				throw new FieldTypeException();
+			}
+			length += isNumeric( fields[i] ) ? NUMERIC_KEY_LENGTH : fields[i].fieldLength;
+		}
+		this.keyLength = length;
+	}
+
+	/**
+	 * Limite de memória, em bytes, para as chaves de cada bloco ordenado
+	 */
+	public void setMemoryBudget( int memoryBudget )
+	{
+		this.memoryBudget = Math.max( 1, memoryBudget );
+	}
+
+	/**
+	 * Diretório dos arquivos temporários
+	 */
+	public void setTempDirectory( File tempDirectory )
+	{
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * Grava os números dos registros na ordem em um arquivo (inteiros de 4 bytes, big endian)
+	 * @param fileName Arquivo a ser criado
+	 * @return Quantidade de registros gravados
+	 * @throws IOException
+	 */
+	public int sortToFile( String fileName ) throws IOException
+	{
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( fileName ) ) );
+		try
+		{
+			return sort( new Output() {
+				void write( int record ) throws IOException
+				{
+					out.writeInt( record );
+				}
+			} );
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Cria uma nova tabela, com a mesma estrutura, contendo os registros na ordem. Se houver
+	 * colunas memo, o arquivo .DBT é copiado.
+	 * @param tableName Nome (caminho) da tabela a ser criada
+	 * @return A nova tabela, aberta
+	 * @throws IOException
+	 * @throws TableCorruptException
+	 * @throws FieldTypeException
+	 */
+	public Table sortToTable( String tableName ) throws IOException, TableCorruptException, FieldTypeException
+	{
+		final Table sorted = TableBuilder.from( table, tableName ).create();
+
+		boolean ok = false;
+		try
+		{
+			File memo = new File( MemoFile.getMemoFileName( table.tableName ) );
+			if ( hasMemo() && memo.exists() )
+			{
+				table.flushMemos();
+				Utils.copyFile( memo, new File( MemoFile.getMemoFileName( tableName ) ) );
+			}
+
+			final TableScanner reader = new TableScanner( table, 0 );
+			try
+			{
+				final int    recordLength = table.recordLength;
+				final byte[] record 	  = new byte[recordLength];
+				final byte[] batch 		  = new byte[Math.max( TableScanner.DEFAULT_BLOCK_SIZE / recordLength, 1 ) * recordLength];
+
+				sort( new Output() {
+					int count;
+
+					void write( int recordNumber ) throws IOException
+					{
+						reader.read( recordNumber, 0, record );
+						System.arraycopy( record, 0, batch, count * recordLength, recordLength );
+
+						if ( ++count * recordLength == batch.length )
+						{
+							close();
+						}
+					}
+
+					void close() throws IOException
+					{
+						if ( count > 0 )
+						{
+							sorted.appendRecordData( batch, count );
+							count = 0;
+						}
+					}
+				} );
+			}
+			finally
+			{
+				reader.close();
+			}
+
+			sorted.goTop();
+			ok = true;
+		}
+		finally
+		{
+			if ( !ok )
+			{
+				sorted.close();
+			}
+		}
+
+		return sorted;
+	}
+
+	/**
+	 * Ordena as chaves e entrega os números dos registros na ordem
+	 * @return Quantidade de registros entregues
+	 */
+	private int sort( Output output ) throws IOException
+	{
+		int runEntries = (int)Math.max( 1, Math.min( table.getNumberOfRecords(), memoryBudget / ( keyLength + 4L ) ) );
+
+		final byte[] keys  = new byte[runEntries * keyLength];
+		final int[]  order = new int[runEntries];
+
+		RunWriter runs = new RunWriter( keys, order, runEntries );
+		File[] 	  files = null;
+
+		try
+		{
+			TableScanner scanner = new TableScanner( table );
+			try
+			{
+				scanner.scan( 1, table.getNumberOfRecords(), runs );
+			}
+			finally
+			{
+				scanner.close();
+			}
+
+			if ( runs.runCount == 0 )
+			{
+				// Tudo coube em memória: não há arquivos temporários
+				sortRun( keys, order, runs.entries );
+				for ( int i = 0; i < runs.entries; i++ )
+				{
+					output.write( recordOf( keys, order[i] * keyLength ) );
+				}
+				output.close();
+				return runs.entries;
+			}
+
+			runs.flushRun();
+			files = runs.files;
+
+			int count = merge( files, runs.runCount, output );
+			output.close();
+			return count;
+		}
+		finally
+		{
+			runs.deleteFiles();
+		}
+	}
+
+	/**
+	 * Intercala os blocos ordenados (merge de k vias, com um heap dos blocos)
+	 */
+	private int merge( File[] files, int runCount, Output output ) throws IOException
+	{
+		int bufferSize = Math.max( 4096, memoryBudget / runCount );
+
+		RunReader[] heap = new RunReader[runCount];
+		int size = 0;
+		int count = 0;
+
+		try
+		{
+			for ( int i = 0; i < runCount; i++ )
+			{
+				RunReader reader = new RunReader( files[i], keyLength, bufferSize );
+				if ( reader.next() )
+				{
+					heap[size++] = reader;
+				}
+				else
+				{
+					reader.close();
+				}
+			}
+
+			for ( int i = size / 2 - 1; i >= 0; i-- )
+			{
+				siftDown( heap, i, size );
+			}
+
+			while ( size > 0 )
+			{
+				RunReader top = heap[0];
+				output.write( recordOf( top.key, 0 ) );
+				count++;
+
+				if ( !top.next() )
+				{
+					top.close();
+					heap[0] = heap[--size];
+					heap[size] = null;
+				}
+				siftDown( heap, 0, size );
+			}
+		}
+		finally
+		{
+			for ( int i = 0; i < size; i++ )
+			{
+				heap[i].close();
+			}
+		}
+
+		return count;
+	}
+
+	private void siftDown( RunReader[] heap, int i, int size )
+	{
+		RunReader value = heap[i];
+		int child;
+
+		while ( ( child = 2 * i + 1 ) < size )
+		{
+			if ( child + 1 < size && compare( heap[child + 1].key, 0, heap[child].key, 0 ) < 0 )
+			{
+				child++;
+			}
+			if ( compare( value.key, 0, heap[child].key, 0 ) <= 0 )
+			{
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = value;
+	}
+
+	/**
+	 * Ordena os índices das chaves de um bloco (merge sort)
+	 */
+	private void sortRun( byte[] keys, int[] order, int entries )
+	{
+		for ( int i = 0; i < entries; i++ )
+		{
+			order[i] = i;
+		}
+		mergeSort( keys, order, new int[entries], 0, entries );
+	}
+
+	private void mergeSort( byte[] keys, int[] order, int[] temp, int from, int to )
+	{
+		if ( to - from < 2 )
+		{
+			return;
+		}
+
+		int middle = ( from + to ) >>> 1;
+		mergeSort( keys, order, temp, from, middle );
+		mergeSort( keys, order, temp, middle, to );
+
+		if ( compare( keys, order[middle - 1] * keyLength, keys, order[middle] * keyLength ) <= 0 )
+		{
+			return;
+		}
+
+		System.arraycopy( order, from, temp, from, to - from );
+
+		int i = from;
+		int j = middle;
+		for ( int k = from; k < to; k++ )
+		{
+			if ( j >= to || ( i < middle && compare( keys, temp[i] * keyLength, keys, temp[j] * keyLength ) <= 0 ) )
+			{
+				order[k] = temp[i++];
+			}
+			else
+			{
+				order[k] = temp[j++];
+			}
+		}
+	}
+
+	/**
+	 * Compara duas chaves byte a byte (sem sinal)
+	 */
+	private int compare( byte[] a, int posA, byte[] b, int posB )
+	{
+		for ( int i = 0; i < keyLength; i++ )
+		{
+			int diff = ( a[posA + i] & 0xff ) - ( b[posB + i] & 0xff );
+			if ( diff != 0 )
+			{
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Monta a chave de um registro
+	 */
+	private void buildKey( int record, byte[] buffer, int base, byte[] key, int pos )
+	{
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			Field field = fields[i];
+
+			if ( isNumeric( field ) )
+			{
+				double value;
+				try
+				{
+					value = field.parseDouble( buffer, base );
+				}
+				catch ( NumberFormatException e )
+				{
+					value = 0;
+				}
+
+				// Bits do double com o sinal invertido (negativos: todos invertidos), de forma
+				// que a comparação sem sinal dos bytes siga a ordem numérica
+				long bits = Double.doubleToLongBits( value );
+				bits = ( bits < 0 ) ? ~bits : ( bits | 0x8000000000000000L );
+
+				for ( int b = 7; b >= 0; b-- )
+				{
+					key[pos++] = (byte)( bits >>> ( b * 8 ) );
+				}
+			}
+			else
+			{
+				System.arraycopy( buffer, base + field.offset, key, pos, field.fieldLength );
+				pos += field.fieldLength;
+			}
+		}
+
+		key[pos++] = (byte)( record >>> 24 );
+		key[pos++] = (byte)( record >>> 16 );
+		key[pos++] = (byte)( record >>> 8 );
+		key[pos]   = (byte)record;
+	}
+
+	/**
+	 * Número do registro gravado no final da chave
+	 */
+	private int recordOf( byte[] key, int pos )
+	{
+		pos += keyLength - 4;
+		return ( ( key[pos] & 0xff ) << 24 ) | ( ( key[pos + 1] & 0xff ) << 16 )
+			 | ( ( key[pos + 2] & 0xff ) << 8 ) | ( key[pos + 3] & 0xff );
+	}
+
+	private boolean hasMemo()
+	{
+		Field[] all = table.getFields();
+		for ( int i = 0; i < all.length; i++ )
+		{
+			if ( all[i].dataType == Field.TYPE_MEMO )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isNumeric( Field field )
+	{
+		return field.dataType == Field.TYPE_NUMERIC || field.dataType == Field.TYPE_FLOAT;
+	}
+
+	/**
+	 * Destino dos números dos registros ordenados
+	 */
+	private static abstract class Output
+	{
+		abstract void write( int record ) throws IOException;
+
+		void close() throws IOException
+		{
+		}
+	}
+
+	/**
+	 * Acumula as chaves lidas e grava um bloco ordenado a cada vez que o limite é atingido
+	 */
+	private class RunWriter implements RecordVisitor
+	{
+		final byte[] keys;
+		final int[]  order;
+		final int 	 capacity;
+
+		int 	entries;
+		int 	runCount;
+		File[] 	files = new File[8];
+
+		RunWriter( byte[] keys, int[] order, int capacity )
+		{
+			this.keys 	  = keys;
+			this.order 	  = order;
+			this.capacity = capacity;
+		}
+
+		public boolean visit( int record, byte[] buffer, int base ) throws IOException
+		{
+			if ( buffer[base] == Table.DELETED )
+			{
+				return true;
+			}
+
+			if ( entries == capacity )
+			{
+				flushRun();
+			}
+
+			buildKey( record, buffer, base, keys, entries * keyLength );
+			entries++;
+			return true;
+		}
+
+		void flushRun() throws IOException
+		{
+			if ( entries == 0 )
+			{
+				return;
+			}
+
+			sortRun( keys, order, entries );
+
+			if ( runCount == files.length )
+			{
+				File[] newFiles = new File[files.length * 2];
+				System.arraycopy( files, 0, newFiles, 0, runCount );
+				files = newFiles;
+			}
+
+			File file = File.createTempFile( "sort", ".tmp", tempDirectory );
+			files[runCount++] = file;
+
+			OutputStream out = new BufferedOutputStream( new FileOutputStream( file ), 64 * 1024 );
+			try
+			{
+				for ( int i = 0; i < entries; i++ )
+				{
+					out.write( keys, order[i] * keyLength, keyLength );
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+
+			entries = 0;
+		}
+
+		void deleteFiles()
+		{
+			for ( int i = 0; i < runCount; i++ )
+			{
+				files[i].delete();
+			}
+		}
+	}
+
+	/**
+	 * Leitura sequencial das chaves de um bloco ordenado
+	 */
+	private static class RunReader
+	{
+		final InputStream in;
+		final byte[] 	  key;
+
+		RunReader( File file, int keyLength, int bufferSize ) throws IOException
+		{
+			in 	= new BufferedInputStream( new FileInputStream( file ), bufferSize );
+			key = new byte[keyLength];
+		}
+
+		boolean next() throws IOException
+		{
+			int total = 0;
+			while ( total < key.length )
+			{
+				int n = in.read( key, total, key.length - total );
+				if ( n <= 0 )
+				{
+					return false;
+				}
+				total += n;
+			}
+			return true;
+		}
+
+		void close() throws IOException
+		{
+			in.close();
+		}
+	}
+}
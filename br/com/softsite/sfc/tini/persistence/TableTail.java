@@ -0,0 +1,213 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+* Leitura incremental dos registros adicionados a uma tabela por outros processos
+* (ex: aplicação Clipper que grava no mesmo arquivo).
+*
+* O tail guarda o último registro já entregue. poll() verifica se o arquivo mudou (tamanho e
+* data de alteração) e, só nesse caso, relê a quantidade de registros do cabeçalho
+* (Table.refresh). next() posiciona a tabela em cada registro novo, sem ler novamente os que
+* já foram entregues. Um registro contado no cabeçalho mas ainda não gravado (indicador de
+* deletado zerado ou registro incompleto) interrompe a leitura até a próxima verificação.
+*
+* <pre>
+*	TableTail tail = new TableTail( table );
+*	while ( tail.await( 60000 ) ) {
+*		while ( tail.next() ) {
+*			processar( table.getFieldString( "NR_CPF" ) );
+*		}
+*	}
+* </pre>
+*
+* @version 1.0
+*/
+public class TableTail {
+
+	/** Intervalo padrão entre as verificações de await() (ms) */
+	public static final long DEFAULT_POLL_INTERVAL = 500;
+
+	/** Tabela lida */
+	private final Table table;
+
+	/** Arquivo da tabela, para a verificação de tamanho e data */
+	private final File file;
+
+	/** Último registro entregue por next() */
+	private int lastRecord;
+
+	/** Tamanho e data do arquivo na última verificação (-1 = verificar o cabeçalho) */
+	private long lastLength   = -1;
+	private long lastModified = -1;
+
+	/** Intervalo entre as verificações de await() (ms) */
+	private long pollInterval = DEFAULT_POLL_INTERVAL;
+
+	/** next() parou em um registro ainda não gravado? */
+	private boolean stalled;
+
+	/**
+	 * Construtor. Apenas os registros adicionados a partir de agora serão entregues.
+	 * @param table Tabela
+	 */
+	public TableTail( Table table )
+	{
+		this( table, table.getNumberOfRecords() );
+	}
+
+	/**
+	 * Construtor
+	 * @param table			Tabela
+	 * @param lastRecord	Último registro já processado (0 = entregar todos os registros)
+	 */
+	public TableTail( Table table, int lastRecord )
+	{
+		super();
+		this.table 		= table;
+		this.file 		= new File( table.tableName );
+		this.lastRecord = lastRecord;
+	}
+
+	/**
+	 * Verifica se foram adicionados registros à tabela
+	 * @return TRUE se há registros a serem lidos por next()
+	 * @throws IOException
+	 */
+	public boolean poll() throws IOException
+	{
+		long length   = file.length();
+		long modified = file.lastModified();
+
+		if ( length != lastLength || modified != lastModified )
+		{
+			table.refresh();
+
+			// Enquanto o arquivo tiver mais dados que o cabeçalho indica (registro sendo
+			// gravado ou arquivo pré-alocado) o cabeçalho é relido em todas as verificações
+			long expected = table.headerLength + ( (long)table.getNumberOfRecords() * table.recordLength );
+			if ( length <= expected + 1 )
+			{
+				lastLength   = length;
+				lastModified = modified;
+			}
+			else
+			{
+				lastLength = -1;
+			}
+		}
+
+		if ( lastRecord >= table.getNumberOfRecords() )
+		{
+			return false;
+		}
+
+		// Sem essa verificação, await() retornaria imediatamente enquanto o registro não é gravado
+		if ( stalled )
+		{
+			stalled = !table.isRecordWritten( lastRecord + 1 );
+		}
+		return !stalled;
+	}
+
+	/**
+	 * Aguarda até que sejam adicionados registros à tabela, verificando a cada
+	 * getPollInterval() milisegundos
+	 * @param timeout Tempo máximo de espera em milisegundos (0 = sem limite)
+	 * @return TRUE se há registros a serem lidos por next(), FALSE se o tempo acabou
+	 * @throws IOException
+	 * @throws InterruptedIOException A thread foi interrompida
+	 */
+	public boolean await( long timeout ) throws IOException
+	{
+		long limit = System.currentTimeMillis() + timeout;
+
+		while ( !poll() )
+		{
+			long wait = pollInterval;
+
+			if ( timeout > 0 )
+			{
+				long remaining = limit - System.currentTimeMillis();
+				if ( remaining <= 0 )
+				{
+					return false;
+				}
+				wait = Math.min( wait, remaining );
+			}
+
+			try
+			{
+				Thread.sleep( wait );
+			}
+			catch ( InterruptedException e )
+			{
+				throw new InterruptedIOException();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Posiciona a tabela no próximo registro adicionado (registros deletados são ignorados,
+	 * salvo com Table.setReadDeletedData( true )).
+	 * Não verifica o arquivo: deve ser chamado após poll() ou await().
+	 * @return FALSE se todos os registros conhecidos já foram entregues ou se o próximo ainda
+	 * 		   não foi gravado
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException
+	{
+		int records = table.getNumberOfRecords();
+
+		while ( lastRecord < records )
+		{
+			byte flag = table.goToRecord( lastRecord + 1 );
+			if ( flag == 0 )
+			{
+				// Ainda não gravado: será entregue depois de uma nova verificação
+				stalled = true;
+				return false;
+			}
+
+			lastRecord++;
+			if ( flag != Table.DELETED || table.isReadDeletedData() )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Último registro entregue por next()
+	 */
+	public int getLastRecord()
+	{
+		return lastRecord;
+	}
+
+	/**
+	 * Intervalo entre as verificações de await() (ms)
+	 */
+	public long getPollInterval()
+	{
+		return pollInterval;
+	}
+
+	public void setPollInterval( long pollInterval )
+	{
+		this.pollInterval = Math.max( 1, pollInterval );
+	}
+}
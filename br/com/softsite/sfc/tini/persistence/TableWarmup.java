@@ -0,0 +1,331 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Vector;
+
+/**
+* Aquecimento de uma tabela: monta várias estruturas derivadas (HashIndex, ZoneMap,
+* ColumnCache) e a contagem de registros deletados em uma única leitura da tabela, em vez de
+* uma leitura por estrutura.
+*
+* A leitura é dividida em intervalos de registros, lidos ao mesmo tempo por getParallelism()
+* threads. Cada estrutura monta uma parte por intervalo e as partes são juntadas no final, na
+* ordem dos registros, portanto o resultado é o mesmo de uma montagem sequencial. Estruturas
+* carregadas de arquivo (índices e zone maps persistidos e ainda válidos) não participam da
+* leitura.
+*
+* As estruturas retornadas pelos métodos addXXX só podem ser usadas depois de run(), que as
+* registra na tabela.
+*
+* <pre>
+*	TableWarmup warmup = table.createWarmup();
+*	warmup.setParallelism( 4 );
+*	HashIndex cpf 	= warmup.addHashIndex( "NR_CPF", "RECEB.HIX", false );
+*	ZoneMap   zones = warmup.addZoneMap( new String[] { "DT_VENC" }, null );
+*	warmup.run();
+*	int ativos = warmup.getLiveRecords();
+* </pre>
+*
+* @version 1.0
+*/
+public class TableWarmup {
+
+	/** Quantidade mínima de registros por thread */
+	private static final int MIN_RECORDS_PER_THREAD = 4096;
+
+	/** Tabela */
+	private final Table table;
+
+	/** Estruturas montadas na leitura (WarmupTarget) */
+	private final Vector targets = new Vector();
+
+	/** Estruturas carregadas de arquivo (TableListener), registradas em run() */
+	private final Vector loaded = new Vector();
+
+	/** Quantidade máxima de threads */
+	private int parallelism = 1;
+
+	/** Quantidade de registros e de registros deletados na leitura */
+	private int records;
+	private int deletedRecords;
+
+	private boolean done;
+
+	/**
+	 * Construtor
+	 * @param table Tabela aberta
+	 */
+	public TableWarmup( Table table )
+	{
+		super();
+		this.table = table;
+	}
+
+	/**
+	 * Quantidade máxima de threads na leitura
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = Math.max( 1, parallelism );
+	}
+
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Inclui um índice
+	 * @param columnName	Coluna a ser indexada
+	 * @param indexFileName	Arquivo do índice (null = somente em memória)
+	 * @param keepKeys		Manter também os bytes das chaves em memória
+	 * @return O índice, que pode ser usado depois de run()
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 */
+	public HashIndex addHashIndex( String columnName, String indexFileName, boolean keepKeys ) throws IOException, FieldNotFoundException
+	{
+		HashIndex index = HashIndex.create( table, columnName, indexFileName, keepKeys );
+		add( index, indexFileName != null && index.load() );
+		return index;
+	}
+
+	/**
+	 * Inclui um zone map
+	 * @param columns	Colunas numéricas ou data
+	 * @param fileName	Arquivo das estatísticas (null = somente em memória)
+	 * @return O zone map, que pode ser usado depois de run()
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public ZoneMap addZoneMap( String[] columns, String fileName ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		ZoneMap zones = ZoneMap.create( table, columns, fileName, ZoneMap.DEFAULT_BLOCK_SIZE );
+		add( zones, fileName != null && zones.load() );
+		return zones;
+	}
+
+	/**
+	 * Inclui o cache de colunas codificadas por dicionário
+	 * @param columns Colunas
+	 * @return O cache, que pode ser usado depois de run()
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public ColumnCache addColumnCache( String[] columns ) throws FieldNotFoundException, FieldTypeException
+	{
+		ColumnCache cache = ColumnCache.create( table, columns );
+		add( cache, false );
+		return cache;
+	}
+
+	/**
+	 * Lê a tabela, monta as estruturas e as registra na tabela
+	 * @throws IOException
+	 */
+	public void run() throws IOException
+	{
+		if ( done )
+		{
+			throw new IllegalStateException( "Aquecimento já executado" );
+		}
+
+		records = table.getNumberOfRecords();
+
+		WarmupTarget[] build = new WarmupTarget[targets.size()];
+		targets.copyInto( build );
+		for ( int t = 0; t < build.length; t++ )
+		{
+			build[t].prepare( records );
+		}
+
+		int threads = Math.max( 1, Math.min( parallelism, records / MIN_RECORDS_PER_THREAD ) );
+		Task[] tasks = new Task[( records > 0 ) ? threads : 0];
+		Thread[] workers = new Thread[tasks.length];
+
+		int first = 1;
+		for ( int i = 0; i < tasks.length; i++ )
+		{
+			int last = ( i == tasks.length - 1 ) ? records : first + records / tasks.length - 1;
+			tasks[i] = new Task( build, first, last );
+			first = last + 1;
+		}
+
+		// A primeira parte é lida pela própria thread
+		for ( int i = 1; i < tasks.length; i++ )
+		{
+			workers[i] = new Thread( tasks[i], "Warmup " + ( i + 1 ) );
+			workers[i].start();
+		}
+		if ( tasks.length > 0 )
+		{
+			tasks[0].run();
+		}
+		for ( int i = 1; i < tasks.length; i++ )
+		{
+			try
+			{
+				workers[i].join();
+			}
+			catch ( InterruptedException e )
+			{
+				throw new InterruptedIOException();
+			}
+		}
+
+		deletedRecords = 0;
+		for ( int i = 0; i < tasks.length; i++ )
+		{
+			if ( tasks[i].error != null )
+			{
+				throw tasks[i].error;
+			}
+			if ( tasks[i].failure != null )
+			{
+				throw tasks[i].failure;
+			}
+			if ( tasks[i].fatal != null )
+			{
+				throw tasks[i].fatal;
+			}
+			deletedRecords += tasks[i].deleted;
+		}
+
+		for ( int t = 0; t < build.length; t++ )
+		{
+			RecordVisitor[] parts = new RecordVisitor[tasks.length];
+			for ( int i = 0; i < tasks.length; i++ )
+			{
+				parts[i] = tasks[i].parts[t];
+			}
+			build[t].merge( parts );
+			table.addTableListener( (TableListener)build[t] );
+		}
+
+		for ( int i = 0; i < loaded.size(); i++ )
+		{
+			table.addTableListener( (TableListener)loaded.elementAt(i) );
+		}
+
+		done = true;
+	}
+
+	/**
+	 * Quantidade de registros lidos
+	 */
+	public int getNumberOfRecords()
+	{
+		return records;
+	}
+
+	/**
+	 * Quantidade de registros deletados encontrados na leitura
+	 */
+	public int getDeletedRecords()
+	{
+		return deletedRecords;
+	}
+
+	/**
+	 * Quantidade de registros não deletados encontrados na leitura
+	 */
+	public int getLiveRecords()
+	{
+		return records - deletedRecords;
+	}
+
+	private void add( WarmupTarget target, boolean isLoaded )
+	{
+		if ( done )
+		{
+			throw new IllegalStateException( "Aquecimento já executado" );
+		}
+
+		if ( isLoaded )
+		{
+			loaded.addElement( target );
+		}
+		else
+		{
+			targets.addElement( target );
+		}
+	}
+
+	/**
+	 * Leitura de um intervalo de registros, entregue às partes de todas as estruturas
+	 */
+	private class Task implements Runnable, RecordVisitor
+	{
+		final int first;
+		final int last;
+		final RecordVisitor[] parts;
+
+		int deleted;
+		IOException error;
+		RuntimeException failure;
+		Error fatal;
+
+		Task( WarmupTarget[] build, int first, int last )
+		{
+			this.first = first;
+			this.last  = last;
+			this.parts = new RecordVisitor[build.length];
+
+			for ( int t = 0; t < build.length; t++ )
+			{
+				parts[t] = build[t].newPart( first, last );
+			}
+		}
+
+		public void run()
+		{
+			try
+			{
+				TableScanner scanner = new TableScanner( table );
+				try
+				{
+					scanner.scan( first, last, this );
+				}
+				finally
+				{
+					scanner.close();
+				}
+			}
+			catch ( IOException e )
+			{
+				error = e;
+			}
+			catch ( RuntimeException e )
+			{
+				failure = e;
+			}
+			catch ( Error e )
+			{
+				fatal = e;
+			}
+		}
+
+		public boolean visit( int record, byte[] buffer, int base ) throws IOException
+		{
+			if ( buffer[base] == Table.DELETED )
+			{
+				deleted++;
+			}
+
+			for ( int t = 0; t < parts.length; t++ )
+			{
+				parts[t].visit( record, buffer, base );
+			}
+			return true;
+		}
+	}
+}
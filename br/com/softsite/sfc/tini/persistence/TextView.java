@@ -0,0 +1,143 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Visão, sem cópia, do conteúdo de uma coluna caracter (já sem os espaços das extremidades).
+*
+* Os caracteres são decodificados sob demanda diretamente do registro. A mesma instância
+* pode ser reaproveitada a cada registro (ver Table.getFieldText), evitando a criação de
+* Strings em comparações e filtros. O conteúdo só é válido até o próximo movimento do
+* cursor da tabela; use toString() para guardar o valor.
+*
+* @version 1.0
+*/
+public class TextView {
+
+	/** Array que contém o registro */
+	private byte[] data;
+
+	/** Início do texto no array */
+	private int start;
+
+	/** Fim do texto no array (exclusivo) */
+	private int end;
+
+	/** Página de código usada na decodificação */
+	private CodePage codePage;
+
+	/**
+	 * Aponta a visão para um trecho do registro, descartando os espaços das extremidades
+	 */
+	void set( byte[] data, int pos, int len, CodePage codePage )
+	{
+		int end = pos + len;
+
+		while ( pos < end && ( data[pos] & 0xff ) <= ' ' )
+		{
+			pos++;
+		}
+		while ( end > pos && ( data[end - 1] & 0xff ) <= ' ' )
+		{
+			end--;
+		}
+
+		this.data 	  = data;
+		this.start 	  = pos;
+		this.end 	  = end;
+		this.codePage = codePage;
+	}
+
+	/**
+	 * Quantidade de caracteres
+	 */
+	public int length()
+	{
+		return end - start;
+	}
+
+	/**
+	 * Caracter na posição informada
+	 */
+	public char charAt( int index )
+	{
+		if ( index < 0 || index >= end - start )
+		{
+			throw new StringIndexOutOfBoundsException( index );
+		}
+		return codePage.toChar( data[start + index] );
+	}
+
+	/**
+	 * Indica se a coluna está em branco
+	 */
+	public boolean isEmpty()
+	{
+		return start == end;
+	}
+
+	/**
+	 * Compara o conteúdo com uma String, sem criar objetos (equals( Object ) continua
+	 * comparando a identidade da visão)
+	 */
+	public boolean contentEquals( String s )
+	{
+		return s != null && compareTo( s ) == 0;
+	}
+
+	/**
+	 * Compara o conteúdo com uma String, caracter a caracter (mesma regra de String.compareTo)
+	 */
+	public int compareTo( String s )
+	{
+		int len1 = end - start;
+		int len2 = s.length();
+		int n 	 = Math.min( len1, len2 );
+
+		for ( int i = 0; i < n; i++ )
+		{
+			char c1 = codePage.toChar( data[start + i] );
+			char c2 = s.charAt( i );
+			if ( c1 != c2 )
+			{
+				return c1 - c2;
+			}
+		}
+
+		return len1 - len2;
+	}
+
+	/**
+	 * Indica se o conteúdo começa com o prefixo informado
+	 */
+	public boolean startsWith( String prefix )
+	{
+		int len = prefix.length();
+		if ( len > end - start )
+		{
+			return false;
+		}
+
+		for ( int i = 0; i < len; i++ )
+		{
+			if ( codePage.toChar( data[start + i] ) != prefix.charAt( i ) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Cria uma String com o conteúdo
+	 */
+	public String toString()
+	{
+		return ( start == end ) ? "" : codePage.decode( data, start, end - start );
+	}
+}
@@ -1,135 +1,288 @@
-/*
-* Project: DBFProject
-* Date   : Mar 27, 2004
-*
-* Copyright (c) 2004 SoftSite Tecnologia
-* Todos os direitos reservados
-*/
-package br.com.softsite.sfc.tini.persistence;
-
-/**
-* Utils
-* Class for contining utility functions.
-*
-* This file is part of JavaDBF packege.
-*
-*  author: anil@linuxense
-*  license: LGPL (http://www.gnu.org/copyleft/lesser.html)
-*
-*/
-
-import java.io.*;
-
-/**
-	Miscelaneous functions required by the JavaDBF package.
-*/
-public class Utils {
-
-	public static final int ALIGN_LEFT = 10;
-	public static final int ALIGN_RIGHT = 12;
-
-	public static int readLittleEndianInt(RandomAccessFile in)
-	throws IOException {
-
-		int bigEndian = 0;
-		for( int shiftBy=0; shiftBy<32; shiftBy+=8) {
-
-			bigEndian |= (in.readByte()&0xff) << shiftBy;
-		}
-
-		return bigEndian;
-	}
-
-	public static short readLittleEndianShort(RandomAccessFile in)
-	throws IOException {
-
-		int low = in.readByte() & 0xff;
-		int high = in.readByte();
-
-		return (short )(high << 8 | low);
-	}
-
-	public static byte[] trimLeftSpaces( byte [] arr) {
-
-		StringBuffer t_sb = new StringBuffer( arr.length);
-
-		for( int i=0; i<arr.length; i++) {
-
-			if( arr[i] != ' ') {
-
-				t_sb.append( (char)arr[ i]);
-			}
-		}
-
-		return t_sb.toString().getBytes();
-	}
-
-	public static short littleEndian( short value) {
-
-		short num1 = value;
-		short mask = (short)0xff;
-
-		short num2 = (short)(num1&mask);
-		num2<<=8;
-		mask<<=8;
-
-		num2 |= (num1&mask)>>8;
-
-		return num2;
-	}
-
-	public static int littleEndian(int value) {
-
-		int num1 = value;
-		int mask = 0xff;
-		int num2 = 0x00;
-
-		num2 |= num1 & mask;
-
-		for( int i=1; i<4; i++) {
-
-			num2<<=8;
-			mask <<= 8;
-			num2 |= (num1 & mask)>>(8*i);
-		}
-
-		return num2;
-	}
-
-	public static boolean contains( byte[] arr, byte value) {
-
-		boolean found = false;
-		for( int i=0; i<arr.length; i++) {
-
-			if( arr[i] == value) {
-
-				found = true;
-				break;
-			}
-		}
-
-		return found;
-	}
-	
-	public static byte[] fillString( String dado, int tamanho )
-	{
-		byte ret[] = new byte[tamanho];
-		char ori[] = dado.toCharArray();
-		
-		for ( int i = 0; i < tamanho; i++ )
-		{
-			if ( i < ori.length )
-			{
-				ret[i] = (byte)ori[i];
-			}
-			else
-			{
-				ret[i] = ' ';
-			} 
-		}
-		System.out.println(new String(ret));
-		return ret;
-	}
-	
-	
-}
+/*
+* Project: DBFProject
+* Date   : Mar 27, 2004
+*
+* Copyright (c) 2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Utils
+* Class for contining utility functions.
+*
+* This file is part of JavaDBF packege.
+*
+*  author: anil@linuxense
+*  license: LGPL (http://www.gnu.org/copyleft/lesser.html)
+*
+*/
+
+import java.io.*;
+
+/**
+	Miscelaneous functions required by the JavaDBF package.
+*/
+public class Utils {
+
+	public static final int ALIGN_LEFT = 10;
+	public static final int ALIGN_RIGHT = 12;
+
+	public static int readLittleEndianInt(RandomAccessFile in)
+	throws IOException {
+
+		int bigEndian = 0;
+		for( int shiftBy=0; shiftBy<32; shiftBy+=8) {
+
+			bigEndian |= (in.readByte()&0xff) << shiftBy;
+		}
+
+		return bigEndian;
+	}
+
+	public static short readLittleEndianShort(RandomAccessFile in)
+	throws IOException {
+
+		int low = in.readByte() & 0xff;
+		int high = in.readByte();
+
+		return (short )(high << 8 | low);
+	}
+
+	public static int readLittleEndianInt( byte[] buf, int pos) {
+
+		return ( buf[pos] & 0xff ) |
+			   ( ( buf[pos+1] & 0xff ) << 8 ) |
+			   ( ( buf[pos+2] & 0xff ) << 16 ) |
+			   ( ( buf[pos+3] & 0xff ) << 24 );
+	}
+
+	public static long readLittleEndianUnsignedInt( byte[] buf, int pos) {
+
+		return readLittleEndianInt( buf, pos ) & 0xffffffffL;
+	}
+
+	public static short readLittleEndianShort( byte[] buf, int pos) {
+
+		return (short)( ( buf[pos] & 0xff ) | ( buf[pos+1] << 8 ) );
+	}
+
+	public static void writeLittleEndianInt( byte[] buf, int pos, int value) {
+
+		buf[pos]   = (byte)( value & 0xff );
+		buf[pos+1] = (byte)( ( value >> 8 ) & 0xff );
+		buf[pos+2] = (byte)( ( value >> 16 ) & 0xff );
+		buf[pos+3] = (byte)( ( value >> 24 ) & 0xff );
+	}
+
+	public static void writeLittleEndianShort( byte[] buf, int pos, short value) {
+
+		buf[pos]   = (byte)( value & 0xff );
+		buf[pos+1] = (byte)( ( value >> 8 ) & 0xff );
+	}
+
+	/**
+	 * Converte para inteiro os dígitos de um trecho do array, ignorando os espaços
+	 * das extremidades (mesmo comportamento de Integer.parseInt( new String(...).trim() ),
+	 * mas sem criar objetos).
+	 */
+	public static int parseInt( byte[] arr, int pos, int len) {
+
+		int end = pos + len;
+
+		while( pos < end && ( arr[pos] & 0xff ) <= ' ') {
+			pos++;
+		}
+		while( end > pos && ( arr[end-1] & 0xff ) <= ' ') {
+			end--;
+		}
+
+		if( pos == end) {
+			throw new NumberFormatException( "Valor em branco");
+		}
+
+		boolean negative = false;
+		if( arr[pos] == '-' || arr[pos] == '+') {
+
+			negative = ( arr[pos] == '-');
+			pos++;
+
+			if( pos == end) {
+				throw new NumberFormatException( "Valor inválido");
+			}
+		}
+
+		// Acumula em negativo para aceitar Integer.MIN_VALUE
+		int result = 0;
+		for( ; pos < end; pos++) {
+
+			int digit = arr[pos] - '0';
+			if( digit < 0 || digit > 9 || result < -214748364 ) {
+				throw new NumberFormatException( "Valor inválido");
+			}
+
+			result = result * 10 - digit;
+			if( result > 0) {
+				throw new NumberFormatException( "Valor inválido");
+			}
+		}
+
+		if( !negative) {
+
+			if( result == Integer.MIN_VALUE) {
+				throw new NumberFormatException( "Valor inválido");
+			}
+			return -result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Ordena um array de inteiros (heapsort - não usa recursão nem memória adicional).
+	 */
+	public static void sort( int[] arr) {
+
+		int n = arr.length;
+
+		for( int i = n / 2 - 1; i >= 0; i--) {
+			siftDown( arr, i, n);
+		}
+
+		for( int end = n - 1; end > 0; end--) {
+
+			int t = arr[0];
+			arr[0] = arr[end];
+			arr[end] = t;
+
+			siftDown( arr, 0, end);
+		}
+	}
+
+	private static void siftDown( int[] arr, int i, int n) {
+
+		int value = arr[i];
+		int child;
+
+		while( ( child = 2 * i + 1) < n) {
+
+			if( child + 1 < n && arr[child + 1] > arr[child]) {
+				child++;
+			}
+			if( value >= arr[child]) {
+				break;
+			}
+			arr[i] = arr[child];
+			i = child;
+		}
+		arr[i] = value;
+	}
+
+	/**
+	 * Copia um arquivo (o destino é sobrescrito).
+	 */
+	public static void copyFile( File from, File to) throws IOException {
+
+		InputStream in = new FileInputStream( from);
+		try {
+			OutputStream out = new FileOutputStream( to);
+			try {
+				byte[] buf = new byte[64 * 1024];
+				int n;
+				while( ( n = in.read( buf)) > 0) {
+					out.write( buf, 0, n);
+				}
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	public static byte[] trimLeftSpaces( byte [] arr) {
+
+		StringBuffer t_sb = new StringBuffer( arr.length);
+
+		for( int i=0; i<arr.length; i++) {
+
+			if( arr[i] != ' ') {
+
+				t_sb.append( (char)arr[ i]);
+			}
+		}
+
+		return t_sb.toString().getBytes();
+	}
+
+	public static short littleEndian( short value) {
+
+		short num1 = value;
+		short mask = (short)0xff;
+
+		short num2 = (short)(num1&mask);
+		num2<<=8;
+		mask<<=8;
+
+		num2 |= (num1&mask)>>8;
+
+		return num2;
+	}
+
+	public static int littleEndian(int value) {
+
+		int num1 = value;
+		int mask = 0xff;
+		int num2 = 0x00;
+
+		num2 |= num1 & mask;
+
+		for( int i=1; i<4; i++) {
+
+			num2<<=8;
+			mask <<= 8;
+			num2 |= (num1 & mask)>>(8*i);
+		}
+
+		return num2;
+	}
+
+	public static boolean contains( byte[] arr, byte value) {
+
+		boolean found = false;
+		for( int i=0; i<arr.length; i++) {
+
+			if( arr[i] == value) {
+
+				found = true;
+				break;
+			}
+		}
+
+		return found;
+	}
+	
+	public static byte[] fillString( String dado, int tamanho )
+	{
+		byte ret[] = new byte[tamanho];
+		char ori[] = dado.toCharArray();
+		
+		for ( int i = 0; i < tamanho; i++ )
+		{
+			if ( i < ori.length )
+			{
+				ret[i] = (byte)ori[i];
+			}
+			else
+			{
+				ret[i] = ' ';
+			} 
+		}
+		System.out.println(new String(ret));
+		return ret;
+	}
+	
+	
+}
@@ -0,0 +1,40 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+/**
+* Estrutura derivada da tabela que pode ser montada em partes, uma por intervalo de registros,
+* na leitura compartilhada do aquecimento (ver TableWarmup).
+*
+* As partes são alimentadas ao mesmo tempo por threads diferentes, portanto cada parte só pode
+* alterar o seu próprio estado (ou posições da estrutura exclusivas dos seus registros). A
+* junção é feita por uma única thread, depois que todas as partes terminaram.
+*
+* @version 1.0
+*/
+interface WarmupTarget {
+
+	/**
+	 * Prepara a estrutura, vazia, para os registros de 1 até records
+	 */
+	void prepare( int records );
+
+	/**
+	 * Cria a parte de um intervalo de registros. Todas as partes são criadas antes da leitura.
+	 * @param first	Primeiro registro do intervalo
+	 * @param last	Último registro do intervalo (inclusive)
+	 * @return Visitor que recebe os registros do intervalo (inclusive os deletados)
+	 */
+	RecordVisitor newPart( int first, int last );
+
+	/**
+	 * Junta as partes à estrutura
+	 * @param parts Partes criadas por newPart, na ordem dos intervalos
+	 */
+	void merge( RecordVisitor[] parts );
+}
@@ -0,0 +1,695 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+* Estatísticas por bloco de registros (zone map): menor e maior valor e quantidade de valores
+* em branco de colunas numéricas e data, para cada bloco de getBlockSize() registros.
+*
+* Numa pesquisa por faixa de valores (ex: DT_VENC entre duas datas), os blocos cujo intervalo
+* [menor, maior] não intercepta a faixa não precisam ser lidos. Como os registros costumam ser
+* incluídos na ordem das datas, a maior parte dos blocos é descartada. A Query usa os zone maps
+* registrados na tabela automaticamente.
+*
+* As estatísticas são mantidas por addRecord e setFieldXXX. Numa alteração, o intervalo do
+* bloco só é ampliado (nunca reduzido), portanto continua correto, apenas menos seletivo.
+* Registros incluídos por outros processos (vistos após Table.refresh) são incluídos por
+* update(), chamado pela Query antes de cada pesquisa; até lá, o bloco onde eles começam e os
+* seguintes nunca são descartados.
+* Se for informado um arquivo, as estatísticas são carregadas dele na abertura (quando ainda
+* correspondem à tabela) e gravadas quando a tabela é fechada.
+*
+* <pre>
+*	ZoneMap zones = ZoneMap.open( table, new String[] { "DT_VENC", "VR_RECEB" }, "RECEB.ZMP" );
+*	for ( int block = 0; block < zones.getBlockCount(); block++ ) {
+*		if ( zones.mayContain( block, "DT_VENC", inicio, fim ) ) { ... }
+*	}
+* </pre>
+*
+* @version 1.0
+*/
+public class ZoneMap implements TableListener, WarmupTarget {
+
+	/** Identificação do arquivo */
+	private static final int MAGIC = 0x5A4D5031; // ZMP1
+
+	/** Quantidade padrão de registros por bloco */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	/** Tabela */
+	private final Table table;
+
+	/** Colunas com estatísticas */
+	private final Field[] fields;
+
+	/** Arquivo das estatísticas (null = somente em memória) */
+	private final String fileName;
+
+	/** Registros por bloco */
+	private final int blockSize;
+
+	/** Quantidade de blocos */
+	private int blockCount;
+
+	/** Menor e maior valor de cada bloco, por coluna ([coluna][bloco]) */
+	private double[][] min;
+	private double[][] max;
+
+	/** Quantidade de valores em branco de cada bloco, por coluna */
+	private int[][] nulls;
+
+	/** Quantidade de registros incluídos nas estatísticas */
+	private int covered;
+
+	private ZoneMap( Table table, String[] columns, String fileName, int blockSize ) throws FieldNotFoundException, FieldTypeException
+	{
+		super();
+		this.table 	   = table;
+		this.fileName  = fileName;
+		this.blockSize = Math.max( 1, blockSize );
+		this.fields    = new Field[columns.length];
+
+		if ( columns.length == 0 )
+		{
+			throw new IllegalArgumentException( "Nenhuma coluna informada" );
+		}
+
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			fields[i] = table.findField( columns[i] );
+			if ( fields[i].dataType != Field.TYPE_NUMERIC && fields[i].dataType != Field.TYPE_FLOAT
+				 && fields[i].dataType != Field.TYPE_DATE )
+			{
+				throw new FieldTypeException();
+			}
+		}
+	}
+
+	/**
+	 * Calcula as estatísticas somente em memória
+	 * @param table		Tabela aberta
+	 * @param columns	Colunas numéricas ou data
+	 * @return O zone map, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException Uma das colunas não é numérica nem data
+	 */
+	public static ZoneMap build( Table table, String[] columns ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		return open( table, columns, null, DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * Abre as estatísticas persistidas em arquivo. Se o arquivo não existir ou não corresponder
+	 * ao estado atual da tabela, as estatísticas são recalculadas.
+	 * @param table		Tabela aberta
+	 * @param columns	Colunas numéricas ou data
+	 * @param fileName	Arquivo das estatísticas
+	 * @return O zone map, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException Uma das colunas não é numérica nem data
+	 */
+	public static ZoneMap open( Table table, String[] columns, String fileName ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		return open( table, columns, fileName, DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * Abre as estatísticas persistidas em arquivo
+	 * @param table		Tabela aberta
+	 * @param columns	Colunas numéricas ou data
+	 * @param fileName	Arquivo das estatísticas (null = somente em memória)
+	 * @param blockSize	Registros por bloco
+	 * @return O zone map, já registrado para acompanhar as alterações da tabela
+	 * @throws IOException
+	 * @throws FieldNotFoundException
+	 * @throws FieldTypeException
+	 */
+	public static ZoneMap open( Table table, String[] columns, String fileName, int blockSize ) throws IOException, FieldNotFoundException, FieldTypeException
+	{
+		ZoneMap zones = new ZoneMap( table, columns, fileName, blockSize );
+		if ( fileName == null || !zones.load() )
+		{
+			zones.rebuild();
+		}
+		table.addTableListener( zones );
+		return zones;
+	}
+
+	/**
+	 * Cria um zone map vazio, para ser carregado do arquivo (load) ou montado pelo aquecimento
+	 * da tabela (ver TableWarmup)
+	 * @return O zone map (não registrado na tabela)
+	 */
+	static ZoneMap create( Table table, String[] columns, String fileName, int blockSize ) throws FieldNotFoundException, FieldTypeException
+	{
+		return new ZoneMap( table, columns, fileName, blockSize );
+	}
+
+	/**
+	 * Registros por bloco. O bloco n (a partir de 0) contém os registros
+	 * n * getBlockSize() + 1 até (n + 1) * getBlockSize().
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	/**
+	 * Quantidade de blocos
+	 */
+	public int getBlockCount()
+	{
+		return blockCount;
+	}
+
+	/**
+	 * Indica se um bloco pode conter valores da coluna dentro da faixa
+	 * @param block		Número do bloco (a partir de 0)
+	 * @param column	Coluna
+	 * @param low		Menor valor da faixa - Number ou Date (null = sem limite)
+	 * @param high		Maior valor da faixa - Number ou Date (null = sem limite)
+	 * @return FALSE se com certeza nenhum registro do bloco está na faixa
+	 * @throws FieldNotFoundException A coluna não faz parte do zone map
+	 */
+	public boolean mayContain( int block, String column, Object low, Object high ) throws FieldNotFoundException
+	{
+		int i = columnIndex( column );
+		return mayContain( block, i,
+						   ( low == null ) ? Double.NEGATIVE_INFINITY : toNumber( low ),
+						   ( high == null ) ? Double.POSITIVE_INFINITY : toNumber( high ) );
+	}
+
+	/**
+	 * Inclui nas estatísticas os registros que a tabela ainda não tinha quando elas foram
+	 * calculadas (incluídos por outros processos e vistos após Table.refresh)
+	 * @throws IOException
+	 */
+	public void update() throws IOException
+	{
+		int records = table.getNumberOfRecords();
+		if ( records > covered )
+		{
+			scan( covered + 1, records );
+		}
+	}
+
+	/**
+	 * Quantidade de valores em branco da coluna no bloco
+	 * @throws FieldNotFoundException A coluna não faz parte do zone map
+	 */
+	public int getNullCount( int block, String column ) throws FieldNotFoundException
+	{
+		return nulls[columnIndex( column )][block];
+	}
+
+	/**
+	 * Grava as estatísticas no arquivo informado em open()
+	 * @throws IOException
+	 */
+	public void save() throws IOException
+	{
+		if ( fileName == null )
+		{
+			return;
+		}
+
+		File dbf = new File( table.tableName );
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( fileName ), 64 * 1024 ) );
+		try
+		{
+			out.writeInt( MAGIC );
+			out.writeLong( dbf.length() );
+			out.writeLong( dbf.lastModified() );
+			out.writeInt( table.getNumberOfRecords() );
+			out.writeInt( blockSize );
+			out.writeInt( fields.length );
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				out.writeUTF( fields[i].fieldName );
+				out.writeInt( fields[i].offset );
+			}
+
+			out.writeInt( blockCount );
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				for ( int b = 0; b < blockCount; b++ )
+				{
+					out.writeDouble( min[i][b] );
+					out.writeDouble( max[i][b] );
+					out.writeInt( nulls[i][b] );
+				}
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Deixa de acompanhar as alterações da tabela
+	 */
+	public void close()
+	{
+		table.removeTableListener( this );
+	}
+
+	public void recordAdded( Table table, int record, byte[] data )
+	{
+		ensureBlock( ( record - 1 ) / blockSize );
+		include( record, data );
+		covered = Math.max( covered, record );
+	}
+
+	public void recordChanged( Table table, int record, byte[] oldData, byte[] newData )
+	{
+		int block = ( record - 1 ) / blockSize;
+		ensureBlock( block );
+
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			double oldValue = value( fields[i], oldData, 0 );
+			double newValue = value( fields[i], newData, 0 );
+
+			// Valores em branco: a contagem é exata
+			if ( oldValue != oldValue && newValue == newValue )
+			{
+				nulls[i][block]--;
+			}
+			else if ( oldValue == oldValue && newValue != newValue )
+			{
+				nulls[i][block]++;
+			}
+
+			if ( newValue == newValue )
+			{
+				widen( i, block, newValue );
+			}
+		}
+	}
+
+	public void recordDeleted( Table table, int record )
+	{
+		// O intervalo do bloco continua válido (apenas menos seletivo)
+	}
+
+	public void recordRecalled( Table table, int record, byte[] data )
+	{
+		// A deleção não retira o registro do intervalo do bloco, que portanto ainda o inclui
+	}
+
+	public void tableClosed( Table table )
+	{
+		try
+		{
+			save();
+		}
+		catch ( IOException e )
+		{
+			// As estatísticas serão recalculadas na próxima abertura
+			new File( fileName ).delete();
+		}
+		close();
+	}
+
+	public void prepare( int records )
+	{
+		int blocks = ( records + blockSize - 1 ) / blockSize;
+
+		blockCount = 0;
+		covered    = records;
+		allocate( blocks );
+		if ( blocks > 0 )
+		{
+			ensureBlock( blocks - 1 );
+		}
+	}
+
+	public RecordVisitor newPart( int first, int last )
+	{
+		return new Part( first, last );
+	}
+
+	public void merge( RecordVisitor[] parts )
+	{
+		// Os blocos das extremidades de um intervalo podem ter sido divididos entre duas partes
+		for ( int p = 0; p < parts.length; p++ )
+		{
+			Part part = (Part)parts[p];
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				for ( int b = 0; b < part.nulls[i].length; b++ )
+				{
+					int block = part.firstBlock + b;
+					if ( part.min[i][b] < min[i][block] )
+					{
+						min[i][block] = part.min[i][b];
+					}
+					if ( part.max[i][b] > max[i][block] )
+					{
+						max[i][block] = part.max[i][b];
+					}
+					nulls[i][block] += part.nulls[i][b];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Estatísticas dos blocos de um intervalo de registros (ver TableWarmup)
+	 */
+	private class Part implements RecordVisitor
+	{
+		final int firstBlock;
+		final double[][] min;
+		final double[][] max;
+		final int[][] nulls;
+
+		Part( int first, int last )
+		{
+			firstBlock = ( first - 1 ) / blockSize;
+			int blocks = ( last - 1 ) / blockSize - firstBlock + 1;
+
+			min   = new double[fields.length][blocks];
+			max   = new double[fields.length][blocks];
+			nulls = new int[fields.length][blocks];
+
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				for ( int b = 0; b < blocks; b++ )
+				{
+					min[i][b] = Double.POSITIVE_INFINITY;
+					max[i][b] = Double.NEGATIVE_INFINITY;
+				}
+			}
+		}
+
+		public boolean visit( int record, byte[] buffer, int base )
+		{
+			int b = ( record - 1 ) / blockSize - firstBlock;
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				double v = value( fields[i], buffer, base );
+				if ( v != v )
+				{
+					nulls[i][b]++;
+				}
+				else
+				{
+					if ( v < min[i][b] )
+					{
+						min[i][b] = v;
+					}
+					if ( v > max[i][b] )
+					{
+						max[i][b] = v;
+					}
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Índice de uma coluna (-1 se não faz parte do zone map)
+	 */
+	int indexOf( Field field )
+	{
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			if ( fields[i] == field )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Indica se um bloco pode conter valores da coluna (índice) dentro da faixa
+	 */
+	boolean mayContain( int block, int column, double low, double high )
+	{
+		if ( block >= blockCount || ( block >= covered / blockSize && covered < table.getNumberOfRecords() ) )
+		{
+			// Bloco sem estatísticas, ou com registros ainda não incluídos (ver update): não pode ser descartado
+			return true;
+		}
+		return max[column][block] >= low && min[column][block] <= high;
+	}
+
+	/**
+	 * Valor usado nas estatísticas: o número, ou AAAAMMDD para datas (NaN = em branco)
+	 */
+	static double value( Field field, byte[] data, int base )
+	{
+		if ( field.dataType != Field.TYPE_DATE )
+		{
+			return QueryPredicate.number( field, data, base );
+		}
+
+		if ( QueryPredicate.isBlank( field, data, base ) )
+		{
+			return Double.NaN;
+		}
+
+		try
+		{
+			return Utils.parseInt( data, base + field.offset, 8 );
+		}
+		catch ( NumberFormatException e )
+		{
+			return Double.NaN;
+		}
+	}
+
+	private int columnIndex( String column ) throws FieldNotFoundException
+	{
+		int i = indexOf( table.findField( column ) );
+		if ( i < 0 )
+		{
+			throw new FieldNotFoundException();
+		}
+		return i;
+	}
+
+	private static double toNumber( Object value )
+	{
+		if ( value instanceof Date )
+		{
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime( (Date)value );
+			return calendar.get( Calendar.YEAR ) * 10000
+				 + ( calendar.get( Calendar.MONTH ) + 1 ) * 100
+				 + calendar.get( Calendar.DAY_OF_MONTH );
+		}
+		return ((Number)value).doubleValue();
+	}
+
+	private void rebuild() throws IOException
+	{
+		blockCount = 0;
+		covered    = 0;
+		allocate( ( table.getNumberOfRecords() + blockSize - 1 ) / blockSize );
+
+		if ( table.getNumberOfRecords() > 0 )
+		{
+			scan( 1, table.getNumberOfRecords() );
+		}
+	}
+
+	/**
+	 * Inclui nas estatísticas um intervalo de registros lido do arquivo
+	 */
+	private void scan( int first, int last ) throws IOException
+	{
+		TableScanner scanner = new TableScanner( table );
+		try
+		{
+			scanner.scan( first, last, new RecordVisitor() {
+				public boolean visit( int record, byte[] buffer, int base )
+				{
+					ensureBlock( ( record - 1 ) / blockSize );
+
+					// Registros deletados também entram: podem ser recuperados
+					int block = ( record - 1 ) / blockSize;
+					for ( int i = 0; i < fields.length; i++ )
+					{
+						double v = value( fields[i], buffer, base );
+						if ( v == v )
+						{
+							widen( i, block, v );
+						}
+						else
+						{
+							nulls[i][block]++;
+						}
+					}
+					return true;
+				}
+			} );
+		}
+		finally
+		{
+			scanner.close();
+		}
+		covered = Math.max( covered, last );
+	}
+
+	boolean load() throws IOException
+	{
+		File file = new File( fileName );
+		if ( !file.exists() )
+		{
+			return false;
+		}
+
+		File dbf = new File( table.tableName );
+		DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ), 64 * 1024 ) );
+		try
+		{
+			if ( in.readInt() != MAGIC ||
+				 in.readLong() != dbf.length() ||
+				 in.readLong() != dbf.lastModified() ||
+				 in.readInt() != table.getNumberOfRecords() ||
+				 in.readInt() != blockSize ||
+				 in.readInt() != fields.length )
+			{
+				return false;
+			}
+
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				if ( !in.readUTF().equals( fields[i].fieldName ) || in.readInt() != fields[i].offset )
+				{
+					return false;
+				}
+			}
+
+			int blocks = in.readInt();
+			allocate( blocks );
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				for ( int b = 0; b < blocks; b++ )
+				{
+					min[i][b]   = in.readDouble();
+					max[i][b]   = in.readDouble();
+					nulls[i][b] = in.readInt();
+				}
+			}
+			blockCount = blocks;
+			covered    = table.getNumberOfRecords();
+		}
+		finally
+		{
+			in.close();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Inclui os valores de um registro nas estatísticas do seu bloco
+	 */
+	private void include( int record, byte[] data )
+	{
+		int block = ( record - 1 ) / blockSize;
+
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			double v = value( fields[i], data, 0 );
+			if ( v == v )
+			{
+				widen( i, block, v );
+			}
+			else
+			{
+				nulls[i][block]++;
+			}
+		}
+	}
+
+	private void widen( int column, int block, double v )
+	{
+		if ( v < min[column][block] )
+		{
+			min[column][block] = v;
+		}
+		if ( v > max[column][block] )
+		{
+			max[column][block] = v;
+		}
+	}
+
+	/**
+	 * Garante que o bloco exista (blocos novos começam vazios: menor = +infinito, maior = -infinito)
+	 */
+	private void ensureBlock( int block )
+	{
+		if ( block < blockCount )
+		{
+			return;
+		}
+
+		if ( block >= min[0].length )
+		{
+			int capacity = Math.max( block + 1, min[0].length * 2 );
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				min[i]   = grow( min[i], capacity );
+				max[i]   = grow( max[i], capacity );
+				nulls[i] = grow( nulls[i], capacity );
+			}
+		}
+
+		for ( ; blockCount <= block; blockCount++ )
+		{
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				min[i][blockCount]   = Double.POSITIVE_INFINITY;
+				max[i][blockCount]   = Double.NEGATIVE_INFINITY;
+				nulls[i][blockCount] = 0;
+			}
+		}
+	}
+
+	private void allocate( int blocks )
+	{
+		int capacity = Math.max( 16, blocks );
+		min   = new double[fields.length][capacity];
+		max   = new double[fields.length][capacity];
+		nulls = new int[fields.length][capacity];
+	}
+
+	private static double[] grow( double[] array, int length )
+	{
+		double[] newArray = new double[length];
+		System.arraycopy( array, 0, newArray, 0, array.length );
+		return newArray;
+	}
+
+	private static int[] grow( int[] array, int length )
+	{
+		int[] newArray = new int[length];
+		System.arraycopy( array, 0, newArray, 0, array.length );
+		return newArray;
+	}
+}
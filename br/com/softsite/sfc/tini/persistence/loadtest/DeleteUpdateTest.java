@@ -0,0 +1,176 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence.loadtest;
+
+import java.io.File;
+import java.util.Hashtable;
+
+import br.com.softsite.sfc.tini.persistence.HashIndex;
+import br.com.softsite.sfc.tini.persistence.MemoryCursor;
+import br.com.softsite.sfc.tini.persistence.MemoryTable;
+import br.com.softsite.sfc.tini.persistence.Table;
+import br.com.softsite.sfc.tini.persistence.TableBuilder;
+
+/**
+* Teste da alteração de uma coluna logo após deleteRecord: a gravação deve ser notificada aos
+* listeners (recordChanged) com o conteúdo do registro deletado, tanto quando ele não era o
+* registro corrente quanto quando era. Confere o arquivo, uma MemoryTable e um HashIndex.
+*
+* <pre>
+*	java br.com.softsite.sfc.tini.persistence.loadtest.DeleteUpdateTest file=/tmp/delupd.dbf
+* </pre>
+*
+* Parâmetros (nome=valor):
+* <ul>
+* <li>file: arquivo da tabela (delupd.dbf)</li>
+* <li>keep: true para não excluir o arquivo no final (false)</li>
+* </ul>
+*
+* Termina com código 1 se alguma conferência falhar.
+*
+* @version 1.0
+*/
+public class DeleteUpdateTest {
+
+	private String 	fileName 	= "delupd.dbf";
+	private boolean keep 		= false;
+
+	/** Quantidade de conferências que falharam */
+	private int failures;
+
+	public static void main( String[] args ) throws Exception
+	{
+		DeleteUpdateTest test = new DeleteUpdateTest();
+		for ( int i = 0; i < args.length; i++ )
+		{
+			int eq = args[i].indexOf( '=' );
+			String name = ( eq > 0 ) ? args[i].substring( 0, eq ) : args[i];
+
+			if ( name.equals( "file" ) )		test.fileName = args[i].substring( eq + 1 );
+			else if ( name.equals( "keep" ) )	test.keep 	  = args[i].substring( eq + 1 ).equals( "true" );
+			else
+			{
+				System.err.println( "Parâmetro desconhecido: " + args[i] );
+				System.err.println( "Uso: DeleteUpdateTest [file=...] [keep=true]" );
+				System.exit( 1 );
+			}
+		}
+		System.exit( test.run() ? 0 : 1 );
+	}
+
+	/**
+	 * Executa o teste
+	 * @return TRUE se todas as conferências passaram
+	 */
+	boolean run() throws Exception
+	{
+		File file = new File( fileName );
+		file.delete();
+
+		Table table = new TableBuilder( fileName )
+						.addCharacterField( "CODE", 4 )
+						.addCharacterField( "NAME", 10 )
+						.create();
+		try
+		{
+			add( table, "AA", "ALPHA" );
+			add( table, "BB", "BETA" );
+			add( table, "CC", "GAMMA" );
+
+			MemoryTable memory = MemoryTable.load( table );
+			memory.setCheckInterval( 0 );
+			HashIndex index = HashIndex.build( table, "NAME" );
+
+			// Registro deletado diferente do corrente
+			table.goTo( 1 );
+			table.deleteRecord( 2 );
+			table.setFieldString( "CODE", "ZZ" );
+
+			checkRecord( table, memory, 2, "ZZ", "BETA", true );
+			checkRecord( table, memory, 1, "AA", "ALPHA", false );
+			check( "índice: BETA deletado", index.find( "BETA" ) == 0 );
+			check( "índice: ALPHA só no registro 1", index.findAll( "ALPHA" ).length == 1 && index.find( "ALPHA" ) == 1 );
+
+			// Registro deletado igual ao corrente
+			table.goTo( 1 );
+			table.deleteRecord( table.getRecordNumber() );
+			table.setFieldString( "CODE", "YY" );
+
+			checkRecord( table, memory, 1, "YY", "ALPHA", true );
+			check( "índice: ALPHA deletado", index.find( "ALPHA" ) == 0 );
+			check( "índice: GAMMA", index.find( "GAMMA" ) == 3 );
+			check( "memória: registros não deletados", live( memory ) == 1 );
+
+			index.close();
+			memory.close();
+		}
+		finally
+		{
+			table.close();
+			if ( !keep )
+			{
+				file.delete();
+			}
+		}
+
+		System.out.println( failures == 0 ? "OK" : failures + " conferência(s) falharam" );
+		return failures == 0;
+	}
+
+	private static void add( Table table, String code, String name ) throws Exception
+	{
+		Hashtable data = new Hashtable();
+		data.put( "CODE", code );
+		data.put( "NAME", name );
+		table.addRecord( data );
+	}
+
+	/**
+	 * Confere um registro no arquivo e na memória
+	 */
+	private void checkRecord( Table table, MemoryTable memory, int record, String code, String name, boolean deleted ) throws Exception
+	{
+		boolean readDeleted = table.isReadDeletedData();
+		table.setReadDeletedData( true );
+		table.goTo( record );
+		check( "arquivo: registro " + record,
+			   table.getFieldString( "CODE" ).trim().equals( code )
+			   && table.getFieldString( "NAME" ).trim().equals( name ) );
+		table.setReadDeletedData( readDeleted );
+
+		MemoryCursor cursor = memory.openCursor();
+		check( "memória: registro " + record,
+			   cursor.goTo( record )
+			   && cursor.getFieldString( "CODE" ).trim().equals( code )
+			   && cursor.getFieldString( "NAME" ).trim().equals( name )
+			   && cursor.isDeleted() == deleted );
+	}
+
+	/**
+	 * Quantidade de registros não deletados na memória
+	 */
+	private static int live( MemoryTable memory ) throws Exception
+	{
+		MemoryCursor cursor = memory.openCursor();
+		int count = 0;
+		for ( boolean ok = cursor.goTop(); ok; ok = cursor.nextRecord() )
+		{
+			count++;
+		}
+		return count;
+	}
+
+	private void check( String name, boolean ok )
+	{
+		if ( !ok )
+		{
+			failures++;
+		}
+		System.out.println( ( ok ? "ok     " : "FALHOU " ) + name );
+	}
+}
@@ -0,0 +1,264 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence.loadtest;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Hashtable;
+
+import br.com.softsite.sfc.tini.persistence.Table;
+import br.com.softsite.sfc.tini.persistence.TableBuilder;
+
+/**
+* Teste de tabelas maiores que 2 GB. A tabela é criada vazia e estendida com
+* RandomAccessFile.setLength (arquivo esparso: o sistema de arquivos não grava os registros
+* intermediários), com o cabeçalho ajustado para a nova quantidade de registros. Em seguida,
+* são conferidos registros gravados e lidos com goTo/setFieldXXX no início, no registro que
+* atravessa a posição 2^31 do arquivo e no final, inclusões com addRecord além de 2 GB, a
+* deleção de registros no final e a reabertura da tabela.
+*
+* Ferramenta de estação de trabalho: precisa de um sistema de arquivos com suporte a arquivos
+* esparsos (ocupa poucos MB em disco). Termina com código 1 se alguma conferência falhar.
+*
+* <pre>
+*	java br.com.softsite.sfc.tini.persistence.loadtest.LargeTableTest file=/tmp/grande.dbf size=3072
+* </pre>
+*
+* Parâmetros (nome=valor):
+* <ul>
+* <li>file: arquivo da tabela (largetest.dbf)</li>
+* <li>size: tamanho do arquivo esparso em MB, antes das inclusões (2200)</li>
+* <li>appends: registros incluídos com addRecord depois da extensão (1000)</li>
+* <li>keep: true para não excluir o arquivo no final (false)</li>
+* </ul>
+*
+* @version 1.0
+*/
+public class LargeTableTest {
+
+	/** Posição do arquivo que não cabe em um int */
+	private static final long LIMIT = 1L << 31;
+
+	/** Marca de fim de arquivo gravada pela Table */
+	private static final int EOF = 0x1D;
+
+	// --- Parâmetros ---
+
+	private String 	fileName 	= "largetest.dbf";
+	private long 	size 		= 2200;
+	private int 	appends 	= 1000;
+	private boolean keep 		= false;
+
+	/** Quantidade de conferências que falharam */
+	private int failures;
+
+	public static void main( String[] args ) throws Exception
+	{
+		LargeTableTest test = new LargeTableTest();
+		try
+		{
+			test.configure( args );
+		}
+		catch ( IllegalArgumentException e )
+		{
+			System.err.println( e.getMessage() );
+			System.err.println( "Uso: LargeTableTest [file=...] [size=MB] [appends=n] [keep=true]" );
+			System.exit( 1 );
+		}
+		System.exit( test.run() ? 0 : 1 );
+	}
+
+	/**
+	 * Lê os parâmetros (nome=valor)
+	 */
+	void configure( String[] args )
+	{
+		for ( int i = 0; i < args.length; i++ )
+		{
+			int eq = args[i].indexOf( '=' );
+			if ( eq <= 0 )
+			{
+				throw new IllegalArgumentException( "Parâmetro inválido: " + args[i] );
+			}
+			String name  = args[i].substring( 0, eq );
+			String value = args[i].substring( eq + 1 );
+
+			if ( name.equals( "file" ) )				fileName 	= value;
+			else if ( name.equals( "size" ) )			size 		= number( name, value );
+			else if ( name.equals( "appends" ) )		appends 	= number( name, value );
+			else if ( name.equals( "keep" ) )			keep 		= value.equals( "true" );
+			else throw new IllegalArgumentException( "Parâmetro desconhecido: " + name );
+		}
+
+		if ( size * 1024 * 1024 <= LIMIT )
+		{
+			throw new IllegalArgumentException( "size deve ser maior que 2048 MB" );
+		}
+	}
+
+	/**
+	 * Executa o teste
+	 * @return TRUE se todas as conferências passaram
+	 */
+	boolean run() throws Exception
+	{
+		File file = new File( fileName );
+		file.delete();
+
+		Table table = new TableBuilder( fileName )
+						.addCharacterField( "DS", 250 )
+						.addCharacterField( "DS2", 250 )
+						.addCharacterField( "DS3", 250 )
+						.addCharacterField( "DS4", 250 )
+						.addNumericField( "NR", 10, 0 )
+						.create();
+		int headerLength = table.headerLength;
+		int recordLength = table.recordLength;
+		table.close();
+
+		try
+		{
+			// Extensão esparsa até o tamanho pedido
+			int records = (int)( ( size * 1024 * 1024 - headerLength - 1 ) / recordLength );
+			long length = headerLength + (long)records * recordLength;
+
+			RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+			try
+			{
+				raf.setLength( length + 1 );
+				raf.seek( length );
+				raf.write( EOF );
+
+				// A tabela vazia tem a marca de fim de arquivo no lugar do primeiro registro
+				raf.seek( headerLength );
+				raf.write( ' ' );
+
+				byte[] count = { (byte)records, (byte)( records >>> 8 ), (byte)( records >>> 16 ), (byte)( records >>> 24 ) };
+				raf.seek( 4 );
+				raf.write( count );
+			}
+			finally
+			{
+				raf.close();
+			}
+			System.out.println( "Arquivo esparso: " + records + " registros, " + length + " bytes" );
+
+			// Registro que atravessa a posição 2^31 e os seus vizinhos
+			int crossing = (int)( ( LIMIT - headerLength ) / recordLength ) + 1;
+			int[] markers = { 1, crossing - 1, crossing, crossing + 1, records - 1, records };
+
+			table = new Table( fileName );
+			check( "quantidade de registros", table.getNumberOfRecords() == records );
+			for ( int i = 0; i < markers.length; i++ )
+			{
+				table.goTo( markers[i] );
+				table.setFieldString( "DS", "R" + markers[i] );
+				table.setFieldInteger( "NR", markers[i] );
+			}
+			for ( int i = 0; i < markers.length; i++ )
+			{
+				checkRecord( table, markers[i], "R" + markers[i] );
+			}
+
+			// Leitura sequencial através de 2 GB
+			table.goTo( crossing - 1 );
+			table.nextRecord();
+			check( "nextRecord através de 2 GB", table.getRecordNumber() == crossing && table.getFieldInteger( "NR" ) == crossing );
+
+			// Inclusões além de 2 GB
+			for ( int i = 1; i <= appends; i++ )
+			{
+				Hashtable data = new Hashtable();
+				data.put( "DS", "A" + i );
+				data.put( "NR", new Integer( records + i ) );
+				table.addRecord( data );
+			}
+			check( "quantidade após inclusões", table.getNumberOfRecords() == records + appends );
+
+			table.deleteRecord( crossing );
+			table.deleteRecord( records + appends );
+			table.close();
+
+			// Reabertura
+			table = new Table( fileName );
+			table.setReadDeletedData( true );
+			check( "quantidade após reabertura", table.getNumberOfRecords() == records + appends );
+			check( "tamanho do arquivo", file.length() == headerLength + (long)( records + appends ) * recordLength + 1 );
+			for ( int i = 0; i < markers.length; i++ )
+			{
+				checkRecord( table, markers[i], "R" + markers[i] );
+			}
+			for ( int i = 1; i <= appends; i += Math.max( 1, appends / 10 ) )
+			{
+				checkRecord( table, records + i, "A" + i );
+			}
+			checkRecord( table, records + appends, "A" + appends );
+
+			table.setReadDeletedData( false );
+			table.goTo( crossing );
+			check( "registro deletado em 2 GB ignorado", table.getRecordNumber() == crossing + 1 );
+			table.close();
+
+			raf = new RandomAccessFile( file, "r" );
+			try
+			{
+				raf.seek( headerLength + (long)( crossing - 1 ) * recordLength );
+				check( "indicador de deletado em 2 GB", raf.read() == '*' );
+				raf.seek( file.length() - 1 );
+				check( "fim de arquivo", raf.read() == EOF );
+			}
+			finally
+			{
+				raf.close();
+			}
+		}
+		finally
+		{
+			if ( !keep )
+			{
+				file.delete();
+			}
+		}
+
+		System.out.println( failures == 0 ? "OK" : failures + " conferência(s) falharam" );
+		return failures == 0;
+	}
+
+	/**
+	 * Confere o conteúdo de um registro
+	 */
+	private void checkRecord( Table table, int record, String text ) throws Exception
+	{
+		table.goTo( record );
+		check( "registro " + record,
+			   table.getRecordNumber() == record
+			   && table.getFieldString( "DS" ).trim().equals( text )
+			   && table.getFieldInteger( "NR" ) == record );
+	}
+
+	private void check( String name, boolean ok )
+	{
+		if ( !ok )
+		{
+			failures++;
+		}
+		System.out.println( ( ok ? "ok     " : "FALHOU " ) + name );
+	}
+
+	private static int number( String name, String value )
+	{
+		try
+		{
+			return Integer.parseInt( value.trim() );
+		}
+		catch ( NumberFormatException e )
+		{
+			throw new IllegalArgumentException( "Valor inválido para " + name + ": " + value );
+		}
+	}
+}
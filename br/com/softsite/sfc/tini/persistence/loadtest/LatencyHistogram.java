@@ -0,0 +1,172 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence.loadtest;
+
+/**
+* Histograma de latências com buckets log-lineares (no estilo do HdrHistogram).
+*
+* Os valores até 2^SUB_BUCKET_BITS são contados exatamente; acima disso, cada potência de 2 é
+* dividida em 2^SUB_BUCKET_BITS buckets iguais, portanto o erro relativo de qualquer percentil
+* é de no máximo 1 / 2^SUB_BUCKET_BITS (~3%), com memória fixa (menos de 16 KB) e registro em
+* tempo constante, sem guardar as amostras.
+*
+* @version 1.0
+*/
+public class LatencyHistogram {
+
+	/** Bits da parte linear de cada potência de 2 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** Quantidade de valores de cada bucket */
+	private final long[] counts = new long[( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS];
+
+	private long count;
+	private long total;
+	private long max;
+
+	public LatencyHistogram()
+	{
+		super();
+	}
+
+	/**
+	 * Registra um valor
+	 * @param value Valor (negativos são registrados como 0)
+	 */
+	public synchronized void record( long value )
+	{
+		if ( value < 0 )
+		{
+			value = 0;
+		}
+
+		counts[index( value )]++;
+		count++;
+		total += value;
+		if ( value > max )
+		{
+			max = value;
+		}
+	}
+
+	/**
+	 * Soma os valores de outro histograma a esse
+	 */
+	public synchronized void add( LatencyHistogram other )
+	{
+		synchronized ( other )
+		{
+			for ( int i = 0; i < counts.length; i++ )
+			{
+				counts[i] += other.counts[i];
+			}
+			count += other.count;
+			total += other.total;
+			max    = Math.max( max, other.max );
+		}
+	}
+
+	/**
+	 * Copia o histograma e o zera, de forma atômica em relação a record()
+	 * @return A cópia
+	 */
+	public synchronized LatencyHistogram copyAndReset()
+	{
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.add( this );
+
+		for ( int i = 0; i < counts.length; i++ )
+		{
+			counts[i] = 0;
+		}
+		count = 0;
+		total = 0;
+		max   = 0;
+		return copy;
+	}
+
+	public synchronized long getCount()
+	{
+		return count;
+	}
+
+	public synchronized long getMax()
+	{
+		return max;
+	}
+
+	public synchronized double getMean()
+	{
+		return ( count == 0 ) ? 0 : (double)total / count;
+	}
+
+	/**
+	 * Valor de um percentil: o maior valor do bucket que contém o percentil (nunca maior que
+	 * o máximo registrado)
+	 * @param percentile Percentil, de 0 a 100
+	 * @return O valor, ou 0 se o histograma está vazio
+	 */
+	public synchronized long getValueAtPercentile( double percentile )
+	{
+		if ( count == 0 )
+		{
+			return 0;
+		}
+
+		long target = Math.max( 1, (long)Math.ceil( count * Math.min( percentile, 100.0 ) / 100.0 ) );
+		long seen = 0;
+
+		for ( int i = 0; i < counts.length; i++ )
+		{
+			seen += counts[i];
+			if ( seen >= target )
+			{
+				return Math.min( highestValue( i ), max );
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Bucket de um valor
+	 */
+	private static int index( long value )
+	{
+		if ( value < SUB_BUCKETS )
+		{
+			return (int)value;
+		}
+
+		// Posição do bit mais significativo
+		int exponent = 0;
+		for ( long v = value; v > 1; v >>>= 1 )
+		{
+			exponent++;
+		}
+
+		int shift = exponent - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int)( value >>> shift );
+	}
+
+	/**
+	 * Maior valor contado em um bucket
+	 */
+	private static long highestValue( int index )
+	{
+		if ( index < 2 * SUB_BUCKETS )
+		{
+			return index;
+		}
+
+		int shift = index / SUB_BUCKETS - 1;
+		long mantissa = index - shift * SUB_BUCKETS;
+		return ( ( mantissa + 1 ) << shift ) - 1;
+	}
+}
@@ -0,0 +1,616 @@
+/*
+* Project: SoftSite Foundation Classes (SFC) - SFC Tini
+* Date   : 19/10/2026
+*
+* Copyright (c) 1996-2004 SoftSite Tecnologia
+* Todos os direitos reservados
+*/
+package br.com.softsite.sfc.tini.persistence.loadtest;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import br.com.softsite.sfc.tini.persistence.Table;
+import br.com.softsite.sfc.tini.persistence.TableBuilder;
+import br.com.softsite.sfc.tini.persistence.TableCursor;
+import br.com.softsite.sfc.tini.persistence.TableHandle;
+
+/**
+* Teste de carga de uma tabela: várias threads executam uma mistura configurável de leituras
+* sequenciais, leituras aleatórias, alterações, inclusões e deleções durante um tempo fixo. A
+* cada intervalo são mostrados a vazão e os percentis de latência de cada operação e o
+* crescimento do arquivo; no final, os totais do teste.
+*
+* Assim como em produção, a Table é compartilhada pelas threads e cada operação sobre ela é
+* feita dentro do lock da tabela. As leituras sequenciais usam um TableCursor por thread
+* (TableHandle), sem lock; as leituras aleatórias usam a Table (reads=table) ou o cursor
+* (reads=handle).
+*
+* Ferramenta de estação de trabalho (usa System.nanoTime, Java 5): não faz parte da biblioteca.
+*
+* <pre>
+*	java br.com.softsite.sfc.tini.persistence.loadtest.TableLoadTest file=/tmp/carga.dbf records=500000
+*		threads=16 duration=120 mix=scan:2,read:60,update:25,append:10,delete:3
+* </pre>
+*
+* Parâmetros (nome=valor):
+* <ul>
+* <li>file: arquivo da tabela (loadtest.dbf)</li>
+* <li>records: registros gerados antes do teste (100000)</li>
+* <li>chars, charLength, numerics, dates: formato da tabela - quantidade de colunas caracter,
+*     tamanho delas, quantidade de colunas numéricas e de data (4, 20, 4, 1)</li>
+* <li>keep: true para usar o arquivo existente em vez de gerá-lo (false)</li>
+* <li>threads: quantidade de threads (8)</li>
+* <li>duration: duração em segundos (30)</li>
+* <li>interval: intervalo dos relatórios em segundos (5)</li>
+* <li>mix: pesos das operações scan, read, update, append e delete
+*     (scan:1,read:60,update:25,append:10,delete:4)</li>
+* <li>scanRecords: registros lidos por leitura sequencial, a partir de um registro aleatório
+*     (1000; 0 = tabela inteira)</li>
+* <li>reads: table ou handle (table)</li>
+* <li>seed: semente dos números aleatórios (1)</li>
+* </ul>
+*
+* @version 1.0
+*/
+public class TableLoadTest {
+
+	/** Operações */
+	static final int SCAN 	= 0;
+	static final int READ 	= 1;
+	static final int UPDATE = 2;
+	static final int APPEND = 3;
+	static final int DELETE = 4;
+
+	private static final String[] OPERATIONS = { "scan", "read", "update", "append", "delete" };
+
+	// --- Parâmetros ---
+
+	private String 	fileName 	= "loadtest.dbf";
+	private int 	records 	= 100000;
+	private int 	chars 		= 4;
+	private int 	charLength 	= 20;
+	private int 	numerics 	= 4;
+	private int 	dates 		= 1;
+	private boolean keep 		= false;
+	private int 	threads 	= 8;
+	private int 	duration 	= 30;
+	private int 	interval 	= 5;
+	private int[] 	mix 		= { 1, 60, 25, 10, 4 };
+	private int 	scanRecords = 1000;
+	private boolean readHandle 	= false;
+	private long 	seed 		= 1;
+
+	// --- Estado do teste ---
+
+	private Table 		table;
+	private TableHandle handle;
+
+	private volatile boolean running;
+
+	/** Histogramas de cada thread e operação, zerados a cada relatório */
+	private LatencyHistogram[][] histograms;
+
+	/** Erros de cada operação */
+	private final long[] errors = new long[OPERATIONS.length];
+
+	public static void main( String[] args ) throws Exception
+	{
+		TableLoadTest test = new TableLoadTest();
+		try
+		{
+			test.configure( args );
+		}
+		catch ( IllegalArgumentException e )
+		{
+			System.err.println( e.getMessage() );
+			System.err.println( "Uso: TableLoadTest [file=...] [records=n] [chars=n] [charLength=n] [numerics=n] [dates=n] [keep=true]" );
+			System.err.println( "                   [threads=n] [duration=s] [interval=s] [mix=scan:1,read:60,update:25,append:10,delete:4]" );
+			System.err.println( "                   [scanRecords=n] [reads=table|handle] [seed=n]" );
+			System.exit( 1 );
+		}
+		test.run();
+	}
+
+	/**
+	 * Lê os parâmetros (nome=valor)
+	 */
+	void configure( String[] args )
+	{
+		for ( int i = 0; i < args.length; i++ )
+		{
+			int eq = args[i].indexOf( '=' );
+			if ( eq <= 0 )
+			{
+				throw new IllegalArgumentException( "Parâmetro inválido: " + args[i] );
+			}
+			String name  = args[i].substring( 0, eq );
+			String value = args[i].substring( eq + 1 );
+
+			if ( name.equals( "file" ) )				fileName 	= value;
+			else if ( name.equals( "records" ) )		records 	= number( name, value );
+			else if ( name.equals( "chars" ) )			chars 		= number( name, value );
+			else if ( name.equals( "charLength" ) )		charLength 	= number( name, value );
+			else if ( name.equals( "numerics" ) )		numerics 	= number( name, value );
+			else if ( name.equals( "dates" ) )			dates 		= number( name, value );
+			else if ( name.equals( "keep" ) )			keep 		= value.equals( "true" );
+			else if ( name.equals( "threads" ) )		threads 	= Math.max( 1, number( name, value ) );
+			else if ( name.equals( "duration" ) )		duration 	= Math.max( 1, number( name, value ) );
+			else if ( name.equals( "interval" ) )		interval 	= Math.max( 1, number( name, value ) );
+			else if ( name.equals( "scanRecords" ) )	scanRecords = number( name, value );
+			else if ( name.equals( "reads" ) )			readHandle 	= value.equals( "handle" );
+			else if ( name.equals( "seed" ) )			seed 		= number( name, value );
+			else if ( name.equals( "mix" ) )			mix 		= parseMix( value );
+			else
+			{
+				throw new IllegalArgumentException( "Parâmetro desconhecido: " + name );
+			}
+		}
+
+		if ( chars < 1 )
+		{
+			throw new IllegalArgumentException( "A tabela precisa de pelo menos uma coluna caracter" );
+		}
+	}
+
+	/**
+	 * Gera (ou abre) a tabela, executa o teste e mostra os relatórios
+	 */
+	void run() throws Exception
+	{
+		File file = new File( fileName );
+		if ( !keep || !file.exists() )
+		{
+			generate();
+		}
+
+		table = new Table( fileName );
+		table.setReadDeletedData( true );	// goTo posiciona exatamente no registro sorteado
+		handle = TableHandle.open( table );
+
+		System.out.println( "Tabela " + fileName + ": " + table.getNumberOfRecords() + " registros de "
+							+ table.recordLength + " bytes; " + threads + " threads, " + duration + " s, mix "
+							+ mixToString() + ", leituras pela " + ( readHandle ? "TableHandle" : "Table" ) );
+
+		histograms = new LatencyHistogram[threads][OPERATIONS.length];
+		LatencyHistogram[] totals = new LatencyHistogram[OPERATIONS.length];
+		for ( int op = 0; op < OPERATIONS.length; op++ )
+		{
+			totals[op] = new LatencyHistogram();
+			for ( int t = 0; t < threads; t++ )
+			{
+				histograms[t][op] = new LatencyHistogram();
+			}
+		}
+
+		running = true;
+		Thread[] workers = new Thread[threads];
+		for ( int t = 0; t < threads; t++ )
+		{
+			workers[t] = new Thread( new Worker( t ), "Carga " + ( t + 1 ) );
+			workers[t].start();
+		}
+
+		long start 		  = System.currentTimeMillis();
+		long initialSize  = file.length();
+		long lastSize 	  = initialSize;
+		long lastReport   = start;
+		long end 		  = start + duration * 1000L;
+
+		header();
+		while ( true )
+		{
+			long now = System.currentTimeMillis();
+			long next = Math.min( lastReport + interval * 1000L, end );
+			if ( next > now )
+			{
+				Thread.sleep( next - now );
+				continue;
+			}
+
+			if ( now >= end )
+			{
+				running = false;
+				for ( int t = 0; t < threads; t++ )
+				{
+					workers[t].join();
+				}
+				now = System.currentTimeMillis();
+			}
+
+			long size = file.length();
+			report( ( now - start ) / 1000.0, ( now - lastReport ) / 1000.0, collect( totals ), size, size - lastSize );
+			lastSize   = size;
+			lastReport = now;
+
+			if ( !running )
+			{
+				break;
+			}
+		}
+
+		System.out.println();
+		System.out.println( "Total" );
+		header();
+		long size = file.length();
+		report( ( lastReport - start ) / 1000.0, ( lastReport - start ) / 1000.0, totals, size, size - initialSize );
+		for ( int op = 0; op < OPERATIONS.length; op++ )
+		{
+			if ( errors[op] > 0 )
+			{
+				System.out.println( "Erros em " + OPERATIONS[op] + ": " + errors[op] );
+			}
+		}
+
+		handle.close();
+		table.close();
+	}
+
+	/**
+	 * Gera a tabela com registros aleatórios
+	 */
+	private void generate() throws Exception
+	{
+		new File( fileName ).delete();
+
+		TableBuilder builder = new TableBuilder( fileName );
+		for ( int i = 1; i <= chars; i++ )
+		{
+			builder.addCharacterField( "C_" + i, charLength );
+		}
+		for ( int i = 1; i <= numerics; i++ )
+		{
+			builder.addNumericField( "N_" + i, 12, 2 );
+		}
+		for ( int i = 1; i <= dates; i++ )
+		{
+			builder.addDateField( "D_" + i );
+		}
+		builder.setExpectedRecords( records );
+
+		long start = System.currentTimeMillis();
+		Table generated = builder.create();
+		try
+		{
+			Random random = new Random( seed );
+			for ( int i = 0; i < records; i++ )
+			{
+				generated.addRecord( newRecord( random ) );
+			}
+		}
+		finally
+		{
+			generated.close();
+		}
+		System.out.println( "Gerados " + records + " registros em " + ( System.currentTimeMillis() - start ) + " ms" );
+	}
+
+	/**
+	 * Registro com valores aleatórios em todas as colunas
+	 */
+	private Hashtable newRecord( Random random )
+	{
+		Hashtable data = new Hashtable();
+		for ( int i = 1; i <= chars; i++ )
+		{
+			data.put( "C_" + i, text( random ) );
+		}
+		for ( int i = 1; i <= numerics; i++ )
+		{
+			data.put( "N_" + i, new Double( random.nextInt( 10000000 ) / 100.0 ) );
+		}
+		for ( int i = 1; i <= dates; i++ )
+		{
+			data.put( "D_" + i, new Date( 946684800000L + (long)random.nextInt( 10000 ) * 86400000L ) );
+		}
+		return data;
+	}
+
+	private String text( Random random )
+	{
+		char[] text = new char[1 + random.nextInt( charLength )];
+		for ( int i = 0; i < text.length; i++ )
+		{
+			text[i] = (char)( 'A' + random.nextInt( 26 ) );
+		}
+		return new String( text );
+	}
+
+	/**
+	 * Junta os histogramas das threads desde o último relatório, somando-os aos totais
+	 * @return Os histogramas do intervalo, por operação
+	 */
+	private LatencyHistogram[] collect( LatencyHistogram[] totals )
+	{
+		LatencyHistogram[] period = new LatencyHistogram[OPERATIONS.length];
+		for ( int op = 0; op < OPERATIONS.length; op++ )
+		{
+			period[op] = new LatencyHistogram();
+			for ( int t = 0; t < threads; t++ )
+			{
+				period[op].add( histograms[t][op].copyAndReset() );
+			}
+			totals[op].add( period[op] );
+		}
+		return period;
+	}
+
+	private void header()
+	{
+		System.out.println( pad( "tempo (s)", 10 ) + pad( "operação", 10 ) + pad( "ops/s", 10 ) + pad( "p50", 9 )
+							+ pad( "p90", 9 ) + pad( "p99", 9 ) + pad( "p99.9", 9 ) + pad( "máx (us)", 10 )
+							+ pad( "registros", 11 ) + pad( "arquivo (MB)", 14 ) + pad( "+MB", 9 ) );
+	}
+
+	private void report( double elapsed, double seconds, LatencyHistogram[] period, long size, long growth )
+	{
+		boolean first = true;
+		for ( int op = 0; op < OPERATIONS.length; op++ )
+		{
+			LatencyHistogram h = period[op];
+			if ( mix[op] == 0 )
+			{
+				continue;
+			}
+
+			StringBuffer line = new StringBuffer();
+			line.append( pad( format( elapsed, 1 ), 10 ) );
+			line.append( pad( OPERATIONS[op], 10 ) );
+			line.append( pad( format( h.getCount() / Math.max( seconds, 0.001 ), 0 ), 10 ) );
+			line.append( pad( String.valueOf( h.getValueAtPercentile( 50 ) ), 9 ) );
+			line.append( pad( String.valueOf( h.getValueAtPercentile( 90 ) ), 9 ) );
+			line.append( pad( String.valueOf( h.getValueAtPercentile( 99 ) ), 9 ) );
+			line.append( pad( String.valueOf( h.getValueAtPercentile( 99.9 ) ), 9 ) );
+			line.append( pad( String.valueOf( h.getMax() ), 10 ) );
+			if ( first )
+			{
+				line.append( pad( String.valueOf( handle.getNumberOfRecords() ), 11 ) );
+				line.append( pad( format( size / 1048576.0, 1 ), 14 ) );
+				line.append( pad( format( growth / 1048576.0, 2 ), 9 ) );
+			}
+			System.out.println( line.toString() );
+			first = false;
+		}
+	}
+
+	/**
+	 * Thread de carga
+	 */
+	private class Worker implements Runnable
+	{
+		final int id;
+		final Random random;
+		final TableCursor cursor;
+		final int totalWeight;
+
+		Worker( int id )
+		{
+			this.id 	= id;
+			this.random = new Random( seed + 1 + id );
+			this.cursor = handle.openCursor();
+			cursor.setReadDeletedData( true );
+
+			int sum = 0;
+			for ( int op = 0; op < mix.length; op++ )
+			{
+				sum += mix[op];
+			}
+			this.totalWeight = sum;
+		}
+
+		public void run()
+		{
+			while ( running )
+			{
+				int op = choose();
+
+				// A montagem do registro incluído não faz parte da latência
+				Hashtable data = ( op == APPEND ) ? newRecord( random ) : null;
+
+				long start = System.nanoTime();
+				try
+				{
+					execute( op, data );
+				}
+				catch ( Exception e )
+				{
+					synchronized ( errors )
+					{
+						if ( errors[op]++ == 0 )
+						{
+							System.err.println( "Erro em " + OPERATIONS[op] + ": " + e );
+						}
+					}
+				}
+				histograms[id][op].record( ( System.nanoTime() - start ) / 1000 );
+			}
+		}
+
+		private int choose()
+		{
+			int n = random.nextInt( totalWeight );
+			for ( int op = 0; op < mix.length; op++ )
+			{
+				n -= mix[op];
+				if ( n < 0 )
+				{
+					return op;
+				}
+			}
+			return READ;
+		}
+
+		private void execute( int op, Hashtable data ) throws Exception
+		{
+			int count  = handle.getNumberOfRecords();
+			int record = 1 + random.nextInt( Math.max( 1, count ) );
+
+			switch ( op )
+			{
+				case SCAN :
+				{
+					int first = ( scanRecords == 0 ) ? 1 : record;
+					int limit = ( scanRecords == 0 ) ? count : scanRecords;
+					if ( cursor.goTo( first ) )
+					{
+						int n = 1;
+						cursor.getFieldString( "C_1" );
+						while ( n < limit && cursor.nextRecord() )
+						{
+							cursor.getFieldString( "C_1" );
+							n++;
+						}
+					}
+					break;
+				}
+				case READ :
+				{
+					if ( readHandle )
+					{
+						if ( cursor.goTo( record ) )
+						{
+							cursor.getFieldString( "C_1" );
+						}
+					}
+					else
+					{
+						synchronized ( table )
+						{
+							table.goTo( record );
+							table.getFieldString( "C_1" );
+						}
+					}
+					break;
+				}
+				case UPDATE :
+				{
+					String value = text( random );
+					synchronized ( table )
+					{
+						table.goTo( record );
+						table.setFieldString( "C_1", value );
+						if ( numerics > 0 )
+						{
+							table.setFieldDouble( "N_1", random.nextInt( 10000000 ) / 100.0 );
+						}
+					}
+					break;
+				}
+				case APPEND :
+				{
+					synchronized ( table )
+					{
+						table.addRecord( data );
+					}
+					break;
+				}
+				case DELETE :
+				{
+					synchronized ( table )
+					{
+						table.deleteRecord( record );
+					}
+					break;
+				}
+			}
+		}
+	}
+
+	private int[] parseMix( String value )
+	{
+		int[] weights = new int[OPERATIONS.length];
+		StringTokenizer tokens = new StringTokenizer( value, "," );
+
+		while ( tokens.hasMoreTokens() )
+		{
+			String token = tokens.nextToken().trim();
+			int colon = token.indexOf( ':' );
+			int op = indexOf( ( colon < 0 ) ? token : token.substring( 0, colon ) );
+			if ( op < 0 || colon < 0 )
+			{
+				throw new IllegalArgumentException( "Operação inválida no mix: " + token );
+			}
+			weights[op] = Math.max( 0, number( "mix", token.substring( colon + 1 ) ) );
+		}
+
+		int sum = 0;
+		for ( int op = 0; op < weights.length; op++ )
+		{
+			sum += weights[op];
+		}
+		if ( sum == 0 )
+		{
+			throw new IllegalArgumentException( "O mix precisa de pelo menos uma operação" );
+		}
+		return weights;
+	}
+
+	private String mixToString()
+	{
+		StringBuffer sb = new StringBuffer();
+		for ( int op = 0; op < mix.length; op++ )
+		{
+			if ( sb.length() > 0 )
+			{
+				sb.append( ',' );
+			}
+			sb.append( OPERATIONS[op] ).append( ':' ).append( mix[op] );
+		}
+		return sb.toString();
+	}
+
+	private static int indexOf( String operation )
+	{
+		for ( int op = 0; op < OPERATIONS.length; op++ )
+		{
+			if ( OPERATIONS[op].equals( operation ) )
+			{
+				return op;
+			}
+		}
+		return -1;
+	}
+
+	private static int number( String name, String value )
+	{
+		try
+		{
+			return Integer.parseInt( value.trim() );
+		}
+		catch ( NumberFormatException e )
+		{
+			throw new IllegalArgumentException( "Valor inválido para " + name + ": " + value );
+		}
+	}
+
+	private static String format( double value, int decimals )
+	{
+		long scale = 1;
+		for ( int i = 0; i < decimals; i++ )
+		{
+			scale *= 10;
+		}
+
+		long scaled = Math.round( value * scale );
+		if ( decimals == 0 )
+		{
+			return String.valueOf( scaled );
+		}
+
+		String fraction = String.valueOf( Math.abs( scaled % scale ) + scale ).substring( 1 );
+		return ( scaled < 0 && scaled / scale == 0 ? "-" : "" ) + ( scaled / scale ) + "." + fraction;
+	}
+
+	private static String pad( String text, int width )
+	{
+		StringBuffer sb = new StringBuffer( text );
+		while ( sb.length() < width )
+		{
+			sb.insert( 0, ' ' );
+		}
+		return sb.append( ' ' ).toString();
+	}
+}